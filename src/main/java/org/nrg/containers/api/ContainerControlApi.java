@@ -3,6 +3,7 @@ package org.nrg.containers.api;
 import com.spotify.docker.client.DockerClient;
 import com.spotify.docker.client.exceptions.ServiceNotFoundException;
 import org.nrg.containers.events.model.DockerContainerEvent;
+import org.nrg.containers.events.model.DockerSwarmEvent;
 import org.nrg.containers.exceptions.ContainerException;
 import org.nrg.containers.exceptions.DockerServerException;
 import org.nrg.containers.exceptions.NoDockerServerException;
@@ -10,6 +11,7 @@ import org.nrg.containers.model.command.auto.ResolvedCommand;
 import org.nrg.containers.model.command.auto.Command;
 import org.nrg.containers.model.container.auto.Container;
 import org.nrg.containers.model.container.auto.ContainerMessage;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.containers.model.container.auto.ServiceTask;
 import org.nrg.containers.model.dockerhub.DockerHubBase.DockerHub;
 import org.nrg.containers.model.image.docker.DockerImage;
@@ -17,6 +19,9 @@ import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.xft.security.UserI;
 
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -65,10 +70,40 @@ public interface ContainerControlApi {
     String getContainerStderrLog(String containerId, DockerClient.LogsParam... logParams) throws NoDockerServerException, DockerServerException;
     String getServiceStdoutLog(String serviceId, DockerClient.LogsParam... logParams) throws NoDockerServerException, DockerServerException;
     String getServiceStderrLog(String serviceId, DockerClient.LogsParam... logParams) throws NoDockerServerException, DockerServerException;
+
+    /**
+     * Open a container's (or service's) stdout log as a stream, which the caller must close.
+     * The log is read from docker as the stream is read, rather than all at once.
+     */
+    InputStream getStdoutLogStream(ContainerSummary container, DockerClient.LogsParam... logParams) throws NoDockerServerException, DockerServerException;
+
+    /**
+     * Open a container's (or service's) stderr log as a stream, which the caller must close.
+     * The log is read from docker as the stream is read, rather than all at once.
+     */
+    InputStream getStderrLogStream(ContainerSummary container, DockerClient.LogsParam... logParams) throws NoDockerServerException, DockerServerException;
     
     List<DockerContainerEvent> getContainerEvents(final Date since, final Date until) throws NoDockerServerException, DockerServerException;
     void throwContainerEvents(final Date since, final Date until) throws NoDockerServerException, DockerServerException;
 
+    /**
+     * Open a container event stream with no end time and throw each event as it arrives.
+     * Blocks until the listener asks to stop or the stream is dropped.
+     *
+     * @param sinceTimeNano Events at or before this time (in nanoseconds since the epoch) are not thrown
+     * @param listener Notified after each event is thrown
+     */
+    void throwContainerEventsAsStream(long sinceTimeNano, EventStreamListener<DockerContainerEvent> listener) throws NoDockerServerException, DockerServerException;
+
+    /**
+     * Open a stream of swarm service and node events with no end time and throw each event as it arrives.
+     * Blocks until the listener asks to stop or the stream is dropped.
+     *
+     * @param sinceTimeNano Events at or before this time (in nanoseconds since the epoch) are not thrown
+     * @param listener Notified after each event is thrown
+     */
+    void throwSwarmEventsAsStream(long sinceTimeNano, EventStreamListener<DockerSwarmEvent> listener) throws NoDockerServerException, DockerServerException;
+
     void killContainer(final String id) throws NoDockerServerException, DockerServerException, NotFoundException;
     void killService(String id) throws NoDockerServerException, DockerServerException, NotFoundException;
 
@@ -76,9 +111,37 @@ public interface ContainerControlApi {
 
     ServiceTask getTaskForService(Container service) throws NoDockerServerException, DockerServerException, ServiceNotFoundException;
     ServiceTask getTaskForService(DockerServer dockerServer, Container service) throws DockerServerException, ServiceNotFoundException;
+    /**
+     * Look up the current tasks for many swarm services with a single listTasks call.
+     * Exit codes that docker leaves off the task are not looked up; see {@link #withExitCode(DockerServer, ServiceTask)}.
+     *
+     * @return Map of service ID to task. Services whose task could not be found are not included.
+     */
+    Map<String, ServiceTask> getTasksForServices(DockerServer dockerServer, Collection<ContainerSummary> services) throws DockerServerException;
+    /**
+     * If the task has exited but docker did not report its exit code, read the exit code from the task's container.
+     *
+     * @return The task, with its exit code if one could be found
+     */
+    ServiceTask withExitCode(DockerServer dockerServer, ServiceTask task) throws DockerServerException;
     void throwTaskEventForService(Container service) throws NoDockerServerException, DockerServerException, ServiceNotFoundException;
     void throwTaskEventForService(DockerServer dockerServer, Container service) throws DockerServerException, ServiceNotFoundException;
+    void throwTaskEvent(ServiceTask task, Container service);
     void throwRestartEventForService(Container service) throws ContainerException;
     void throwWaitingEventForService(Container service) throws ContainerException;
 
+    interface EventStreamListener<T> {
+        /**
+         * Called once the stream is open, before any events are read.
+         *
+         * @param stream Closing this from another thread ends the stream, even if it is waiting for an event
+         */
+        default void onOpen(Closeable stream) {}
+
+        /**
+         * @param event An event that has just been thrown
+         * @return true to keep reading the stream, false to close it
+         */
+        boolean onEvent(T event);
+    }
 }
@@ -0,0 +1,352 @@
+package org.nrg.containers.api;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.spotify.docker.client.DefaultDockerClient;
+import com.spotify.docker.client.DockerCertificates;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.auth.FixedRegistryAuthSupplier;
+import com.spotify.docker.client.exceptions.DockerCertificateException;
+import com.spotify.docker.client.messages.RegistryAuth;
+import com.spotify.docker.client.messages.RegistryConfigs;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.nrg.containers.exceptions.DockerServerException;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds long-lived {@link DockerClient}s so that callers share one HTTP connection pool
+ * (and one TLS setup) per docker server instead of building a new client for every request.
+ *
+ * Clients are keyed by the server's connection settings (host, cert path, pool size and timeouts)
+ * and the registry auth, if any. When the server definition changes in a way that affects
+ * the connection, new clients are built on demand and each old client is closed once the
+ * last caller still using it is done. A client built for a registry auth is also dropped after
+ * it goes unused for {@link #REGISTRY_CLIENT_EXPIRE_AFTER_ACCESS_MINUTES} minutes, so credentials
+ * that are no longer used don't each keep a connection pool open.
+ *
+ * Long-running streams (events, followed logs) get their own client from {@link #getStreaming(DockerServer)}.
+ * It has no read timeout, so an idle stream isn't cut off, and its own connection pool, so streams can't
+ * take the connections that ordinary requests need.
+ *
+ * Clients are handed out in {@link Lease}s, which callers close when they are done with the client.
+ * Callers must not close the clients themselves.
+ */
+@Slf4j
+public class DockerClientCache {
+    /**
+     * Connections available to streams. The event stream takes one, and the log spooler bounds its
+     * followed log streams to fit in the rest.
+     */
+    public static final int STREAMING_CONNECTION_POOL_SIZE = 16;
+    public static final long REGISTRY_CLIENT_EXPIRE_AFTER_ACCESS_MINUTES = 10L;
+
+    private final ConcurrentMap<ClientKey, SharedClient> clients = new ConcurrentHashMap<>();
+    private final Cache<ClientKey, SharedClient> registryClients;
+    private volatile ClientKey currentServerKey;
+
+    public DockerClientCache() {
+        this(Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    DockerClientCache(final Ticker ticker) {
+        registryClients = CacheBuilder.newBuilder()
+                .expireAfterAccess(REGISTRY_CLIENT_EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .removalListener(new RemovalListener<ClientKey, SharedClient>() {
+                    @Override
+                    public void onRemoval(final RemovalNotification<ClientKey, SharedClient> notification) {
+                        // Anyone still using the client can finish. It is closed when they release it.
+                        final SharedClient shared = notification.getValue();
+                        if (shared != null) {
+                            shared.retire();
+                        }
+                    }
+                })
+                .build();
+    }
+
+    @Nonnull
+    public Lease get(final @Nonnull DockerServer server) throws DockerServerException {
+        return get(server, (RegistryAuth) null);
+    }
+
+    @Nonnull
+    public Lease get(final @Nonnull DockerServer server, final @Nullable RegistryAuth registryAuth)
+            throws DockerServerException {
+        return getForKey(server, registryAuth == null ? null : new ClientKey(server, registryAuth, false));
+    }
+
+    /**
+     * @return A lease on the shared client for long-running streams, with no read timeout and its own connection pool
+     */
+    @Nonnull
+    public Lease getStreaming(final @Nonnull DockerServer server) throws DockerServerException {
+        return getForKey(server, new ClientKey(server, null, true));
+    }
+
+    @Nonnull
+    private Lease getForKey(final @Nonnull DockerServer server, final @Nullable ClientKey clientKey)
+            throws DockerServerException {
+        final ClientKey serverKey = new ClientKey(server, null, false);
+        final ClientKey key = clientKey == null ? serverKey : clientKey;
+        final ConcurrentMap<ClientKey, SharedClient> keyedClients = key.registryAuth == null ? clients : registryClients.asMap();
+        // Expiry otherwise only happens when registry clients are used, which may be rarely
+        registryClients.cleanUp();
+        while (true) {
+            if (!serverKey.equals(currentServerKey)) {
+                serverChanged(serverKey);
+            }
+
+            SharedClient shared = keyedClients.get(key);
+            if (shared == null) {
+                synchronized (this) {
+                    if (!serverKey.equals(currentServerKey)) {
+                        serverChanged(serverKey);
+                    }
+                    shared = keyedClients.get(key);
+                    if (shared == null) {
+                        log.debug("Creating shared {}docker client for server {}.", key.streaming ? "streaming " : "", server.host());
+                        shared = new SharedClient(build(server, key.registryAuth, key.streaming));
+                        keyedClients.put(key, shared);
+                    }
+                }
+            }
+
+            final Lease lease = shared.lease();
+            if (lease != null) {
+                return lease;
+            }
+            // The client was retired between our lookup and acquiring it. Look again.
+        }
+    }
+
+    /**
+     * Forget all cached clients. The next request will build a new client.
+     * Each old client is closed once the last lease on it is released, so requests and streams
+     * that are already using it can finish.
+     */
+    public synchronized void invalidate() {
+        final List<SharedClient> toRetire = new ArrayList<>(clients.values());
+        clients.clear();
+        currentServerKey = null;
+        for (final SharedClient shared : toRetire) {
+            shared.retire();
+        }
+        // The removal listener retires these
+        registryClients.invalidateAll();
+    }
+
+    /**
+     * Close all cached clients now, whether or not they are leased. For shutdown.
+     */
+    public synchronized void close() {
+        final List<SharedClient> toClose = new ArrayList<>(clients.values());
+        toClose.addAll(registryClients.asMap().values());
+        clients.clear();
+        registryClients.invalidateAll();
+        currentServerKey = null;
+        for (final SharedClient shared : toClose) {
+            shared.closeClient();
+        }
+    }
+
+    private synchronized void serverChanged(final ClientKey serverKey) {
+        if (serverKey.equals(currentServerKey)) {
+            // Another thread already handled the change
+            return;
+        }
+        if (currentServerKey != null) {
+            log.info("Docker server connection settings have changed. Rebuilding docker clients.");
+        }
+        invalidate();
+        currentServerKey = serverKey;
+    }
+
+    /**
+     * Build a new, unshared client for the given server. The caller owns the client and is responsible for closing it.
+     */
+    @Nonnull
+    public static DockerClient build(final @Nonnull DockerServer server, final @Nullable RegistryAuth registryAuth)
+            throws DockerServerException {
+        return build(server, registryAuth, false);
+    }
+
+    @Nonnull
+    private static DockerClient build(final @Nonnull DockerServer server,
+                                      final @Nullable RegistryAuth registryAuth,
+                                      final boolean streaming)
+            throws DockerServerException {
+        DefaultDockerClient.Builder clientBuilder =
+                DefaultDockerClient.builder()
+                        .uri(server.host());
+
+        if (StringUtils.isNotBlank(server.certPath())) {
+            try {
+                final DockerCertificates certificates =
+                        new DockerCertificates(Paths.get(server.certPath()));
+                clientBuilder = clientBuilder.dockerCertificates(certificates);
+            } catch (DockerCertificateException e) {
+                log.error("Could not find docker certificates at {}", server.certPath(), e);
+            }
+        }
+
+        if (streaming) {
+            clientBuilder = clientBuilder.connectionPoolSize(STREAMING_CONNECTION_POOL_SIZE);
+        } else if (server.connectionPoolSize() != null && server.connectionPoolSize() > 0) {
+            clientBuilder = clientBuilder.connectionPoolSize(server.connectionPoolSize());
+        }
+        if (server.connectTimeoutMillis() != null && server.connectTimeoutMillis() >= 0) {
+            clientBuilder = clientBuilder.connectTimeoutMillis(server.connectTimeoutMillis());
+        }
+        if (streaming) {
+            // Zero means no timeout. Streams sit idle until something happens.
+            clientBuilder = clientBuilder.readTimeoutMillis(0);
+        } else if (server.readTimeoutMillis() != null && server.readTimeoutMillis() >= 0) {
+            clientBuilder = clientBuilder.readTimeoutMillis(server.readTimeoutMillis());
+        }
+
+        if (registryAuth != null) {
+            clientBuilder = clientBuilder.registryAuthSupplier(new FixedRegistryAuthSupplier(registryAuth, RegistryConfigs.empty()));
+        }
+
+        try {
+            log.trace("DOCKER CLIENT URI IS: {}", clientBuilder.uri().toString());
+
+            return clientBuilder.build();
+        } catch (Throwable e) {
+            log.error("Could not create DockerClient instance. Reason: {}", e.getMessage(), e);
+            throw new DockerServerException(e);
+        }
+    }
+
+    /**
+     * A use of a shared client. Close it when you are done with the client, or, for a stream,
+     * when the stream is closed. Closing the lease does not close the client.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final SharedClient shared;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Lease(final SharedClient shared) {
+            this.shared = shared;
+        }
+
+        @Nonnull
+        public DockerClient client() {
+            return shared.client;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                shared.release();
+            }
+        }
+    }
+
+    static class SharedClient {
+        private final DockerClient client;
+        private int leases = 0;
+        private boolean retired = false;
+        private boolean closed = false;
+
+        SharedClient(final DockerClient client) {
+            this.client = client;
+        }
+
+        /**
+         * @return A new lease on the client, or null if the client has been retired
+         */
+        @Nullable
+        synchronized Lease lease() {
+            if (retired) {
+                return null;
+            }
+            leases++;
+            return new Lease(this);
+        }
+
+        private synchronized void release() {
+            leases--;
+            if (retired && leases == 0) {
+                closeClient();
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            if (leases == 0) {
+                closeClient();
+            }
+        }
+
+        private synchronized void closeClient() {
+            retired = true;
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                client.close();
+            } catch (Exception e) {
+                log.debug("Error closing docker client.", e);
+            }
+        }
+    }
+
+    private static class ClientKey {
+        private final String host;
+        private final String certPath;
+        private final Integer connectionPoolSize;
+        private final Long connectTimeoutMillis;
+        private final Long readTimeoutMillis;
+        private final RegistryAuth registryAuth;
+        private final boolean streaming;
+
+        private ClientKey(final DockerServer server, final RegistryAuth registryAuth, final boolean streaming) {
+            this.host = server.host();
+            this.certPath = server.certPath();
+            this.connectionPoolSize = server.connectionPoolSize();
+            this.connectTimeoutMillis = server.connectTimeoutMillis();
+            this.readTimeoutMillis = server.readTimeoutMillis();
+            this.registryAuth = registryAuth;
+            this.streaming = streaming;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final ClientKey that = (ClientKey) o;
+            return Objects.equals(this.host, that.host) &&
+                    Objects.equals(this.certPath, that.certPath) &&
+                    Objects.equals(this.connectionPoolSize, that.connectionPoolSize) &&
+                    Objects.equals(this.connectTimeoutMillis, that.connectTimeoutMillis) &&
+                    Objects.equals(this.readTimeoutMillis, that.readTimeoutMillis) &&
+                    Objects.equals(this.registryAuth, that.registryAuth) &&
+                    this.streaming == that.streaming;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, certPath, connectionPoolSize, connectTimeoutMillis, readTimeoutMillis, registryAuth, streaming);
+        }
+    }
+}
@@ -4,17 +4,13 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.spotify.docker.client.DefaultDockerClient;
-import com.spotify.docker.client.DockerCertificates;
 import com.spotify.docker.client.DockerClient;
 import com.spotify.docker.client.DockerClient.ListImagesParam;
 import com.spotify.docker.client.DockerClient.LogsParam;
 import com.spotify.docker.client.EventStream;
 import com.spotify.docker.client.LogStream;
 import com.spotify.docker.client.auth.ConfigFileRegistryAuthSupplier;
-import com.spotify.docker.client.auth.FixedRegistryAuthSupplier;
 import com.spotify.docker.client.exceptions.ContainerNotFoundException;
-import com.spotify.docker.client.exceptions.DockerCertificateException;
 import com.spotify.docker.client.exceptions.DockerException;
 import com.spotify.docker.client.exceptions.ImageNotFoundException;
 import com.spotify.docker.client.exceptions.ServiceNotFoundException;
@@ -35,6 +31,7 @@ import com.spotify.docker.client.messages.swarm.Resources;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.nrg.containers.events.model.DockerContainerEvent;
+import org.nrg.containers.events.model.DockerSwarmEvent;
 import org.nrg.containers.events.model.ServiceTaskEvent;
 import org.nrg.containers.exceptions.ContainerException;
 import org.nrg.containers.exceptions.DockerServerException;
@@ -44,6 +41,7 @@ import org.nrg.containers.model.command.auto.ResolvedCommand;
 import org.nrg.containers.model.command.auto.ResolvedCommandMount;
 import org.nrg.containers.model.container.auto.Container;
 import org.nrg.containers.model.container.auto.ContainerMessage;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.containers.model.container.auto.ServiceTask;
 import org.nrg.containers.model.dockerhub.DockerHubBase.DockerHub;
 import org.nrg.containers.model.image.docker.DockerImage;
@@ -54,12 +52,14 @@ import org.nrg.containers.utils.ShellSplitter;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.framework.services.NrgEventService;
 import org.nrg.xft.security.UserI;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.InputStream;
 import java.nio.file.Paths;
 import java.util.*;
 
@@ -70,11 +70,14 @@ import static org.nrg.containers.services.CommandLabelService.LABEL_KEY;
 
 @Slf4j
 @Service
-public class DockerControlApi implements ContainerControlApi {
+public class DockerControlApi implements ContainerControlApi, DisposableBean {
+    // Label put on every swarm service we create, so we can find all our tasks at once
+    public static final String SERVICE_LABEL_KEY = "org.nrg.containers.service";
 
     private final DockerServerService dockerServerService;
     private final CommandLabelService commandLabelService;
     private final NrgEventService eventService;
+    private final DockerClientCache clientCache = new DockerClientCache();
 
     @Autowired
     public DockerControlApi(final DockerServerService dockerServerService,
@@ -104,7 +107,8 @@ public class DockerControlApi implements ContainerControlApi {
     }
 
     private String pingServer(final DockerServer dockerServer) throws DockerServerException {
-        try (final DockerClient client = getClient(dockerServer)) {
+        try (final DockerClientCache.Lease lease = client(dockerServer)) {
+            final DockerClient client = lease.client();
             return client.ping();
         } catch (DockerException | InterruptedException e) {
             log.error("Unable to connect with Docker server {}:\n{}", dockerServer == null ? "" : dockerServer.toString(), e.getMessage());
@@ -113,7 +117,8 @@ public class DockerControlApi implements ContainerControlApi {
     }
 
     private String pingSwarmMaster(final DockerServer dockerServer) throws DockerServerException {
-        try (final DockerClient client = getClient(dockerServer)) {
+        try (final DockerClientCache.Lease lease = client(dockerServer)) {
+            final DockerClient client = lease.client();
             client.inspectSwarm();
             // If we got this far without an exception, then all is well.
         } catch (DockerException | InterruptedException e) {
@@ -148,7 +153,8 @@ public class DockerControlApi implements ContainerControlApi {
     public String pingHub(final @Nonnull DockerHub hub, final @Nullable String username, final @Nullable String password)
             throws DockerServerException, NoDockerServerException {
         int status = 500;
-        try (final DockerClient client = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient client = lease.client();
             status = client.auth(registryAuth(hub, username, password, true));
         } catch (Exception e) {
             log.error(e.getMessage());
@@ -225,7 +231,8 @@ public class DockerControlApi implements ContainerControlApi {
         final ListImagesParam[] dockerParams =
                 dockerParamsList.toArray(new ListImagesParam[dockerParamsList.size()]);
 
-        try (final DockerClient dockerClient = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient dockerClient = lease.client();
             return dockerClient.listImages(dockerParams);
         } catch (DockerException | InterruptedException e) {
             log.error("Failed to list images. {}", e.getMessage(), e);
@@ -246,8 +253,8 @@ public class DockerControlApi implements ContainerControlApi {
     @Nonnull
     public DockerImage getImageById(final String imageId)
         throws NotFoundException, DockerServerException, NoDockerServerException {
-        try (final DockerClient client = getClient()) {
-            return getImageById(imageId, client);
+        try (final DockerClientCache.Lease lease = client()) {
+            return getImageById(imageId, lease.client());
         }
     }
 
@@ -548,7 +555,8 @@ public class DockerControlApi implements ContainerControlApi {
             log.debug(message);
         }
 
-        try (final DockerClient client = getClient(server)) {
+        try (final DockerClientCache.Lease lease = client(server)) {
+            final DockerClient client = lease.client();
             final ContainerCreation container = client.createContainer(containerConfig);
 
             final List<String> warnings = container.warnings();
@@ -661,6 +669,7 @@ public class DockerControlApi implements ContainerControlApi {
                 .build();
         final ServiceSpec serviceSpec =
                 ServiceSpec.builder()
+                        .labels(Collections.singletonMap(SERVICE_LABEL_KEY, "true"))
                         .taskTemplate(taskSpec)
                         .mode(ServiceMode.builder()
                                 .replicated(ReplicatedService.builder()
@@ -696,7 +705,8 @@ public class DockerControlApi implements ContainerControlApi {
             log.debug(message);
         }
 
-        try (final DockerClient client = getClient(server)) {
+        try (final DockerClientCache.Lease lease = client(server)) {
+            final DockerClient client = lease.client();
             final ServiceCreateResponse serviceCreateResponse = client.createService(serviceSpec);
 
             final List<String> warnings = serviceCreateResponse.warnings();
@@ -724,7 +734,8 @@ public class DockerControlApi implements ContainerControlApi {
         final String containerOrServiceId = swarmMode ? containerOrService.serviceId() : containerOrService.containerId();
         // imageNameForSwarmAuth only needed bc authForSwarm not implemented in Spotify client for config.json auth
         final String imageNameForSwarmAuth = swarmMode ? containerOrService.dockerImage() : null;
-        try (final DockerClient client = getClient(server, imageNameForSwarmAuth)) {
+        try (final DockerClientCache.Lease lease = client(server, imageNameForSwarmAuth)) {
+            final DockerClient client = lease.client();
             if (swarmMode) {
                 log.debug("Inspecting service {}", containerOrServiceId);
                 final com.spotify.docker.client.messages.swarm.Service service = client.inspectService(containerOrServiceId);
@@ -762,7 +773,8 @@ public class DockerControlApi implements ContainerControlApi {
 
     @Override
     public void deleteImageById(final String id, final Boolean force) throws NoDockerServerException, DockerServerException {
-        try (final DockerClient dockerClient = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient dockerClient = lease.client();
             dockerClient.removeImage(id, force, false);
         } catch (DockerException|InterruptedException e) {
             throw new DockerServerException(e);
@@ -785,14 +797,16 @@ public class DockerControlApi implements ContainerControlApi {
     @Override
     @Nullable
     public DockerImage pullImage(final String name, final @Nullable DockerHub hub, final @Nullable String username, final @Nullable String password) throws NoDockerServerException, DockerServerException, NotFoundException {
-        final DockerClient client = getClient();
-        _pullImage(name, registryAuth(hub, username, password), client);  // We want to throw NotFoundException here if the image is not found on the hub
-        try {
-            return getImageById(name, client);  // We don't want to throw NotFoundException from here. If we can't find the image here after it has been pulled, that is a server error.
-        } catch (NotFoundException e) {
-            final String m = String.format("Image \"%s\" was not found", name);
-            log.error(m);
-            throw new DockerServerException(e);
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient client = lease.client();
+            _pullImage(name, registryAuth(hub, username, password), client);  // We want to throw NotFoundException here if the image is not found on the hub
+            try {
+                return getImageById(name, client);  // We don't want to throw NotFoundException from here. If we can't find the image here after it has been pulled, that is a server error.
+            } catch (NotFoundException e) {
+                final String m = String.format("Image \"%s\" was not found", name);
+                log.error(m);
+                throw new DockerServerException(e);
+            }
         }
     }
 
@@ -849,7 +863,8 @@ public class DockerControlApi implements ContainerControlApi {
         final DockerClient.ListContainersParam[] dockerParams =
                 dockerParamsList.toArray(new DockerClient.ListContainersParam[dockerParamsList.size()]);
 
-        try (final DockerClient dockerClient = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient dockerClient = lease.client();
             containerList = dockerClient.listContainers(dockerParams);
         } catch (DockerException | InterruptedException e) {
             log.error(e.getMessage());
@@ -884,9 +899,8 @@ public class DockerControlApi implements ContainerControlApi {
     }
 
     private ContainerInfo _getContainer(final String id) throws NoDockerServerException, DockerServerException {
-        final DockerClient client = getClient();
-        try {
-            return client.inspectContainer(id);
+        try (final DockerClientCache.Lease lease = client()) {
+            return lease.client().inspectContainer(id);
         } catch (DockerException | InterruptedException e) {
             log.error("Container server error." + e.getMessage());
             throw new DockerServerException(e);
@@ -918,7 +932,8 @@ public class DockerControlApi implements ContainerControlApi {
     }
 
     private String getContainerLog(final Container container, final LogsParam logType) throws NoDockerServerException, DockerServerException {
-        try (final LogStream logStream = logStream(container, logType)) {
+        try (final DockerClientCache.Lease lease = client();
+             final LogStream logStream = logStream(lease.client(), container, logType)) {
             return logStream.readFully();
         } catch (NoDockerServerException e) {
             throw e;
@@ -928,11 +943,10 @@ public class DockerControlApi implements ContainerControlApi {
         }
     }
 
-    private LogStream logStream(final Container container, final LogsParam logType) throws DockerServerException, NoDockerServerException, DockerException, InterruptedException {
-        final DockerServer server = getServer();
-        return server.swarmMode() && container.isSwarmService() ?
-                getClient(server).serviceLogs(container.serviceId(), logType) :
-                getClient(server).logs(container.containerId(), logType);
+    private LogStream logStream(final DockerClient client, final Container container, final LogsParam logType) throws DockerServerException, NoDockerServerException, DockerException, InterruptedException {
+        return getServer().swarmMode() && container.isSwarmService() ?
+                client.serviceLogs(container.serviceId(), logType) :
+                client.logs(container.containerId(), logType);
     }
 
     @Override
@@ -957,7 +971,8 @@ public class DockerControlApi implements ContainerControlApi {
 
     private String getContainerLog(final String containerId, final LogsParam logType, LogsParam... addlParams)
             throws NoDockerServerException, DockerServerException {
-        try (final LogStream logStream = getClient().logs(containerId, collectLogsParams(logType, addlParams))) {
+        try (final DockerClientCache.Lease lease = client();
+             final LogStream logStream = lease.client().logs(containerId, collectLogsParams(logType, addlParams))) {
             return logStream.readFully();
         } catch (NoDockerServerException e) {
             throw e;
@@ -988,7 +1003,8 @@ public class DockerControlApi implements ContainerControlApi {
 
     private String getServiceLog(final String serviceId, final LogsParam logType, LogsParam... addlParams)
             throws DockerServerException, NoDockerServerException {
-        try (final LogStream logStream = getClient().serviceLogs(serviceId, collectLogsParams(logType, addlParams))) {
+        try (final DockerClientCache.Lease lease = client();
+             final LogStream logStream = lease.client().serviceLogs(serviceId, collectLogsParams(logType, addlParams))) {
             return logStream.readFully();
         } catch (NoDockerServerException e) {
             throw e;
@@ -996,7 +1012,37 @@ public class DockerControlApi implements ContainerControlApi {
             log.error(e.getMessage());
             throw new DockerServerException(e);
         }
-    }    
+    }
+
+    @Override
+    public InputStream getStdoutLogStream(final ContainerSummary container, final LogsParam... logParams)
+            throws NoDockerServerException, DockerServerException {
+        return getLogStream(container, LogsParam.stdout(), logParams);
+    }
+
+    @Override
+    public InputStream getStderrLogStream(final ContainerSummary container, final LogsParam... logParams)
+            throws NoDockerServerException, DockerServerException {
+        return getLogStream(container, LogsParam.stderr(), logParams);
+    }
+
+    private InputStream getLogStream(final ContainerSummary container, final LogsParam logType, final LogsParam... addlParams)
+            throws NoDockerServerException, DockerServerException {
+        final LogsParam[] params = collectLogsParams(logType, addlParams);
+        final DockerClientCache.Lease lease = client();
+        try {
+            final LogStream logStream = container.isSwarmService() ?
+                    lease.client().serviceLogs(container.serviceId(), params) :
+                    lease.client().logs(container.containerId(), params);
+            // The stream keeps the lease until it is closed, so the client isn't closed out from under it
+            return new LogStreamInputStream(logStream, lease);
+        } catch (Exception e) {
+            lease.close();
+            log.error(e.getMessage());
+            throw new DockerServerException(e);
+        }
+    }
+
     private LogsParam[] collectLogsParams(LogsParam logType, LogsParam... addlParams) {
         List<LogsParam> params = new ArrayList<>();
         params.add(logType);
@@ -1012,54 +1058,54 @@ public class DockerControlApi implements ContainerControlApi {
         return paramsArr;
     }
 
+    /**
+     * Build a new docker client for the configured server. Unlike the clients used internally,
+     * this one is not shared; the caller must close it.
+     */
     @VisibleForTesting
     @Nonnull
     public DockerClient getClient() throws NoDockerServerException, DockerServerException {
-        return getClient(getServer());
+        return DockerClientCache.build(getServer(), null);
     }
 
     @Nonnull
-    private DockerClient getClient(final @Nonnull DockerServer server) throws DockerServerException {
-        return getClient(server, null);
+    private DockerClientCache.Lease client() throws NoDockerServerException, DockerServerException {
+        return client(getServer());
     }
 
     @Nonnull
-    private DockerClient getClient(final @Nonnull DockerServer server, final @Nullable String imageName)
-            throws DockerServerException {
-
-        DefaultDockerClient.Builder clientBuilder =
-            DefaultDockerClient.builder()
-                .uri(server.host());
-
-        if (StringUtils.isNotBlank(server.certPath())) {
-            try {
-                final DockerCertificates certificates =
-                    new DockerCertificates(Paths.get(server.certPath()));
-                clientBuilder = clientBuilder.dockerCertificates(certificates);
-            } catch (DockerCertificateException e) {
-                log.error("Could not find docker certificates at {}", server.certPath(), e);
-            }
-        }
+    private DockerClientCache.Lease client(final @Nonnull DockerServer server) throws DockerServerException {
+        return client(server, null);
+    }
 
+    @Nonnull
+    private DockerClientCache.Lease client(final @Nonnull DockerServer server, final @Nullable String imageName)
+            throws DockerServerException {
+        RegistryAuth auth = null;
         if (StringUtils.isNotBlank(imageName)) {
             //TODO This is a workaround because Spotify client doesn't implement
             // ConfigFileRegistryAuthSupplier.authForSwarm(). Once that's added, we can get rid of this.
             try {
-                final RegistryAuth auth = new ConfigFileRegistryAuthSupplier().authFor(imageName);
-                clientBuilder.registryAuthSupplier(new FixedRegistryAuthSupplier(auth, RegistryConfigs.empty()));
+                auth = new ConfigFileRegistryAuthSupplier().authFor(imageName);
             } catch (DockerException e) {
                 log.error("Could not find auth for {}", imageName, e);
             }
         }
 
-        try {
-            log.trace("DOCKER CLIENT URI IS: {}", clientBuilder.uri().toString());
+        return clientCache.get(server, auth);
+    }
 
-        	return clientBuilder.build();
-        } catch (Throwable e) {
-            log.error("Could not create DockerClient instance. Reason: {}", e.getMessage(), e);
-            throw new DockerServerException(e);
-        }
+    /**
+     * @return A lease on the shared client for long-running streams, which has no read timeout and its own connection pool
+     */
+    @Nonnull
+    private DockerClientCache.Lease streamingClient() throws NoDockerServerException, DockerServerException {
+        return clientCache.getStreaming(getServer());
+    }
+
+    @Override
+    public void destroy() {
+        clientCache.close();
     }
 
     @Override
@@ -1068,21 +1114,7 @@ public class DockerControlApi implements ContainerControlApi {
 
         final List<DockerContainerEvent> events = Lists.newArrayList();
         for (final Event dockerEvent : dockerEventList) {
-            final Event.Actor dockerEventActor = dockerEvent.actor();
-            final Map<String, String> attributes = Maps.newHashMap();
-            if (dockerEventActor != null && dockerEventActor.attributes() != null) {
-                attributes.putAll(dockerEventActor.attributes());
-            }
-            if (attributes.containsKey(LABEL_KEY)) {
-                attributes.put(LABEL_KEY, "<elided>");
-            }
-            final DockerContainerEvent containerEvent =
-                    DockerContainerEvent.create(dockerEvent.action(),
-                            dockerEventActor != null? dockerEventActor.id() : null,
-                            dockerEvent.time(),
-                            dockerEvent.timeNano(),
-                            attributes);
-            events.add(containerEvent);
+            events.add(toContainerEvent(dockerEvent));
         }
         return events;
     }
@@ -1092,18 +1124,115 @@ public class DockerControlApi implements ContainerControlApi {
         final List<DockerContainerEvent> events = getContainerEvents(since, until);
 
         for (final DockerContainerEvent event : events) {
-            if (event.isIgnoreStatus()) {
-                // This occurs on container cleanup, ignore it, we've already finalized at this point
-                log.debug("Skipping docker container event: {}", event);
-                continue;
+            throwContainerEvent(event);
+        }
+    }
+
+    @Override
+    public void throwContainerEventsAsStream(final long sinceTimeNano, final EventStreamListener<DockerContainerEvent> listener)
+            throws NoDockerServerException, DockerServerException {
+        throwEventsAsStream(sinceTimeNano, listener, new Function<Event, DockerContainerEvent>() {
+            @Override
+            public DockerContainerEvent apply(final Event dockerEvent) {
+                final DockerContainerEvent event = toContainerEvent(dockerEvent);
+                throwContainerEvent(event);
+                return event;
+            }
+        }, type(Event.Type.CONTAINER));
+    }
+
+    @Override
+    public void throwSwarmEventsAsStream(final long sinceTimeNano, final EventStreamListener<DockerSwarmEvent> listener)
+            throws NoDockerServerException, DockerServerException {
+        throwEventsAsStream(sinceTimeNano, listener, new Function<Event, DockerSwarmEvent>() {
+            @Override
+            public DockerSwarmEvent apply(final Event dockerEvent) {
+                final DockerSwarmEvent event = toSwarmEvent(dockerEvent);
+                log.debug("Throwing docker swarm event: {}", event);
+                eventService.triggerEvent(event);
+                return event;
             }
-            log.debug("Throwing docker container event: {}", event);
-            eventService.triggerEvent(event);
+        }, type(Event.Type.SERVICE), type(Event.Type.NODE));
+    }
+
+    /**
+     * Read events from a stream with no end time, converting and throwing each with throwEvent.
+     */
+    private <T> void throwEventsAsStream(final long sinceTimeNano,
+                                         final EventStreamListener<T> listener,
+                                         final Function<Event, T> throwEvent,
+                                         final DockerClient.EventsParam... typeParams)
+            throws NoDockerServerException, DockerServerException {
+        log.debug("Opening docker event stream from {}.", sinceTimeNano);
+        final List<DockerClient.EventsParam> params = Lists.newArrayList(typeParams);
+        params.add(since(sinceTimeNano / 1000000000L));
+        try (final DockerClientCache.Lease lease = streamingClient();
+             final EventStream eventStream =
+                     lease.client().events(params.toArray(new DockerClient.EventsParam[params.size()]))) {
+            listener.onOpen(eventStream);
+            while (eventStream.hasNext()) {
+                final Event dockerEvent = eventStream.next();
+                final Long timeNano = dockerEvent.timeNano();
+                if (timeNano != null && timeNano <= sinceTimeNano) {
+                    // "since" only has one-second granularity, so we see some events again when we reconnect
+                    log.trace("Skipping docker event we have already seen: {}", dockerEvent);
+                    continue;
+                }
+
+                if (!listener.onEvent(throwEvent.apply(dockerEvent))) {
+                    log.debug("Closing docker event stream.");
+                    return;
+                }
+            }
+        } catch (InterruptedException | DockerException e) {
+            throw new DockerServerException(e);
+        } catch (RuntimeException e) {
+            // The stream throws unchecked exceptions when the connection is dropped or times out
+            throw new DockerServerException("Docker event stream ended: " + e.getMessage(), e);
+        }
+    }
+
+    private void throwContainerEvent(final DockerContainerEvent event) {
+        if (event.isIgnoreStatus()) {
+            // This occurs on container cleanup, ignore it, we've already finalized at this point
+            log.debug("Skipping docker container event: {}", event);
+            return;
+        }
+        log.debug("Throwing docker container event: {}", event);
+        eventService.triggerEvent(event);
+    }
+
+    @Nonnull
+    private DockerSwarmEvent toSwarmEvent(final Event dockerEvent) {
+        final Event.Actor dockerEventActor = dockerEvent.actor();
+        return DockerSwarmEvent.create(dockerEvent.type() == Event.Type.NODE ? DockerSwarmEvent.TYPE_NODE : DockerSwarmEvent.TYPE_SERVICE,
+                dockerEvent.action(),
+                dockerEventActor != null ? dockerEventActor.id() : null,
+                dockerEvent.time(),
+                dockerEvent.timeNano(),
+                dockerEventActor != null ? dockerEventActor.attributes() : null);
+    }
+
+    @Nonnull
+    private DockerContainerEvent toContainerEvent(final Event dockerEvent) {
+        final Event.Actor dockerEventActor = dockerEvent.actor();
+        final Map<String, String> attributes = Maps.newHashMap();
+        if (dockerEventActor != null && dockerEventActor.attributes() != null) {
+            attributes.putAll(dockerEventActor.attributes());
         }
+        if (attributes.containsKey(LABEL_KEY)) {
+            attributes.put(LABEL_KEY, "<elided>");
+        }
+        return DockerContainerEvent.create(dockerEvent.action(),
+                dockerEventActor != null? dockerEventActor.id() : null,
+                dockerEvent.time(),
+                dockerEvent.timeNano(),
+                attributes);
     }
 
     private List<Event> getDockerContainerEvents(final Date since, final Date until) throws NoDockerServerException, DockerServerException {
-        try(final DockerClient client = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient client = lease.client();
             log.trace("Reading all docker container events from {} to {}.", since.getTime(), until.getTime());
             
             final List<Event> eventList;
@@ -1131,7 +1260,8 @@ public class DockerControlApi implements ContainerControlApi {
 
     @Override
     public void killContainer(final String id) throws NoDockerServerException, DockerServerException, NotFoundException {
-        try(final DockerClient client = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient client = lease.client();
             log.info("Killing container {}", id);
             client.killContainer(id);
         } catch (ContainerNotFoundException e) {
@@ -1148,7 +1278,8 @@ public class DockerControlApi implements ContainerControlApi {
 
     @Override
     public void killService(final String id) throws NoDockerServerException, DockerServerException, NotFoundException {
-        try(final DockerClient client = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient client = lease.client();
             log.info("Killing service {}", id);
             client.removeService(id);
         } catch (ContainerNotFoundException e) {
@@ -1170,7 +1301,8 @@ public class DockerControlApi implements ContainerControlApi {
         if (!server.autoCleanup()) {
             return;
         }
-        try (final DockerClient client = getClient()) {
+        try (final DockerClientCache.Lease lease = client()) {
+            final DockerClient client = lease.client();
             String id;
             if (container.isSwarmService()) {
                 id = container.serviceId();
@@ -1201,7 +1333,8 @@ public class DockerControlApi implements ContainerControlApi {
     @Nullable
     public ServiceTask getTaskForService(final DockerServer dockerServer, final Container service)
             throws DockerServerException, ServiceNotFoundException {
-        try (final DockerClient client = getClient(dockerServer)) {
+        try (final DockerClientCache.Lease lease = client(dockerServer)) {
+            final DockerClient client = lease.client();
             Task task = null;
             final String serviceId = service.serviceId();
             final String taskId = service.taskId();
@@ -1235,26 +1368,7 @@ public class DockerControlApi implements ContainerControlApi {
             }
 
             if (task != null) {
-                final ServiceTask serviceTask = ServiceTask.create(task, serviceId);
-
-                if (serviceTask.isExitStatus() && serviceTask.exitCode() == null) {
-                    // The Task is supposed to have the container exit code, but docker doesn't report it where it should.
-                    // So go get the container info and get the exit code
-                    final String containerId = serviceTask.containerId();
-                    log.debug("Looking up exit code for container {}.", containerId);
-                    if (containerId != null) {
-                        final ContainerInfo containerInfo = client.inspectContainer(containerId);
-                        if (containerInfo.state().exitCode() == null) {
-                            log.debug("Welp. Container exit code is null on the container too.");
-                        } else {
-                            return serviceTask.toBuilder().exitCode(containerInfo.state().exitCode()).build();
-                        }
-                    } else {
-                        log.error("Cannot look up exit code. Container ID is null.");
-                    }
-                }
-
-                return serviceTask;
+                return withExitCode(ServiceTask.create(task, serviceId), client);
             }
         } catch (ServiceNotFoundException e) {
             log.error(e.getMessage());
@@ -1270,6 +1384,95 @@ public class DockerControlApi implements ContainerControlApi {
         return null;
     }
 
+    @Override
+    @Nonnull
+    public Map<String, ServiceTask> getTasksForServices(final DockerServer dockerServer, final Collection<ContainerSummary> services)
+            throws DockerServerException {
+        final Map<String, ServiceTask> serviceTasks = Maps.newHashMap();
+        if (services.isEmpty()) {
+            return serviceTasks;
+        }
+
+        try (final DockerClientCache.Lease lease = client(dockerServer)) {
+            final DockerClient client = lease.client();
+            final List<Task> tasks = client.listTasks(Task.Criteria.builder().label(SERVICE_LABEL_KEY).build());
+            log.trace("Found {} tasks for container service swarm services.", tasks.size());
+
+            final Map<String, List<Task>> tasksByServiceId = Maps.newHashMap();
+            for (final Task task : tasks) {
+                List<Task> tasksForService = tasksByServiceId.get(task.serviceId());
+                if (tasksForService == null) {
+                    tasksForService = Lists.newArrayList();
+                    tasksByServiceId.put(task.serviceId(), tasksForService);
+                }
+                tasksForService.add(task);
+            }
+
+            for (final ContainerSummary service : services) {
+                final String serviceId = service.serviceId();
+                final List<Task> tasksForService = tasksByServiceId.get(serviceId);
+                if (tasksForService == null) {
+                    continue;
+                }
+
+                Task task = null;
+                if (service.taskId() != null) {
+                    for (final Task candidate : tasksForService) {
+                        if (service.taskId().equals(candidate.id())) {
+                            task = candidate;
+                            break;
+                        }
+                    }
+                } else if (tasksForService.size() == 1) {
+                    task = tasksForService.get(0);
+                }
+
+                // Anything we can't match up here is left out, and can be looked up one service at a time
+                if (task != null) {
+                    serviceTasks.put(serviceId, ServiceTask.create(task, serviceId));
+                }
+            }
+        } catch (DockerException | InterruptedException e) {
+            log.error(e.getMessage(), e);
+            throw new DockerServerException(e);
+        }
+        return serviceTasks;
+    }
+
+    @Override
+    @Nonnull
+    public ServiceTask withExitCode(final DockerServer dockerServer, final ServiceTask serviceTask)
+            throws DockerServerException {
+        try (final DockerClientCache.Lease lease = client(dockerServer)) {
+            return withExitCode(serviceTask, lease.client());
+        } catch (DockerException | InterruptedException e) {
+            log.error(e.getMessage(), e);
+            throw new DockerServerException(e);
+        }
+    }
+
+    @Nonnull
+    private ServiceTask withExitCode(final ServiceTask serviceTask, final DockerClient client)
+            throws DockerException, InterruptedException {
+        if (serviceTask.isExitStatus() && serviceTask.exitCode() == null) {
+            // The Task is supposed to have the container exit code, but docker doesn't report it where it should.
+            // So go get the container info and get the exit code
+            final String containerId = serviceTask.containerId();
+            log.debug("Looking up exit code for container {}.", containerId);
+            if (containerId != null) {
+                final ContainerInfo containerInfo = client.inspectContainer(containerId);
+                if (containerInfo.state().exitCode() == null) {
+                    log.debug("Welp. Container exit code is null on the container too.");
+                } else {
+                    return serviceTask.toBuilder().exitCode(containerInfo.state().exitCode()).build();
+                }
+            } else {
+                log.error("Cannot look up exit code. Container ID is null.");
+            }
+        }
+        return serviceTask;
+    }
+
     @Override
     public void throwTaskEventForService(final Container service) throws NoDockerServerException, DockerServerException, ServiceNotFoundException {
         throwTaskEventForService(getServer(), service);
@@ -1287,6 +1490,13 @@ public class DockerControlApi implements ContainerControlApi {
         }
     }
 
+    @Override
+    public void throwTaskEvent(final ServiceTask task, final Container service) {
+        final ServiceTaskEvent serviceTaskEvent = ServiceTaskEvent.create(task, service);
+        log.trace("Throwing service task event for service {}.", service.serviceId());
+        eventService.triggerEvent(serviceTaskEvent);
+    }
+
     @Override
     public void throwRestartEventForService(final Container service) throws ContainerException {
         log.trace("Throwing restart event for service {}.", service.serviceId());
@@ -0,0 +1,99 @@
+package org.nrg.containers.api;
+
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.messages.LogMessage;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a docker {@link LogStream} one frame at a time, so a log is never held in memory all at once.
+ * The log stream has already split the multiplexed attach stream into frames; we hand out each frame's
+ * content in turn. Closing this stream closes the log stream and releases its connection, then closes
+ * anything else the stream was holding on to, such as the lease on the client it came from.
+ */
+public class LogStreamInputStream extends InputStream {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final LogStream logStream;
+    private final AutoCloseable onClose;
+    private ByteBuffer frame = EMPTY;
+    private boolean closed = false;
+
+    public LogStreamInputStream(final LogStream logStream) {
+        this(logStream, null);
+    }
+
+    public LogStreamInputStream(final LogStream logStream, final @Nullable AutoCloseable onClose) {
+        this.logStream = logStream;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextFrame()) {
+            return -1;
+        }
+        return frame.get() & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextFrame()) {
+            return -1;
+        }
+        final int toRead = Math.min(length, frame.remaining());
+        frame.get(bytes, offset, toRead);
+        return toRead;
+    }
+
+    @Override
+    public int available() {
+        return frame.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                logStream.close();
+            } finally {
+                if (onClose != null) {
+                    try {
+                        onClose.close();
+                    } catch (Exception e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if there are bytes left to read in the current frame or in a following one
+     */
+    private boolean nextFrame() throws IOException {
+        if (closed) {
+            throw new IOException("Log stream is closed.");
+        }
+        try {
+            while (!frame.hasRemaining()) {
+                if (!logStream.hasNext()) {
+                    return false;
+                }
+                final LogMessage message = logStream.next();
+                frame = message.content() == null ? EMPTY : message.content();
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // The log stream wraps read errors on the underlying connection in unchecked exceptions
+            throw new IOException("Could not read docker log stream.", e);
+        }
+    }
+}
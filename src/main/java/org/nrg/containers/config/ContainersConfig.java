@@ -1,5 +1,10 @@
 package org.nrg.containers.config;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import javax.jms.ConnectionFactory;
@@ -8,10 +13,15 @@ import javax.jms.JMSException;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.activemq.command.ActiveMQQueue;
+import org.nrg.containers.events.DockerEventStreamer;
 import org.nrg.containers.events.DockerStatusUpdater;
 import org.nrg.containers.jms.errors.ContainerJmsErrorHandler;
 import org.nrg.containers.jms.preferences.QueuePrefsBean;
+import org.nrg.containers.jms.tasks.FinalizationRecovery;
 import org.nrg.containers.jms.tasks.QueueManager;
+import org.nrg.containers.services.ContainerLogSpooler;
+import org.nrg.containers.services.ContainerService;
+import org.nrg.containers.services.impl.ContainerServiceImpl;
 import org.nrg.framework.annotations.XnatPlugin;
 import org.nrg.mail.services.MailService;
 import org.nrg.xdat.preferences.SiteConfigPreferences;
@@ -48,13 +58,34 @@ import com.fasterxml.jackson.datatype.guava.GuavaModule;
 public class ContainersConfig {
     public static final String QUEUE_MIN_CONCURRENCY_DFLT = "10";
     public static final String QUEUE_MAX_CONCURRENCY_DFLT = "20";
+    // Ingesting, recording and cleanup each do heavy archive or docker work per message, so they start smaller
+    public static final String FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT = "1";
+    public static final String FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT = "5";
+    public static final int INPUT_RESOLUTION_PARALLELISM = 4;
+    public static final int OUTPUT_UPLOAD_PARALLELISM = 4;
 
     private DefaultJmsListenerContainerFactory defaultFactory(ConnectionFactory connectionFactory,
                                                               final SiteConfigPreferences siteConfigPreferences,
                                                               final MailService mailService) {
+        return defaultFactory(connectionFactory, siteConfigPreferences, mailService,
+                QUEUE_MIN_CONCURRENCY_DFLT, QUEUE_MAX_CONCURRENCY_DFLT);
+    }
+
+    private DefaultJmsListenerContainerFactory finalizationStageFactory(ConnectionFactory connectionFactory,
+                                                                        final SiteConfigPreferences siteConfigPreferences,
+                                                                        final MailService mailService) {
+        return defaultFactory(connectionFactory, siteConfigPreferences, mailService,
+                FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT, FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT);
+    }
+
+    private DefaultJmsListenerContainerFactory defaultFactory(ConnectionFactory connectionFactory,
+                                                              final SiteConfigPreferences siteConfigPreferences,
+                                                              final MailService mailService,
+                                                              final String minConcurrency,
+                                                              final String maxConcurrency) {
         DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
-        factory.setConcurrency(QUEUE_MIN_CONCURRENCY_DFLT + "-" + QUEUE_MAX_CONCURRENCY_DFLT);
+        factory.setConcurrency(minConcurrency + "-" + maxConcurrency);
         factory.setErrorHandler(new ContainerJmsErrorHandler(siteConfigPreferences, mailService));
         return factory;
     }
@@ -75,6 +106,30 @@ public class ContainersConfig {
         return defaultFactory(connectionFactory, siteConfigPreferences, mailService);
     }
 
+    @Bean(name = "ingestingQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory ingestingQueueListenerFactory(final SiteConfigPreferences siteConfigPreferences,
+                                                                            final MailService mailService,
+                                                                            @Qualifier("springConnectionFactory")
+                                                                                         ConnectionFactory connectionFactory) {
+        return finalizationStageFactory(connectionFactory, siteConfigPreferences, mailService);
+    }
+
+    @Bean(name = "recordingQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory recordingQueueListenerFactory(final SiteConfigPreferences siteConfigPreferences,
+                                                                            final MailService mailService,
+                                                                            @Qualifier("springConnectionFactory")
+                                                                                         ConnectionFactory connectionFactory) {
+        return finalizationStageFactory(connectionFactory, siteConfigPreferences, mailService);
+    }
+
+    @Bean(name = "cleanupQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory cleanupQueueListenerFactory(final SiteConfigPreferences siteConfigPreferences,
+                                                                          final MailService mailService,
+                                                                          @Qualifier("springConnectionFactory")
+                                                                                       ConnectionFactory connectionFactory) {
+        return finalizationStageFactory(connectionFactory, siteConfigPreferences, mailService);
+    }
+
     @Bean
     public TriggerTask refreshQueueListenerConcurrencies(final XnatAppInfo xnatAppInfo,
                                                          final QueuePrefsBean queuePrefsBean) {
@@ -98,6 +153,24 @@ public class ContainersConfig {
             throws JMSException {
 		return new ActiveMQQueue(containerFinalizingRequest);
 	}
+
+    @Bean(name = "containerIngestingRequest")
+    public Destination containerIngestingRequest(@Value("containerIngestingRequest") String containerIngestingRequest)
+            throws JMSException {
+        return new ActiveMQQueue(containerIngestingRequest);
+    }
+
+    @Bean(name = "containerRecordingRequest")
+    public Destination containerRecordingRequest(@Value("containerRecordingRequest") String containerRecordingRequest)
+            throws JMSException {
+        return new ActiveMQQueue(containerRecordingRequest);
+    }
+
+    @Bean(name = "containerCleanupRequest")
+    public Destination containerCleanupRequest(@Value("containerCleanupRequest") String containerCleanupRequest)
+            throws JMSException {
+        return new ActiveMQQueue(containerCleanupRequest);
+    }
 	
 	@Bean    
 	public Module guavaModule() {
@@ -117,6 +190,27 @@ public class ContainersConfig {
                 new PeriodicTrigger(10L, TimeUnit.SECONDS)
         );
     }
+    @Bean
+    public TriggerTask dockerEventStreamerTask(final DockerEventStreamer dockerEventStreamer) {
+        return new TriggerTask(
+                dockerEventStreamer,
+                new PeriodicTrigger(10L, TimeUnit.SECONDS)
+        );
+    }
+
+    @Bean
+    public TriggerTask containerLogSpoolerTask(final ContainerLogSpooler containerLogSpooler) {
+        return new TriggerTask(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        containerLogSpooler.spoolRunningContainers();
+                    }
+                },
+                new PeriodicTrigger(10L, TimeUnit.SECONDS)
+        );
+    }
+
     @Bean
     public TriggerTask queueManagerTask(final QueueManager queueManager) {
         return new TriggerTask(
@@ -125,6 +219,67 @@ public class ContainersConfig {
         );
     }
 
+    @Bean
+    public TriggerTask finalizationClaimRenewalTask(final ContainerService containerService) {
+        // Every node renews the claims on the stages it is running, so FinalizationRecovery leaves those alone
+        return new TriggerTask(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        containerService.renewFinalizationClaims();
+                    }
+                },
+                new PeriodicTrigger(ContainerServiceImpl.FINALIZATION_CLAIM_RENEWAL_MILLIS, TimeUnit.MILLISECONDS)
+        );
+    }
+
+    @Bean
+    public TriggerTask finalizationRecoveryTask(final FinalizationRecovery finalizationRecovery) {
+        return new TriggerTask(
+                finalizationRecovery,
+                new PeriodicTrigger(10L, TimeUnit.SECONDS)
+        );
+    }
+
+    @Bean(name = "inputResolutionPool", destroyMethod = "shutdown")
+    public ForkJoinPool inputResolutionPool(final QueuePrefsBean queuePrefsBean) {
+        // Shared by every command resolution, so this bounds the threads resolving input subtrees across all of them.
+        // Every staging consumer can be resolving at once, so size it to match them. Resolutions that find it busy
+        // anyway resolve on their own thread.
+        // XFT loads classes through the context class loader, so give the workers the plugin's.
+        final Integer maxStagingConcurrency = queuePrefsBean.getConcurrencyMaxStagingQueue();
+        final int parallelism = Math.max(INPUT_RESOLUTION_PARALLELISM,
+                maxStagingConcurrency == null ? 0 : maxStagingConcurrency);
+        final ClassLoader classLoader = getClass().getClassLoader();
+        return new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("input-resolution-" + thread.getPoolIndex());
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            }
+        }, null, false);
+    }
+
+    @Bean(name = "outputUploadPool", destroyMethod = "shutdown")
+    public ExecutorService outputUploadPool() {
+        // Shared by every finalization, so this bounds the concurrent output uploads across all of them.
+        final ClassLoader classLoader = getClass().getClassLoader();
+        final ThreadFactory defaultThreadFactory = Executors.defaultThreadFactory();
+        return Executors.newFixedThreadPool(OUTPUT_UPLOAD_PARALLELISM, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(final Runnable runnable) {
+                final Thread thread = defaultThreadFactory.newThread(runnable);
+                thread.setName("output-upload-" + count++);
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            }
+        });
+    }
+
     @Bean(name = "containerServiceThreadPoolExecutorFactoryBean")
     public ThreadPoolExecutorFactoryBean containerServiceThreadPoolExecutorFactoryBean() {
         ThreadPoolExecutorFactoryBean tBean = new ThreadPoolExecutorFactoryBean();
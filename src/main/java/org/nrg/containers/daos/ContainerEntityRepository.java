@@ -2,26 +2,57 @@ package org.nrg.containers.daos;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.transform.Transformers;
+import org.nrg.containers.jms.requests.ContainerRequest;
+import org.nrg.containers.model.container.ContainerStatusCategory;
+import org.nrg.containers.model.container.auto.ContainerFilter;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.containers.model.container.entity.ContainerEntity;
 import org.nrg.containers.model.container.entity.ContainerEntityHistory;
 import org.nrg.containers.model.container.entity.ContainerEntityMount;
+import org.nrg.containers.services.ContainerEntityService.ContainerEntityCallback;
 import org.nrg.containers.services.impl.ContainerServiceImpl;
 import org.nrg.framework.orm.hibernate.AbstractHibernateDAO;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Repository
 public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEntity> {
+    private static final ContainerStatusCategory[] NON_FINALIZED_CATEGORIES = {
+            ContainerStatusCategory.QUEUED, ContainerStatusCategory.ACTIVE, ContainerStatusCategory.WAITING
+    };
 
+    // The columns read into a ContainerSummary
+    private static final String[] SUMMARY_PROPERTIES = {
+            "id", "status", "statusTime", "containerId", "workflowId", "userId", "project", "swarm", "serviceId",
+            "taskId", "nodeId", "subtype"
+    };
+
+    /**
+     * Load the full entity graph, so it can be used after the session is closed.
+     * The collections are batch fetched (see {@link ContainerEntity#FETCH_BATCH_SIZE}), so initializing every
+     * entity in a list costs one select per collection per batch rather than one per collection per entity.
+     */
     @Override
     @SuppressWarnings("deprecation")
     public void initialize(final ContainerEntity entity) {
@@ -38,7 +69,6 @@ public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEnt
                 Hibernate.initialize(mount.getInputFiles());
             }
         }
-        Hibernate.initialize(entity.getCommandLine());
         Hibernate.initialize(entity.getInputs());
         Hibernate.initialize(entity.getOutputs());
         Hibernate.initialize(entity.getLogPaths());
@@ -111,16 +141,31 @@ public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEnt
         }
         return ces;
     }
-    
+
+    /**
+     * Read the nonfinalized services in one select of the columns a summary needs, without loading any collections.
+     */
+    @Nonnull
+    public List<ContainerSummary> retrieveNonfinalizedServiceSummaries() {
+        return retrieveSummaries(Restrictions.conjunction()
+                .add(Restrictions.isNotNull("serviceId"))
+                .add(getNonFinalizedCriterion()));
+    }
+
+    /**
+     * Read the running containers and services in one select of their columns, like
+     * {@link #retrieveNonfinalizedServiceSummaries()}.
+     */
     @Nonnull
+    public List<ContainerSummary> retrieveActiveSummaries() {
+        return retrieveSummaries(Restrictions.eq("statusCategory", ContainerStatusCategory.ACTIVE));
+    }
+
     public int howManyContainersAreWaiting() {
-        int countOfContainersBeingWaiting = 0;
-        List<ContainerEntity> ces = retrieveServicesInWaitingState();
-        if (ces != null) {
-        	countOfContainersBeingWaiting = ces.size();
-        }if(log.isTraceEnabled()){
-            log.trace("At present " + countOfContainersBeingWaiting + " are waiting");
-        }
+        final int countOfContainersBeingWaiting = count(getSession()
+                .createCriteria(ContainerEntity.class)
+                .add(getWaitingServicesCriterion()));
+        log.trace("At present {} are waiting", countOfContainersBeingWaiting);
         return countOfContainersBeingWaiting;
     }
 
@@ -128,10 +173,7 @@ public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEnt
     public List<ContainerEntity> retrieveServicesInWaitingState() {
     	final List finalizingResult = getSession()
                 .createCriteria(ContainerEntity.class)
-                .add(Restrictions.conjunction()
-                        .add(Restrictions.isNotNull("serviceId"))
-                        .add(Restrictions.like("status", ContainerServiceImpl.WAITING))
-                )
+                .add(getWaitingServicesCriterion())
                 .list();
         List<ContainerEntity> ces = initializeAndReturnList(finalizingResult);
         for (ContainerEntity ce:ces) {
@@ -143,12 +185,10 @@ public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEnt
     }
 
     public int howManyContainersAreBeingFinalized() {
-        int countOfContainersBeingFinalized = 0;
-        List<ContainerEntity> ces = retrieveContainersInFinalizingState();
-        if (ces != null) {
-        	countOfContainersBeingFinalized = ces.size();
-        }
-        log.trace("At present " + countOfContainersBeingFinalized + " are being finalized");
+        final int countOfContainersBeingFinalized = count(getSession()
+                .createCriteria(ContainerEntity.class)
+                .add(Restrictions.eq("statusCategory", ContainerStatusCategory.FINALIZING)));
+        log.trace("At present {} are being finalized", countOfContainersBeingFinalized);
         return countOfContainersBeingFinalized;
     }
 
@@ -156,7 +196,7 @@ public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEnt
     public List<ContainerEntity> retrieveContainersInFinalizingState() {
     	final List finalizingResult = getSession()
                 .createCriteria(ContainerEntity.class)
-                .add(Restrictions.like("status", ContainerServiceImpl.FINALIZING))
+                .add(Restrictions.eq("statusCategory", ContainerStatusCategory.FINALIZING))
                 .list();
         List<ContainerEntity> ces = initializeAndReturnList(finalizingResult);
         if (log.isTraceEnabled()) {
@@ -170,6 +210,137 @@ public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEnt
     }
 
     
+    /**
+     * Record the URI of the resource an output is about to be uploaded to, unless the output has already been uploaded.
+     * It stays recorded until {@link #recordOutputCreated(long, String)} replaces it with the created URI.
+     *
+     * @return The number of rows updated
+     */
+    public int recordOutputUploading(final long outputId, final @Nonnull String uploading) {
+        return getSession()
+                .createQuery("update ContainerEntityOutput set uploading = :uploading where id = :id and created is null")
+                .setString("uploading", uploading)
+                .setLong("id", outputId)
+                .executeUpdate();
+    }
+
+    /**
+     * Record the URI of an uploaded output, unless one is already recorded. Only the output row is updated, so
+     * outputs uploading concurrently don't overwrite each other.
+     *
+     * @return The number of rows updated
+     */
+    public int recordOutputCreated(final long outputId, final @Nonnull String created) {
+        return getSession()
+                .createQuery("update ContainerEntityOutput set created = :created, uploading = null where id = :id and created is null")
+                .setString("created", created)
+                .setLong("id", outputId)
+                .executeUpdate();
+    }
+
+    /**
+     * Claim the finalization stage that follows {@code finishedStage}, if the container's last finished stage is
+     * still {@code finishedStage} and no one else holds an unexpired claim. The check and the claim are one update,
+     * so of several nodes consuming the same stage, only one runs it.
+     *
+     * @return The number of rows updated: 1 if the stage was claimed, 0 if not
+     */
+    public int claimFinalizationStage(final long containerId,
+                                      final @Nullable String finishedStage,
+                                      final @Nonnull String owner,
+                                      final @Nonnull Date claimTime,
+                                      final @Nonnull Date staleBefore) {
+        final Query query = getSession()
+                .createQuery("update ContainerEntity set finalizationClaimOwner = :owner, finalizationClaimTime = :claimTime " +
+                        "where id = :id and " +
+                        (finishedStage == null ? "finalizationStage is null" : "finalizationStage = :finishedStage") +
+                        " and (finalizationClaimTime is null or finalizationClaimTime < :staleBefore)")
+                .setString("owner", owner)
+                .setTimestamp("claimTime", claimTime)
+                .setLong("id", containerId)
+                .setTimestamp("staleBefore", staleBefore);
+        if (finishedStage != null) {
+            query.setString("finishedStage", finishedStage);
+        }
+        return query.executeUpdate();
+    }
+
+    /**
+     * Renew every claim {@code owner} holds, so the stages it is running aren't taken to have stalled.
+     *
+     * @return The number of rows updated
+     */
+    public int renewFinalizationClaims(final @Nonnull String owner, final @Nonnull Date claimTime) {
+        return getSession()
+                .createQuery("update ContainerEntity set finalizationClaimTime = :claimTime " +
+                        "where finalizationClaimOwner = :owner and finalizationClaimTime is not null")
+                .setTimestamp("claimTime", claimTime)
+                .setString("owner", owner)
+                .executeUpdate();
+    }
+
+    /**
+     * Give up a claim made by {@link #claimFinalizationStage} once the stage is done, unless someone else has
+     * claimed the stage since. The failures counted against the finished stage are cleared.
+     *
+     * @return The number of rows updated
+     */
+    public int releaseFinalizationClaim(final long containerId, final @Nonnull String owner) {
+        return getSession()
+                .createQuery("update ContainerEntity set finalizationClaimOwner = null, finalizationClaimTime = null, " +
+                        "finalizationFailures = null where id = :id and finalizationClaimOwner = :owner")
+                .setLong("id", containerId)
+                .setString("owner", owner)
+                .executeUpdate();
+    }
+
+    /**
+     * Give up a claim made by {@link #claimFinalizationStage} after the stage failed, and count the failure.
+     * The claim time is set to the time of the failure rather than cleared, so once it looks stale the stage is
+     * resumed like one whose node went down, instead of waiting for a restart.
+     *
+     * @return The number of times the stage has failed, or 0 if someone else has claimed the stage since
+     */
+    public int recordFinalizationStageFailure(final long containerId,
+                                              final @Nonnull String owner,
+                                              final @Nonnull Date failureTime) {
+        final int updated = getSession()
+                .createQuery("update ContainerEntity set finalizationClaimOwner = null, finalizationClaimTime = :failureTime, " +
+                        "finalizationFailures = coalesce(finalizationFailures, 0) + 1 " +
+                        "where id = :id and finalizationClaimOwner = :owner")
+                .setTimestamp("failureTime", failureTime)
+                .setLong("id", containerId)
+                .setString("owner", owner)
+                .executeUpdate();
+        if (updated == 0) {
+            return 0;
+        }
+        final Number failures = (Number) getSession()
+                .createQuery("select finalizationFailures from ContainerEntity where id = :id")
+                .setLong("id", containerId)
+                .uniqueResult();
+        return failures == null ? 0 : failures.intValue();
+    }
+
+    /**
+     * Give up the claims that owners whose names start with {@code ownerPrefix}, other than {@code owner}, last
+     * renewed before {@code renewedBefore}. These were left behind by an earlier run of the same node.
+     *
+     * @return The number of rows updated
+     */
+    public int releaseFinalizationClaimsOfEarlierRuns(final @Nonnull String ownerPrefix,
+                                                      final @Nonnull String owner,
+                                                      final @Nonnull Date renewedBefore) {
+        return getSession()
+                .createQuery("update ContainerEntity set finalizationClaimOwner = null, finalizationClaimTime = null " +
+                        "where finalizationClaimOwner like :ownerPrefix and finalizationClaimOwner <> :owner " +
+                        "and finalizationClaimTime < :renewedBefore")
+                .setString("ownerPrefix", ownerPrefix + "%")
+                .setString("owner", owner)
+                .setTimestamp("renewedBefore", renewedBefore)
+                .executeUpdate();
+    }
+
     @Nonnull
     public List<ContainerEntity> retrieveContainersForParentWithSubtype(final long parentId,
                                                                         final String subtype) {
@@ -208,13 +379,176 @@ public class ContainerEntityRepository extends AbstractHibernateDAO<ContainerEnt
         return initializeAndReturnList(list);
     }
 
+    /**
+     * Get one page of the containers matching the filter, newest first.
+     *
+     * @param after Cursor: only return containers with a database id less than this. Null for the first page.
+     * @param limit Maximum number of containers to return. Null or non-positive for no limit.
+     */
+    @Nonnull
+    public List<ContainerEntity> getPage(final @Nonnull ContainerFilter filter,
+                                         final @Nullable Long after,
+                                         final @Nullable Integer limit) {
+        final Criteria criteria = createFilteredCriteria(filter).addOrder(Order.desc("id"));
+        if (after != null) {
+            criteria.add(Restrictions.lt("id", after));
+        }
+        if (limit != null && limit > 0) {
+            criteria.setMaxResults(limit);
+        }
+        return initializeAndReturnList(criteria.list());
+    }
+
+    /**
+     * Read the containers matching the filter, newest first, from a forward-only cursor.
+     * Containers are initialized in batches, handed to the callback, then evicted from the session,
+     * so memory use does not grow with the number of rows.
+     */
+    public void scroll(final @Nonnull ContainerFilter filter,
+                       final @Nonnull ContainerEntityCallback callback) throws IOException {
+        final ScrollableResults results = createFilteredCriteria(filter)
+                .addOrder(Order.desc("id"))
+                .setFetchSize(ContainerEntity.FETCH_BATCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            final List<ContainerEntity> batch = new ArrayList<>(ContainerEntity.FETCH_BATCH_SIZE);
+            while (results.next()) {
+                batch.add((ContainerEntity) results.get(0));
+                if (batch.size() >= ContainerEntity.FETCH_BATCH_SIZE) {
+                    processBatch(batch, callback);
+                }
+            }
+            processBatch(batch, callback);
+        } finally {
+            results.close();
+        }
+    }
+
+    private void processBatch(final List<ContainerEntity> batch, final ContainerEntityCallback callback) throws IOException {
+        for (final ContainerEntity containerEntity : batch) {
+            initialize(containerEntity);
+        }
+        for (final ContainerEntity containerEntity : batch) {
+            callback.process(containerEntity);
+        }
+        for (final ContainerEntity containerEntity : batch) {
+            getSession().evict(containerEntity);
+        }
+        batch.clear();
+    }
+
+    private Criteria createFilteredCriteria(final ContainerFilter filter) {
+        final Criteria criteria = getSession().createCriteria(ContainerEntity.class);
+        if (StringUtils.isNotBlank(filter.project())) {
+            criteria.add(Restrictions.eq("project", filter.project()));
+        }
+        if (filter.nonfinalized() != null && filter.nonfinalized()) {
+                criteria.add(getNonFinalizedCriterion());
+        }
+        if (StringUtils.isNotBlank(filter.status())) {
+            criteria.add(Restrictions.like("status", filter.status(), MatchMode.START));
+        }
+        if (filter.commandId() != null) {
+            criteria.add(Restrictions.eq("commandId", filter.commandId()));
+        }
+        if (filter.wrapperId() != null) {
+            criteria.add(Restrictions.eq("wrapperId", filter.wrapperId()));
+        }
+        if (StringUtils.isNotBlank(filter.userId())) {
+            criteria.add(Restrictions.eq("userId", filter.userId()));
+        }
+        if (filter.createdAfter() != null) {
+            criteria.add(Restrictions.ge("created", filter.createdAfter()));
+        }
+        if (filter.createdBefore() != null) {
+            criteria.add(Restrictions.lt("created", filter.createdBefore()));
+        }
+        return criteria;
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private List<ContainerSummary> retrieveSummaries(final Criterion criterion) {
+        final ProjectionList projections = Projections.projectionList();
+        for (final String property : SUMMARY_PROPERTIES) {
+            projections.add(Projections.property(property), property);
+        }
+        final List<Map<String, Object>> rows = getSession()
+                .createCriteria(ContainerEntity.class)
+                .add(criterion)
+                .setProjection(projections)
+                .setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP)
+                .list();
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+
+        final List<ContainerSummary> summaries = new ArrayList<>(rows.size());
+        for (final Map<String, Object> row : rows) {
+            summaries.add(ContainerSummary.builder()
+                    .databaseId((Long) row.get("id"))
+                    .status((String) row.get("status"))
+                    .statusTime((Date) row.get("statusTime"))
+                    .containerId((String) row.get("containerId"))
+                    .workflowId((String) row.get("workflowId"))
+                    .userId((String) row.get("userId"))
+                    .project((String) row.get("project"))
+                    .swarm((Boolean) row.get("swarm"))
+                    .serviceId((String) row.get("serviceId"))
+                    .taskId((String) row.get("taskId"))
+                    .nodeId((String) row.get("nodeId"))
+                    .subtype((String) row.get("subtype"))
+                    .build());
+        }
+        return summaries;
+    }
+
+    private Criterion getWaitingServicesCriterion() {
+        return Restrictions.conjunction()
+                .add(Restrictions.isNotNull("serviceId"))
+                .add(Restrictions.eq("statusCategory", ContainerStatusCategory.WAITING))
+                .add(Restrictions.like("status", ContainerServiceImpl.WAITING));
+    }
+
+    private int count(final Criteria criteria) {
+        final Number count = (Number) criteria.setProjection(Projections.rowCount()).uniqueResult();
+        return count == null ? 0 : count.intValue();
+    }
+
     private Criterion getNonFinalizedCriterion() {
-        return Restrictions.not(Restrictions.disjunction()
-                .add(Restrictions.like("status", "Complete"))
-                .add(Restrictions.like("status", "Done"))
-                .add(Restrictions.like("status", "Failed", MatchMode.START))
-                .add(Restrictions.like("status", "Killed"))
-                .add(Restrictions.like("status", "Finalizing")));
+        return Restrictions.in("statusCategory", NON_FINALIZED_CATEGORIES);
+    }
+
+    /**
+     * Rows written before the status category column existed have no category.
+     * Fill them in. Run once at startup, before anything relies on querying by category;
+     * after that there are no rows left to update.
+     *
+     * @return The number of containers that were given a category
+     */
+    public int backfillStatusCategories() {
+        final String update = "update ContainerEntity set statusCategory = :category where statusCategory is null and status is not null";
+        int updated = getSession().createQuery(update + " and (status in ('Complete', 'Done', 'Killed') or status like 'Failed%')")
+                .setParameter("category", ContainerStatusCategory.TERMINAL)
+                .executeUpdate();
+        updated += getSession().createQuery(update + " and status = :status")
+                .setParameter("category", ContainerStatusCategory.FINALIZING)
+                .setString("status", ContainerServiceImpl.FINALIZING)
+                .executeUpdate();
+        updated += getSession().createQuery(update + " and status like :pattern")
+                .setParameter("category", ContainerStatusCategory.WAITING)
+                .setString("pattern", ContainerServiceImpl.WAITING + "%")
+                .executeUpdate();
+        updated += getSession().createQuery(update + " and (substring(status, 1, 1) = :prefix or status = :status)")
+                .setParameter("category", ContainerStatusCategory.QUEUED)
+                .setString("prefix", ContainerRequest.inQueueStatusPrefix)
+                .setString("status", ContainerServiceImpl.CREATED)
+                .executeUpdate();
+        updated += getSession().createQuery(update)
+                .setParameter("category", ContainerStatusCategory.ACTIVE)
+                .executeUpdate();
+        return updated;
     }
 
     @SuppressWarnings("unchecked")
@@ -46,6 +46,20 @@ public class DockerServerEntityRepository extends AbstractHibernateDAO<DockerSer
         return serverId == null ? 0L : serverId;
     }
 
+    /**
+     * Move the server's last event check time forward, without loading or rewriting the rest of the server.
+     *
+     * @return The number of rows updated, which is zero if the stored time is already at or after this one
+     */
+    public int updateLastEventCheckTime(final long serverId, final Date lastEventCheckTime) {
+        return getSession()
+                .createQuery("update DockerServerEntity set lastEventCheckTime = :time " +
+                        "where id = :id and (lastEventCheckTime is null or lastEventCheckTime < :time)")
+                .setTimestamp("time", lastEventCheckTime)
+                .setLong("id", serverId)
+                .executeUpdate();
+    }
+
     @Override
     public DockerServerEntity create(final DockerServerEntity dockerServerEntity) {
         // We only allow one enabled server at a time. To create this one, we must disable
@@ -0,0 +1,254 @@
+package org.nrg.containers.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nrg.containers.api.ContainerControlApi;
+import org.nrg.containers.api.ContainerControlApi.EventStreamListener;
+import org.nrg.containers.events.model.DockerContainerEvent;
+import org.nrg.containers.events.model.DockerSwarmEvent;
+import org.nrg.containers.exceptions.DockerServerException;
+import org.nrg.containers.exceptions.NoDockerServerException;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
+import org.nrg.containers.services.DockerServerService;
+import org.nrg.xft.schema.XFTManager;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads docker events from a persistent event stream (no "until") on a dedicated thread,
+ * throwing each one as soon as it arrives. On a standalone docker server we read container events,
+ * which replace the polling in {@link DockerStatusUpdater} whenever the stream is connected.
+ * On a swarm we read service and node events. Docker does not emit events when swarm tasks change state,
+ * so services are still polled, but the stream lets us react to new services and lost nodes right away.
+ *
+ * The stream cursor (the time of the last event we have seen) is written back to the docker server's
+ * last event check time at most every {@link #CHECKPOINT_INTERVAL_MILLIS}, and when the stream stops.
+ * If the stream drops, we reconnect and resume from the cursor. The stream uses a docker client with
+ * no read timeout, so an idle stream stays open.
+ *
+ * {@link #run()} is a watchdog, scheduled periodically, which starts the stream thread if it is not running.
+ * While the stream thread is alive (including while it is reconnecting), {@link #isStreaming()} is true.
+ * When the context shuts down, {@link #destroy()} closes the open stream and waits for the thread to stop.
+ */
+@Slf4j
+@Component
+public class DockerEventStreamer implements Runnable, DisposableBean {
+    static final long CHECKPOINT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long RECONNECT_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final int MAX_FAILED_CONNECTIONS = 5;
+    private static final long STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final ContainerControlApi controlApi;
+    private final DockerServerService dockerServerService;
+    private final XnatAppInfo xnatAppInfo;
+
+    private Thread streamThread;
+    private volatile boolean streaming = false;
+    private volatile boolean swarmMode = false;
+    private volatile boolean stopped = false;
+    private volatile Closeable openStream;
+
+    private long cursorTimeNano;
+    private long checkpointTimeNano;
+    private long lastCheckpointMillis;
+
+    @Autowired
+    public DockerEventStreamer(final ContainerControlApi controlApi,
+                               final DockerServerService dockerServerService,
+                               final XnatAppInfo xnatAppInfo) {
+        this.controlApi = controlApi;
+        this.dockerServerService = dockerServerService;
+        this.xnatAppInfo = xnatAppInfo;
+    }
+
+    /**
+     * @return true while the stream thread is reading container events, in which case container events should not be polled.
+     */
+    public boolean isStreaming() {
+        return streaming && !swarmMode;
+    }
+
+    @Override
+    public synchronized void run() {
+        if (stopped || streamThread != null && streamThread.isAlive()) {
+            return;
+        }
+        if (!canStream()) {
+            return;
+        }
+
+        log.info("Starting docker event stream.");
+        streamThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stream();
+            }
+        }, "docker-event-stream");
+        streamThread.setDaemon(true);
+        streamThread.start();
+    }
+
+    /**
+     * Stop the stream thread for good. The open stream is closed so a read waiting for the next event returns,
+     * and the thread writes its last checkpoint before it exits.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        final Thread thread;
+        synchronized (this) {
+            stopped = true;
+            thread = streamThread;
+        }
+        if (thread == null || !thread.isAlive()) {
+            return;
+        }
+
+        log.info("Stopping docker event stream.");
+        closeOpenStream();
+        thread.interrupt();
+        thread.join(STOP_TIMEOUT_MILLIS);
+        if (thread.isAlive()) {
+            log.warn("Docker event stream did not stop within {} ms.", STOP_TIMEOUT_MILLIS);
+        }
+    }
+
+    private void closeOpenStream() {
+        final Closeable stream = openStream;
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.debug("Error closing docker event stream.", e);
+        }
+    }
+
+    private boolean canStream() {
+        if (stopped || !xnatAppInfo.isPrimaryNode() || !XFTManager.isInitialized()) {
+            return false;
+        }
+        return dockerServerService.retrieveServer() != null;
+    }
+
+    private void stream() {
+        final DockerServer server = dockerServerService.retrieveServer();
+        if (server == null) {
+            return;
+        }
+        cursorTimeNano = TimeUnit.MILLISECONDS.toNanos(server.lastEventCheckTime().getTime());
+        checkpointTimeNano = cursorTimeNano;
+        lastCheckpointMillis = System.currentTimeMillis();
+
+        int failedConnections = 0;
+        streaming = true;
+        try {
+            while (canStream()) {
+                final long cursorBefore = cursorTimeNano;
+                try {
+                    // The server may have been switched in or out of swarm mode since we last connected
+                    final DockerServer current = dockerServerService.retrieveServer();
+                    swarmMode = current != null && current.swarmMode();
+                    if (swarmMode) {
+                        controlApi.throwSwarmEventsAsStream(cursorTimeNano, new EventStreamListener<DockerSwarmEvent>() {
+                            @Override
+                            public void onOpen(final Closeable stream) {
+                                opened(stream);
+                            }
+
+                            @Override
+                            public boolean onEvent(final DockerSwarmEvent event) {
+                                return advanceCursor(event.timeNano());
+                            }
+                        });
+                    } else {
+                        controlApi.throwContainerEventsAsStream(cursorTimeNano, new EventStreamListener<DockerContainerEvent>() {
+                            @Override
+                            public void onOpen(final Closeable stream) {
+                                opened(stream);
+                            }
+
+                            @Override
+                            public boolean onEvent(final DockerContainerEvent event) {
+                                return advanceCursor(event.timeNano());
+                            }
+                        });
+                    }
+                } catch (NoDockerServerException e) {
+                    log.info("Cannot stream Docker events. No Docker server defined.");
+                    return;
+                } catch (DockerServerException e) {
+                    log.debug("Docker event stream ended. Reconnecting.", e);
+                } finally {
+                    openStream = null;
+                }
+                if (stopped) {
+                    return;
+                }
+                checkpointIfDue();
+
+                // If we keep failing without seeing any events, stop and let the poller take over for a while
+                failedConnections = cursorTimeNano == cursorBefore ? failedConnections + 1 : 0;
+                if (failedConnections >= MAX_FAILED_CONNECTIONS && !controlApi.canConnect()) {
+                    log.info("Cannot connect to docker server. Stopping docker event stream.");
+                    return;
+                }
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            log.info("Docker event stream interrupted.");
+        } catch (Throwable e) {
+            log.error("Unexpected error streaming docker events.", e);
+        } finally {
+            // Hand off to the poller, which will pick up from our last checkpoint
+            checkpoint();
+            streaming = false;
+        }
+    }
+
+    private void opened(final Closeable stream) {
+        openStream = stream;
+        if (stopped) {
+            // We were stopped while the stream was opening
+            closeOpenStream();
+        }
+    }
+
+    private boolean advanceCursor(final Long eventTimeNano) {
+        if (eventTimeNano != null && eventTimeNano > cursorTimeNano) {
+            cursorTimeNano = eventTimeNano;
+        }
+        checkpointIfDue();
+        return !stopped && !Thread.currentThread().isInterrupted();
+    }
+
+    private void checkpointIfDue() {
+        if (System.currentTimeMillis() - lastCheckpointMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+            checkpoint();
+        }
+    }
+
+    private void checkpoint() {
+        lastCheckpointMillis = System.currentTimeMillis();
+        if (cursorTimeNano <= checkpointTimeNano) {
+            return;
+        }
+
+        try {
+            final DockerServer server = dockerServerService.retrieveServer();
+            if (server != null) {
+                dockerServerService.updateEventCheckTime(server, new Date(TimeUnit.NANOSECONDS.toMillis(cursorTimeNano)));
+                checkpointTimeNano = cursorTimeNano;
+                log.trace("Checkpointed docker event stream at {}.", cursorTimeNano);
+            }
+        } catch (Exception e) {
+            log.error("Could not save docker event stream position.", e);
+        }
+    }
+}
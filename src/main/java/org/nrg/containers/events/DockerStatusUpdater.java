@@ -7,9 +7,12 @@ import org.nrg.containers.api.ContainerControlApi;
 import org.nrg.containers.exceptions.DockerServerException;
 import org.nrg.containers.exceptions.NoDockerServerException;
 import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.ContainerSummary;
+import org.nrg.containers.model.container.auto.ServiceTask;
 import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
 import org.nrg.containers.services.ContainerService;
 import org.nrg.containers.services.DockerServerService;
+import org.nrg.containers.services.impl.ContainerServiceImpl;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.xdat.security.helpers.Users;
 import org.nrg.xft.schema.XFTManager;
@@ -20,17 +23,26 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 public class DockerStatusUpdater implements Runnable {
+    private static final long UNCHANGED_TASK_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(5);
 
     private ContainerControlApi controlApi;
     private DockerServerService dockerServerService;
     private ContainerService containerService;
     final XnatAppInfo xnatAppInfo;
     
+    private DockerEventStreamer dockerEventStreamer;
+
+    // The task we last threw an event for, by service id
+    private Map<String, LastSeenTask> lastSeenTasks = new HashMap<>();
+
     private boolean haveLoggedDockerConnectFailure = false;
     private boolean haveLoggedNoServerInDb = false;
     private boolean haveLoggedXftInitFailure = false;
@@ -47,6 +59,11 @@ public class DockerStatusUpdater implements Runnable {
         this.xnatAppInfo = xnatAppInfo;
     }
 
+    @Autowired(required = false)
+    public void setDockerEventStreamer(final DockerEventStreamer dockerEventStreamer) {
+        this.dockerEventStreamer = dockerEventStreamer;
+    }
+
     @Override
     public void run() {
 		if(!xnatAppInfo.isPrimaryNode()) {
@@ -125,6 +142,11 @@ public class DockerStatusUpdater implements Runnable {
 
     @Nonnull
     private UpdateReport updateContainers(final DockerServer dockerServer) {
+        if (dockerEventStreamer != null && dockerEventStreamer.isStreaming()) {
+            log.trace("Docker container events are being streamed. Skipping event poll.");
+            return UpdateReport.singleton(UpdateReportEntry.success());
+        }
+
         final Date lastEventCheckTime = dockerServer.lastEventCheckTime();
         final Date since = lastEventCheckTime == null ? new Date(0L) : lastEventCheckTime;
 
@@ -132,7 +154,7 @@ public class DockerStatusUpdater implements Runnable {
 
         try {
             controlApi.throwContainerEvents(since, now);
-            dockerServerService.update(dockerServer.updateEventCheckTime(now));
+            dockerServerService.updateEventCheckTime(dockerServer, now);
 
             return UpdateReport.singleton(UpdateReportEntry.success());
         } catch (NoDockerServerException e) {
@@ -146,18 +168,49 @@ public class DockerStatusUpdater implements Runnable {
     @Nonnull
     private UpdateReport updateServices(final DockerServer dockerServer) {
         final UpdateReport report = UpdateReport.create();
+        // Only summaries, since most services are unchanged. We get the full service before we act on one.
+        final List<ContainerSummary> services = containerService.retrieveNonfinalizedServiceSummaries();
+
+        // Get all the tasks at once. Anything we can't find here we will look up one at a time.
+        Map<String, ServiceTask> tasks;
+        try {
+            tasks = controlApi.getTasksForServices(dockerServer, services);
+        } catch (DockerServerException e) {
+            log.error("Cannot list tasks for services. Will look up tasks one service at a time.", e);
+            tasks = Collections.emptyMap();
+        }
+
+        final long now = System.currentTimeMillis();
+        final Map<String, LastSeenTask> lastSeenTasksThisCycle = new HashMap<>();
+
         //TODO : Optimize this code so that waiting ones are handled first
-        for (Container service : containerService.retrieveNonfinalizedServices()) {
+        for (final ContainerSummary summary : services) {
+            final String serviceId = summary.serviceId();
             try {
-                log.debug("Getting task info for service {}.", service.toString());
+                final ServiceTask task = tasks.get(serviceId);
+                final LastSeenTask lastSeen = lastSeenTasks.get(serviceId);
+                final boolean waiting = summary.status() != null && summary.status().startsWith(ContainerServiceImpl.WAITING);
+                if (task != null && !waiting &&
+                        lastSeen != null && lastSeen.isUnchanged(task, now)) {
+                    log.trace("Task for service {} has not changed.", serviceId);
+                    lastSeenTasksThisCycle.put(serviceId, lastSeen);
+                    report.add(UpdateReportEntry.success(serviceId));
+                    continue;
+                }
+
+                log.debug("Getting task info for service {}.", summary);
+                // Refresh service status etc. bc it could change while we're processing this list
+                final Container service = containerService.get(summary.databaseId());
                 try {
-                    // Refresh service status etc. bc it could change while we're processing this list
-                    service = containerService.get(service.databaseId());
                     if (containerService.isFinalizing(service) ||
                             containerService.isFailedOrComplete(service, Users.getAdminUser())) {
                         log.debug("Service {} no longer unfinalized", service.serviceId());
                     } else if (containerService.isWaiting(service)) {
                         controlApi.throwWaitingEventForService(service);
+                    } else if (task != null) {
+                        // Only new or changed tasks get here, so this is the only place we inspect containers
+                        controlApi.throwTaskEvent(controlApi.withExitCode(dockerServer, task), service);
+                        lastSeenTasksThisCycle.put(serviceId, new LastSeenTask(task, now));
                     } else {
                         controlApi.throwTaskEventForService(dockerServer, service);
                     }
@@ -171,11 +224,14 @@ public class DockerStatusUpdater implements Runnable {
                     report.add(UpdateReportEntry.failure(service.serviceId(), e.getMessage()));
                 }
             } catch (Exception e) {
-                log.error(String.format("Unexpected exception trying to update service %s.", service.serviceId()), e);
-                report.add(UpdateReportEntry.failure(service.serviceId(), e.getMessage()));
+                log.error(String.format("Unexpected exception trying to update service %s.", serviceId), e);
+                report.add(UpdateReportEntry.failure(serviceId, e.getMessage()));
             }
         }
 
+        // Forget about services that have been finalized
+        lastSeenTasks = lastSeenTasksThisCycle;
+
         boolean allTrue = true;
         boolean allFalse = true;
         for (final UpdateReportEntry entry : report.updateReports) {
@@ -190,6 +246,24 @@ public class DockerStatusUpdater implements Runnable {
         return report;
     }
 
+    private static class LastSeenTask {
+        private final ServiceTask task;
+        private final long thrownAt;
+
+        private LastSeenTask(final ServiceTask task, final long thrownAt) {
+            this.task = task;
+            this.thrownAt = thrownAt;
+        }
+
+        /**
+         * We only need to throw an event when the task changes. We throw it again once in a while anyway,
+         * in case handling the first one failed.
+         */
+        private boolean isUnchanged(final ServiceTask currentTask, final long now) {
+            return task.equals(currentTask) && now - thrownAt < UNCHANGED_TASK_REFRESH_MILLIS;
+        }
+    }
+
     private static class UpdateReport {
         private Boolean successful;
         private List<UpdateReportEntry> updateReports;
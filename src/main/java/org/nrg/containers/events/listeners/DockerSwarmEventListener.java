@@ -0,0 +1,37 @@
+package org.nrg.containers.events.listeners;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nrg.containers.events.model.DockerSwarmEvent;
+import org.nrg.containers.services.ContainerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.bus.Event;
+import reactor.bus.EventBus;
+import reactor.fn.Consumer;
+
+import static reactor.bus.selector.Selectors.type;
+
+@Slf4j
+@Component
+public class DockerSwarmEventListener implements Consumer<Event<DockerSwarmEvent>> {
+    private ContainerService containerService;
+
+    @Autowired
+    public DockerSwarmEventListener(final EventBus eventBus) {
+        eventBus.on(type(DockerSwarmEvent.class), this);
+    }
+
+    @Override
+    public void accept(final Event<DockerSwarmEvent> swarmEvent) {
+        try {
+            containerService.processEvent(swarmEvent.getData());
+        } catch (Throwable e) {
+            log.error("There was a problem handling the docker swarm event.", e);
+        }
+    }
+
+    @Autowired
+    public void setContainerService(final ContainerService containerService) {
+        this.containerService = containerService;
+    }
+}
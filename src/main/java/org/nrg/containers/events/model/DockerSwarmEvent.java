@@ -0,0 +1,58 @@
+package org.nrg.containers.events.model;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+import org.nrg.framework.event.EventI;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A docker "service" or "node" event, as seen on a swarm manager's event stream.
+ */
+@AutoValue
+public abstract class DockerSwarmEvent implements EventI {
+    public static final String TYPE_SERVICE = "service";
+    public static final String TYPE_NODE = "node";
+
+    private static final String NODE_STATE_ATTRIBUTE = "state.new";
+    private static final String NODE_STATE_DOWN = "down";
+    private static final String ACTION_REMOVE = "remove";
+
+    public abstract String type();
+    public abstract String action();
+    @Nullable public abstract String actorId();
+    public abstract Date time();
+    @Nullable public abstract Long timeNano();
+    public abstract ImmutableMap<String, String> attributes();
+
+    public boolean isServiceEvent() {
+        return TYPE_SERVICE.equals(type());
+    }
+
+    public boolean isNodeEvent() {
+        return TYPE_NODE.equals(type());
+    }
+
+    /**
+     * @return true if this event tells us a node has gone down or has been removed from the swarm,
+     * in which case any tasks running on it will not finish.
+     */
+    public boolean isNodeDown() {
+        return isNodeEvent() &&
+                (ACTION_REMOVE.equals(action()) || NODE_STATE_DOWN.equals(attributes().get(NODE_STATE_ATTRIBUTE)));
+    }
+
+    public static DockerSwarmEvent create(final String type,
+                                          final String action,
+                                          final String actorId,
+                                          final Date time,
+                                          final Long timeNano,
+                                          final Map<String, String> attributes) {
+        final ImmutableMap<String, String> attributesCopy = attributes == null ?
+                ImmutableMap.<String, String>of() :
+                ImmutableMap.copyOf(attributes);
+        return new AutoValue_DockerSwarmEvent(type, action, actorId, time, timeNano, attributesCopy);
+    }
+}
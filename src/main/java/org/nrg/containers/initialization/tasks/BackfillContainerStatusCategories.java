@@ -0,0 +1,53 @@
+package org.nrg.containers.initialization.tasks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nrg.containers.services.ContainerEntityService;
+import org.nrg.xnat.initialization.tasks.AbstractInitializingTask;
+import org.nrg.xnat.initialization.tasks.InitializingTaskException;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static org.nrg.xnat.initialization.tasks.InitializingTaskException.Level.RequiresInitialization;
+
+/**
+ * Containers saved before the status category column existed have no category, so the queries
+ * that select containers by category would miss them. Fill them in once, on the primary node, at startup.
+ */
+@Slf4j
+@Component
+public class BackfillContainerStatusCategories extends AbstractInitializingTask {
+    private final ContainerEntityService containerEntityService;
+    private final XnatAppInfo xnatAppInfo;
+
+    @Autowired
+    public BackfillContainerStatusCategories(final ContainerEntityService containerEntityService,
+                                             final XnatAppInfo xnatAppInfo) {
+        this.containerEntityService = containerEntityService;
+        this.xnatAppInfo = xnatAppInfo;
+    }
+
+    @Override
+    public String getTaskName() {
+        return "Set the status category on containers saved without one";
+    }
+
+    @Override
+    protected void callImpl() throws InitializingTaskException {
+        if (!xnatAppInfo.isPrimaryNode()) {
+            log.debug("Not the primary node. Leaving the container status categories to the primary node.");
+            return;
+        }
+
+        try {
+            final int updated = containerEntityService.backfillStatusCategories();
+            if (updated > 0) {
+                log.info("Set status category on {} containers.", updated);
+            }
+        } catch (Exception e) {
+            // Try again the next time the initializing tasks run
+            log.error("Could not set the status category on existing containers.", e);
+            throw new InitializingTaskException(RequiresInitialization);
+        }
+    }
+}
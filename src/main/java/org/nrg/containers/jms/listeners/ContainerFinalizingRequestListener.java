@@ -3,8 +3,12 @@ package org.nrg.containers.jms.listeners;
 import org.nrg.containers.exceptions.ContainerException;
 import org.nrg.containers.exceptions.DockerServerException;
 import org.nrg.containers.exceptions.NoDockerServerException;
+import org.nrg.containers.jms.requests.ContainerCleanupRequest;
 import org.nrg.containers.jms.requests.ContainerFinalizingRequest;
+import org.nrg.containers.jms.requests.ContainerIngestingRequest;
+import org.nrg.containers.jms.requests.ContainerRecordingRequest;
 import org.nrg.containers.jms.utils.QueueUtils;
+import org.nrg.containers.model.container.FinalizationStage;
 import org.nrg.containers.model.container.auto.Container;
 import org.nrg.containers.services.ContainerService;
 import org.nrg.framework.exceptions.NotFoundException;
@@ -43,5 +47,38 @@ public class ContainerFinalizingRequestListener {
 		}
     	containerService.consumeFinalize(request.getExitCodeString(), request.isSuccessful(), container, user);
     }
+
+	@JmsListener(containerFactory = "ingestingQueueListenerFactory", destination = ContainerIngestingRequest.destination)
+	public void onIngestingRequest(ContainerIngestingRequest request)
+			throws UserNotFoundException, NotFoundException, UserInitException, DockerServerException,
+			NoDockerServerException, ContainerException {
+		consumeStage(FinalizationStage.INGEST_OUTPUTS, request);
+	}
+
+	@JmsListener(containerFactory = "recordingQueueListenerFactory", destination = ContainerRecordingRequest.destination)
+	public void onRecordingRequest(ContainerRecordingRequest request)
+			throws UserNotFoundException, NotFoundException, UserInitException, DockerServerException,
+			NoDockerServerException, ContainerException {
+		consumeStage(FinalizationStage.UPDATE_RECORDS, request);
+	}
+
+	@JmsListener(containerFactory = "cleanupQueueListenerFactory", destination = ContainerCleanupRequest.destination)
+	public void onCleanupRequest(ContainerCleanupRequest request)
+			throws UserNotFoundException, NotFoundException, UserInitException, DockerServerException,
+			NoDockerServerException, ContainerException {
+		consumeStage(FinalizationStage.CLEANUP, request);
+	}
+
+	private void consumeStage(FinalizationStage stage, ContainerFinalizingRequest request)
+			throws UserNotFoundException, NotFoundException, UserInitException, DockerServerException,
+			NoDockerServerException, ContainerException {
+		Container container = containerService.get(request.getId());
+		UserI user = userManagementServiceI.getUser(request.getUsername());
+		log.debug("Consuming {} queue: exitcode {}, issuccessfull {}, id {}, username {}, status {}",
+				request.getDestination(), request.getExitCodeString(), request.isSuccessful(), request.getId(),
+				request.getUsername(), container.status());
+		containerService.consumeFinalizationStage(stage, request.getExitCodeString(), request.isSuccessful(),
+				container, user);
+	}
 	
 }
@@ -42,13 +42,13 @@ public class ContainerStagingRequestListener {
 			count = Integer.toString(QueueUtils.count(request.getDestination()));
 		}
 		log.debug("Consuming staging queue: count {}, project {}, wrapperId {}, commandId {}, wrapperName {}, " +
-						"inputValues {}, username {}, workflowId {}", count, request.getProject(),
+						"inputValues {}, username {}, workflowId {}, bulkLaunchId {}", count, request.getProject(),
 				request.getWrapperId(), request.getCommandId(), request.getWrapperName(),
-				request.getInputValues(), request.getUsername(), request.getWorkflowid());
+				request.getInputValues(), request.getUsername(), request.getWorkflowid(), request.getBulkLaunchId());
 
 		containerService.consumeResolveCommandAndLaunchContainer(request.getProject(), request.getWrapperId(),
 				request.getCommandId(), request.getWrapperName(), request.getInputValues(),
-				user, request.getWorkflowid());
+				user, request.getWorkflowid(), request.getBulkLaunchId(), request.getRootElement());
     }
 	
 }
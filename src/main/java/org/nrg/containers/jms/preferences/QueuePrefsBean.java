@@ -24,14 +24,25 @@ public class QueuePrefsBean extends AbstractPreferenceBean {
 
     private final DefaultJmsListenerContainerFactory finalizingQueueListenerFactory;
     private final DefaultJmsListenerContainerFactory stagingQueueListenerFactory;
+    private final DefaultJmsListenerContainerFactory ingestingQueueListenerFactory;
+    private final DefaultJmsListenerContainerFactory recordingQueueListenerFactory;
+    private final DefaultJmsListenerContainerFactory cleanupQueueListenerFactory;
 
     private final int minConcurrencyDflt = Integer.parseInt(ContainersConfig.QUEUE_MIN_CONCURRENCY_DFLT);
     private final int maxConcurrencyDflt = Integer.parseInt(ContainersConfig.QUEUE_MAX_CONCURRENCY_DFLT);
+    private final int minFinalizationStageConcurrencyDflt = Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT);
+    private final int maxFinalizationStageConcurrencyDflt = Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT);
 
     private static final String minFinalizingPrefName = makePrefNameFromQueueAndBound(Queue.Finalizing, Bound.Min);
     private static final String maxFinalizingPrefName = makePrefNameFromQueueAndBound(Queue.Finalizing, Bound.Max);
     private static final String minStagingPrefName = makePrefNameFromQueueAndBound(Queue.Staging, Bound.Min);
     private static final String maxStagingPrefName = makePrefNameFromQueueAndBound(Queue.Staging, Bound.Max);
+    private static final String minIngestingPrefName = makePrefNameFromQueueAndBound(Queue.Ingesting, Bound.Min);
+    private static final String maxIngestingPrefName = makePrefNameFromQueueAndBound(Queue.Ingesting, Bound.Max);
+    private static final String minRecordingPrefName = makePrefNameFromQueueAndBound(Queue.Recording, Bound.Min);
+    private static final String maxRecordingPrefName = makePrefNameFromQueueAndBound(Queue.Recording, Bound.Max);
+    private static final String minCleanupPrefName = makePrefNameFromQueueAndBound(Queue.Cleanup, Bound.Min);
+    private static final String maxCleanupPrefName = makePrefNameFromQueueAndBound(Queue.Cleanup, Bound.Max);
 
     private final HashSet<Queue> needsUpdate;
     private HashMap<QueueBound, Integer> desiredPrefs;
@@ -42,16 +53,29 @@ public class QueuePrefsBean extends AbstractPreferenceBean {
     }
     private enum Queue {
         Staging,
-        Finalizing
+        Finalizing,
+        Ingesting,
+        Recording,
+        Cleanup;
+
+        boolean isFinalizationStage() {
+            return this == Ingesting || this == Recording || this == Cleanup;
+        }
     }
 
     @Autowired
     public QueuePrefsBean(final NrgPreferenceService preferenceService,
                           final DefaultJmsListenerContainerFactory finalizingQueueListenerFactory,
-                          final DefaultJmsListenerContainerFactory stagingQueueListenerFactory) {
+                          final DefaultJmsListenerContainerFactory stagingQueueListenerFactory,
+                          final DefaultJmsListenerContainerFactory ingestingQueueListenerFactory,
+                          final DefaultJmsListenerContainerFactory recordingQueueListenerFactory,
+                          final DefaultJmsListenerContainerFactory cleanupQueueListenerFactory) {
         super(preferenceService);
         this.finalizingQueueListenerFactory = finalizingQueueListenerFactory;
         this.stagingQueueListenerFactory = stagingQueueListenerFactory;
+        this.ingestingQueueListenerFactory = ingestingQueueListenerFactory;
+        this.recordingQueueListenerFactory = recordingQueueListenerFactory;
+        this.cleanupQueueListenerFactory = cleanupQueueListenerFactory;
         this.needsUpdate = new HashSet<>();
 
         // Populate "cache"
@@ -74,10 +98,10 @@ public class QueuePrefsBean extends AbstractPreferenceBean {
             this.prefName = makePrefNameFromQueueAndBound(queue, bound);
             switch (this.bound) {
                 case Min:
-                    this.defaultValue = minConcurrencyDflt;
+                    this.defaultValue = queue.isFinalizationStage() ? minFinalizationStageConcurrencyDflt : minConcurrencyDflt;
                     break;
                 case Max:
-                    this.defaultValue = maxConcurrencyDflt;
+                    this.defaultValue = queue.isFinalizationStage() ? maxFinalizationStageConcurrencyDflt : maxConcurrencyDflt;
                     break;
             }
         }
@@ -131,6 +155,15 @@ public class QueuePrefsBean extends AbstractPreferenceBean {
             case Finalizing:
                 factory = finalizingQueueListenerFactory;
                 break;
+            case Ingesting:
+                factory = ingestingQueueListenerFactory;
+                break;
+            case Recording:
+                factory = recordingQueueListenerFactory;
+                break;
+            case Cleanup:
+                factory = cleanupQueueListenerFactory;
+                break;
         }
         return factory;
     }
@@ -164,6 +197,10 @@ public class QueuePrefsBean extends AbstractPreferenceBean {
                         throw e;
                     }
                 }
+                if (value == null) {
+                    // A queue added since the tool's row was created has no value yet
+                    value = qb.defaultValue;
+                }
                 desiredPrefs.put(qb, value);
             }
         }
@@ -306,4 +343,52 @@ public class QueuePrefsBean extends AbstractPreferenceBean {
         setIntegerValue(value, maxStagingPrefName);
     }
 
+    @NrgPreference(defaultValue = ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT)
+    public Integer getConcurrencyMinIngestingQueue() {
+        return getIntegerValue(minIngestingPrefName);
+    }
+    public void setConcurrencyMinIngestingQueue(Integer value) throws InvalidPreferenceName {
+        setIntegerValue(value, minIngestingPrefName);
+    }
+
+    @NrgPreference(defaultValue = ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT)
+    public Integer getConcurrencyMaxIngestingQueue() {
+        return getIntegerValue(maxIngestingPrefName);
+    }
+    public void setConcurrencyMaxIngestingQueue(Integer value) throws InvalidPreferenceName {
+        setIntegerValue(value, maxIngestingPrefName);
+    }
+
+    @NrgPreference(defaultValue = ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT)
+    public Integer getConcurrencyMinRecordingQueue() {
+        return getIntegerValue(minRecordingPrefName);
+    }
+    public void setConcurrencyMinRecordingQueue(Integer value) throws InvalidPreferenceName {
+        setIntegerValue(value, minRecordingPrefName);
+    }
+
+    @NrgPreference(defaultValue = ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT)
+    public Integer getConcurrencyMaxRecordingQueue() {
+        return getIntegerValue(maxRecordingPrefName);
+    }
+    public void setConcurrencyMaxRecordingQueue(Integer value) throws InvalidPreferenceName {
+        setIntegerValue(value, maxRecordingPrefName);
+    }
+
+    @NrgPreference(defaultValue = ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT)
+    public Integer getConcurrencyMinCleanupQueue() {
+        return getIntegerValue(minCleanupPrefName);
+    }
+    public void setConcurrencyMinCleanupQueue(Integer value) throws InvalidPreferenceName {
+        setIntegerValue(value, minCleanupPrefName);
+    }
+
+    @NrgPreference(defaultValue = ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT)
+    public Integer getConcurrencyMaxCleanupQueue() {
+        return getIntegerValue(maxCleanupPrefName);
+    }
+    public void setConcurrencyMaxCleanupQueue(Integer value) throws InvalidPreferenceName {
+        setIntegerValue(value, maxCleanupPrefName);
+    }
+
 }
@@ -0,0 +1,19 @@
+package org.nrg.containers.jms.requests;
+
+/**
+ * Requests the last stage of finalization: removing the container and its setup and wrapup containers from docker.
+ */
+public class ContainerCleanupRequest extends ContainerFinalizingRequest {
+	public static final String destination = "containerCleanupRequest";
+
+	private static final long serialVersionUID = 5011846203487015247L;
+
+	public ContainerCleanupRequest(String exitCodeString, boolean isSuccessful, String id, String username) {
+		super(exitCodeString, isSuccessful, id, username);
+	}
+
+	@Override
+	public String getDestination() {
+		return destination;
+	}
+}
@@ -0,0 +1,19 @@
+package org.nrg.containers.jms.requests;
+
+/**
+ * Requests the output-ingesting stage of finalization.
+ */
+public class ContainerIngestingRequest extends ContainerFinalizingRequest {
+	public static final String destination = "containerIngestingRequest";
+
+	private static final long serialVersionUID = 7266302466815478291L;
+
+	public ContainerIngestingRequest(String exitCodeString, boolean isSuccessful, String id, String username) {
+		super(exitCodeString, isSuccessful, id, username);
+	}
+
+	@Override
+	public String getDestination() {
+		return destination;
+	}
+}
@@ -0,0 +1,19 @@
+package org.nrg.containers.jms.requests;
+
+/**
+ * Requests the stage of finalization that sets the container's and workflow's final status and emails the user.
+ */
+public class ContainerRecordingRequest extends ContainerFinalizingRequest {
+	public static final String destination = "containerRecordingRequest";
+
+	private static final long serialVersionUID = -2394167722958419862L;
+
+	public ContainerRecordingRequest(String exitCodeString, boolean isSuccessful, String id, String username) {
+		super(exitCodeString, isSuccessful, id, username);
+	}
+
+	@Override
+	public String getDestination() {
+		return destination;
+	}
+}
@@ -18,6 +18,8 @@ public class ContainerStagingRequest extends ContainerRequest implements Seriali
 	private Map<String, String> inputValues;
 	private String username;
 	private String workflowid;
+	private String bulkLaunchId;
+	private String rootElement;
 
 
 	public ContainerStagingRequest(@Nullable String project,
@@ -35,6 +37,19 @@ public class ContainerStagingRequest extends ContainerRequest implements Seriali
 		this.setWorkflowid(workflowid);
 	}
 
+	public ContainerStagingRequest(@Nullable String project,
+								   long wrapperId,
+								   long commandId,
+								   @Nullable String wrapperName,
+								   Map<String, String> inputValues,
+								   String username, String workflowid,
+								   @Nullable String bulkLaunchId,
+								   @Nullable String rootElement) {
+		this(project, wrapperId, commandId, wrapperName, inputValues, username, workflowid);
+		this.setBulkLaunchId(bulkLaunchId);
+		this.setRootElement(rootElement);
+	}
+
 	public String getWorkflowid() {
 		return workflowid;
 	}
@@ -43,6 +58,24 @@ public class ContainerStagingRequest extends ContainerRequest implements Seriali
 		this.workflowid = workflowid;
 	}
 
+	@Nullable
+	public String getBulkLaunchId() {
+		return bulkLaunchId;
+	}
+
+	public void setBulkLaunchId(String bulkLaunchId) {
+		this.bulkLaunchId = bulkLaunchId;
+	}
+
+	@Nullable
+	public String getRootElement() {
+		return rootElement;
+	}
+
+	public void setRootElement(String rootElement) {
+		this.rootElement = rootElement;
+	}
+
 	public String getWrapperName() {
 		return wrapperName;
 	}
@@ -5,6 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.nrg.action.ClientException;
 import org.nrg.action.ServerException;
 import org.nrg.containers.jms.preferences.QueuePrefsBean;
+import org.nrg.containers.jms.utils.QueueMetrics;
+import org.nrg.containers.jms.utils.QueueStatistics;
 import org.nrg.framework.annotations.XapiRestController;
 import org.nrg.prefs.exceptions.InvalidPreferenceName;
 import org.nrg.xapi.rest.AbstractXapiRestController;
@@ -19,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.List;
 import java.util.Map;
 
 import static org.nrg.xdat.security.helpers.AccessLevel.Admin;
@@ -29,13 +32,16 @@ import static org.nrg.xdat.security.helpers.AccessLevel.Admin;
 @Slf4j
 public class QueueSettingsRestApi extends AbstractXapiRestController {
     private QueuePrefsBean queuePrefsBean;
+    private QueueMetrics queueMetrics;
 
     @Autowired
     public QueueSettingsRestApi(QueuePrefsBean queuePrefsBean,
+                                final QueueMetrics queueMetrics,
                                 final UserManagementServiceI userManagementService,
                                 final RoleHolder roleHolder) {
         super(userManagementService, roleHolder);
         this.queuePrefsBean = queuePrefsBean;
+        this.queueMetrics = queueMetrics;
     }
 
     @ApiOperation(value = "Returns a map of queue settings.", response = Map.class, responseContainer = "Map")
@@ -69,5 +75,17 @@ public class QueueSettingsRestApi extends AbstractXapiRestController {
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    @ApiOperation(value = "Returns the depth and message counts of each queue.", response = QueueStatistics.class,
+            responseContainer = "List")
+    @ApiResponses({@ApiResponse(code = 200, message = "Queue statistics successfully retrieved."),
+            @ApiResponse(code = 401, message = "Must be authenticated to access the XNAT REST API."),
+            @ApiResponse(code = 500, message = "Unexpected error")})
+    @XapiRequestMapping(value = "/statistics", produces = {MediaType.APPLICATION_JSON_VALUE},
+            method = RequestMethod.GET, restrictTo = Admin)
+    @ResponseBody
+    public ResponseEntity<List<QueueStatistics>> getQueueStatistics() {
+        return new ResponseEntity<>(queueMetrics.getStatistics(), HttpStatus.OK);
+    }
+
 }
 
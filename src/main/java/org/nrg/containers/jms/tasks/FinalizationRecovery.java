@@ -0,0 +1,59 @@
+package org.nrg.containers.jms.tasks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nrg.containers.services.ContainerService;
+import org.nrg.xft.schema.XFTManager;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumes finalization of containers that were still being finalized when XNAT or one of its nodes went down.
+ * As soon as XFT is up on the primary node, this releases the stages the node was running when it last went down and
+ * resumes every container that isn't running a finalization stage. After that, it periodically resumes containers
+ * whose running stage has stopped renewing its claim, such as those left behind by a shadow node that went down.
+ * Each container picks up after the last stage and the last output it finished.
+ */
+@Slf4j
+@Component
+public class FinalizationRecovery implements Runnable {
+    private static final long STALLED_CHECK_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long RETRY_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ContainerService containerService;
+    private final XnatAppInfo xnatAppInfo;
+    private volatile boolean resumedInterrupted = false;
+    private volatile long nextRun = 0L;
+
+    @Autowired
+    public FinalizationRecovery(final ContainerService containerService, final XnatAppInfo appInfo) {
+        this.containerService = containerService;
+        this.xnatAppInfo = appInfo;
+    }
+
+    @Override
+    public void run() {
+        final long now = System.currentTimeMillis();
+        if (now < nextRun || !xnatAppInfo.isPrimaryNode() || !XFTManager.isInitialized()) {
+            return;
+        }
+
+        try {
+            if (!resumedInterrupted) {
+                log.debug("Resuming interrupted finalization");
+                containerService.resumeInterruptedFinalization();
+                resumedInterrupted = true;
+            } else {
+                log.debug("Resuming stalled finalization");
+                containerService.resumeStalledFinalization();
+            }
+            nextRun = now + STALLED_CHECK_INTERVAL_MILLIS;
+        } catch (Exception e) {
+            // Try again later rather than giving up on these containers
+            log.error("Unable to resume finalization. Trying again in a minute.", e);
+            nextRun = now + RETRY_INTERVAL_MILLIS;
+        }
+    }
+}
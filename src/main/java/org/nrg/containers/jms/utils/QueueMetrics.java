@@ -0,0 +1,306 @@
+package org.nrg.containers.jms.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerRegistry;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.broker.region.DestinationStatistics;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.commons.lang3.StringUtils;
+import org.nrg.containers.jms.requests.ContainerCleanupRequest;
+import org.nrg.containers.jms.requests.ContainerFinalizingRequest;
+import org.nrg.containers.jms.requests.ContainerIngestingRequest;
+import org.nrg.containers.jms.requests.ContainerRecordingRequest;
+import org.nrg.containers.jms.requests.ContainerStagingRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.connection.DelegatingConnectionFactory;
+import org.springframework.jms.connection.SingleConnectionFactory;
+import org.springframework.jms.core.BrowserCallback;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the depth and message counts of the container service queues without walking the messages.
+ *
+ * Statistics come from the first of these that works:
+ * <ol>
+ *     <li>The broker's own destination statistics, when the broker the JMS template connects to runs in this JVM.
+ *     These are the counters the broker reports over JMX.</li>
+ *     <li>ActiveMQ's statistics plugin, when the broker is remote and has the plugin enabled. If the plugin doesn't
+ *     answer, it isn't asked again for {@link #STATISTICS_PLUGIN_RETRY_MILLIS} milliseconds.</li>
+ *     <li>Browsing the queue and counting the messages, which only gives the depth.</li>
+ * </ol>
+ * Values are cached for {@link #CACHE_TTL_SECONDS} seconds, so callers can ask as often as they like.
+ */
+@Slf4j
+@Component
+public class QueueMetrics {
+    public static final long CACHE_TTL_SECONDS = 5;
+    public static final List<String> QUEUES = ImmutableList.of(
+            ContainerStagingRequest.destination,
+            ContainerFinalizingRequest.destination,
+            ContainerIngestingRequest.destination,
+            ContainerRecordingRequest.destination,
+            ContainerCleanupRequest.destination);
+
+    static final String STATISTICS_DESTINATION_PREFIX = "ActiveMQ.Statistics.Destination.";
+    static final long STATISTICS_PLUGIN_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long STATISTICS_REPLY_TIMEOUT_MILLIS = 1000;
+
+    private final JmsTemplate jmsTemplate;
+    private final Cache<String, QueueStatistics> cache;
+    // When the statistics plugin fails to answer, stop asking it for a while. Otherwise every read waits out the timeout.
+    private volatile long statisticsPluginRetryAt = 0L;
+
+    @Autowired
+    public QueueMetrics(final JmsTemplate jmsTemplate) {
+        this.jmsTemplate = jmsTemplate;
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(CACHE_TTL_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return The number of messages waiting in the queue
+     */
+    public int count(final String queue) {
+        final QueueStatistics statistics = getStatistics(queue);
+        final int count = statistics == null ? 0 : (int) Math.min(statistics.size(), Integer.MAX_VALUE);
+        log.debug("There are {} messages in queue {}", count, queue);
+        return count;
+    }
+
+    @Nullable
+    public QueueStatistics getStatistics(final String queue) {
+        try {
+            return cache.get(queue, new Callable<QueueStatistics>() {
+                @Override
+                public QueueStatistics call() {
+                    return readStatistics(queue);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.error("Unable to read statistics for queue {}", queue, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * @return Statistics for each of the container service queues that could be read
+     */
+    public List<QueueStatistics> getStatistics() {
+        final List<QueueStatistics> statistics = new ArrayList<>(QUEUES.size());
+        for (final String queue : QUEUES) {
+            final QueueStatistics queueStatistics = getStatistics(queue);
+            if (queueStatistics != null) {
+                statistics.add(queueStatistics);
+            }
+        }
+        return statistics;
+    }
+
+    private QueueStatistics readStatistics(final String queue) {
+        QueueStatistics statistics = readFromBroker(queue);
+        if (statistics == null) {
+            statistics = readFromStatisticsPlugin(queue);
+        }
+        if (statistics == null) {
+            statistics = browse(queue);
+        }
+        return statistics;
+    }
+
+    @Nullable
+    QueueStatistics readFromBroker(final String queue) {
+        final BrokerService brokerService = findLocalBroker();
+        if (brokerService == null) {
+            return null;
+        }
+
+        long size = 0;
+        long enqueueCount = 0;
+        long dequeueCount = 0;
+        long consumerCount = 0;
+        try {
+            for (final Destination destination : brokerService.getBroker().getDestinations(new ActiveMQQueue(queue))) {
+                final DestinationStatistics destinationStatistics = destination.getDestinationStatistics();
+                size += destinationStatistics.getMessages().getCount();
+                enqueueCount += destinationStatistics.getEnqueues().getCount();
+                dequeueCount += destinationStatistics.getDequeues().getCount();
+                consumerCount += destinationStatistics.getConsumers().getCount();
+            }
+        } catch (Exception e) {
+            log.debug("Unable to read statistics for queue {} from broker {}", queue, brokerService.getBrokerName(), e);
+            return null;
+        }
+        return QueueStatistics.create(queue, size, enqueueCount, dequeueCount, consumerCount,
+                QueueStatistics.SOURCE_BROKER);
+    }
+
+    /**
+     * @return The broker in this JVM that the JMS template connects to, or null if it connects to a remote broker
+     */
+    @Nullable
+    BrokerService findLocalBroker() {
+        final String brokerUrl = getBrokerUrl(jmsTemplate.getConnectionFactory());
+        if (brokerUrl == null) {
+            return null;
+        }
+
+        final URI uri;
+        try {
+            uri = new URI(brokerUrl);
+        } catch (URISyntaxException e) {
+            log.debug("Unable to parse JMS broker URL {}", brokerUrl, e);
+            return null;
+        }
+        if ("vm".equals(uri.getScheme())) {
+            // vm://brokerName?options
+            return uri.getAuthority() == null ? null : BrokerRegistry.getInstance().lookup(uri.getAuthority());
+        }
+
+        // A broker in this JVM may also be reached over a network connector, e.g. tcp://localhost:61616
+        for (final BrokerService brokerService : BrokerRegistry.getInstance().getBrokers().values()) {
+            for (final TransportConnector connector : brokerService.getTransportConnectors()) {
+                try {
+                    final URI connectUri = connector.getConnectUri();
+                    if (connectUri != null && connectUri.getPort() == uri.getPort() &&
+                            StringUtils.equals(connectUri.getScheme(), uri.getScheme()) && isLocalHost(uri.getHost())) {
+                        return brokerService;
+                    }
+                } catch (IOException | URISyntaxException e) {
+                    log.debug("Unable to read the address of broker {}", brokerService.getBrokerName(), e);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String getBrokerUrl(@Nullable final ConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof ActiveMQConnectionFactory) {
+            return ((ActiveMQConnectionFactory) connectionFactory).getBrokerURL();
+        }
+        if (connectionFactory instanceof SingleConnectionFactory) {
+            return getBrokerUrl(((SingleConnectionFactory) connectionFactory).getTargetConnectionFactory());
+        }
+        if (connectionFactory instanceof DelegatingConnectionFactory) {
+            return getBrokerUrl(((DelegatingConnectionFactory) connectionFactory).getTargetConnectionFactory());
+        }
+        return null;
+    }
+
+    private static boolean isLocalHost(@Nullable final String host) {
+        if (host == null) {
+            return false;
+        }
+        try {
+            final InetAddress address = InetAddress.getByName(host);
+            return address.isLoopbackAddress() || address.isAnyLocalAddress() ||
+                    NetworkInterface.getByInetAddress(address) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Nullable
+    QueueStatistics readFromStatisticsPlugin(final String queue) {
+        if (System.currentTimeMillis() < statisticsPluginRetryAt) {
+            return null;
+        }
+
+        final QueueStatistics statistics;
+        try {
+            statistics = jmsTemplate.execute(new SessionCallback<QueueStatistics>() {
+                @Override
+                public QueueStatistics doInJms(final Session session) throws JMSException {
+                    final TemporaryQueue replyTo = session.createTemporaryQueue();
+                    final MessageConsumer consumer = session.createConsumer(replyTo);
+                    final MessageProducer producer = session.createProducer(
+                            session.createQueue(STATISTICS_DESTINATION_PREFIX + queue));
+                    try {
+                        // If nothing answers, don't leave the request lying around on the broker
+                        producer.setTimeToLive(STATISTICS_REPLY_TIMEOUT_MILLIS);
+                        final Message request = session.createMessage();
+                        request.setJMSReplyTo(replyTo);
+                        producer.send(request);
+
+                        final Message reply = consumer.receive(STATISTICS_REPLY_TIMEOUT_MILLIS);
+                        if (!(reply instanceof MapMessage)) {
+                            return null;
+                        }
+                        final MapMessage replyMap = (MapMessage) reply;
+                        return QueueStatistics.create(queue,
+                                replyMap.getLong("size"),
+                                replyMap.getLong("enqueueCount"),
+                                replyMap.getLong("dequeueCount"),
+                                replyMap.getLong("consumerCount"),
+                                QueueStatistics.SOURCE_STATISTICS_PLUGIN);
+                    } finally {
+                        producer.close();
+                        consumer.close();
+                        replyTo.delete();
+                    }
+                }
+            }, true);
+        } catch (JmsException e) {
+            log.debug("Unable to read statistics for queue {} from the statistics plugin", queue, e);
+            statisticsPluginRetryAt = System.currentTimeMillis() + STATISTICS_PLUGIN_RETRY_MILLIS;
+            return null;
+        }
+
+        if (statistics == null) {
+            log.info("The JMS broker did not answer a statistics request for queue {}. " +
+                    "Browsing queues to count their messages for the next {} minutes.", queue,
+                    TimeUnit.MILLISECONDS.toMinutes(STATISTICS_PLUGIN_RETRY_MILLIS));
+            statisticsPluginRetryAt = System.currentTimeMillis() + STATISTICS_PLUGIN_RETRY_MILLIS;
+        }
+        return statistics;
+    }
+
+    QueueStatistics browse(final String queue) {
+        final Integer count = jmsTemplate.browse(queue, new BrowserCallback<Integer>() {
+            public Integer doInJms(final Session session, final QueueBrowser browser) throws JMSException {
+                final Enumeration enumeration = browser.getEnumeration();
+                int counter = 0;
+                while (enumeration.hasMoreElements()) {
+                    enumeration.nextElement();
+                    counter += 1;
+                }
+                return counter;
+            }
+        });
+        return QueueStatistics.create(queue, count == null ? 0 : count, null, null, null,
+                QueueStatistics.SOURCE_BROWSE);
+    }
+}
@@ -0,0 +1,31 @@
+package org.nrg.containers.jms.utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+
+@AutoValue
+public abstract class QueueStatistics {
+    public static final String SOURCE_BROKER = "broker";
+    public static final String SOURCE_STATISTICS_PLUGIN = "statistics-plugin";
+    public static final String SOURCE_BROWSE = "browse";
+
+    @JsonProperty("queue") public abstract String queue();
+    @JsonProperty("size") public abstract long size();
+    @Nullable @JsonProperty("enqueue-count") public abstract Long enqueueCount();
+    @Nullable @JsonProperty("dequeue-count") public abstract Long dequeueCount();
+    @Nullable @JsonProperty("consumer-count") public abstract Long consumerCount();
+    @JsonProperty("source") public abstract String source();
+
+    @JsonCreator
+    public static QueueStatistics create(@JsonProperty("queue") final String queue,
+                                         @JsonProperty("size") final long size,
+                                         @JsonProperty("enqueue-count") final Long enqueueCount,
+                                         @JsonProperty("dequeue-count") final Long dequeueCount,
+                                         @JsonProperty("consumer-count") final Long consumerCount,
+                                         @JsonProperty("source") final String source) {
+        return new AutoValue_QueueStatistics(queue, size, enqueueCount, dequeueCount, consumerCount, source);
+    }
+}
@@ -18,6 +18,7 @@ public abstract class ResolvedCommandMount {
     @Nullable @JsonProperty("from-uri") public abstract String fromUri();
     @Nullable @JsonProperty("from-root-directory") public abstract String fromRootDirectory();
     @Nullable @JsonProperty("from-file-path") public abstract String fromFilePath();
+    @Nullable @JsonProperty("staging-strategy") public abstract String stagingStrategy();
 
     public static Builder builder() {
         return new AutoValue_ResolvedCommandMount.Builder();
@@ -42,6 +43,7 @@ public abstract class ResolvedCommandMount {
         public abstract Builder fromUri(String fromUri);
         public abstract Builder fromRootDirectory(String fromRootDirectory);
         public abstract Builder fromFilePath(String fromFilePath);
+        public abstract Builder stagingStrategy(String stagingStrategy);
 
         public abstract ResolvedCommandMount build();
     }
@@ -0,0 +1,42 @@
+package org.nrg.containers.model.container;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nrg.containers.jms.requests.ContainerRequest;
+import org.nrg.containers.services.impl.ContainerServiceImpl;
+
+import javax.annotation.Nullable;
+
+/**
+ * A coarse grouping of container statuses, persisted alongside the free-text status
+ * so the scheduler queries can use an index rather than matching status strings.
+ */
+public enum ContainerStatusCategory {
+    /**
+     * Created but not yet running, or queued (with the in-queue prefix) for finalization.
+     */
+    QUEUED,
+    ACTIVE,
+    WAITING,
+    FINALIZING,
+    TERMINAL;
+
+    @Nullable
+    public static ContainerStatusCategory fromStatus(final @Nullable String status) {
+        if (status == null) {
+            return null;
+        }
+        if (status.equals("Complete") || status.equals("Done") || status.equals("Killed") || status.startsWith("Failed")) {
+            return TERMINAL;
+        }
+        if (status.equals(ContainerServiceImpl.FINALIZING)) {
+            return FINALIZING;
+        }
+        if (status.startsWith(ContainerServiceImpl.WAITING)) {
+            return WAITING;
+        }
+        if (StringUtils.startsWith(status, ContainerRequest.inQueueStatusPrefix) || status.equals(ContainerServiceImpl.CREATED)) {
+            return QUEUED;
+        }
+        return ACTIVE;
+    }
+}
@@ -0,0 +1,51 @@
+package org.nrg.containers.model.container;
+
+import javax.annotation.Nullable;
+
+/**
+ * The stages of finalizing a container, in order. Each stage after the first runs from its own JMS queue, and
+ * the container records each stage it finishes, so finalization that was interrupted picks up where it stopped.
+ */
+public enum FinalizationStage {
+    COLLECT_LOGS("collect-logs"),
+    INGEST_OUTPUTS("ingest-outputs"),
+    UPDATE_RECORDS("update-records"),
+    CLEANUP("cleanup");
+
+    private final String name;
+
+    FinalizationStage(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The stage after this one, or null if this is the last
+     */
+    @Nullable
+    public FinalizationStage next() {
+        final FinalizationStage[] stages = values();
+        return ordinal() + 1 < stages.length ? stages[ordinal() + 1] : null;
+    }
+
+    /**
+     * @return The stage before this one, or null if this is the first
+     */
+    @Nullable
+    public FinalizationStage previous() {
+        return ordinal() > 0 ? values()[ordinal() - 1] : null;
+    }
+
+    @Nullable
+    public static FinalizationStage fromName(@Nullable final String name) {
+        for (final FinalizationStage stage : values()) {
+            if (stage.name.equals(name)) {
+                return stage;
+            }
+        }
+        return null;
+    }
+}
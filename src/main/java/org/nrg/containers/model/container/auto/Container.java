@@ -71,6 +71,9 @@ public abstract class Container {
     @Nullable @JsonProperty("limit-memory") public abstract Long limitMemory();
     @Nullable @JsonProperty("limit-cpu") public abstract Double limitCpu();
     @Nullable @JsonProperty("swarm-constraints") public abstract List<String> swarmConstraints();
+    @Nullable @JsonProperty("finalization-stage") public abstract String finalizationStage();
+    @JsonSerialize(using=JsonDateSerializer.class)
+    @Nullable @JsonProperty("finalization-claim-time") public abstract Date finalizationClaimTime();
 
     @JsonIgnore
     public boolean isSwarmService() {
@@ -238,7 +241,9 @@ public abstract class Container {
                                    @JsonProperty("reserve-memory") final Long reserveMemory,
                                    @JsonProperty("limit-memory") final Long limitMemory,
                                    @JsonProperty("limit-cpu") final Double limitCpu,
-                                   @JsonProperty("swarm-constraints") final List<String> swarmConstraints) {
+                                   @JsonProperty("swarm-constraints") final List<String> swarmConstraints,
+                                   @JsonProperty("finalization-stage") final String finalizationStage,
+                                   @JsonProperty("finalization-claim-time") final Date finalizationClaimTime) {
 
         return builder()
                 .databaseId(databaseId)
@@ -271,6 +276,8 @@ public abstract class Container {
                 .limitMemory(limitMemory)
                 .limitCpu(limitCpu)
                 .swarmConstraints(swarmConstraints)
+                .finalizationStage(finalizationStage)
+                .finalizationClaimTime(finalizationClaimTime == null ? null : new Date(finalizationClaimTime.getTime()))
                 .build();
     }
 
@@ -342,6 +349,8 @@ public abstract class Container {
                 .limitMemory(containerEntity.getLimitMemory())
                 .limitCpu(containerEntity.getLimitCpu())
                 .swarmConstraints(containerEntity.getSwarmConstraints())
+                .finalizationStage(containerEntity.getFinalizationStage())
+                .finalizationClaimTime(containerEntity.getFinalizationClaimTime() == null ? null : new Date(containerEntity.getFinalizationClaimTime().getTime()))
                 .build();
     }
 
@@ -528,6 +537,8 @@ public abstract class Container {
         public abstract Builder limitMemory(Long limitMemory);
         public abstract Builder limitCpu(Double limitCpu);
         public abstract Builder swarmConstraints(List<String> swarmConstraints);
+        public abstract Builder finalizationStage(String finalizationStage);
+        public abstract Builder finalizationClaimTime(Date finalizationClaimTime);
 
         public abstract Builder environmentVariables(Map<String, String> environmentVariables);
         abstract ImmutableMap.Builder<String, String> environmentVariablesBuilder();
@@ -633,6 +644,7 @@ public abstract class Container {
         @JsonProperty("xnat-host-path") public abstract String xnatHostPath();
         @JsonProperty("container-host-path") public abstract String containerHostPath();
         @JsonProperty("container-path") public abstract String containerPath();
+        @Nullable @JsonProperty("staging-strategy") public abstract String stagingStrategy();
 
         /**
          * This used to return a list of the files that were found in an input mount. But we didn't use it anywhere in
@@ -651,6 +663,7 @@ public abstract class Container {
                                             @JsonProperty("xnat-host-path") final String xnatHostPath,
                                             @JsonProperty("container-host-path") final String containerHostPath,
                                             @JsonProperty("container-path") final String containerPath,
+                                            @JsonProperty("staging-strategy") final String stagingStrategy,
                                             @JsonProperty("input-files") final List<ContainerMountFiles> inputFiles) {
             return builder()
                     .databaseId(databaseId)
@@ -659,6 +672,7 @@ public abstract class Container {
                     .xnatHostPath(xnatHostPath)
                     .containerHostPath(containerHostPath)
                     .containerPath(containerPath)
+                    .stagingStrategy(stagingStrategy)
                     .inputFiles(inputFiles == null ? Collections.<ContainerMountFiles>emptyList() : inputFiles)
                     .build();
         }
@@ -674,7 +688,7 @@ public abstract class Container {
                     });
             return create(containerEntityMount.getId(), containerEntityMount.getName(), containerEntityMount.isWritable(),
                     containerEntityMount.getXnatHostPath(), containerEntityMount.getContainerHostPath(),
-                    containerEntityMount.getContainerPath(), containerMountFiles);
+                    containerEntityMount.getContainerPath(), containerEntityMount.getStagingStrategy(), containerMountFiles);
         }
 
         public static ContainerMount create(final ResolvedCommandMount resolvedCommandMount) {
@@ -684,6 +698,7 @@ public abstract class Container {
                     resolvedCommandMount.xnatHostPath(),
                     resolvedCommandMount.containerHostPath(),
                     resolvedCommandMount.containerPath(),
+                    resolvedCommandMount.stagingStrategy(),
                     null);
         }
 
@@ -706,6 +721,7 @@ public abstract class Container {
             public abstract Builder xnatHostPath(String xnatHostPath);
             public abstract Builder containerHostPath(String containerHostPath);
             public abstract Builder containerPath(String containerPath);
+            public abstract Builder stagingStrategy(String stagingStrategy);
 
             @Deprecated public abstract Builder inputFiles(List<ContainerMountFiles> inputFiles);
             @Deprecated abstract ImmutableList.Builder<ContainerMountFiles> inputFilesBuilder();
@@ -801,6 +817,12 @@ public abstract class Container {
         @Nullable @JsonProperty("label") public abstract String label();
         @Nullable @JsonProperty("format") public abstract String format();
         @Nullable @JsonProperty("created") public abstract String created();
+        /**
+         * The URI of the resource this output started uploading to, recorded before the upload and cleared once
+         * {@link #created()} is. If it is still set when the output is uploaded again, the first upload was
+         * interrupted, and a resource already at this URI is that upload's to finish rather than a reason to make another.
+         */
+        @Nullable @JsonProperty("uploading") public abstract String uploading();
         @JsonProperty("handled-by") public abstract String handledBy();
         @Nullable @JsonProperty("via-wrapup-container") public abstract String viaWrapupContainer();
 
@@ -817,6 +839,7 @@ public abstract class Container {
                                              @JsonProperty("label") final String label,
                                              @JsonProperty("format") final String format,
                                              @JsonProperty("created") final String created,
+                                             @JsonProperty("uploading") final String uploading,
                                              @JsonProperty("handled-by") final String handledByWrapperInput,
                                              @JsonProperty("via-wrapup-container") final String viaWrapupContainer) {
             return builder()
@@ -832,6 +855,7 @@ public abstract class Container {
                     .label(label)
                     .format(format)
                     .created(created)
+                    .uploading(uploading)
                     .handledBy(handledByWrapperInput)
                     .viaWrapupContainer(viaWrapupContainer)
                     .build();
@@ -850,6 +874,7 @@ public abstract class Container {
                     containerEntityOutput.getLabel(),
                     containerEntityOutput.getFormat(),
                     containerEntityOutput.getCreated(),
+                    containerEntityOutput.getUploading(),
                     containerEntityOutput.getHandledByXnatCommandInput(),
                     containerEntityOutput.getViaWrapupContainer());
         }
@@ -867,6 +892,7 @@ public abstract class Container {
                     resolvedCommandOutput.label(),
                     resolvedCommandOutput.format(),
                     null,
+                    null,
                     resolvedCommandOutput.handledBy(),
                     resolvedCommandOutput.viaWrapupCommand());
         }
@@ -891,6 +917,7 @@ public abstract class Container {
             public abstract Builder label(String label);
             public abstract Builder format(String format);
             public abstract Builder created(String created);
+            public abstract Builder uploading(String uploading);
             public abstract Builder handledBy(String handledBy);
             public abstract Builder viaWrapupContainer(String viaWrapupContainer);
 
@@ -0,0 +1,57 @@
+package org.nrg.containers.model.container.auto;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+
+/**
+ * Server-side filters for listing containers. Any property that is null is not filtered on.
+ */
+@AutoValue
+public abstract class ContainerFilter {
+    @Nullable public abstract String project();
+    @Nullable public abstract Boolean nonfinalized();
+
+    /**
+     * Matches containers whose status starts with this value, so "Failed" also matches "Failed (Rejected)".
+     */
+    @Nullable public abstract String status();
+    @Nullable public abstract Long commandId();
+    @Nullable public abstract Long wrapperId();
+    @Nullable public abstract String userId();
+
+    /**
+     * Inclusive lower bound on the time the container was created.
+     */
+    @Nullable public abstract Date createdAfter();
+
+    /**
+     * Exclusive upper bound on the time the container was created.
+     */
+    @Nullable public abstract Date createdBefore();
+
+    public static ContainerFilter all() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_ContainerFilter.Builder();
+    }
+
+    public abstract Builder toBuilder();
+
+    @AutoValue.Builder
+    public static abstract class Builder {
+        public abstract Builder project(String project);
+        public abstract Builder nonfinalized(Boolean nonfinalized);
+        public abstract Builder status(String status);
+        public abstract Builder commandId(Long commandId);
+        public abstract Builder wrapperId(Long wrapperId);
+        public abstract Builder userId(String userId);
+        public abstract Builder createdAfter(Date createdAfter);
+        public abstract Builder createdBefore(Date createdBefore);
+
+        public abstract ContainerFilter build();
+    }
+}
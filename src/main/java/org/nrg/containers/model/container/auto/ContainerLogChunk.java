@@ -0,0 +1,30 @@
+package org.nrg.containers.model.container.auto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+/**
+ * A piece of a container log file, read from a byte offset. Pass {@link #nextOffset()} back to read what follows.
+ * Offsets mean the same thing whether the file is a saved log or a log that is still being spooled from a
+ * running container, so a client can keep polling across finalization without starting over.
+ */
+@AutoValue
+public abstract class ContainerLogChunk {
+    @JsonProperty("content") public abstract String content();
+    @JsonProperty("offset") public abstract long offset();
+    @JsonProperty("next-offset") public abstract long nextOffset();
+    @JsonProperty("size") public abstract long size();
+
+    /**
+     * True if the log will not grow any more and this chunk reached the end of it.
+     */
+    @JsonProperty("complete") public abstract boolean complete();
+
+    public static ContainerLogChunk create(final String content,
+                                           final long offset,
+                                           final long nextOffset,
+                                           final long size,
+                                           final boolean complete) {
+        return new AutoValue_ContainerLogChunk(content, offset, nextOffset, size, complete);
+    }
+}
@@ -0,0 +1,74 @@
+package org.nrg.containers.model.container.auto;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+
+/**
+ * The identifying columns and status of a container or service, without any of its collections.
+ * Pollers read these for every running container, and only get the full {@link Container} for one they act on.
+ */
+@AutoValue
+public abstract class ContainerSummary {
+    public abstract long databaseId();
+    @Nullable public abstract String status();
+    @Nullable public abstract Date statusTime();
+    @Nullable public abstract String containerId();
+    @Nullable public abstract String workflowId();
+    @Nullable public abstract String userId();
+    @Nullable public abstract String project();
+    @Nullable public abstract Boolean swarm();
+    @Nullable public abstract String serviceId();
+    @Nullable public abstract String taskId();
+    @Nullable public abstract String nodeId();
+    @Nullable public abstract String subtype();
+
+    public boolean isSwarmService() {
+        final Boolean swarm = swarm();
+        return swarm != null && swarm;
+    }
+
+    public String containerOrServiceId() {
+        return isSwarmService() ? serviceId() : containerId();
+    }
+
+    public static ContainerSummary create(final Container container) {
+        return builder()
+                .databaseId(container.databaseId())
+                .status(container.status())
+                .statusTime(container.statusTime())
+                .containerId(container.containerId())
+                .workflowId(container.workflowId())
+                .userId(container.userId())
+                .project(container.project())
+                .swarm(container.swarm())
+                .serviceId(container.serviceId())
+                .taskId(container.taskId())
+                .nodeId(container.nodeId())
+                .subtype(container.subtype())
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_ContainerSummary.Builder();
+    }
+
+    @AutoValue.Builder
+    public static abstract class Builder {
+        public abstract Builder databaseId(long databaseId);
+        public abstract Builder status(String status);
+        public abstract Builder statusTime(Date statusTime);
+        public abstract Builder containerId(String containerId);
+        public abstract Builder workflowId(String workflowId);
+        public abstract Builder userId(String userId);
+        public abstract Builder project(String project);
+        public abstract Builder swarm(Boolean swarm);
+        public abstract Builder serviceId(String serviceId);
+        public abstract Builder taskId(String taskId);
+        public abstract Builder nodeId(String nodeId);
+        public abstract Builder subtype(String subtype);
+
+        public abstract ContainerSummary build();
+    }
+}
@@ -7,8 +7,10 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.nrg.containers.model.container.ContainerStatusCategory;
 import org.nrg.containers.model.container.auto.Container;
 import org.nrg.containers.services.impl.ContainerServiceImpl;
+import org.hibernate.annotations.BatchSize;
 import org.nrg.framework.orm.hibernate.AbstractHibernateEntity;
 import org.nrg.xft.event.persist.PersistentWorkflowUtils;
 
@@ -16,8 +18,12 @@ import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
 import javax.persistence.Transient;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,9 +36,15 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@BatchSize(size = ContainerEntity.FETCH_BATCH_SIZE)
+@Table(indexes = {
+        @Index(name = "container_entity_category_service", columnList = "statusCategory, serviceId"),
+        @Index(name = "container_entity_project_category", columnList = "project, statusCategory")
+})
 @Slf4j
 public class ContainerEntity extends AbstractHibernateEntity {
     public static final String KILL_STATUS = "kill";
+    public static final int FETCH_BATCH_SIZE = 100;
     private static final Set<String> TERMINAL_STATI = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
             "Complete", "Failed", "Killed"
     )));
@@ -40,6 +52,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     private long commandId;
     private long wrapperId;
     private String status;
+    private ContainerStatusCategory statusCategory;
     private Date statusTime;
     private String dockerImage;
     private String commandLine;
@@ -66,6 +79,10 @@ public class ContainerEntity extends AbstractHibernateEntity {
     private Long limitMemory;
     private Double limitCpu;
     private List<String> swarmConstraints;
+    private String finalizationStage;
+    private String finalizationClaimOwner;
+    private Date finalizationClaimTime;
+    private Integer finalizationFailures;
     private String project;
 
     public ContainerEntity() {}
@@ -139,6 +156,9 @@ public class ContainerEntity extends AbstractHibernateEntity {
         this.setLimitMemory(containerPojo.limitMemory());
         this.setLimitCpu(containerPojo.limitCpu());
         this.setSwarmConstraints(containerPojo.swarmConstraints());
+        this.setFinalizationStage(containerPojo.finalizationStage());
+        // Not saved by an update, see getFinalizationClaimOwner
+        this.setFinalizationClaimTime(containerPojo.finalizationClaimTime());
 
         return this;
     }
@@ -165,6 +185,19 @@ public class ContainerEntity extends AbstractHibernateEntity {
 
     public void setStatus(final String status) {
         this.status = mapStatus(status);
+        this.statusCategory = ContainerStatusCategory.fromStatus(this.status);
+    }
+
+    /**
+     * Derived from the status whenever the status is set. Only persisted so it can be indexed.
+     */
+    @Enumerated(EnumType.STRING)
+    public ContainerStatusCategory getStatusCategory() {
+        return statusCategory;
+    }
+
+    public void setStatusCategory(final ContainerStatusCategory statusCategory) {
+        this.statusCategory = statusCategory;
     }
 
     @Transient
@@ -257,6 +290,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     }
 
     @ElementCollection
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public Map<String, String> getEnvironmentVariables() {
         return environmentVariables;
     }
@@ -268,6 +302,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     }
 
     @ElementCollection
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public Map<String, String> getPorts() {
         return ports;
     }
@@ -287,6 +322,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     }
 
     @OneToMany(mappedBy = "containerEntity", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public List<ContainerEntityMount> getMounts() {
         return mounts;
     }
@@ -398,6 +434,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     }
 
     @OneToMany(mappedBy = "containerEntity", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public List<ContainerEntityInput> getInputs() {
         return inputs;
     }
@@ -424,6 +461,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     }
 
     @OneToMany(mappedBy = "containerEntity", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public List<ContainerEntityOutput> getOutputs() {
         return outputs;
     }
@@ -438,6 +476,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     }
 
     @OneToMany(mappedBy = "containerEntity", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public List<ContainerEntityHistory> getHistory() {
         return history;
     }
@@ -478,6 +517,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
     }
 
     @ElementCollection
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public List<String> getLogPaths() {
         return logPaths;
     }
@@ -496,6 +536,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
 
 
     @ElementCollection
+    @BatchSize(size = FETCH_BATCH_SIZE)
     public List<String> getSwarmConstraints() {
         return swarmConstraints;
     }
@@ -504,6 +545,56 @@ public class ContainerEntity extends AbstractHibernateEntity {
         this.swarmConstraints = swarmConstraints;
     }
 
+    /**
+     * The last {@link org.nrg.containers.model.container.FinalizationStage} this container finished, if any.
+     */
+    public String getFinalizationStage() {
+        return finalizationStage;
+    }
+
+    public void setFinalizationStage(final String finalizationStage) {
+        this.finalizationStage = finalizationStage;
+    }
+
+    /**
+     * The node running the next finalization stage, or null if no stage is running.
+     * Claims are only changed through {@link org.nrg.containers.daos.ContainerEntityRepository#claimFinalizationStage}
+     * and the queries beside it, so saving a container part way through a stage leaves its claim alone.
+     */
+    @Column(updatable = false)
+    public String getFinalizationClaimOwner() {
+        return finalizationClaimOwner;
+    }
+
+    public void setFinalizationClaimOwner(final String finalizationClaimOwner) {
+        this.finalizationClaimOwner = finalizationClaimOwner;
+    }
+
+    /**
+     * When the owner last claimed or renewed its claim on the next finalization stage.
+     * See {@link #getFinalizationClaimOwner()}.
+     */
+    @Column(updatable = false)
+    public Date getFinalizationClaimTime() {
+        return finalizationClaimTime;
+    }
+
+    public void setFinalizationClaimTime(final Date finalizationClaimTime) {
+        this.finalizationClaimTime = finalizationClaimTime == null ? null : new Date(finalizationClaimTime.getTime());
+    }
+
+    /**
+     * How many times the next finalization stage has failed. See {@link #getFinalizationClaimOwner()}.
+     */
+    @Column(updatable = false)
+    public Integer getFinalizationFailures() {
+        return finalizationFailures;
+    }
+
+    public void setFinalizationFailures(final Integer finalizationFailures) {
+        this.finalizationFailures = finalizationFailures;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -536,6 +627,7 @@ public class ContainerEntity extends AbstractHibernateEntity {
                 .add("commandId", commandId)
                 .add("wrapperId", wrapperId)
                 .add("status", status)
+                .add("statusCategory", statusCategory)
                 .add("statusTime", statusTime)
                 .add("dockerImage", dockerImage)
                 .add("commandLine", commandLine)
@@ -552,6 +644,10 @@ public class ContainerEntity extends AbstractHibernateEntity {
                 .add("limitMemory", limitMemory)
                 .add("limitCpu", limitCpu)
                 .add("swarmConstraints", swarmConstraints)
+                .add("finalizationStage", finalizationStage)
+                .add("finalizationClaimOwner", finalizationClaimOwner)
+                .add("finalizationClaimTime", finalizationClaimTime)
+                .add("finalizationFailures", finalizationFailures)
                 .toString();
     }
 }
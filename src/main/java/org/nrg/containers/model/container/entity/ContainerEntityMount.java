@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Lists;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.envers.Audited;
 import org.nrg.containers.model.container.auto.Container;
 
@@ -31,6 +32,7 @@ public class ContainerEntityMount implements Serializable {
     @JsonProperty("xnat-host-path") private String xnatHostPath;
     @JsonProperty("container-host-path") private String containerHostPath;
     @JsonProperty("container-path") private String containerPath;
+    @JsonProperty("staging-strategy") private String stagingStrategy;
     @JsonProperty("input-files") private List<ContainerMountFilesEntity> inputFiles;
 
     public ContainerEntityMount() {}
@@ -49,6 +51,7 @@ public class ContainerEntityMount implements Serializable {
         this.setXnatHostPath(containerMountPojo.xnatHostPath());
         this.setContainerHostPath(containerMountPojo.containerHostPath());
         this.setContainerPath(containerMountPojo.containerPath());
+        this.setStagingStrategy(containerMountPojo.stagingStrategy());
         this.setInputFiles(
                 Lists.newArrayList(Lists.transform(containerMountPojo.inputFiles(),
                         new Function<Container.ContainerMountFiles, ContainerMountFilesEntity>() {
@@ -119,6 +122,14 @@ public class ContainerEntityMount implements Serializable {
         this.containerPath = containerPath;
     }
 
+    public String getStagingStrategy() {
+        return stagingStrategy;
+    }
+
+    public void setStagingStrategy(final String stagingStrategy) {
+        this.stagingStrategy = stagingStrategy;
+    }
+
     @Transient
     @JsonIgnore
     public boolean isWritable() {
@@ -134,6 +145,7 @@ public class ContainerEntityMount implements Serializable {
      */
     @Deprecated
     @OneToMany(mappedBy = "containerEntityMount", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+    @BatchSize(size = ContainerEntity.FETCH_BATCH_SIZE)
     public List<ContainerMountFilesEntity> getInputFiles() {
         return inputFiles;
     }
@@ -178,6 +190,7 @@ public class ContainerEntityMount implements Serializable {
                 .add("xnatHostPath", xnatHostPath)
                 .add("containerHostPath", containerHostPath)
                 .add("remotePath", containerPath)
+                .add("stagingStrategy", stagingStrategy)
                 .add("inputFiles", inputFiles)
                 .toString();
     }
@@ -30,6 +30,7 @@ public class ContainerEntityOutput implements Serializable {
     private String label;
     private String format;
     private String created;
+    private String uploading;
     private String handledByXnatCommandInput;
     private String viaWrapupContainer;
 
@@ -54,6 +55,7 @@ public class ContainerEntityOutput implements Serializable {
         this.setLabel(containerOutputPojo.label());
         this.setFormat(containerOutputPojo.format());
         this.setCreated(containerOutputPojo.created());
+        this.setUploading(containerOutputPojo.uploading());
         this.setHandledByXnatCommandInput(containerOutputPojo.handledBy());
         this.setViaWrapupContainer(containerOutputPojo.viaWrapupContainer());
         return this;
@@ -188,6 +190,15 @@ public class ContainerEntityOutput implements Serializable {
         this.created = created;
     }
 
+    @Column(columnDefinition = "TEXT")
+    public String getUploading() {
+        return uploading;
+    }
+
+    public void setUploading(final String uploading) {
+        this.uploading = uploading;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -206,12 +217,13 @@ public class ContainerEntityOutput implements Serializable {
                 Objects.equals(this.format, that.format) &&
                 Objects.equals(this.handledByXnatCommandInput, that.handledByXnatCommandInput) &&
                 Objects.equals(this.viaWrapupContainer, that.viaWrapupContainer) &&
-                Objects.equals(this.created, that.created);
+                Objects.equals(this.created, that.created) &&
+                Objects.equals(this.uploading, that.uploading);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, fromCommandOutput, fromOutputHandler, type, required, mount, path, glob, label, format, handledByXnatCommandInput, viaWrapupContainer, created);
+        return Objects.hash(id, name, fromCommandOutput, fromOutputHandler, type, required, mount, path, glob, label, format, handledByXnatCommandInput, viaWrapupContainer, created, uploading);
     }
 
     @Override
@@ -231,6 +243,7 @@ public class ContainerEntityOutput implements Serializable {
                 .add("handledByXnatInput", handledByXnatCommandInput)
                 .add("viaWrapupContainer", viaWrapupContainer)
                 .add("created", created)
+                .add("uploading", uploading)
                 .toString();
     }
 }
\ No newline at end of file
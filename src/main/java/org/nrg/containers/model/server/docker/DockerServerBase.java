@@ -57,6 +57,18 @@ public abstract class DockerServerBase {
     @JsonProperty("swarm-constraints")
     public abstract ImmutableList<DockerServerSwarmConstraint> swarmConstraints();
 
+    @Nullable
+    @JsonProperty("connection-pool-size")
+    public abstract Integer connectionPoolSize();
+
+    @Nullable
+    @JsonProperty("connect-timeout-millis")
+    public abstract Long connectTimeoutMillis();
+
+    @Nullable
+    @JsonProperty("read-timeout-millis")
+    public abstract Long readTimeoutMillis();
+
     @AutoValue
     public abstract static class DockerServer extends DockerServerBase {
         public static final DockerServer DEFAULT_SOCKET = DockerServer.create("Local socket", "unix:///var/run/docker.sock");
@@ -72,7 +84,30 @@ public abstract class DockerServerBase {
                                           @JsonProperty("pull-images-on-xnat-init") final Boolean pullImagesOnXnatInit,
                                           @JsonProperty("container-user") final String containerUser,
                                           @JsonProperty("auto-cleanup") final boolean autoCleanup,
-                                          @Nullable @JsonProperty("swarm-constraints") final List<DockerServerSwarmConstraint> swarmConstraints) {
+                                          @Nullable @JsonProperty("swarm-constraints") final List<DockerServerSwarmConstraint> swarmConstraints,
+                                          @Nullable @JsonProperty("connection-pool-size") final Integer connectionPoolSize,
+                                          @Nullable @JsonProperty("connect-timeout-millis") final Long connectTimeoutMillis,
+                                          @Nullable @JsonProperty("read-timeout-millis") final Long readTimeoutMillis) {
+            return create(id, name, host, certPath, swarmMode, pathTranslationXnatPrefix,
+                    pathTranslationDockerPrefix, pullImagesOnXnatInit, containerUser, autoCleanup, swarmConstraints)
+                    .toBuilder()
+                    .connectionPoolSize(connectionPoolSize)
+                    .connectTimeoutMillis(connectTimeoutMillis)
+                    .readTimeoutMillis(readTimeoutMillis)
+                    .build();
+        }
+
+        public static DockerServer create(final Long id,
+                                          final String name,
+                                          final String host,
+                                          final String certPath,
+                                          final Boolean swarmMode,
+                                          final String pathTranslationXnatPrefix,
+                                          final String pathTranslationDockerPrefix,
+                                          final Boolean pullImagesOnXnatInit,
+                                          final String containerUser,
+                                          final boolean autoCleanup,
+                                          final List<DockerServerSwarmConstraint> swarmConstraints) {
             return create(id, name, host, certPath, swarmMode, null, pathTranslationXnatPrefix,
                     pathTranslationDockerPrefix, pullImagesOnXnatInit, containerUser, autoCleanup, swarmConstraints);
         }
@@ -132,7 +167,12 @@ public abstract class DockerServerBase {
                     pullImagesOnXnatInit == null ? false : pullImagesOnXnatInit,
                     dockerServerEntity.getContainerUser(),
                     dockerServerEntity.isAutoCleanup(),
-                    swarmConstraints);
+                    swarmConstraints)
+                    .toBuilder()
+                    .connectionPoolSize(dockerServerEntity.getConnectionPoolSize())
+                    .connectTimeoutMillis(dockerServerEntity.getConnectTimeoutMillis())
+                    .readTimeoutMillis(dockerServerEntity.getReadTimeoutMillis())
+                    .build();
         }
 
         @SuppressWarnings("deprecation")
@@ -155,19 +195,9 @@ public abstract class DockerServerBase {
         public DockerServer updateEventCheckTime(final Date newLastEventCheckTime) {
 
             return newLastEventCheckTime == null ? this :
-                    create(
-                            this.id(),
-                            this.name(),
-                            this.host(),
-                            this.certPath(),
-                            this.swarmMode(),
-                            newLastEventCheckTime,
-                            this.pathTranslationXnatPrefix(),
-                            this.pathTranslationDockerPrefix(),
-                            this.pullImagesOnXnatInit(),
-                            this.containerUser(),
-                            this.autoCleanup(),
-                            this.swarmConstraints());
+                    this.toBuilder()
+                            .lastEventCheckTime(newLastEventCheckTime)
+                            .build();
         }
 
         public static Builder builder() {
@@ -190,6 +220,9 @@ public abstract class DockerServerBase {
             public abstract Builder containerUser(String containerUser);
             public abstract Builder autoCleanup(boolean autoCleanup);
             public abstract Builder swarmConstraints(List<DockerServerSwarmConstraint> swarmConstraints);
+            public abstract Builder connectionPoolSize(Integer connectionPoolSize);
+            public abstract Builder connectTimeoutMillis(Long connectTimeoutMillis);
+            public abstract Builder readTimeoutMillis(Long readTimeoutMillis);
 
             public abstract DockerServer build();
         }
@@ -213,10 +246,18 @@ public abstract class DockerServerBase {
                                                   @JsonProperty("container-user") final String user,
                                                   @JsonProperty("auto-cleanup") final boolean autoCleanup,
                                                   @Nullable @JsonProperty("swarm-constraints") final List<DockerServerSwarmConstraint> swarmConstraints,
+                                                  @Nullable @JsonProperty("connection-pool-size") final Integer connectionPoolSize,
+                                                  @Nullable @JsonProperty("connect-timeout-millis") final Long connectTimeoutMillis,
+                                                  @Nullable @JsonProperty("read-timeout-millis") final Long readTimeoutMillis,
                                                   @JsonProperty("ping") final Boolean ping) {
             return create(id == null ? 0L : id, name, host, certPath, swarmMode, new Date(0),
                     pathTranslationXnatPrefix, pathTranslationDockerPrefix, pullImagesOnXnatInit,
-                    user, autoCleanup, swarmConstraints, ping);
+                    user, autoCleanup, swarmConstraints, ping)
+                    .toBuilder()
+                    .connectionPoolSize(connectionPoolSize)
+                    .connectTimeoutMillis(connectTimeoutMillis)
+                    .readTimeoutMillis(readTimeoutMillis)
+                    .build();
         }
 
         public static DockerServerWithPing create(final Long id,
@@ -265,7 +306,11 @@ public abstract class DockerServerBase {
                     dockerServer.autoCleanup(),
                     dockerServer.swarmConstraints(),
                     ping
-            );
+            ).toBuilder()
+                    .connectionPoolSize(dockerServer.connectionPoolSize())
+                    .connectTimeoutMillis(dockerServer.connectTimeoutMillis())
+                    .readTimeoutMillis(dockerServer.readTimeoutMillis())
+                    .build();
         }
 
         public static Builder builder() {
@@ -288,6 +333,9 @@ public abstract class DockerServerBase {
             public abstract Builder containerUser(String containerUser);
             public abstract Builder autoCleanup(boolean autoCleanup);
             public abstract Builder swarmConstraints(List<DockerServerSwarmConstraint> swarmConstraints);
+            public abstract Builder connectionPoolSize(Integer connectionPoolSize);
+            public abstract Builder connectTimeoutMillis(Long connectTimeoutMillis);
+            public abstract Builder readTimeoutMillis(Long readTimeoutMillis);
             public abstract Builder ping(Boolean ping);
 
             public abstract DockerServerWithPing build();
@@ -375,14 +423,18 @@ public abstract class DockerServerBase {
                 Objects.equals(this.pullImagesOnXnatInit(), that.pullImagesOnXnatInit()) &&
                 Objects.equals(this.containerUser(), that.containerUser()) &&
                 Objects.equals(this.autoCleanup(), that.autoCleanup()) &&
-                Objects.equals(this.swarmConstraints(), that.swarmConstraints());
+                Objects.equals(this.swarmConstraints(), that.swarmConstraints()) &&
+                Objects.equals(this.connectionPoolSize(), that.connectionPoolSize()) &&
+                Objects.equals(this.connectTimeoutMillis(), that.connectTimeoutMillis()) &&
+                Objects.equals(this.readTimeoutMillis(), that.readTimeoutMillis());
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(name(), host(), certPath(), swarmMode(),
                 pathTranslationXnatPrefix(), pathTranslationDockerPrefix(), pullImagesOnXnatInit(),
-                containerUser(), autoCleanup(), swarmConstraints());
+                containerUser(), autoCleanup(), swarmConstraints(),
+                connectionPoolSize(), connectTimeoutMillis(), readTimeoutMillis());
     }
 
 }
\ No newline at end of file
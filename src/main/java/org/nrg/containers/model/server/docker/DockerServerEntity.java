@@ -19,6 +19,9 @@ public class DockerServerEntity extends AbstractHibernateEntity {
     private String containerUser;
     private List<DockerServerEntitySwarmConstraint> swarmConstraints = new ArrayList<>();
     private boolean autoCleanup = true;
+    private Integer connectionPoolSize;
+    private Long connectTimeoutMillis;
+    private Long readTimeoutMillis;
 
     public static DockerServerEntity create(final DockerServer dockerServer) {
         return new DockerServerEntity().update(dockerServer);
@@ -35,6 +38,9 @@ public class DockerServerEntity extends AbstractHibernateEntity {
         this.pullImagesOnXnatInit = dockerServer.pullImagesOnXnatInit();
         this.containerUser = dockerServer.containerUser();
         this.autoCleanup = dockerServer.autoCleanup();
+        this.connectionPoolSize = dockerServer.connectionPoolSize();
+        this.connectTimeoutMillis = dockerServer.connectTimeoutMillis();
+        this.readTimeoutMillis = dockerServer.readTimeoutMillis();
 
         final Map<String, DockerServerBase.DockerServerSwarmConstraint> pojoConstraintsToAdd = new HashMap<>();
         List<DockerServerBase.DockerServerSwarmConstraint> pojoConstraints = dockerServer.swarmConstraints();
@@ -174,6 +180,30 @@ public class DockerServerEntity extends AbstractHibernateEntity {
         this.autoCleanup = autoCleanup == null ? true : autoCleanup;
     }
 
+    public Integer getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public void setConnectionPoolSize(final Integer connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    public Long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(final Long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public Long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(final Long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -213,13 +243,17 @@ public class DockerServerEntity extends AbstractHibernateEntity {
                 Objects.equals(this.pullImagesOnXnatInit, that.pullImagesOnXnatInit) &&
                 Objects.equals(this.containerUser, that.containerUser) &&
                 Objects.equals(this.autoCleanup, that.autoCleanup) &&
+                Objects.equals(this.connectionPoolSize, that.connectionPoolSize) &&
+                Objects.equals(this.connectTimeoutMillis, that.connectTimeoutMillis) &&
+                Objects.equals(this.readTimeoutMillis, that.readTimeoutMillis) &&
                 constrEqual;
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(name, host, certPath, lastEventCheckTime, swarmMode, pathTranslationXnatPrefix,
-                pathTranslationDockerPrefix, pullImagesOnXnatInit, containerUser, autoCleanup, swarmConstraints);
+                pathTranslationDockerPrefix, pullImagesOnXnatInit, containerUser, autoCleanup, swarmConstraints,
+                connectionPoolSize, connectTimeoutMillis, readTimeoutMillis);
     }
 
 }
@@ -44,12 +44,17 @@ public class Assessor extends XnatModelObject {
 
     public Assessor(final AssessorURII assessorURII, final boolean loadFiles,
                     @Nonnull final Set<String> loadTypes) {
+        this(assessorURII, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Assessor(final AssessorURII assessorURII, final boolean loadFiles,
+                    @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.xnatImageassessordataI = assessorURII.getAssessor();
         if (ExptAssessorURI.class.isAssignableFrom(assessorURII.getClass())) {
             parent = ((ExptAssessorURI) assessorURII).getSession();
         }
         this.uri = ((URIManager.DataURIA) assessorURII).getUri();
-        populateProperties(null, loadFiles, loadTypes);
+        populateProperties(null, loadFiles, loadTypes, cache);
     }
 
     public Assessor(final XnatImageassessordataI xnatImageassessordataI, final boolean loadFiles,
@@ -59,6 +64,12 @@ public class Assessor extends XnatModelObject {
 
     public Assessor(final XnatImageassessordataI xnatImageassessordataI, final boolean loadFiles,
                     @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath) {
+        this(xnatImageassessordataI, loadFiles, loadTypes, parentUri, rootArchivePath, new XnatObjectCache());
+    }
+
+    public Assessor(final XnatImageassessordataI xnatImageassessordataI, final boolean loadFiles,
+                    @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath,
+                    @Nonnull final XnatObjectCache cache) {
         this.xnatImageassessordataI = xnatImageassessordataI;
 
         if (parentUri == null) {
@@ -71,11 +82,11 @@ public class Assessor extends XnatModelObject {
         } else {
             this.uri = parentUri + "/assessors/" + xnatImageassessordataI.getId();
         }
-        populateProperties(rootArchivePath, loadFiles, loadTypes);
+        populateProperties(rootArchivePath, loadFiles, loadTypes, cache);
     }
 
     private void populateProperties(final String rootArchivePath, final boolean loadFiles,
-                                    @Nonnull final Set<String> loadTypes) {
+                                    @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.id = xnatImageassessordataI.getId();
         this.label = xnatImageassessordataI.getLabel();
         this.xsiType = xnatImageassessordataI.getXSIType();
@@ -104,13 +115,19 @@ public class Assessor extends XnatModelObject {
                         xnatImageassessordataI.getOut_file().stream()
                     )
                     .filter(r -> r instanceof XnatResourcecatalog)
-                    .map(r -> new Resource((XnatResourcecatalog) r, loadFiles, loadTypes, this.uri, rootArchivePath))
+                    .map(r -> new Resource((XnatResourcecatalog) r, loadFiles, loadTypes, this.uri, rootArchivePath, cache))
                     .collect(Collectors.toList());
         }
     }
 
     public static Function<URIManager.ArchiveItemURI, Assessor> uriToModelObject(final boolean loadFiles,
                                                                                  @Nonnull final Set<String> loadTypes) {
+        return uriToModelObject(loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<URIManager.ArchiveItemURI, Assessor> uriToModelObject(final boolean loadFiles,
+                                                                                 @Nonnull final Set<String> loadTypes,
+                                                                                 @Nonnull final XnatObjectCache cache) {
         return new Function<URIManager.ArchiveItemURI, Assessor>() {
             @Nullable
             @Override
@@ -119,14 +136,14 @@ public class Assessor extends XnatModelObject {
                         AssessorURII.class.isAssignableFrom(uri.getClass())) {
                     final XnatImageassessordata assessor = ((AssessorURII) uri).getAssessor();
                     if (assessor != null) {
-                        return new Assessor((AssessorURII) uri, loadFiles, loadTypes);
+                        return new Assessor((AssessorURII) uri, loadFiles, loadTypes, cache);
                     }
                 } else if (uri != null &&
                         ExptURI.class.isAssignableFrom(uri.getClass())) {
                     final XnatExperimentdata expt = ((ExptURI) uri).getExperiment();
                     if (expt != null &&
                             XnatImageassessordata.class.isAssignableFrom(expt.getClass())) {
-                        return new Assessor((XnatImageassessordata) expt, loadFiles, loadTypes);
+                        return new Assessor((XnatImageassessordata) expt, loadFiles, loadTypes, null, null, cache);
                     }
                 }
 
@@ -137,6 +154,12 @@ public class Assessor extends XnatModelObject {
 
     public static Function<String, Assessor> idToModelObject(final UserI userI, final boolean loadFiles,
                                                              @Nonnull final Set<String> loadTypes) {
+        return idToModelObject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<String, Assessor> idToModelObject(final UserI userI, final boolean loadFiles,
+                                                             @Nonnull final Set<String> loadTypes,
+                                                             @Nonnull final XnatObjectCache cache) {
         return new Function<String, Assessor>() {
             @Nullable
             @Override
@@ -147,7 +170,7 @@ public class Assessor extends XnatModelObject {
                 final XnatImageassessordata xnatImageassessordata =
                         XnatImageassessordata.getXnatImageassessordatasById(s, userI, true);
                 if (xnatImageassessordata != null) {
-                    return new Assessor(xnatImageassessordata, loadFiles, loadTypes);
+                    return new Assessor(xnatImageassessordata, loadFiles, loadTypes, null, null, cache);
                 }
                 return null;
             }
@@ -156,14 +179,24 @@ public class Assessor extends XnatModelObject {
 
     public Project getProject(final UserI userI, final boolean loadFiles,
                               @Nonnull final Set<String> loadTypes) {
+        return getProject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Project getProject(final UserI userI, final boolean loadFiles,
+                              @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         loadXnatImageassessordataI(userI);
-        return new Project(xnatImageassessordataI.getProject(), userI, loadFiles, loadTypes);
+        return new Project(xnatImageassessordataI.getProject(), userI, loadFiles, loadTypes, true, cache);
     }
 
     public Session getSession(final UserI userI, final boolean loadFiles,
                               @Nonnull final Set<String> loadTypes) {
+        return getSession(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Session getSession(final UserI userI, final boolean loadFiles,
+                              @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         loadXnatImageassessordataI(userI);
-        return new Session(xnatImageassessordataI.getImagesessionId(), userI, loadFiles, loadTypes);
+        return new Session(xnatImageassessordataI.getImagesessionId(), userI, loadFiles, loadTypes, cache);
     }
 
     public void loadXnatImageassessordataI(final UserI userI) {
@@ -41,10 +41,15 @@ public class Project extends XnatModelObject {
 
     public Project(final String projectId, final UserI userI, final boolean loadFiles,
                    @Nonnull final Set<String> loadTypes, final boolean preload) {
+        this(projectId, userI, loadFiles, loadTypes, preload, new XnatObjectCache());
+    }
+
+    public Project(final String projectId, final UserI userI, final boolean loadFiles,
+                   @Nonnull final Set<String> loadTypes, final boolean preload, @Nonnull final XnatObjectCache cache) {
         this.id = projectId;
-        loadXnatProjectdata(userI);
+        this.xnatProjectdata = cache.getProject(projectId, userI);
         this.uri = UriParserUtils.getArchiveUri(xnatProjectdata);
-        populateProperties(loadFiles, loadTypes, preload);
+        populateProperties(loadFiles, loadTypes, preload, cache);
     }
 
     public Project(final ProjectURII projectURII, final boolean loadFiles, @Nonnull final Set<String> loadTypes) {
@@ -53,9 +58,14 @@ public class Project extends XnatModelObject {
 
     public Project(final ProjectURII projectURII, final boolean loadFiles, @Nonnull final Set<String> loadTypes,
                    final boolean preload) {
+        this(projectURII, loadFiles, loadTypes, preload, new XnatObjectCache());
+    }
+
+    public Project(final ProjectURII projectURII, final boolean loadFiles, @Nonnull final Set<String> loadTypes,
+                   final boolean preload, @Nonnull final XnatObjectCache cache) {
         this.xnatProjectdata = projectURII.getProject();
         this.uri = ((URIManager.DataURIA) projectURII).getUri();
-        populateProperties(loadFiles, loadTypes, preload);
+        populateProperties(loadFiles, loadTypes, preload, cache);
     }
 
     public Project(final XnatProjectdata xnatProjectdata, final boolean loadFiles,
@@ -65,12 +75,18 @@ public class Project extends XnatModelObject {
 
     public Project(final XnatProjectdata xnatProjectdata, final boolean loadFiles,
                    @Nonnull final Set<String> loadTypes, final boolean preload) {
+        this(xnatProjectdata, loadFiles, loadTypes, preload, new XnatObjectCache());
+    }
+
+    public Project(final XnatProjectdata xnatProjectdata, final boolean loadFiles,
+                   @Nonnull final Set<String> loadTypes, final boolean preload, @Nonnull final XnatObjectCache cache) {
         this.xnatProjectdata = xnatProjectdata;
         this.uri = UriParserUtils.getArchiveUri(xnatProjectdata);
-        populateProperties(loadFiles, loadTypes, preload);
+        populateProperties(loadFiles, loadTypes, preload, cache);
     }
 
-    private void populateProperties(final boolean loadFiles, @Nonnull final Set<String> loadTypes, final boolean preload) {
+    private void populateProperties(final boolean loadFiles, @Nonnull final Set<String> loadTypes, final boolean preload,
+                                    @Nonnull final XnatObjectCache cache) {
         this.id = xnatProjectdata.getId();
         this.label = xnatProjectdata.getName();
         this.xsiType = xnatProjectdata.getXSIType();
@@ -79,7 +95,7 @@ public class Project extends XnatModelObject {
         this.subjects = Lists.newArrayList();
         if (preload && loadTypes.contains(CommandWrapperInputType.SUBJECT.getName())) {
             for (final XnatSubjectdata subject : xnatProjectdata.getParticipants_participant()) {
-                subjects.add(new Subject(subject, loadFiles, loadTypes, this.uri, xnatProjectdata.getRootArchivePath()));
+                subjects.add(new Subject(subject, loadFiles, loadTypes, this.uri, xnatProjectdata.getRootArchivePath(), cache));
             }
         }
 
@@ -88,7 +104,7 @@ public class Project extends XnatModelObject {
             for (final XnatAbstractresourceI xnatAbstractresourceI : xnatProjectdata.getResources_resource()) {
                 if (xnatAbstractresourceI instanceof XnatResourcecatalog) {
                     resources.add(new Resource((XnatResourcecatalog) xnatAbstractresourceI, loadFiles, loadTypes,
-                            this.uri, xnatProjectdata.getRootArchivePath()));
+                            this.uri, xnatProjectdata.getRootArchivePath(), cache));
                 }
             }
         }
@@ -102,13 +118,20 @@ public class Project extends XnatModelObject {
     public static Function<URIManager.ArchiveItemURI, Project> uriToModelObject(final boolean loadFiles,
                                                                                 @Nonnull final Set<String> loadTypes,
                                                                                 final boolean preload) {
+        return uriToModelObject(loadFiles, loadTypes, preload, new XnatObjectCache());
+    }
+
+    public static Function<URIManager.ArchiveItemURI, Project> uriToModelObject(final boolean loadFiles,
+                                                                                @Nonnull final Set<String> loadTypes,
+                                                                                final boolean preload,
+                                                                                @Nonnull final XnatObjectCache cache) {
         return new Function<URIManager.ArchiveItemURI, Project>() {
             @Nullable
             @Override
             public Project apply(@Nullable URIManager.ArchiveItemURI uri) {
                 if (uri != null &&
                         ProjectURII.class.isAssignableFrom(uri.getClass())) {
-                    return new Project((ProjectURII) uri, loadFiles, loadTypes, preload);
+                    return new Project((ProjectURII) uri, loadFiles, loadTypes, preload, cache);
                 }
 
                 return null;
@@ -124,6 +147,13 @@ public class Project extends XnatModelObject {
     public static Function<String, Project> idToModelObject(final UserI userI, final boolean loadFiles,
                                                             @Nonnull final Set<String> loadTypes,
                                                             final boolean preload) {
+        return idToModelObject(userI, loadFiles, loadTypes, preload, new XnatObjectCache());
+    }
+
+    public static Function<String, Project> idToModelObject(final UserI userI, final boolean loadFiles,
+                                                            @Nonnull final Set<String> loadTypes,
+                                                            final boolean preload,
+                                                            @Nonnull final XnatObjectCache cache) {
         return new Function<String, Project>() {
             @Nullable
             @Override
@@ -131,9 +161,9 @@ public class Project extends XnatModelObject {
                 if (StringUtils.isBlank(s)) {
                     return null;
                 }
-                final XnatProjectdata xnatProjectdata = XnatProjectdata.getXnatProjectdatasById(s, userI, false);
+                final XnatProjectdata xnatProjectdata = cache.getProject(s, userI);
                 if (xnatProjectdata != null) {
-                    return new Project(xnatProjectdata, loadFiles, loadTypes, preload);
+                    return new Project(xnatProjectdata, loadFiles, loadTypes, preload, cache);
                 }
                 return null;
             }
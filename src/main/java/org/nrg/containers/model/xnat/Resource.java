@@ -33,22 +33,35 @@ import java.util.Set;
 @Slf4j
 @JsonInclude(Include.NON_NULL)
 public class Resource extends XnatModelObject {
+    /**
+     * A load type, passed along with the input types, for wrappers with a matcher or property path that reads
+     * resources' files. Resources list their files as they are loaded, so the files are in the JSON of every object
+     * that has those resources, as they were before files were listed lazily.
+     */
+    public static final String LIST_FILES = "list-files";
 
     @JsonIgnore private XnatResourcecatalog xnatResourcecatalog;
     @JsonProperty("integer-id") private Integer integerId;
     private String directory;
-    private List<XnatFile> files;
+    // Null until the files are listed. See getFiles().
+    @JsonProperty("files") private List<XnatFile> files;
+    @JsonIgnore private FileLister fileLister;
 
     public Resource() {}
 
     public Resource(final ResourceURII resourceURII, final boolean loadFiles,
                     @Nonnull final Set<String> loadTypes) {
+        this(resourceURII, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Resource(final ResourceURII resourceURII, final boolean loadFiles,
+                    @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         final XnatAbstractresourceI xnatAbstractresourceI = resourceURII.getXnatResource();
         if (xnatAbstractresourceI instanceof XnatResourcecatalog) {
             this.xnatResourcecatalog = (XnatResourcecatalog) xnatAbstractresourceI;
         }
         this.uri = resourceURII.getUri();
-        populateProperties(null, loadFiles, loadTypes);
+        populateProperties(null, loadFiles, loadTypes, cache);
     }
 
     public Resource(final XnatResourcecatalog xnatResourcecatalog, final boolean loadFiles,
@@ -59,6 +72,13 @@ public class Resource extends XnatModelObject {
     public Resource(final XnatResourcecatalog xnatResourcecatalog, final boolean loadFiles,
                     @Nonnull final Set<String> loadTypes,
                     final String parentUri, final String rootArchivePath) {
+        this(xnatResourcecatalog, loadFiles, loadTypes, parentUri, rootArchivePath, new XnatObjectCache());
+    }
+
+    public Resource(final XnatResourcecatalog xnatResourcecatalog, final boolean loadFiles,
+                    @Nonnull final Set<String> loadTypes,
+                    final String parentUri, final String rootArchivePath,
+                    @Nonnull final XnatObjectCache cache) {
         this.xnatResourcecatalog = xnatResourcecatalog;
 
         if (parentUri == null) {
@@ -68,51 +88,81 @@ public class Resource extends XnatModelObject {
             this.uri = parentUri + "/resources/" + xnatResourcecatalog.getLabel();
         }
 
-        populateProperties(rootArchivePath, loadFiles, loadTypes);
+        populateProperties(rootArchivePath, loadFiles, loadTypes, cache);
     }
 
     private void populateProperties(final String rootArchivePath, final boolean loadFiles,
-                                    @Nonnull final Set<String> loadTypes) {
+                                    @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.integerId = xnatResourcecatalog.getXnatAbstractresourceId();
         this.id = xnatResourcecatalog.getLabel();
         this.label = xnatResourcecatalog.getLabel();
         this.xsiType = xnatResourcecatalog.getXSIType();
         this.directory = xnatResourcecatalog.getCatalogFile(rootArchivePath).getParent();
-        this.files = Lists.newArrayList();
 
-        // Only get catalog entry details if we need them
-        if (loadFiles || loadTypes.contains(CommandWrapperInputType.FILE.getName()) ||
+        // Only get catalog entry details if we need them, and then only when someone asks for them
+        if (loadTypes.contains(LIST_FILES)) {
+            this.files = new FileLister(rootArchivePath, cache).listFiles();
+        } else if (loadFiles || loadTypes.contains(CommandWrapperInputType.FILE.getName()) ||
                 loadTypes.contains(CommandWrapperInputType.FILES.getName())) {
-            final CatCatalogBean cat = xnatResourcecatalog.getCatalog(rootArchivePath);
+            this.fileLister = new FileLister(rootArchivePath, cache);
+        } else {
+            this.files = Lists.newArrayList();
+        }
+    }
+
+    /**
+     * Reads the catalog and lists the resource's files the first time they are asked for.
+     * A session can have dozens of resources with thousands of files each, and usually only one
+     * of those resources is matched by an input that needs its files.
+     */
+    private class FileLister {
+        private final String rootArchivePath;
+        private final XnatObjectCache cache;
+
+        private FileLister(final String rootArchivePath, final XnatObjectCache cache) {
+            this.rootArchivePath = rootArchivePath;
+            this.cache = cache;
+        }
+
+        private List<XnatFile> listFiles() {
+            final CatCatalogBean cat = cache.getCatalog(xnatResourcecatalog, rootArchivePath);
             if (cat == null) {
                 // would prefer to throw CommandResolutionException, but Functions, below, can't throw checked exceptions
                 throw new RuntimeException("Unable to load catalog for resource " + xnatResourcecatalog
                         + ", have your admin check utils.log for the cause");
             }
-            final Path parentUri = Paths.get(this.uri + "/files/");
+            final Path parentUri = Paths.get(uri + "/files/");
 
             // includeFile = false rather than includeFile = loadFiles because we don't want to retrieve the actual file
             // object from the catalog entry since this will pull remote files into the archive & we want them in build
-            final List<Object[]> entryDetails = CatalogUtils.getEntryDetails(cat, this.directory, parentUri.toString(),
+            final List<Object[]> entryDetails = CatalogUtils.getEntryDetails(cat, directory, parentUri.toString(),
                     xnatResourcecatalog, false, null, null, "URI");
 
+            final List<XnatFile> listed = Lists.newArrayListWithCapacity(entryDetails.size());
             for (final Object[] entry : entryDetails) {
                 String uri      = (String) entry[2]; // This is the parentUri + relative path to file
                 String relPath  = parentUri.relativize(Paths.get(uri)).toString(); // get that relative path
-                String filePath = Paths.get(this.directory).resolve(relPath).toString(); // append rel path to parent dir
+                String filePath = Paths.get(directory).resolve(relPath).toString(); // append rel path to parent dir
                 String tagsCsv  = (String) entry[4];
                 String format   = (String) entry[5];
                 String content  = (String) entry[5];
                 String sizeStr  = StringUtils.defaultIfBlank((String) entry[1], null);
                 Long size       = sizeStr == null ? null : Long.parseLong(sizeStr);
                 String checksum = (String) entry[8];
-                files.add(new XnatFile(this.uri, relPath, filePath, tagsCsv, format, content, size, checksum));
+                listed.add(new XnatFile(Resource.this.uri, relPath, filePath, tagsCsv, format, content, size, checksum));
             }
+            return listed;
         }
     }
 
     public static Function<URIManager.ArchiveItemURI, Resource> uriToModelObject(final boolean loadFiles,
                                                                                  @Nonnull final Set<String> loadTypes) {
+        return uriToModelObject(loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<URIManager.ArchiveItemURI, Resource> uriToModelObject(final boolean loadFiles,
+                                                                                 @Nonnull final Set<String> loadTypes,
+                                                                                 @Nonnull final XnatObjectCache cache) {
         return new Function<URIManager.ArchiveItemURI, Resource>() {
             @Nullable
             @Override
@@ -123,7 +173,7 @@ public class Resource extends XnatModelObject {
                     resource = ((ResourceURII) uri).getXnatResource();
 
                     if (resource != null) {
-                        return new Resource((ResourceURII) uri, loadFiles, loadTypes);
+                        return new Resource((ResourceURII) uri, loadFiles, loadTypes, cache);
                     }
                 }
 
@@ -134,6 +184,12 @@ public class Resource extends XnatModelObject {
 
     public static Function<String, Resource> idToModelObject(final UserI userI, final boolean loadFiles,
                                                              @Nonnull final Set<String> loadTypes) {
+        return idToModelObject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<String, Resource> idToModelObject(final UserI userI, final boolean loadFiles,
+                                                             @Nonnull final Set<String> loadTypes,
+                                                             @Nonnull final XnatObjectCache cache) {
         return new Function<String, Resource>() {
             @Nullable
             @Override
@@ -144,7 +200,8 @@ public class Resource extends XnatModelObject {
                 final XnatAbstractresourceI xnatAbstractresourceI =
                         XnatAbstractresource.getXnatAbstractresourcesByXnatAbstractresourceId(s, userI, true);
                 if (xnatAbstractresourceI instanceof XnatResourcecatalog) {
-                    return new Resource((XnatResourcecatalog) xnatAbstractresourceI, loadFiles, loadTypes);
+                    return new Resource((XnatResourcecatalog) xnatAbstractresourceI, loadFiles, loadTypes,
+                            null, null, cache);
                 }
                 return null;
             }
@@ -181,12 +238,41 @@ public class Resource extends XnatModelObject {
         this.directory = directory;
     }
 
-    public List<XnatFile> getFiles() {
-        return files;
+    /**
+     * Lists the resource's files from its catalog if they have not been listed yet.
+     * Until then, the resource's JSON does not include its files.
+     *
+     * @return The files, or an empty list if the resource has no catalog to list them from
+     */
+    @JsonIgnore
+    @Nonnull
+    public synchronized List<XnatFile> getFiles() {
+        if (files == null && fileLister != null) {
+            files = fileLister.listFiles();
+            fileLister = null;
+        }
+        return files == null ? Lists.<XnatFile>newArrayList() : files;
     }
 
-    public void setFiles(final List<XnatFile> files) {
+    public synchronized void setFiles(final List<XnatFile> files) {
         this.files = files;
+        this.fileLister = null;
+    }
+
+    /**
+     * A resource read back from its parent's JSON has no catalog, and has files only if they were
+     * listed before the parent was serialized. If it has none, load its catalog so getFiles() can list them.
+     */
+    public synchronized void restoreFileLister(final UserI userI, @Nonnull final XnatObjectCache cache) {
+        if (files != null || fileLister != null) {
+            return;
+        }
+        if (integerId != null) {
+            loadXnatResourcecatalog(userI);
+        }
+        if (xnatResourcecatalog != null) {
+            fileLister = new FileLister(null, cache);
+        }
     }
 
     @Override
@@ -201,13 +287,13 @@ public class Resource extends XnatModelObject {
         if (o == null || getClass() != o.getClass()) return false;
         if (!super.equals(o)) return false;
         final Resource that = (Resource) o;
-        return Objects.equals(this.directory, that.directory) &&
-                Objects.equals(this.files, that.files);
+        // Not the files: they may not have been listed yet, and listing them reads the catalog
+        return Objects.equals(this.directory, that.directory);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), directory, files);
+        return Objects.hash(super.hashCode(), directory);
     }
 
     @Override
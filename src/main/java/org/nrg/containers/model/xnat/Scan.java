@@ -50,24 +50,35 @@ public class Scan extends XnatModelObject {
 
     public Scan(final ScanURII scanURII, final boolean loadFiles,
                 @Nonnull final Set<String> loadTypes) {
+        this(scanURII, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Scan(final ScanURII scanURII, final boolean loadFiles,
+                @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.xnatImagescandataI = scanURII.getScan();
         this.uri = ((URIManager.ArchiveItemURI)scanURII).getUri();
-        populateProperties(null, loadFiles, loadTypes);
+        populateProperties(null, loadFiles, loadTypes, cache);
     }
 
     public Scan(final XnatImagescandataI xnatImagescandataI, final boolean loadFiles,
                 @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath) {
+        this(xnatImagescandataI, loadFiles, loadTypes, parentUri, rootArchivePath, new XnatObjectCache());
+    }
+
+    public Scan(final XnatImagescandataI xnatImagescandataI, final boolean loadFiles,
+                @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath,
+                @Nonnull final XnatObjectCache cache) {
         this.xnatImagescandataI = xnatImagescandataI;
         if (parentUri == null) {
             this.uri = UriParserUtils.getArchiveUri(xnatImagescandataI);
         } else {
             this.uri = parentUri + "/scans/" + xnatImagescandataI.getId();
         }
-        populateProperties(rootArchivePath, loadFiles, loadTypes);
+        populateProperties(rootArchivePath, loadFiles, loadTypes, cache);
     }
 
     private void populateProperties(final String rootArchivePath, final boolean loadFiles,
-                                    @Nonnull final Set<String> loadTypes) {
+                                    @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.integerId = xnatImagescandataI.getXnatImagescandataId();
         this.id = xnatImagescandataI.getId();
         this.sessionId = xnatImagescandataI.getImageSessionId();
@@ -97,7 +108,7 @@ public class Scan extends XnatModelObject {
             for (final XnatAbstractresourceI xnatAbstractresourceI : this.xnatImagescandataI.getFile()) {
                 if (xnatAbstractresourceI instanceof XnatResourcecatalog) {
                     resources.add(new Resource((XnatResourcecatalog) xnatAbstractresourceI, loadFiles,
-                            loadTypes, this.uri, rootArchivePath));
+                            loadTypes, this.uri, rootArchivePath, cache));
                 }
             }
         }
@@ -106,13 +117,19 @@ public class Scan extends XnatModelObject {
 
     public static Function<URIManager.ArchiveItemURI, Scan> uriToModelObject(final boolean loadFiles,
                                                                              @Nonnull final Set<String> loadTypes) {
+        return uriToModelObject(loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<URIManager.ArchiveItemURI, Scan> uriToModelObject(final boolean loadFiles,
+                                                                             @Nonnull final Set<String> loadTypes,
+                                                                             @Nonnull final XnatObjectCache cache) {
         return new Function<URIManager.ArchiveItemURI, Scan>() {
             @Nullable
             @Override
             public Scan apply(@Nullable URIManager.ArchiveItemURI uri) {
                 if (uri != null &&
                         ScanURII.class.isAssignableFrom(uri.getClass())) {
-                    return new Scan((ScanURII) uri, loadFiles, loadTypes);
+                    return new Scan((ScanURII) uri, loadFiles, loadTypes, cache);
                 }
 
                 return null;
@@ -127,14 +144,24 @@ public class Scan extends XnatModelObject {
 
     public Project getProject(final UserI userI, final boolean loadFiles,
                               @Nonnull final Set<String> loadTypes) {
+        return getProject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Project getProject(final UserI userI, final boolean loadFiles,
+                              @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         loadXnatImagescandataI(userI);
-        return new Project(xnatImagescandataI.getProject(), userI, loadFiles, loadTypes);
+        return new Project(xnatImagescandataI.getProject(), userI, loadFiles, loadTypes, true, cache);
     }
 
     public Session getSession(final UserI userI, final boolean loadFiles,
                               @Nonnull final Set<String> loadTypes) {
+        return getSession(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Session getSession(final UserI userI, final boolean loadFiles,
+                              @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         loadXnatImagescandataI(userI);
-        return new Session(xnatImagescandataI.getImageSessionId(), userI, loadFiles, loadTypes);
+        return new Session(xnatImagescandataI.getImageSessionId(), userI, loadFiles, loadTypes, cache);
     }
 
     public void loadXnatImagescandataI(final UserI userI) {
@@ -46,18 +46,28 @@ public class Session extends XnatModelObject {
 
     public Session(final String sessionId, final UserI userI, final boolean loadFiles,
                    @Nonnull final Set<String> loadTypes) {
+        this(sessionId, userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Session(final String sessionId, final UserI userI, final boolean loadFiles,
+                   @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.id = sessionId;
-        loadXnatImagesessiondata(userI);
+        this.xnatImagesessiondataI = cache.getSession(sessionId, userI);
         this.uri = UriParserUtils.getArchiveUri(xnatImagesessiondataI);
-        populateProperties(null, loadFiles, loadTypes);
+        populateProperties(null, loadFiles, loadTypes, cache);
     }
 
     public Session(final AssessedURII assessedURII, final boolean loadFiles, @Nonnull final Set<String> loadTypes) {
+        this(assessedURII, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Session(final AssessedURII assessedURII, final boolean loadFiles, @Nonnull final Set<String> loadTypes,
+                   @Nonnull final XnatObjectCache cache) {
         final XnatImagesessiondata imagesessiondata = assessedURII.getSession();
         if (imagesessiondata != null) {
             this.xnatImagesessiondataI = imagesessiondata;
             this.uri = ((URIManager.DataURIA) assessedURII).getUri();
-            populateProperties(null, loadFiles, loadTypes);
+            populateProperties(null, loadFiles, loadTypes, cache);
         }
     }
 
@@ -68,17 +78,23 @@ public class Session extends XnatModelObject {
 
     public Session(final XnatImagesessiondataI xnatImagesessiondataI, final boolean loadFiles,
                    @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath) {
+        this(xnatImagesessiondataI, loadFiles, loadTypes, parentUri, rootArchivePath, new XnatObjectCache());
+    }
+
+    public Session(final XnatImagesessiondataI xnatImagesessiondataI, final boolean loadFiles,
+                   @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath,
+                   @Nonnull final XnatObjectCache cache) {
         this.xnatImagesessiondataI = xnatImagesessiondataI;
         if (parentUri == null) {
             this.uri = UriParserUtils.getArchiveUri(xnatImagesessiondataI);
         } else {
             this.uri = parentUri + "/experiments/" + xnatImagesessiondataI.getId();
         }
-        populateProperties(rootArchivePath, loadFiles, loadTypes);
+        populateProperties(rootArchivePath, loadFiles, loadTypes, cache);
     }
 
     private void populateProperties(final String rootArchivePath, final boolean loadFiles,
-                                    @Nonnull final Set<String> loadTypes) {
+                                    @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.id = xnatImagesessiondataI.getId();
         this.label = xnatImagesessiondataI.getLabel();
         this.xsiType = xnatImagesessiondataI.getXSIType();
@@ -94,7 +110,7 @@ public class Session extends XnatModelObject {
         this.scans = Lists.newArrayList();
         if (loadFiles || loadTypes.contains(CommandWrapperInputType.SCAN.getName())) {
             for (final XnatImagescandataI xnatImagescandataI : xnatImagesessiondataI.getScans_scan()) {
-                this.scans.add(new Scan(xnatImagescandataI, loadFiles, loadTypes, this.uri, rootArchivePath));
+                this.scans.add(new Scan(xnatImagescandataI, loadFiles, loadTypes, this.uri, rootArchivePath, cache));
             }
         }
 
@@ -103,7 +119,7 @@ public class Session extends XnatModelObject {
             for (final XnatAbstractresourceI xnatAbstractresourceI : xnatImagesessiondataI.getResources_resource()) {
                 if (xnatAbstractresourceI instanceof XnatResourcecatalog) {
                     resources.add(new Resource((XnatResourcecatalog) xnatAbstractresourceI, loadFiles,
-                            loadTypes, this.uri, rootArchivePath));
+                            loadTypes, this.uri, rootArchivePath, cache));
                 }
             }
         }
@@ -111,13 +127,19 @@ public class Session extends XnatModelObject {
         this.assessors = Lists.newArrayList();
         if (loadFiles || loadTypes.contains(CommandWrapperInputType.ASSESSOR.getName())) {
             for (final XnatImageassessordataI xnatImageassessordataI : xnatImagesessiondataI.getAssessors_assessor()) {
-                assessors.add(new Assessor(xnatImageassessordataI, loadFiles, loadTypes, this.uri, rootArchivePath));
+                assessors.add(new Assessor(xnatImageassessordataI, loadFiles, loadTypes, this.uri, rootArchivePath, cache));
             }
         }
     }
 
     public static Function<URIManager.ArchiveItemURI, Session> uriToModelObject(final boolean loadFiles,
                                                                                 @Nonnull final Set<String> loadTypes) {
+        return uriToModelObject(loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<URIManager.ArchiveItemURI, Session> uriToModelObject(final boolean loadFiles,
+                                                                                @Nonnull final Set<String> loadTypes,
+                                                                                @Nonnull final XnatObjectCache cache) {
         return new Function<URIManager.ArchiveItemURI, Session>() {
             @Nullable
             @Override
@@ -128,14 +150,15 @@ public class Session extends XnatModelObject {
                     imageSession = ((AssessedURII) uri).getSession();
 
                     if (imageSession != null) {
-                        return new Session((AssessedURII) uri, loadFiles, loadTypes);
+                        return new Session((AssessedURII) uri, loadFiles, loadTypes, cache);
                     }
                 } else if (uri != null &&
                         ExperimentURII.class.isAssignableFrom(uri.getClass())) {
                     final XnatExperimentdata experimentdata = ((ExperimentURII) uri).getExperiment();
                     if (experimentdata != null &&
                             XnatImagesessiondataI.class.isAssignableFrom(experimentdata.getClass())) {
-                        return new Session((XnatImagesessiondataI) experimentdata, loadFiles, loadTypes);
+                        return new Session((XnatImagesessiondataI) experimentdata, loadFiles, loadTypes,
+                                null, null, cache);
                     }
                 }
 
@@ -146,6 +169,12 @@ public class Session extends XnatModelObject {
 
     public static Function<String, Session> idToModelObject(final UserI userI, final boolean loadFiles,
                                                             @Nonnull final Set<String> loadTypes) {
+        return idToModelObject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<String, Session> idToModelObject(final UserI userI, final boolean loadFiles,
+                                                            @Nonnull final Set<String> loadTypes,
+                                                            @Nonnull final XnatObjectCache cache) {
         return new Function<String, Session>() {
             @Nullable
             @Override
@@ -153,10 +182,9 @@ public class Session extends XnatModelObject {
                 if (StringUtils.isBlank(s)) {
                     return null;
                 }
-                final XnatImagesessiondata imagesessiondata = XnatImagesessiondata.getXnatImagesessiondatasById(s,
-                        userI, true);
+                final XnatImagesessiondata imagesessiondata = cache.getSession(s, userI);
                 if (imagesessiondata != null) {
-                    return new Session(imagesessiondata, loadFiles, loadTypes);
+                    return new Session(imagesessiondata, loadFiles, loadTypes, null, null, cache);
                 }
                 return null;
             }
@@ -164,13 +192,23 @@ public class Session extends XnatModelObject {
     }
 
     public Project getProject(final UserI userI, final boolean loadFiles, @Nonnull final Set<String> loadTypes) {
+        return getProject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Project getProject(final UserI userI, final boolean loadFiles, @Nonnull final Set<String> loadTypes,
+                              @Nonnull final XnatObjectCache cache) {
         loadXnatImagesessiondata(userI);
-        return new Project(xnatImagesessiondataI.getProject(), userI, loadFiles, loadTypes);
+        return new Project(xnatImagesessiondataI.getProject(), userI, loadFiles, loadTypes, true, cache);
     }
 
     public Subject getSubject(final UserI userI, final boolean loadFiles, @Nonnull final Set<String> loadTypes) {
+        return getSubject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Subject getSubject(final UserI userI, final boolean loadFiles, @Nonnull final Set<String> loadTypes,
+                              @Nonnull final XnatObjectCache cache) {
         loadXnatImagesessiondata(userI);
-        return new Subject(xnatImagesessiondataI.getSubjectId(), userI, loadFiles, loadTypes);
+        return new Subject(xnatImagesessiondataI.getSubjectId(), userI, loadFiles, loadTypes, cache);
     }
 
     public void loadXnatImagesessiondata(final UserI userI) {
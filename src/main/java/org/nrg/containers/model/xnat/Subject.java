@@ -40,16 +40,26 @@ public class Subject extends XnatModelObject {
 
     public Subject(final String subjectId, final UserI userI, final boolean loadFiles,
                    @Nonnull final Set<String> loadTypes) {
+        this(subjectId, userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Subject(final String subjectId, final UserI userI, final boolean loadFiles,
+                   @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.id = subjectId;
-        loadXnatSubjectdataI(userI);
+        this.xnatSubjectdataI = cache.getSubject(subjectId, userI);
         this.uri = UriParserUtils.getArchiveUri(xnatSubjectdataI);
-        populateProperties(null, loadFiles, loadTypes);
+        populateProperties(null, loadFiles, loadTypes, cache);
     }
 
     public Subject(final SubjectURII subjectURII, final boolean loadFiles, @Nonnull final Set<String> loadTypes) {
+        this(subjectURII, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Subject(final SubjectURII subjectURII, final boolean loadFiles, @Nonnull final Set<String> loadTypes,
+                   @Nonnull final XnatObjectCache cache) {
         this.xnatSubjectdataI = subjectURII.getSubject();
         this.uri = ((URIManager.DataURIA) subjectURII).getUri();
-        populateProperties(null, loadFiles, loadTypes);
+        populateProperties(null, loadFiles, loadTypes, cache);
     }
 
     public Subject(final XnatSubjectdataI xnatSubjectdataI, final boolean loadFiles, @Nonnull final Set<String> loadTypes) {
@@ -58,17 +68,23 @@ public class Subject extends XnatModelObject {
 
     public Subject(final XnatSubjectdataI xnatSubjectdataI, final boolean loadFiles,
                    @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath) {
+        this(xnatSubjectdataI, loadFiles, loadTypes, parentUri, rootArchivePath, new XnatObjectCache());
+    }
+
+    public Subject(final XnatSubjectdataI xnatSubjectdataI, final boolean loadFiles,
+                   @Nonnull final Set<String> loadTypes, final String parentUri, final String rootArchivePath,
+                   @Nonnull final XnatObjectCache cache) {
         this.xnatSubjectdataI = xnatSubjectdataI;
         if (parentUri == null) {
             this.uri = UriParserUtils.getArchiveUri(xnatSubjectdataI);
         } else {
             this.uri = parentUri + "/subjects/" + xnatSubjectdataI.getId();
         }
-        populateProperties(rootArchivePath, loadFiles, loadTypes);
+        populateProperties(rootArchivePath, loadFiles, loadTypes, cache);
     }
 
     private void populateProperties(final String rootArchivePath, final boolean loadFiles,
-                                    @Nonnull final Set<String> loadTypes) {
+                                    @Nonnull final Set<String> loadTypes, @Nonnull final XnatObjectCache cache) {
         this.id = xnatSubjectdataI.getId();
         this.label = xnatSubjectdataI.getLabel();
         this.xsiType = xnatSubjectdataI.getXSIType();
@@ -79,7 +95,7 @@ public class Subject extends XnatModelObject {
             for (final XnatExperimentdataI xnatExperimentdataI : xnatSubjectdataI.getExperiments_experiment()) {
                 if (xnatExperimentdataI instanceof XnatImagesessiondataI) {
                     sessions.add(new Session((XnatImagesessiondataI) xnatExperimentdataI, loadFiles,
-                            loadTypes, this.uri, rootArchivePath));
+                            loadTypes, this.uri, rootArchivePath, cache));
                 }
             }
         }
@@ -89,7 +105,7 @@ public class Subject extends XnatModelObject {
             for (final XnatAbstractresourceI xnatAbstractresourceI : xnatSubjectdataI.getResources_resource()) {
                 if (xnatAbstractresourceI instanceof XnatResourcecatalog) {
                     resources.add(new Resource((XnatResourcecatalog) xnatAbstractresourceI, loadFiles,
-                            loadTypes, this.uri, rootArchivePath));
+                            loadTypes, this.uri, rootArchivePath, cache));
                 }
             }
         }
@@ -97,13 +113,19 @@ public class Subject extends XnatModelObject {
 
     public static Function<URIManager.ArchiveItemURI, Subject> uriToModelObject(final boolean loadFiles,
                                                                                 @Nonnull final Set<String> loadTypes) {
+        return uriToModelObject(loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<URIManager.ArchiveItemURI, Subject> uriToModelObject(final boolean loadFiles,
+                                                                                @Nonnull final Set<String> loadTypes,
+                                                                                @Nonnull final XnatObjectCache cache) {
         return new Function<URIManager.ArchiveItemURI, Subject>() {
             @Nullable
             @Override
             public Subject apply(@Nullable URIManager.ArchiveItemURI uri) {
                 if (uri != null &&
                         SubjectURII.class.isAssignableFrom(uri.getClass())) {
-                    return new Subject((SubjectURII) uri, loadFiles, loadTypes);
+                    return new Subject((SubjectURII) uri, loadFiles, loadTypes, cache);
                 }
 
                 return null;
@@ -113,6 +135,12 @@ public class Subject extends XnatModelObject {
 
     public static Function<String, Subject> idToModelObject(final UserI userI, final boolean loadFiles,
                                                             @Nonnull final Set<String> loadTypes) {
+        return idToModelObject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public static Function<String, Subject> idToModelObject(final UserI userI, final boolean loadFiles,
+                                                            @Nonnull final Set<String> loadTypes,
+                                                            @Nonnull final XnatObjectCache cache) {
         return new Function<String, Subject>() {
             @Nullable
             @Override
@@ -122,7 +150,7 @@ public class Subject extends XnatModelObject {
                 }
                 final XnatSubjectdata xnatSubjectdata = XnatSubjectdata.getXnatSubjectdatasById(s, userI, true);
                 if (xnatSubjectdata != null) {
-                    return new Subject(xnatSubjectdata, loadFiles, loadTypes);
+                    return new Subject(xnatSubjectdata, loadFiles, loadTypes, null, null, cache);
                 }
                 return null;
             }
@@ -130,8 +158,13 @@ public class Subject extends XnatModelObject {
     }
 
     public Project getProject(final UserI userI, final boolean loadFiles, @Nonnull final Set<String> loadTypes) {
+        return getProject(userI, loadFiles, loadTypes, new XnatObjectCache());
+    }
+
+    public Project getProject(final UserI userI, final boolean loadFiles, @Nonnull final Set<String> loadTypes,
+                              @Nonnull final XnatObjectCache cache) {
         loadXnatSubjectdataI(userI);
-        return new Project(xnatSubjectdataI.getProject(), userI, loadFiles, loadTypes);
+        return new Project(xnatSubjectdataI.getProject(), userI, loadFiles, loadTypes, true, cache);
     }
 
     public void loadXnatSubjectdataI(final UserI userI) {
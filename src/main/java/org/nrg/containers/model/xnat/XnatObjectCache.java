@@ -0,0 +1,86 @@
+package org.nrg.containers.model.xnat;
+
+import org.nrg.xdat.bean.CatCatalogBean;
+import org.nrg.xdat.om.XnatImagesessiondata;
+import org.nrg.xdat.om.XnatProjectdata;
+import org.nrg.xdat.om.XnatResourcecatalog;
+import org.nrg.xdat.om.XnatSubjectdata;
+import org.nrg.xft.security.UserI;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the XFT items and parsed catalogs loaded while building model objects, so that building
+ * several model objects from the same part of the archive loads each of them once.
+ * For example, a scan input and its derived session input both need the session, and every input
+ * derived from a resource needs its catalog.
+ *
+ * A cache belongs to a single command resolution, which is done by a single user. Don't share one
+ * between users or keep one longer than a resolution; it does not notice changes to the archive.
+ */
+public class XnatObjectCache {
+    private final ConcurrentMap<String, XnatProjectdata> projects = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, XnatSubjectdata> subjects = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, XnatImagesessiondata> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CatCatalogBean> catalogs = new ConcurrentHashMap<>();
+
+    @Nullable
+    public XnatProjectdata getProject(final String projectId, final UserI userI) {
+        final XnatProjectdata cached = projects.get(projectId);
+        if (cached != null) {
+            return cached;
+        }
+        final XnatProjectdata loaded = XnatProjectdata.getXnatProjectdatasById(projectId, userI, false);
+        return loaded == null ? null : putIfAbsent(projects, projectId, loaded);
+    }
+
+    @Nullable
+    public XnatSubjectdata getSubject(final String subjectId, final UserI userI) {
+        final XnatSubjectdata cached = subjects.get(subjectId);
+        if (cached != null) {
+            return cached;
+        }
+        final XnatSubjectdata loaded = XnatSubjectdata.getXnatSubjectdatasById(subjectId, userI, false);
+        return loaded == null ? null : putIfAbsent(subjects, subjectId, loaded);
+    }
+
+    /**
+     * Sessions are preloaded, so XFT fetches the scans, assessors, and their resources along with the
+     * session instead of going back to the database for each scan's resources.
+     */
+    @Nullable
+    public XnatImagesessiondata getSession(final String sessionId, final UserI userI) {
+        final XnatImagesessiondata cached = sessions.get(sessionId);
+        if (cached != null) {
+            return cached;
+        }
+        final XnatImagesessiondata loaded = XnatImagesessiondata.getXnatImagesessiondatasById(sessionId, userI, true);
+        return loaded == null ? null : putIfAbsent(sessions, sessionId, loaded);
+    }
+
+    /**
+     * @return The resource's parsed catalog, or null if it could not be read
+     */
+    @Nullable
+    public CatCatalogBean getCatalog(final XnatResourcecatalog xnatResourcecatalog, final String rootArchivePath) {
+        final File catalogFile = xnatResourcecatalog.getCatalogFile(rootArchivePath);
+        if (catalogFile == null) {
+            return xnatResourcecatalog.getCatalog(rootArchivePath);
+        }
+        final String key = catalogFile.getAbsolutePath();
+        final CatCatalogBean cached = catalogs.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CatCatalogBean loaded = xnatResourcecatalog.getCatalog(rootArchivePath);
+        return loaded == null ? null : putIfAbsent(catalogs, key, loaded);
+    }
+
+    private static <T> T putIfAbsent(final ConcurrentMap<String, T> map, final String key, final T value) {
+        final T raced = map.putIfAbsent(key, value);
+        return raced == null ? value : raced;
+    }
+}
@@ -1,7 +1,7 @@
 package org.nrg.containers.rest;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Lists;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -12,6 +12,8 @@ import org.nrg.containers.exceptions.DockerServerException;
 import org.nrg.containers.exceptions.NoDockerServerException;
 import org.nrg.containers.model.configuration.PluginVersionCheck;
 import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.ContainerFilter;
+import org.nrg.containers.model.container.auto.ContainerLogChunk;
 import org.nrg.containers.services.ContainerService;
 import org.nrg.framework.annotations.XapiRestController;
 import org.nrg.framework.exceptions.NotFoundException;
@@ -40,8 +42,11 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -62,15 +67,21 @@ public class ContainerRestApi extends AbstractXapiRestController {
     private static final String ATTACHMENT_DISPOSITION = "attachment; filename=\"%s.%s\"";
 
     private static final String CONTENT_KEY = "content";
+    private static final long LOG_CHUNK_SIZE = 1048576; // 1MB
+    private static final long MAX_LOG_CHUNK_SIZE = 16 * LOG_CHUNK_SIZE;
+    private static final Pattern LOG_TIMESTAMP = Pattern.compile("(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{9}Z) ");
 
     private ContainerService containerService;
+    private final ObjectMapper mapper;
 
     @Autowired
     public ContainerRestApi(final ContainerService containerService,
+                            final ObjectMapper objectMapper,
                             final UserManagementServiceI userManagementService,
                             final RoleHolder roleHolder) {
         super(userManagementService, roleHolder);
         this.containerService = containerService;
+        this.mapper = objectMapper;
     }
 
     @XapiRequestMapping(value = "/containers/version", method = GET, restrictTo = Authenticated)
@@ -81,28 +92,102 @@ public class ContainerRestApi extends AbstractXapiRestController {
     }
 
     @XapiRequestMapping(value = "/containers", method = GET, restrictTo = Authenticated)
-    @ApiOperation(value = "Get all Containers")
+    @ApiOperation(value = "Get all Containers",
+            notes = "Newest first. To page through the results, set a limit and pass the database id of the last container on one page as \"after\" to get the next.")
     @ResponseBody
-    public List<Container> getAll(final @RequestParam(required = false) Boolean nonfinalized) {
-        return Lists.transform(containerService.getAll(nonfinalized), new Function<Container, Container>() {
-            @Override
-            public Container apply(final Container input) {
-                return scrubPasswordEnv(input);
-            }
-        });
+    public List<Container> getAll(final @RequestParam(required = false) Boolean nonfinalized,
+                                  final @RequestParam(required = false) String status,
+                                  final @RequestParam(required = false) Long command,
+                                  final @RequestParam(required = false) Long wrapper,
+                                  final @RequestParam(required = false) String user,
+                                  final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long since,
+                                  final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long until,
+                                  final @RequestParam(required = false) Long after,
+                                  final @RequestParam(required = false) Integer limit) {
+        final ContainerFilter filter = makeFilter(null, nonfinalized, status, command, wrapper, user, since, until);
+        return scrubPasswordEnv(containerService.getAll(filter, after, limit));
     }
 
     @XapiRequestMapping(value = "/projects/{project}/containers", method = GET, restrictTo = Authenticated)
-    @ApiOperation(value = "Get all Containers by project")
+    @ApiOperation(value = "Get all Containers by project",
+            notes = "Newest first. To page through the results, set a limit and pass the database id of the last container on one page as \"after\" to get the next.")
     @ResponseBody
     public List<Container> getAll(final @PathVariable @Project String project,
-                                  final @RequestParam(required = false) Boolean nonfinalized) {
-        return Lists.transform(containerService.getAll(nonfinalized, project), new Function<Container, Container>() {
-            @Override
-            public Container apply(final Container input) {
-                return scrubPasswordEnv(input);
-            }
-        });
+                                  final @RequestParam(required = false) Boolean nonfinalized,
+                                  final @RequestParam(required = false) String status,
+                                  final @RequestParam(required = false) Long command,
+                                  final @RequestParam(required = false) Long wrapper,
+                                  final @RequestParam(required = false) String user,
+                                  final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long since,
+                                  final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long until,
+                                  final @RequestParam(required = false) Long after,
+                                  final @RequestParam(required = false) Integer limit) {
+        final ContainerFilter filter = makeFilter(project, nonfinalized, status, command, wrapper, user, since, until);
+        return scrubPasswordEnv(containerService.getAll(filter, after, limit));
+    }
+
+    @XapiRequestMapping(value = "/containers/stream", method = GET, restrictTo = Authenticated)
+    @ApiOperation(value = "Stream all Containers",
+            notes = "Writes a JSON array of containers, newest first, as they are read from the database.")
+    public void streamAll(final @RequestParam(required = false) Boolean nonfinalized,
+                          final @RequestParam(required = false) String status,
+                          final @RequestParam(required = false) Long command,
+                          final @RequestParam(required = false) Long wrapper,
+                          final @RequestParam(required = false) String user,
+                          final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long since,
+                          final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long until,
+                          final HttpServletResponse response) throws IOException {
+        writeContainerStream(makeFilter(null, nonfinalized, status, command, wrapper, user, since, until), response);
+    }
+
+    @XapiRequestMapping(value = "/projects/{project}/containers/stream", method = GET, restrictTo = Authenticated)
+    @ApiOperation(value = "Stream all Containers by project",
+            notes = "Writes a JSON array of containers, newest first, as they are read from the database.")
+    public void streamAll(final @PathVariable @Project String project,
+                          final @RequestParam(required = false) Boolean nonfinalized,
+                          final @RequestParam(required = false) String status,
+                          final @RequestParam(required = false) Long command,
+                          final @RequestParam(required = false) Long wrapper,
+                          final @RequestParam(required = false) String user,
+                          final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long since,
+                          final @RequestParam(required = false) @ApiParam("Epoch milliseconds") Long until,
+                          final HttpServletResponse response) throws IOException {
+        writeContainerStream(makeFilter(project, nonfinalized, status, command, wrapper, user, since, until), response);
+    }
+
+    private ContainerFilter makeFilter(final String project,
+                                       final Boolean nonfinalized,
+                                       final String status,
+                                       final Long commandId,
+                                       final Long wrapperId,
+                                       final String userId,
+                                       final Long since,
+                                       final Long until) {
+        return ContainerFilter.builder()
+                .project(project)
+                .nonfinalized(nonfinalized)
+                .status(status)
+                .commandId(commandId)
+                .wrapperId(wrapperId)
+                .userId(userId)
+                .createdAfter(since == null ? null : new Date(since))
+                .createdBefore(until == null ? null : new Date(until))
+                .build();
+    }
+
+    private void writeContainerStream(final ContainerFilter filter, final HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(JSON);
+        try (final JsonGenerator generator = mapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            containerService.streamAll(filter, new ContainerService.ContainerCallback() {
+                @Override
+                public void process(final Container container) throws IOException {
+                    mapper.writeValue(generator, scrubPasswordEnv(container));
+                }
+            });
+            generator.writeEndArray();
+        }
     }
 
     @XapiRequestMapping(value = "/containers/{id}", method = GET)
@@ -135,6 +220,14 @@ public class ContainerRestApi extends AbstractXapiRestController {
         return containerService.kill(id, userI);
     }
 
+    private List<Container> scrubPasswordEnv(final List<Container> containers) {
+        final List<Container> scrubbed = new ArrayList<>(containers.size());
+        for (final Container container : containers) {
+            scrubbed.add(scrubPasswordEnv(container));
+        }
+        return scrubbed;
+    }
+
     private Container scrubPasswordEnv(final Container container) {
         final Map<String, String> scrubbedEnvironmentVariables = Maps.newHashMap();
         for (final Map.Entry<String, String> env : container.environmentVariables().entrySet()) {
@@ -153,37 +246,48 @@ public class ContainerRestApi extends AbstractXapiRestController {
         final Map<String, InputStream> logStreams = containerService.getLogStreams(containerId);
 
         try(final ZipOutputStream zipStream = new ZipOutputStream(response.getOutputStream()) ) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, getAttachmentDisposition(containerId, "zip"));
+            response.setHeader(HttpHeaders.CONTENT_TYPE, ZIP);
+
             for(final String streamName : logStreams.keySet()){
-                final InputStream inputStream = logStreams.get(streamName);
                 final ZipEntry entry = new ZipEntry(streamName);
-                try {
+                try (final InputStream inputStream = logStreams.get(streamName)) {
                     zipStream.putNextEntry(entry);
                     writeToOuputStream(inputStream, zipStream);
                 } catch (IOException e) {
-                    log.error("There was a problem writing %s to the zip. " + e.getMessage(), streamName);
+                    log.error("There was a problem writing {} to the zip. {}", streamName, e.getMessage());
                 }
             }
-
-            response.setStatus(HttpStatus.OK.value());
-            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, getAttachmentDisposition(containerId, "zip"));
-            response.setHeader(HttpHeaders.CONTENT_TYPE, ZIP);
         } catch (IOException e) {
             log.error("There was a problem opening the zip stream.", e);
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        } finally {
+            for (final InputStream inputStream : logStreams.values()) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    log.debug("Could not close log stream.", e);
+                }
+            }
         }
-
-        response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
     }
 
     @XapiRequestMapping(value = "/containers/{containerId}/logs/{file}", method = GET)
     @ApiOperation(value = "Get Container logs", notes = "Return either stdout or stderr logs")
-    @ResponseBody
-    public ResponseEntity<String> getLog(final @PathVariable String containerId,
-                                         final @PathVariable @ApiParam(allowableValues = "stdout, stderr") String file)
+    public void getLog(final @PathVariable String containerId,
+                       final @PathVariable @ApiParam(allowableValues = "stdout, stderr") String file,
+                       final HttpServletResponse response)
             throws NoDockerServerException, DockerServerException, NotFoundException, IOException {
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, getAttachmentDisposition(containerId + "-" + file, "log"))
-                .header(HttpHeaders.CONTENT_TYPE, TEXT)
-                .body(doGetLog(containerId, file));
+        response.setStatus(HttpStatus.OK.value());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, getAttachmentDisposition(containerId + "-" + file, "log"));
+        response.setHeader(HttpHeaders.CONTENT_TYPE, TEXT);
+
+        try (final InputStream logStream = containerService.getLogStream(containerId, file)) {
+            if (logStream != null) {
+                writeToOuputStream(logStream, response.getOutputStream());
+            }
+        }
     }
 
     @XapiRequestMapping(value = "/containers/{containerId}/logSince/{file}", method = GET)
@@ -193,22 +297,116 @@ public class ContainerRestApi extends AbstractXapiRestController {
                                        final @PathVariable @ApiParam(allowableValues = "stdout, stderr") String file,
                                        final @RequestParam(required = false) Long since,
                                        final @RequestParam(required = false) Long bytesRead,
-                                       final @RequestParam(required = false) Boolean loadAll)
+                                       final @RequestParam(required = false) Boolean loadAll,
+                                       final HttpServletResponse response)
             throws NoDockerServerException, DockerServerException, NotFoundException, IOException {
+        if (loadAll != null && loadAll && writeWholeLog(containerId, file, response)) {
+            return null;
+        }
 
         // IntelliJ hits a breakpoint set on the return line twice if I don't define a local var here. No idea why.
-        Map<String, Object> body = doGetLog(containerId, file, since, bytesRead, loadAll != null && loadAll);
+        Map<String, Object> body = doGetLog(containerId, file, since, bytesRead);
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_TYPE, JSON)
                 .body(body);
     }
 
-    private String doGetLog(String containerId, String file)
+    @XapiRequestMapping(value = "/containers/{containerId}/logTail/{file}", method = GET)
+    @ApiOperation(value = "Get part of a Container log",
+            notes = "Read stdout or stderr from a byte offset. Pass next-offset back as the offset to read what follows. " +
+                    "Works the same for running containers whose logs are spooled to disk and for finalized containers. " +
+                    "At most 16MB is returned at a time, whatever maxLength is.")
+    @ResponseBody
+    public ResponseEntity<ContainerLogChunk> getLogTail(final @PathVariable String containerId,
+                                                        final @PathVariable @ApiParam(allowableValues = "stdout, stderr") String file,
+                                                        final @RequestParam(required = false, defaultValue = "0") long offset,
+                                                        final @RequestParam(required = false) Long maxLength)
             throws NotFoundException, IOException {
-        return (String) doGetLog(containerId, file, null, null, true).get(CONTENT_KEY);
+        final long length = maxLength == null ? LOG_CHUNK_SIZE : Math.max(0L, Math.min(maxLength, MAX_LOG_CHUNK_SIZE));
+        final ContainerLogChunk chunk = containerService.getLogChunk(containerService.get(containerId), file, offset, length);
+        if (chunk == null) {
+            throw new NotFoundException("Container " + containerId + " has no " + file + " log file.");
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, JSON)
+                .body(chunk);
+    }
+
+    /**
+     * Write a whole saved or spooled log in the same form doGetLog returns, one chunk at a time,
+     * so a large log is never held in memory. The chunks are read into the content string as the
+     * generator writes it.
+     *
+     * @return false if the log is not on disk, in which case nothing has been written
+     */
+    private boolean writeWholeLog(final String containerId, final String file, final HttpServletResponse response)
+            throws NotFoundException, IOException {
+        final Container container = containerService.get(containerId);
+        final ContainerLogChunk first = containerService.getLogChunk(container, file, 0L, LOG_CHUNK_SIZE);
+        if (first == null) {
+            return false;
+        }
+        final boolean saved = StringUtils.isNotBlank(container.getLogPath(file));
+        final long queryTime = System.currentTimeMillis() / 1000L;
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(JSON);
+        final LogChunkReader content = new LogChunkReader(container, file, first);
+        try (final JsonGenerator generator = mapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeFieldName(CONTENT_KEY);
+            generator.writeString(content, -1);
+            final ContainerLogChunk last = content.chunk;
+            generator.writeNumberField("timestamp", saved ? -1 : queryTime);
+            generator.writeNumberField("bytesRead", last.complete() ? -1 : last.nextOffset());
+            generator.writeBooleanField("fromFile", saved);
+            generator.writeEndObject();
+        }
+        return true;
+    }
+
+    /**
+     * Reads a log's chunks one after another as a single stream of characters.
+     */
+    private class LogChunkReader extends Reader {
+        private final Container container;
+        private final String file;
+        private ContainerLogChunk chunk;
+        private int position = 0;
+
+        private LogChunkReader(final Container container, final String file, final ContainerLogChunk first) {
+            this.container = container;
+            this.file = file;
+            this.chunk = first;
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position >= chunk.content().length()) {
+                if (chunk.complete() || chunk.nextOffset() >= chunk.size() || chunk.nextOffset() <= chunk.offset()) {
+                    return -1;
+                }
+                final ContainerLogChunk next = containerService.getLogChunk(container, file, chunk.nextOffset(), LOG_CHUNK_SIZE);
+                if (next == null) {
+                    return -1;
+                }
+                chunk = next;
+                position = 0;
+            }
+            final int read = Math.min(length, chunk.content().length() - position);
+            chunk.content().getChars(position, position + read, buffer, offset);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {}
     }
 
-    private Map<String, Object> doGetLog(String containerId, String file, Long since, Long bytesRead, boolean loadAll)
+    private Map<String, Object> doGetLog(String containerId, String file, Long since, Long bytesRead)
             throws NotFoundException, IOException {
         final UserI user = XDAT.getUserDetails();
         Integer sinceInt = null;
@@ -219,90 +417,84 @@ public class ContainerRestApi extends AbstractXapiRestController {
         }
 
         long queryTime = System.currentTimeMillis() / 1000L;
-        boolean containerDone = containerService.isFailedOrComplete(containerService.get(containerId), user);
-        final InputStream logStream = containerService.getLogStream(containerId, file, true, sinceInt);
+        final Container container = containerService.get(containerId);
+        boolean containerDone = containerService.isFailedOrComplete(container, user);
+
+        // Saved logs, and logs spooled to disk while the container runs, are read from the file by byte offset.
+        // The spool file becomes the saved log, so the offsets carry over when the container finalizes.
+        final boolean saved = StringUtils.isNotBlank(container.getLogPath(file));
+        if (saved || bytesRead != null || since == null) {
+            final ContainerLogChunk chunk = containerService.getLogChunk(container, file,
+                    bytesRead == null ? 0 : bytesRead, LOG_CHUNK_SIZE);
+            if (chunk != null) {
+                Map<String, Object> jsonContent = new HashMap<>();
+                jsonContent.put(CONTENT_KEY, chunk.content());
+                jsonContent.put("timestamp", saved ? -1 : queryTime);
+                jsonContent.put("bytesRead", chunk.complete() ? -1 : chunk.nextOffset());
+                jsonContent.put("fromFile", saved);
+                return jsonContent;
+            }
+        }
 
         String logContent;
         long lastTime = -1;
-        long currentBytesRead = -1;
-        boolean fromFile = false;
-        if (logStream == null) {
-            logContent = "";
-        } else {
-            final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            if (logStream instanceof FileInputStream) {
-                long maxBytes = 1048576; // 1MB chunks
-                if (loadAll) {
-                    maxBytes = Long.MAX_VALUE;
-                }
-                // 1MB chunks
-                currentBytesRead = writeToOuputStream(logStream, byteArrayOutputStream,
-                        maxBytes, bytesRead == null ? 0 : bytesRead);
-                logContent = byteArrayOutputStream.toString(StandardCharsets.UTF_8.name());
-                fromFile = true;
+        try (final InputStream logStream = containerService.getLogStream(containerId, file, true, sinceInt)) {
+            if (logStream == null) {
+                logContent = "";
             } else {
-                // It's not a file and the container/service is still active (aka still potentially logging)
-                writeToOuputStream(logStream, byteArrayOutputStream);
-                logContent = byteArrayOutputStream.toString(StandardCharsets.UTF_8.name());
+                // It's not a file and the container/service is still active (aka still potentially logging).
+                // Read it a line at a time, stripping the timestamps as we go and keeping the last one.
+                final StringBuilder content = new StringBuilder();
+                String lastTimestamp = null;
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(logStream, StandardCharsets.UTF_8));
+                String line;
+                boolean firstLine = true;
+                while ((line = reader.readLine()) != null) {
+                    final Matcher timestampMatcher = LOG_TIMESTAMP.matcher(line);
+                    if (timestampMatcher.lookingAt()) {
+                        lastTimestamp = timestampMatcher.group(1);
+                        content.append('\n').append(line, timestampMatcher.end(), line.length());
+                    } else {
+                        if (!firstLine) {
+                            content.append('\n');
+                        }
+                        content.append(line);
+                    }
+                    firstLine = false;
+                }
+                if (!firstLine) {
+                    content.append('\n');
+                }
+                logContent = content.toString();
 
                 if (!containerDone) {
                     // Determine what to pass for "since" querying based on timestamps,
                     // leave as -1 to stop querying if container finished
-                    String[] lines = logContent.replaceAll("(\\n)+$", "").split("\\n");
-                    String lastLine;
                     try {
-                        if (lines.length == 0 ||
-                                StringUtils.isBlank(lastLine = lines[lines.length - 1].replaceAll(" .*", ""))) {
+                        if (StringUtils.isBlank(lastTimestamp)) {
                             throw new ParseException(null, 0);
                         }
-                        lastTime = Instant.parse(lastLine).plus(1L, ChronoUnit.SECONDS).getEpochSecond();
-                    } catch (ParseException e) {
+                        lastTime = Instant.parse(lastTimestamp).plus(1L, ChronoUnit.SECONDS).getEpochSecond();
+                    } catch (ParseException | DateTimeParseException e) {
                         lastTime = since == null ? queryTime : since;
                     }
                 }
-
-                // Strip the timestamps
-                logContent = logContent.replaceAll("(^|\\n)\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{9}Z ","\n");
             }
         }
         Map<String, Object> jsonContent = new HashMap<>();
         jsonContent.put(CONTENT_KEY, logContent);
         jsonContent.put("timestamp", lastTime);
-        jsonContent.put("bytesRead", currentBytesRead);
-        jsonContent.put("fromFile", fromFile);
+        jsonContent.put("bytesRead", -1);
+        jsonContent.put("fromFile", false);
         return jsonContent;
     }
 
     private void writeToOuputStream(InputStream inputStream, OutputStream outputStream) throws IOException {
-        writeToOuputStream(inputStream, outputStream, Long.MAX_VALUE, 0);
-    }
-
-    private long writeToOuputStream(InputStream inputStream, OutputStream outputStream, long maxBytes, long bytesRead)
-            throws IOException {
-
-        long totalSkipped = 0;
-        if (bytesRead > 0) {
-            long skipped;
-            while (totalSkipped < bytesRead && (skipped = inputStream.skip(bytesRead - totalSkipped)) > 0) {
-                totalSkipped += skipped;
-            }
-            if (totalSkipped != bytesRead) {
-                log.error("Error skipping to proper location of input stream for paginated logging display");
-            }
-        }
         byte[] buffer = new byte[1024];
         int length;
-        long totalBytes = 0;
         while ((length = inputStream.read(buffer)) > 0) {
             outputStream.write(buffer, 0, length);
-            totalBytes += length;
-            if (totalBytes >= maxBytes) {
-                //TODO update so that we break on a line break or at least a whitespace character?
-                return totalBytes + totalSkipped;
-            }
         }
-        // Done reading
-        return -1;
     }
 
     private static String getAttachmentDisposition(final String name, final String extension) {
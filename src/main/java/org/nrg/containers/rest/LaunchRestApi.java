@@ -18,10 +18,12 @@ import org.nrg.containers.model.command.auto.LaunchReport;
 import org.nrg.containers.model.command.auto.LaunchUi;
 import org.nrg.containers.model.command.auto.ResolvedCommand.PartiallyResolvedCommand;
 import org.nrg.containers.model.configuration.CommandConfiguration;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
 import org.nrg.containers.services.CommandResolutionService;
 import org.nrg.containers.services.CommandService;
 import org.nrg.containers.services.ContainerService;
 import org.nrg.containers.services.DockerServerService;
+import org.nrg.containers.services.impl.LaunchUiCache;
 import org.nrg.framework.annotations.XapiRestController;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.xapi.rest.AbstractXapiRestController;
@@ -51,6 +53,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 
 import static org.nrg.xdat.security.helpers.AccessLevel.Read;
@@ -75,6 +78,7 @@ public class LaunchRestApi extends AbstractXapiRestController {
     private final DockerServerService dockerServerService;
     private final ObjectMapper mapper;
     private final ExecutorService executorService;
+    private LaunchUiCache launchUiCache = new LaunchUiCache();
 
     @Autowired
     public LaunchRestApi(final CommandService commandService,
@@ -95,6 +99,12 @@ public class LaunchRestApi extends AbstractXapiRestController {
         this.executorService = containerServiceThreadPoolExecutorFactoryBean.getObject();
     }
 
+    @Autowired(required = false)
+    public void setLaunchUiCache(final LaunchUiCache launchUiCache) {
+        // Share the cache that CommandService invalidates
+        this.launchUiCache = launchUiCache;
+    }
+
     /*
     GET A LAUNCH UI
      */
@@ -152,18 +162,29 @@ public class LaunchRestApi extends AbstractXapiRestController {
                                  final long wrapperId,
                                  final Map<String, String> allRequestParams)
             throws NotFoundException, CommandResolutionException, UnauthorizedException {
+        final UserI userI = getSessionUser();
+        final DockerServer server = dockerServerService.getServer();
+        final LaunchUiCache.Key cacheKey = LaunchUiCache.key(userI, project, commandId, wrapperName, wrapperId,
+                allRequestParams, false, server);
+        final LaunchUi cached = launchUiCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("Returning cached launch UI for command {}, wrapperName {}, wrapperId {}, in project {}.", commandId, wrapperName, wrapperId, project);
+            return cached;
+        }
+
         log.debug("Getting {} configuration for command {}, wrapper name {}, wrapper id {}.", project == null ? "site" : "project " + project, commandId, wrapperName, wrapperId);
         final CommandConfiguration commandConfiguration = getCommandConfiguration(project, commandId, wrapperName, wrapperId);
         try {
             log.debug("Preparing to pre-resolve command {}, wrapperName {}, wrapperId {}, in project {} with inputs {}.", commandId, wrapperName, wrapperId, project, allRequestParams);
-            final UserI userI = getSessionUser();
             final PartiallyResolvedCommand partiallyResolvedCommand = preResolve(project, commandId, wrapperName, wrapperId, allRequestParams, userI);
             log.debug("Done pre-resolving command {}, wrapperName {}, wrapperId {}, in project {}.", commandId, wrapperName, wrapperId, project);
             log.debug("Creating launch UI.");
-            return LaunchUi.create(partiallyResolvedCommand,
+            final LaunchUi launchUi = LaunchUi.create(partiallyResolvedCommand,
                     commandConfiguration.inputs(),
-                    dockerServerService.getServer(),
+                    server,
                     false);
+            launchUiCache.put(cacheKey, launchUi);
+            return launchUi;
         } catch (Throwable t) {
             log.error("Error getting launch UI.", t);
             if (Exception.class.isAssignableFrom(t.getClass())) {
@@ -276,21 +297,33 @@ public class LaunchRestApi extends AbstractXapiRestController {
         Map<String, String> prms = Maps.newHashMap();
         prms.put(rootElement, target);
         
+        final UserI userI = getSessionUser();
+        final DockerServer server = dockerServerService.getServer();
+        final LaunchUiCache.Key cacheKey = LaunchUiCache.key(userI, project, commandId, wrapperName, wrapperId,
+                prms, true, server);
+        final LaunchUi cached = launchUiCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("Returning cached bulk launch UI for command {}, wrapperName {}, wrapperId {}, in project {}.",
+                    commandId, wrapperName, wrapperId, project);
+            return cached;
+        }
+
         try {
             log.debug("Getting {} configuration for command {}, wrapper name {}, wrapper id {}.",
                     project == null ? "site" : "project " + project, commandId, wrapperName, wrapperId);
             final CommandConfiguration commandConfiguration = getCommandConfiguration(project, commandId,
                     wrapperName, wrapperId);
 
-            final UserI userI = getSessionUser();
             final PartiallyResolvedCommand partiallyResolvedCommand = preResolve(project, commandId, wrapperName,
                     wrapperId, prms, userI);
 
             log.debug("Creating launch UI.");
-            return LaunchUi.create(partiallyResolvedCommand,
+            final LaunchUi launchUi = LaunchUi.create(partiallyResolvedCommand,
                     commandConfiguration.inputs(),
-                    dockerServerService.getServer(),
+                    server,
                     true);
+            launchUiCache.put(cacheKey, launchUi);
+            return launchUi;
         } catch (Throwable t) {
             log.error("Error getting launch UI.", t);
             if (Exception.class.isAssignableFrom(t.getClass())) {
@@ -433,6 +466,18 @@ public class LaunchRestApi extends AbstractXapiRestController {
                                          @Nullable final String rootElement,
                                          final Map<String, String> allRequestParams,
                                          final UserI userI) {
+        return launchContainer(project, commandId, wrapperName, wrapperId, rootElement, allRequestParams, userI, null);
+    }
+
+    @Nonnull
+    private LaunchReport launchContainer(@Nullable final String project,
+                                         final long commandId,
+                                         @Nullable final String wrapperName,
+                                         final long wrapperId,
+                                         @Nullable final String rootElement,
+                                         final Map<String, String> allRequestParams,
+                                         final UserI userI,
+                                         @Nullable final String bulkLaunchId) {
 
         PersistentWorkflowI workflow = null;
         String workflowid = "";
@@ -450,8 +495,13 @@ public class LaunchRestApi extends AbstractXapiRestController {
             }
 
             // Queue command resolution and container launch
-            containerService.queueResolveCommandAndLaunchContainer(project, wrapperId, commandId,
-                    wrapperName, allRequestParams, userI, workflow);
+            if (bulkLaunchId == null) {
+                containerService.queueResolveCommandAndLaunchContainer(project, wrapperId, commandId,
+                        wrapperName, allRequestParams, userI, workflow);
+            } else {
+                containerService.queueResolveCommandAndLaunchContainer(project, wrapperId, commandId,
+                        wrapperName, allRequestParams, userI, workflow, bulkLaunchId, rootElement);
+            }
 
             String msg = "To be assigned";
             if (StringUtils.isNotBlank(workflowid)) {
@@ -562,13 +612,15 @@ public class LaunchRestApi extends AbstractXapiRestController {
         final UserI userI = getSessionUser();
         final LaunchReport.BulkLaunchReport.Builder reportBuilder = LaunchReport.BulkLaunchReport.builder();
         List<String> targets = mapper.readValue(allRequestParams.get(rootElement), new TypeReference<List<String>>() {});
-        log.debug("Bulk launching on {} targets", targets.size());
+        // Targets differ only in the root element, so command resolution can share the work common to all of them
+        final String bulkLaunchId = UUID.randomUUID().toString();
+        log.debug("Bulk launching on {} targets, bulk launch id {}", targets.size(), bulkLaunchId);
         for (final String target : targets) {
             Map<String, String> paramsSet = Maps.newHashMap(allRequestParams);
             paramsSet.put(rootElement, target);
             try {
                 executorService.submit(() -> {
-                    launchContainer(project, commandId, wrapperName, wrapperId, rootElement, paramsSet, userI);
+                    launchContainer(project, commandId, wrapperName, wrapperId, rootElement, paramsSet, userI, bulkLaunchId);
                 });
                 reportBuilder.addSuccess(LaunchReport.ContainerSuccess.create("To be assigned",
                         paramsSet, null, commandId, wrapperId));
@@ -46,4 +46,31 @@ public interface CommandResolutionService {
                             Map<String, String> inputValues,
                             UserI userI)
             throws NotFoundException, CommandResolutionException, UnauthorizedException;
+
+    /**
+     * Work out the part of a command's resolution that is the same for every target of a bulk launch,
+     * where only the value of the root input changes from one launch to the next.
+     *
+     * @param rootInputName The name of the wrapper input that takes each target
+     * @param inputValues   The input values shared by every target. The root input's value is ignored.
+     */
+    BulkResolutionPlan planBulkResolution(ConfiguredCommand configuredCommand,
+                                          String rootInputName,
+                                          Map<String, String> inputValues,
+                                          UserI userI)
+            throws CommandResolutionException;
+
+    /**
+     * Resolve the command for one target of a bulk launch. Input trees that cannot depend on the root input
+     * are resolved for the first target and reused for the rest.
+     */
+    ResolvedCommand resolve(BulkResolutionPlan plan,
+                            Map<String, String> inputValues,
+                            UserI userI)
+            throws NotFoundException, CommandResolutionException, UnauthorizedException;
+
+    interface BulkResolutionPlan {
+        ConfiguredCommand configuredCommand();
+        String rootInputName();
+    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package org.nrg.containers.services;
 
 import org.nrg.containers.events.model.ContainerEvent;
+import org.nrg.containers.model.container.auto.ContainerFilter;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.containers.model.container.entity.ContainerEntity;
 import org.nrg.containers.model.container.entity.ContainerEntityHistory;
 import org.nrg.framework.exceptions.NotFoundException;
@@ -8,6 +10,8 @@ import org.nrg.framework.orm.hibernate.BaseHibernateService;
 import org.nrg.xft.security.UserI;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 
 public interface ContainerEntityService extends BaseHibernateService<ContainerEntity> {
@@ -20,10 +24,20 @@ public interface ContainerEntityService extends BaseHibernateService<ContainerEn
 
     List<ContainerEntity> getAll(Boolean nonfinalized, String project);
     List<ContainerEntity> getAll(Boolean nonfinalized);
+    List<ContainerEntity> getPage(ContainerFilter filter, Long after, Integer limit);
+    void scroll(ContainerFilter filter, ContainerEntityCallback callback) throws IOException;
 
 
     List<ContainerEntity> retrieveServices();
     List<ContainerEntity> retrieveNonfinalizedServices();
+    /**
+     * Nonfinalized services, read without loading any of their collections.
+     */
+    List<ContainerSummary> retrieveNonfinalizedServiceSummaries();
+    /**
+     * Running containers and services, read without loading any of their collections.
+     */
+    List<ContainerSummary> retrieveActiveSummaries();
     List<ContainerEntity> retrieveContainersInFinalizingState();
     List<ContainerEntity> retrieveServicesInWaitingState();
 
@@ -32,9 +46,47 @@ public interface ContainerEntityService extends BaseHibernateService<ContainerEn
     List<ContainerEntity> retrieveSetupContainersForParent(long parentId);
     List<ContainerEntity> retrieveWrapupContainersForParent(long parentId);
 
+    boolean recordOutputUploading(long outputDatabaseId, String uploading);
+    boolean recordOutputCreated(long outputDatabaseId, String created);
+    /**
+     * Claim the finalization stage after {@code finishedStage} for {@code owner}. A claim last renewed before
+     * {@code staleBefore} is taken over.
+     *
+     * @return Whether the stage was claimed. If not, the stage is done or another node is running it.
+     */
+    boolean claimFinalizationStage(long containerDatabaseId, String finishedStage, String owner, Date claimTime, Date staleBefore);
+    int renewFinalizationClaims(String owner, Date claimTime);
+    void releaseFinalizationClaim(long containerDatabaseId, String owner);
+    /**
+     * Release the claim on a stage that failed, leaving it to be retried once the claim looks stale.
+     *
+     * @return How many times the stage has failed
+     */
+    int recordFinalizationStageFailure(long containerDatabaseId, String owner, Date failureTime);
+    /**
+     * Release the claims that earlier runs of a node left behind when they went down.
+     *
+     * @param ownerPrefix   The part of an owner's name that identifies the node
+     * @param owner         The current run of the node, whose claims are kept
+     * @param renewedBefore When the current run started. Claims renewed since then are still live.
+     * @return The number of claims released
+     */
+    int releaseFinalizationClaimsOfEarlierRuns(String ownerPrefix, String owner, Date renewedBefore);
+
     ContainerEntity addContainerEventToHistory(final ContainerEvent containerEvent, final UserI userI);
     ContainerEntityHistory addContainerHistoryItem(final ContainerEntity containerEntity,
                                                    final ContainerEntityHistory history, final UserI userI);
 
 	int howManyContainersAreWaiting();
+
+    /**
+     * Give a status category to the containers saved before there was one.
+     *
+     * @return The number of containers that were updated
+     */
+    int backfillStatusCategories();
+
+    interface ContainerEntityCallback {
+        void process(ContainerEntity containerEntity) throws IOException;
+    }
 }
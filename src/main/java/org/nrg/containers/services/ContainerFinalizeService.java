@@ -11,6 +11,28 @@ public interface ContainerFinalizeService {
                                 UserI userI,
                                 boolean isFailed, final List<Container> wrapupContainers);
 
+    /**
+     * The first stage of {@link #finalizeContainer}: save the container's logs.
+     *
+     * @return The container with its log paths
+     */
+    Container collectLogs(Container toFinalize, UserI userI);
+
+    /**
+     * The second stage of {@link #finalizeContainer}, only for containers that didn't fail: upload the outputs.
+     *
+     * @return The container with its uploaded outputs, and a failure history item if a required output failed
+     */
+    Container ingestOutputs(Container toFinalize, UserI userI, List<Container> wrapupContainers);
+
+    /**
+     * The last stage of {@link #finalizeContainer}: set the final status on the container and its workflow,
+     * and email the user.
+     *
+     * @return The finalized container
+     */
+    Container updateRecords(Container toFinalize, UserI userI, boolean isFailed);
+
     void sendContainerStatusUpdateEmail(UserI user,
                                         boolean completionStatus,
                                         String pipelineName,
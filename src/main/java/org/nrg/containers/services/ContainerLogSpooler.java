@@ -0,0 +1,33 @@
+package org.nrg.containers.services;
+
+import org.nrg.containers.model.container.auto.Container;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+
+/**
+ * Follows the logs of running containers and appends them to files under the archive's CONTAINER_EXEC directory,
+ * so that neither finalization nor the UI has to read a whole log back from docker.
+ */
+public interface ContainerLogSpooler {
+    /**
+     * Start following the logs of each running container whose logs we are not already following.
+     */
+    void spoolRunningContainers();
+
+    /**
+     * @param logName One of {@link ContainerService#LOG_NAMES}
+     * @return The file this log is being spooled to, or null if we have not spooled any of it
+     */
+    @Nullable
+    Path getSpoolFile(Container container, String logName);
+
+    /**
+     * Stop following the log, append whatever docker has that we have not yet written, and return the file.
+     *
+     * @param logName One of {@link ContainerService#LOG_NAMES}
+     * @return The path to the complete log, or null if the log is empty or could not be saved
+     */
+    @Nullable
+    String finishSpooling(Container container, String logName);
+}
@@ -1,17 +1,23 @@
 package org.nrg.containers.services;
 
 import org.nrg.containers.events.model.ContainerEvent;
+import org.nrg.containers.events.model.DockerSwarmEvent;
 import org.nrg.containers.events.model.ServiceTaskEvent;
 import org.nrg.containers.exceptions.ContainerException;
 import org.nrg.containers.exceptions.DockerServerException;
 import org.nrg.containers.exceptions.NoDockerServerException;
 import org.nrg.containers.model.command.auto.ResolvedCommand;
 import org.nrg.containers.model.configuration.PluginVersionCheck;
+import org.nrg.containers.model.container.FinalizationStage;
 import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.ContainerFilter;
+import org.nrg.containers.model.container.auto.ContainerLogChunk;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.xft.event.persist.PersistentWorkflowI;
 import org.nrg.xft.security.UserI;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
@@ -36,14 +42,44 @@ public interface ContainerService {
     List<Container> getAll(String project);
     List<Container> getAll(Boolean nonfinalized);
 
+    /**
+     * @param after Cursor: only return containers with a database id less than this. Null for the first page.
+     * @param limit Maximum number of containers to return. Null for no limit.
+     * @return The containers matching the filter, newest first
+     */
+    List<Container> getAll(ContainerFilter filter, Long after, Integer limit);
+
+    /**
+     * Hand each container matching the filter, newest first, to the callback as it is read from the database.
+     */
+    void streamAll(ContainerFilter filter, ContainerCallback callback) throws IOException;
+
 
     List<Container> retrieveServices();
     List<Container> retrieveServicesInWaitingState();
     List<Container> retrieveNonfinalizedServices();
+    /**
+     * Nonfinalized services without their mounts, inputs, outputs, history or other collections.
+     * For polling; get the full container before acting on one.
+     */
+    List<ContainerSummary> retrieveNonfinalizedServiceSummaries();
 
     void checkQueuedContainerJobs(UserI user);
     void checkWaitingContainerJobs(UserI user);
-    void resetFinalizingStatusToWaitingOrFailed();
+    /**
+     * Resume finalization of every container that is finalizing but isn't running a finalization stage.
+     * Claims left behind by an earlier run of this node are released first, since those stages died with it.
+     */
+    void resumeInterruptedFinalization();
+    /**
+     * Resume finalization of containers whose running finalization stage has stopped renewing its claim,
+     * most likely because the node running it went down.
+     */
+    void resumeStalledFinalization();
+    /**
+     * Renew the claims on the finalization stages this node is running, so they aren't taken to have stalled.
+     */
+    void renewFinalizationClaims();
 
     List<Container> retrieveSetupContainersForParent(long parentId);
     List<Container> retrieveWrapupContainersForParent(long parentId);
@@ -64,6 +100,18 @@ public interface ContainerService {
                                                Map<String, String> inputValues,
                                                UserI userI, PersistentWorkflowI workflow) throws Exception;
 
+    /**
+     * Queue one target of a bulk launch. Targets with the same bulk launch id differ only in the value of the
+     * root element input, so the work of resolving the command that they share is done once.
+     */
+    void queueResolveCommandAndLaunchContainer(String project,
+                                               long wrapperId,
+                                               long commandId,
+                                               String wrapperName,
+                                               Map<String, String> inputValues,
+                                               UserI userI, PersistentWorkflowI workflow,
+                                               String bulkLaunchId, String rootElement) throws Exception;
+
     void consumeResolveCommandAndLaunchContainer(String project,
                                                  long wrapperId,
                                                  long commandId,
@@ -71,11 +119,20 @@ public interface ContainerService {
                                                  Map<String, String> inputValues,
                                                  UserI userI, String workflowid);
 
+    void consumeResolveCommandAndLaunchContainer(String project,
+                                                 long wrapperId,
+                                                 long commandId,
+                                                 String wrapperName,
+                                                 Map<String, String> inputValues,
+                                                 UserI userI, String workflowid,
+                                                 String bulkLaunchId, String rootElement);
+
     Container launchResolvedCommand(final ResolvedCommand resolvedCommand, final UserI userI, PersistentWorkflowI workflow)
             throws NoDockerServerException, DockerServerException, ContainerException;
 
     void processEvent(final ContainerEvent event);
     void processEvent(final ServiceTaskEvent event);
+    void processEvent(final DockerSwarmEvent event);
 
     void finalize(final String containerId, final UserI userI) throws NotFoundException, ContainerException, NoDockerServerException, DockerServerException;
     void finalize(final Container container, final UserI userI) throws ContainerException, DockerServerException, NoDockerServerException;
@@ -89,6 +146,15 @@ public interface ContainerService {
     InputStream getLogStream(long id, String logFileName) throws NotFoundException;
     InputStream getLogStream(String containerId, String logFileName) throws NotFoundException;
     InputStream getLogStream(String containerId, String logFileName, boolean withTimestamps, Integer since) throws NotFoundException;
+
+    /**
+     * Read part of a container log from its file: the saved log if the container is finalized, otherwise the file
+     * it is being spooled to.
+     *
+     * @param offset Byte offset to start from. Use the previous chunk's next offset to continue.
+     * @return The chunk, or null if the log has no file yet and must be read from docker
+     */
+    ContainerLogChunk getLogChunk(Container container, String logFileName, long offset, long maxLength) throws IOException;
 	boolean isWaiting(Container service);
 	boolean isFinalizing(Container service);
     boolean isFailedOrComplete(Container service, UserI user);
@@ -104,6 +170,17 @@ public interface ContainerService {
                          final UserI userI)
             throws NoDockerServerException, ContainerException, NotFoundException, DockerServerException;
 
+    /**
+     * Run one stage of finalization from its queue, then queue the next stage.
+     * A stage the container has already finished is not run again.
+     */
+    void consumeFinalizationStage(final FinalizationStage stage,
+                                  final String exitCodeString,
+                                  final boolean isSuccessful,
+                                  final Container service,
+                                  final UserI userI)
+            throws NoDockerServerException, ContainerException, DockerServerException;
+
     /**
      * Restart a service through swarm
      * @param service the service to restart
@@ -111,4 +188,8 @@ public interface ContainerService {
      * @return true is successfully restarted, false otherwise
      */
     boolean restartService(Container service, UserI user);
+
+    interface ContainerCallback {
+        void process(Container container) throws IOException;
+    }
 }
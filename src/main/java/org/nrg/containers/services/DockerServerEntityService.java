@@ -3,6 +3,9 @@ package org.nrg.containers.services;
 import org.nrg.containers.model.server.docker.DockerServerEntity;
 import org.nrg.framework.orm.hibernate.BaseHibernateService;
 
+import java.util.Date;
+
 public interface DockerServerEntityService extends BaseHibernateService<DockerServerEntity> {
     DockerServerEntity getServer();
+    void updateLastEventCheckTime(long serverId, Date lastEventCheckTime);
 }
@@ -3,6 +3,7 @@ package org.nrg.containers.services;
 import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
 import org.nrg.framework.exceptions.NotFoundException;
 
+import java.util.Date;
 import java.util.List;
 
 public interface DockerServerService {
@@ -11,4 +12,5 @@ public interface DockerServerService {
     DockerServer getServer() throws NotFoundException;
     DockerServer setServer(DockerServer dockerServer);
     void update(DockerServer dockerServer);
+    void updateEventCheckTime(DockerServer dockerServer, Date lastEventCheckTime);
 }
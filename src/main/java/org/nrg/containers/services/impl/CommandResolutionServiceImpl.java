@@ -4,18 +4,17 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.Option;
 import com.jayway.jsonpath.TypeRef;
 import com.jayway.jsonpath.spi.mapper.MappingException;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.nrg.action.ClientException;
@@ -55,10 +54,15 @@ import org.nrg.containers.model.xnat.Session;
 import org.nrg.containers.model.xnat.Subject;
 import org.nrg.containers.model.xnat.XnatFile;
 import org.nrg.containers.model.xnat.XnatModelObject;
+import org.nrg.containers.model.xnat.XnatObjectCache;
 import org.nrg.containers.services.CommandResolutionService;
 import org.nrg.containers.services.CommandService;
 import org.nrg.containers.services.DockerServerService;
 import org.nrg.containers.services.DockerService;
+import org.nrg.containers.utils.CompiledTemplate;
+import org.nrg.containers.utils.JsonPropertyReader;
+import org.nrg.containers.utils.MountStager;
+import org.nrg.containers.utils.ObjectMatcher;
 import org.nrg.framework.constants.Scope;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.xdat.preferences.SiteConfigPreferences;
@@ -71,6 +75,7 @@ import org.nrg.xnat.helpers.uri.UriParserUtils;
 import org.nrg.xnat.services.archive.CatalogService;
 import org.nrg.xnat.turbine.utils.ArchivableItem;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
@@ -81,8 +86,12 @@ import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -114,8 +123,14 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
     private final ObjectMapper mapper;
     private final DockerService dockerService;
     private final CatalogService catalogService;
+    private final JsonPropertyReader propertyReader;
+    private CommandSearchContextCache searchContextCache;
+    private ForkJoinPool inputResolutionPool;
+    private final MountStager mountStager = new MountStager();
 
     public static final String swarmConstraintsTag = "swarm-constraints";
+    // A matcher or property path that reads a resource's files
+    private static final Pattern READS_FILES = Pattern.compile("\\bfiles\\b");
 
     @Autowired
     public CommandResolutionServiceImpl(final CommandService commandService,
@@ -132,6 +147,22 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
         this.mapper = mapper;
         this.dockerService = dockerService;
         this.catalogService = catalogService;
+        this.propertyReader = new JsonPropertyReader(mapper);
+        this.searchContextCache = new CommandSearchContextCache(mapper);
+    }
+
+    @Autowired(required = false)
+    public void setSearchContextCache(final CommandSearchContextCache searchContextCache) {
+        // Share the cache that CommandService invalidates
+        this.searchContextCache = searchContextCache;
+    }
+
+    /**
+     * Sibling input subtrees are resolved concurrently on this pool. Without one, they are resolved one at a time.
+     */
+    @Autowired(required = false)
+    public void setInputResolutionPool(final @Qualifier("inputResolutionPool") ForkJoinPool inputResolutionPool) {
+        this.inputResolutionPool = inputResolutionPool;
     }
 
     @Override
@@ -219,8 +250,92 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
         return helper.resolve();
     }
 
+    @Override
+    public BulkResolutionPlan planBulkResolution(final ConfiguredCommand configuredCommand,
+                                                 final String rootInputName,
+                                                 final Map<String, String> inputValues,
+                                                 final UserI userI)
+            throws CommandResolutionException {
+        final CommandResolutionHelper helper = new CommandResolutionHelper(configuredCommand, inputValues, userI);
+        return helper.planBulkResolution(rootInputName);
+    }
+
+    @Override
+    @Nonnull
+    public ResolvedCommand resolve(final BulkResolutionPlan plan,
+                                   final Map<String, String> inputValues,
+                                   final UserI userI)
+            throws NotFoundException, CommandResolutionException, UnauthorizedException {
+        if (!(plan instanceof BulkPlan)) {
+            throw new CommandResolutionException("Cannot resolve command from a bulk resolution plan that was not made by this service.");
+        }
+        final CommandResolutionHelper helper = new CommandResolutionHelper((BulkPlan) plan, inputValues, userI);
+        return helper.resolve();
+    }
+
+    /**
+     * The parts of a resolution that do not change between targets of a bulk launch: the docker server's
+     * path prefixes, the load types, the swarm constraints, and the input trees that the root input can't reach.
+     * Shared trees are only used when a target's other input values are the same as the plan's.
+     */
+    private static class BulkPlan implements BulkResolutionPlan {
+        private final ConfiguredCommand configuredCommand;
+        private final String rootInputName;
+        private final Map<String, String> sharedInputValues;
+        private final String pathTranslationXnatPrefix;
+        private final String pathTranslationContainerHostPrefix;
+        private final String containerUser;
+        private final Map<String, Set<String>> loadTypesMap;
+        private final List<String> swarmConstraints;
+        private final Set<String> independentRootInputs;
+        private final ConcurrentMap<String, ResolvedInputTreeNode<? extends Input>> sharedInputTrees = new ConcurrentHashMap<>();
+
+        private BulkPlan(final ConfiguredCommand configuredCommand,
+                         final String rootInputName,
+                         final Map<String, String> inputValues,
+                         final String pathTranslationXnatPrefix,
+                         final String pathTranslationContainerHostPrefix,
+                         final String containerUser,
+                         final Map<String, Set<String>> loadTypesMap,
+                         final List<String> swarmConstraints,
+                         final Set<String> independentRootInputs) {
+            this.configuredCommand = configuredCommand;
+            this.rootInputName = rootInputName;
+            this.sharedInputValues = withoutRootInput(inputValues);
+            this.pathTranslationXnatPrefix = pathTranslationXnatPrefix;
+            this.pathTranslationContainerHostPrefix = pathTranslationContainerHostPrefix;
+            this.containerUser = containerUser;
+            this.loadTypesMap = loadTypesMap;
+            this.swarmConstraints = swarmConstraints;
+            this.independentRootInputs = independentRootInputs;
+        }
+
+        @Override
+        public ConfiguredCommand configuredCommand() {
+            return configuredCommand;
+        }
+
+        @Override
+        public String rootInputName() {
+            return rootInputName;
+        }
+
+        private boolean sharesInputValues(final Map<String, String> inputValues) {
+            return sharedInputValues.equals(withoutRootInput(inputValues));
+        }
+
+        private Map<String, String> withoutRootInput(final Map<String, String> inputValues) {
+            final Map<String, String> withoutRoot = inputValues == null ?
+                    new HashMap<String, String>() :
+                    new HashMap<>(inputValues);
+            withoutRoot.remove(rootInputName);
+            return withoutRoot;
+        }
+    }
+
     private class CommandResolutionHelper {
         private final String JSONPATH_SUBSTRING_REGEX = "\\^(wrapper:)?(.+)\\^";
+        private static final int PARSED_JSON_CACHE_SIZE = 100;
 
         private final CommandWrapper commandWrapper;
         private final ConfiguredCommand command;
@@ -228,37 +343,74 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
 
         private final UserI userI;
         private final Pattern jsonpathSubstringPattern;
+        private final CommandSearchContextCache.SearchContexts searchContexts;
         private final DocumentContext commandJsonpathSearchContext;
         private final DocumentContext commandWrapperJsonpathSearchContext;
+        private final CompiledTemplate.JsonpathResolver jsonpathResolver = new CompiledTemplate.JsonpathResolver() {
+            @Override
+            public String resolve(final String jsonpathSubstring) throws CommandResolutionException {
+                return resolveJsonpathSubstring(jsonpathSubstring);
+            }
+        };
         private String containerHost;
 
         private String pathTranslationXnatPrefix = null;
         private String pathTranslationContainerHostPrefix = null;
+        private String containerUser = null;
 
         private List<ResolvedCommand> resolvedSetupCommands;
 
+        @Nullable private final BulkPlan bulkPlan;
+
         // Caches
         private Map<String, String> inputValues;
+        private final XnatObjectCache xnatObjectCache = new XnatObjectCache();
+        // Subtrees resolved in parallel each load their own XFT items. See resolveChildren.
+        private final ThreadLocal<XnatObjectCache> subtreeXnatObjectCache = new ThreadLocal<>();
+        private final Cache<String, DocumentContext> parsedJsonCache = CacheBuilder.newBuilder()
+                .maximumSize(PARSED_JSON_CACHE_SIZE)
+                .build();
 
         private CommandResolutionHelper(final ConfiguredCommand configuredCommand,
                                         final Map<String, String> inputValues,
                                         final UserI userI) throws CommandResolutionException {
+            this(configuredCommand, inputValues, userI, null);
+        }
+
+        private CommandResolutionHelper(final BulkPlan bulkPlan,
+                                        final Map<String, String> inputValues,
+                                        final UserI userI) throws CommandResolutionException {
+            this(bulkPlan.configuredCommand, inputValues, userI, bulkPlan);
+        }
+
+        private CommandResolutionHelper(final ConfiguredCommand configuredCommand,
+                                        final Map<String, String> inputValues,
+                                        final UserI userI,
+                                        @Nullable final BulkPlan bulkPlan) throws CommandResolutionException {
             this.commandWrapper = configuredCommand.wrapper();
             this.command = configuredCommand;
+            this.bulkPlan = bulkPlan;
 
-            try {
-                log.debug("Getting docker server to read path prefixes.");
-                final DockerServerBase.DockerServerWithPing dockerServer = dockerService.getServer();
-                pathTranslationXnatPrefix = dockerServer.pathTranslationXnatPrefix();
-                pathTranslationContainerHostPrefix = dockerServer.pathTranslationDockerPrefix();
-            } catch (NotFoundException e) {
-                log.debug("Could not get docker server. I'll keep going, but this is likely to cause other problems down the line.");
+            if (bulkPlan != null) {
+                pathTranslationXnatPrefix = bulkPlan.pathTranslationXnatPrefix;
+                pathTranslationContainerHostPrefix = bulkPlan.pathTranslationContainerHostPrefix;
+                containerUser = bulkPlan.containerUser;
+            } else {
+                try {
+                    log.debug("Getting docker server to read path prefixes.");
+                    final DockerServerBase.DockerServerWithPing dockerServer = dockerService.getServer();
+                    pathTranslationXnatPrefix = dockerServer.pathTranslationXnatPrefix();
+                    pathTranslationContainerHostPrefix = dockerServer.pathTranslationDockerPrefix();
+                    containerUser = dockerServer.containerUser();
+                } catch (NotFoundException e) {
+                    log.debug("Could not get docker server. I'll keep going, but this is likely to cause other problems down the line.");
+                }
             }
 
-            // Set up JSONPath search contexts
-            final Configuration c = Configuration.defaultConfiguration().addOptions(Option.ALWAYS_RETURN_LIST);
-            commandJsonpathSearchContext = serializeToJson(command, c);
-            commandWrapperJsonpathSearchContext = serializeToJson(commandWrapper, c);
+            // Get JSONPath search contexts
+            searchContexts = searchContextCache.get(configuredCommand);
+            commandJsonpathSearchContext = searchContexts.command();
+            commandWrapperJsonpathSearchContext = searchContexts.wrapper();
 
             this.userI = userI;
             this.jsonpathSubstringPattern = Pattern.compile(JSONPATH_SUBSTRING_REGEX);
@@ -271,17 +423,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
 
             // During preresolution, we want to work as quickly as possible (user is waiting for UI form). As such,
             // we determine how deeply we need to resolve the XNAT objects for JSON serialization.
-            this.loadTypesMap = getTypeLoadMapForWrapper();
-        }
-
-        private DocumentContext serializeToJson(Object command, Configuration c)
-                throws CommandResolutionException {
-            try {
-                final String commandJson = mapper.writeValueAsString(command);
-                return JsonPath.using(c).parse(commandJson);
-            } catch (JsonProcessingException e) {
-                throw new CommandResolutionException("Could not serialize command to JSON.", e);
-            }
+            this.loadTypesMap = bulkPlan != null ? bulkPlan.loadTypesMap : getTypeLoadMapForWrapper();
         }
 
         @Nonnull
@@ -297,12 +439,24 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 throws CommandResolutionException, UnauthorizedException {
             final List<PreresolvedInputTreeNode<? extends Input>> rootNodes = initializePreresolvedInputTree(resolvedCommandLineValuesByReplacementKey);
 
+            // Targets of a bulk launch that differ only in the root input can reuse the trees it doesn't reach
+            final boolean shareInputTrees = resolveFully && bulkPlan != null && bulkPlan.sharesInputValues(inputValues);
+
             final List<ResolvedInputTreeNode<? extends Input>> resolvedInputTrees = Lists.newArrayList();
             for (final PreresolvedInputTreeNode<? extends Input> rootNode : rootNodes) {
-                log.debug("Resolving input tree with root input \"{}\".", rootNode.input().name());
-                final ResolvedInputTreeNode<? extends Input> resolvedRootNode =
-                        resolveNode(rootNode, null, resolvedInputValuesByReplacementKey, resolveFully);
-                log.debug("Done resolving input tree with root input \"{}\".", rootNode.input().name());
+                final String rootInputName = rootNode.input().name();
+                ResolvedInputTreeNode<? extends Input> resolvedRootNode =
+                        shareInputTrees ? bulkPlan.sharedInputTrees.get(rootInputName) : null;
+                if (resolvedRootNode != null) {
+                    log.debug("Reusing input tree with root input \"{}\" from another target of the bulk launch.", rootInputName);
+                } else {
+                    log.debug("Resolving input tree with root input \"{}\".", rootInputName);
+                    resolvedRootNode = resolveNode(rootNode, null, resolvedInputValuesByReplacementKey, resolveFully);
+                    log.debug("Done resolving input tree with root input \"{}\".", rootInputName);
+                    if (shareInputTrees && bulkPlan.independentRootInputs.contains(rootInputName)) {
+                        bulkPlan.sharedInputTrees.putIfAbsent(rootInputName, resolvedRootNode);
+                    }
+                }
                 resolvedInputTrees.add(resolvedRootNode);
 
                 log.debug("Searching input tree for resolved values.");
@@ -385,7 +539,9 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                               .build());
             }
 
-            final List<String> swarmConstraints = resolveSwarmConstraints();
+            final List<String> swarmConstraints = bulkPlan != null && bulkPlan.sharesInputValues(inputValues) ?
+                    bulkPlan.swarmConstraints :
+                    resolveSwarmConstraints();
 
             final ResolvedCommand resolvedCommand = ResolvedCommand.builder()
                     .wrapperId(commandWrapper.id())
@@ -507,6 +663,12 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
         private Set<String> findTypesUsed(CommandWrapperInput input) {
             Set<String> typesUsed  = new HashSet<>();
             typesUsed.add(input.type());
+            if (input instanceof CommandWrapperDerivedInput) {
+                final String property = ((CommandWrapperDerivedInput) input).derivedFromXnatObjectProperty();
+                if (property != null && READS_FILES.matcher(property.toLowerCase()).find()) {
+                    typesUsed.add(Resource.LIST_FILES);
+                }
+            }
 
             // Very hacky way to determine if the JSON matcher needs any deeper object types
             String matcher = input.matcher();
@@ -522,6 +684,11 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
             }
             typesUsed.addAll(matcherTypes);
 
+            // Matchers evaluated against a parent's JSON only see the files of resources that have listed them
+            if (READS_FILES.matcher(matcher).find()) {
+                typesUsed.add(Resource.LIST_FILES);
+            }
+
             return typesUsed;
         }
 
@@ -668,28 +835,28 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     try {
                         if (type.equals(PROJECT.getName())) {
                             xnatModelObject = resolveXnatObject(resolvedValue, resolvedMatcher,
-                                    Project.class, Project.uriToModelObject(loadFiles, typesNeeded, preload),
-                                    Project.idToModelObject(userI, loadFiles, typesNeeded, preload));
+                                    Project.class, Project.uriToModelObject(loadFiles, typesNeeded, preload, xnatObjectCache()),
+                                    Project.idToModelObject(userI, loadFiles, typesNeeded, preload, xnatObjectCache()));
                         } else if (type.equals(SUBJECT.getName())) {
                             xnatModelObject = resolveXnatObject(resolvedValue, resolvedMatcher,
-                                    Subject.class, Subject.uriToModelObject(loadFiles, typesNeeded),
-                                    Subject.idToModelObject(userI, loadFiles, typesNeeded));
+                                    Subject.class, Subject.uriToModelObject(loadFiles, typesNeeded, xnatObjectCache()),
+                                    Subject.idToModelObject(userI, loadFiles, typesNeeded, xnatObjectCache()));
                         } else if (type.equals(SESSION.getName())) {
                             xnatModelObject = resolveXnatObject(resolvedValue, resolvedMatcher,
-                                    Session.class, Session.uriToModelObject(loadFiles, typesNeeded),
-                                    Session.idToModelObject(userI, loadFiles, typesNeeded));
+                                    Session.class, Session.uriToModelObject(loadFiles, typesNeeded, xnatObjectCache()),
+                                    Session.idToModelObject(userI, loadFiles, typesNeeded, xnatObjectCache()));
                         } else if (type.equals(SCAN.getName())) {
                             xnatModelObject = resolveXnatObject(resolvedValue, resolvedMatcher,
-                                    Scan.class, Scan.uriToModelObject(loadFiles, typesNeeded),
-                                    Scan.idToModelObject(userI, loadFiles, typesNeeded));
+                                    Scan.class, Scan.uriToModelObject(loadFiles, typesNeeded, xnatObjectCache()),
+                                    Scan.idToModelObject(userI, loadFiles, typesNeeded, xnatObjectCache()));
                         } else if (type.equals(ASSESSOR.getName())) {
                             xnatModelObject = resolveXnatObject(resolvedValue, resolvedMatcher,
-                                    Assessor.class, Assessor.uriToModelObject(loadFiles, typesNeeded),
-                                    Assessor.idToModelObject(userI, loadFiles, typesNeeded));
+                                    Assessor.class, Assessor.uriToModelObject(loadFiles, typesNeeded, xnatObjectCache()),
+                                    Assessor.idToModelObject(userI, loadFiles, typesNeeded, xnatObjectCache()));
                         } else {
                             xnatModelObject = resolveXnatObject(resolvedValue, resolvedMatcher,
-                                    Resource.class, Resource.uriToModelObject(loadFiles, typesNeeded),
-                                    Resource.idToModelObject(userI, loadFiles, typesNeeded));
+                                    Resource.class, Resource.uriToModelObject(loadFiles, typesNeeded, xnatObjectCache()),
+                                    Resource.idToModelObject(userI, loadFiles, typesNeeded, xnatObjectCache()));
                         }
                     } catch (CommandInputResolutionException e) {
                         // When resolveXnatObject throws this, it does not have the input object in scope
@@ -769,7 +936,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
             if (resolvedModelObject != null) {
                 valueLabel = resolvedModelObject.getLabel();
                 try {
-                    jsonValue = mapper.writeValueAsString(resolvedModelObject);
+                    jsonValue = serializeResolvedModelObject(resolvedModelObject);
                 } catch (JsonProcessingException e) {
                     log.error("Could not serialize model object to json.", e);
                 }
@@ -864,6 +1031,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     resolvedValues = Collections.emptyList();
                 } else if (parentType.equals(RESOURCE.getName())) {
                     final List<XnatFile> files = matchChildFromParent(
+                            parentXnatObject,
                             parentJson,
                             valueCouldContainId,
                             "files",
@@ -902,13 +1070,13 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 } else {
                     final Project project;
                     if (parentType.equals(SUBJECT.getName())) {
-                        project = ((Subject)parentXnatObject).getProject(userI, false, typesNeeded);
+                        project = ((Subject)parentXnatObject).getProject(userI, false, typesNeeded, xnatObjectCache());
                     } else if (parentType.equals(SESSION.getName())) {
-                        project = ((Session)parentXnatObject).getProject(userI, false, typesNeeded);
+                        project = ((Session)parentXnatObject).getProject(userI, false, typesNeeded, xnatObjectCache());
                     } else if (parentType.equals(SCAN.getName())) {
-                        project = ((Scan)parentXnatObject).getProject(userI, false, typesNeeded);
+                        project = ((Scan)parentXnatObject).getProject(userI, false, typesNeeded, xnatObjectCache());
                     } else {
-                        project = ((Assessor)parentXnatObject).getProject(userI, false, typesNeeded);
+                        project = ((Assessor)parentXnatObject).getProject(userI, false, typesNeeded, xnatObjectCache());
                     }
                     resolvedXnatObjects = Collections.<XnatModelObject>singletonList(project);
                     resolvedValues = Collections.singletonList(project.getUri());
@@ -925,6 +1093,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 } else {
                     if (parentType.equals(PROJECT.getName())) {
                         List<Subject> childList = matchChildFromParent(
+                                parentXnatObject,
                                 parentJson,
                                 valueCouldContainId,
                                 "subjects",
@@ -935,6 +1104,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         if (childList == null || childList.isEmpty()) {
                             // It is also possible that the value they gave us contains an id
                             childList = matchChildFromParent(
+                                    parentXnatObject,
                                     parentJson,
                                     valueCouldContainId,
                                     "subjects",
@@ -946,6 +1116,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         if (childList == null || childList.isEmpty()) {
                             // It is also possible that the value they gave us contains a label
                             childList = matchChildFromParent(
+                                    parentXnatObject,
                                     parentJson,
                                     valueCouldContainId,
                                     "subjects",
@@ -968,7 +1139,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         }
                     } else {
                         // Parent is session
-                        final Subject subject = ((Session)parentXnatObject).getSubject(userI, false, typesNeeded);
+                        final Subject subject = ((Session)parentXnatObject).getSubject(userI, false, typesNeeded, xnatObjectCache());
                         resolvedXnatObjects = Collections.<XnatModelObject>singletonList(subject);
                         resolvedValues = Collections.singletonList(subject.getUri());
                     }
@@ -985,6 +1156,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 } else {
                     if (parentType.equals(SUBJECT.getName())) {
                         List<Session> childList = matchChildFromParent(
+                                parentXnatObject,
                                 parentJson,
                                 valueCouldContainId,
                                 "sessions",
@@ -995,6 +1167,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         if (childList == null || childList.isEmpty()) {
                             // It is also possible that the value they gave us contains an id
                             childList = matchChildFromParent(
+                                    parentXnatObject,
                                     parentJson,
                                     valueCouldContainId,
                                     "sessions",
@@ -1006,6 +1179,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         if (childList == null || childList.isEmpty()) {
                             // It is also possible that the value they gave us contains a label
                             childList = matchChildFromParent(
+                                    parentXnatObject,
                                     parentJson,
                                     valueCouldContainId,
                                     "sessions",
@@ -1027,12 +1201,12 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                             }));
                         }
                     } else if (parentType.equals(ASSESSOR.getName())) {
-                        final Session session = ((Assessor)parentXnatObject).getSession(userI, false, typesNeeded);
+                        final Session session = ((Assessor)parentXnatObject).getSession(userI, false, typesNeeded, xnatObjectCache());
                         resolvedXnatObjects = Collections.<XnatModelObject>singletonList(session);
                         resolvedValues = Collections.singletonList(session.getUri());
                     } else {
                         // Parent is scan
-                        final Session session = ((Scan)parentXnatObject).getSession(userI, false, typesNeeded);
+                        final Session session = ((Scan)parentXnatObject).getSession(userI, false, typesNeeded, xnatObjectCache());
                         resolvedXnatObjects = Collections.<XnatModelObject>singletonList(session);
                         resolvedValues = Collections.singletonList(session.getUri());
                     }
@@ -1048,6 +1222,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     resolvedValues = Collections.emptyList();
                 } else {
                     List<Scan> childList = matchChildFromParent(
+                            parentXnatObject,
                             parentJson,
                             valueCouldContainId,
                             "scans",
@@ -1058,6 +1233,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     if (childList == null || childList.isEmpty()) {
                         // It is also possible that the value they gave us contains an id
                         childList = matchChildFromParent(
+                                parentXnatObject,
                                 parentJson,
                                 valueCouldContainId,
                                 "scans",
@@ -1090,6 +1266,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     resolvedValues = Collections.emptyList();
                 } else {
                     List<Assessor> childList = matchChildFromParent(
+                            parentXnatObject,
                             parentJson,
                             valueCouldContainId,
                             "assessors",
@@ -1100,6 +1277,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     if (childList == null || childList.isEmpty()) {
                         // It is also possible that the value they gave us contains an ID
                         childList = matchChildFromParent(
+                                parentXnatObject,
                                 parentJson,
                                 valueCouldContainId,
                                 "assessors",
@@ -1111,6 +1289,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     if (childList == null || childList.isEmpty()) {
                         // It is also possible that the value they gave us contains a label
                         childList = matchChildFromParent(
+                                parentXnatObject,
                                 parentJson,
                                 valueCouldContainId,
                                 "assessors",
@@ -1147,6 +1326,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     // Try matching the value they gave us against the resource uri.
                     // That's what the UI will send.
                     List<Resource> childList = matchChildFromParent(
+                            parentXnatObject,
                             parentJson,
                             valueCouldContainId,
                             "resources",
@@ -1157,6 +1337,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     if (childList == null || childList.isEmpty()) {
                         // It is also possible that the value they gave us contains an ID
                         childList = matchChildFromParent(
+                                parentXnatObject,
                                 parentJson,
                                 valueCouldContainId,
                                 "resources",
@@ -1168,6 +1349,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     if (childList == null || childList.isEmpty()) {
                         // It is also possible that the value they gave us contains a label
                         childList = matchChildFromParent(
+                                parentXnatObject,
                                 parentJson,
                                 valueCouldContainId,
                                 "resources",
@@ -1180,6 +1362,10 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         resolvedXnatObjects = Collections.emptyList();
                         resolvedValues = Collections.emptyList();
                     } else {
+                        // Resources read back from the parent's JSON have no catalog to list their files from
+                        for (final Resource resource : childList) {
+                            resource.restoreFileLister(userI, xnatObjectCache());
+                        }
                         resolvedXnatObjects = Lists.<XnatModelObject>newArrayList(childList);
                         resolvedValues = Lists.newArrayList(Lists.transform(childList, new Function<Resource, String>() {
                             @Override
@@ -1211,7 +1397,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 if (xnatModelObject != null) {
                     valueLabel = xnatModelObject.getLabel();
                     try {
-                        jsonValue = mapper.writeValueAsString(xnatModelObject);
+                        jsonValue = serializeResolvedModelObject(xnatModelObject);
                         if (StringUtils.isNotBlank(propertyToGet)) {
                             resolvedValue = pullStringFromParentJson("$." + propertyToGet,
                                     null, jsonValue);
@@ -1315,6 +1501,67 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     parentType);
         }
 
+        @Nonnull
+        private BulkPlan planBulkResolution(final String rootInputName) throws CommandResolutionException {
+            return new BulkPlan(command, rootInputName, inputValues,
+                    pathTranslationXnatPrefix, pathTranslationContainerHostPrefix, containerUser, loadTypesMap,
+                    resolveSwarmConstraints(), findInputTreesIndependentOf(rootInputName));
+        }
+
+        /**
+         * Find the root inputs whose trees resolve the same way whatever the value of the given root input.
+         * Trees are resolved in order, and a tree only sees the values of earlier trees through the
+         * replacement keys in its inputs' matchers. So every tree before the root input's tree is independent of it,
+         * and a later tree is independent unless one of its matchers uses a value from a dependent tree.
+         */
+        @Nonnull
+        private Set<String> findInputTreesIndependentOf(final String rootInputName) throws CommandResolutionException {
+            final Set<String> independentRootInputs = new HashSet<>();
+            final Set<String> dependentReplacementKeys = new HashSet<>();
+            boolean foundRootInput = false;
+            for (final PreresolvedInputTreeNode<? extends Input> rootNode : initializePreresolvedInputTree(null)) {
+                final String name = rootNode.input().name();
+                if (name.equals(rootInputName)) {
+                    foundRootInput = true;
+                    collectReplacementKeys(rootNode, dependentReplacementKeys);
+                } else if (!foundRootInput || !matchersUseAny(rootNode, dependentReplacementKeys)) {
+                    independentRootInputs.add(name);
+                } else {
+                    collectReplacementKeys(rootNode, dependentReplacementKeys);
+                }
+            }
+            if (!foundRootInput) {
+                log.debug("Bulk launch root input \"{}\" is not a root input of wrapper \"{}\". No input trees will be shared.",
+                        rootInputName, commandWrapper.name());
+                return Collections.emptySet();
+            }
+            return independentRootInputs;
+        }
+
+        private void collectReplacementKeys(final PreresolvedInputTreeNode<? extends Input> node, final Set<String> replacementKeys) {
+            replacementKeys.add(node.input().replacementKey());
+            for (final PreresolvedInputTreeNode<? extends Input> child : node.children()) {
+                collectReplacementKeys(child, replacementKeys);
+            }
+        }
+
+        private boolean matchersUseAny(final PreresolvedInputTreeNode<? extends Input> node, final Set<String> replacementKeys) {
+            final String matcher = node.input().matcher();
+            if (StringUtils.isNotBlank(matcher)) {
+                for (final String replacementKey : replacementKeys) {
+                    if (StringUtils.isNotBlank(replacementKey) && matcher.contains(replacementKey)) {
+                        return true;
+                    }
+                }
+            }
+            for (final PreresolvedInputTreeNode<? extends Input> child : node.children()) {
+                if (matchersUseAny(child, replacementKeys)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         private List<PreresolvedInputTreeNode<? extends Input>> initializePreresolvedInputTree(@Nullable final Map<String, String> resolvedCommandLineValuesByReplacementKey)
                 throws CommandResolutionException {
             log.debug("Initializing tree of wrapper input parent-child relationships.");
@@ -1403,10 +1650,61 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
             final ResolvedInputTreeNode<? extends Input> thisNode =
                     ResolvedInputTreeNode.create(preresolvedInputNode);
 
-            // Resolve a value for this node
-            final List<ResolvedInputValue> resolvedInputValues;
+            // Resolve a value for this node.
+            final List<ResolvedInputValue> resolvedInputValues =
+                    resolveValues(thisNode, preresolvedInputNode, parentValue, resolvedInputValuesByReplacementKey, loadFiles);
+
+            // Recursively resolve values for child nodes, using each of this node's resolved values.
+            // Each child gets its own copy of the resolved values, so siblings never see one another and can be
+            // resolved in any order. They are merged back in the order of this node's values and children.
+            final boolean hasChildren = preresolvedInputNode.children() != null && !preresolvedInputNode.children().isEmpty();
+            final List<ChildResolution> childResolutions = Lists.newArrayList();
+            if (hasChildren) {
+                for (final ResolvedInputValue resolvedInputValue : resolvedInputValues) {
+                    for (final PreresolvedInputTreeNode<? extends Input> child : preresolvedInputNode.children()) {
+                        log.debug("Resolving input \"{}\" child \"{}\" using value \"{}\".",
+                                thisNode.input().name(),
+                                child.input().name(),
+                                resolvedInputValue.value());
+
+                        final Map<String, String> copyOfResolvedInputValuesByReplacementKey = Maps.newHashMap(resolvedInputValuesByReplacementKey);
+                        copyOfResolvedInputValuesByReplacementKey.put(thisNode.input().replacementKey(), resolvedInputValue.value());
+                        childResolutions.add(new ChildResolution(child, resolvedInputValue, copyOfResolvedInputValuesByReplacementKey, loadFiles));
+                    }
+                }
+                resolveChildren(childResolutions);
+            }
+
+            final List<ResolvedInputTreeValueAndChildren> resolvedValuesAndChildren = Lists.newArrayList();
+            final Iterator<ChildResolution> resolvedChildren = childResolutions.iterator();
+            for (final ResolvedInputValue resolvedInputValue : resolvedInputValues) {
+                if (hasChildren) {
+                    final List<ResolvedInputTreeNode<? extends Input>> resolvedChildNodes = Lists.newArrayList();
+                    for (int i = 0; i < preresolvedInputNode.children().size(); i++) {
+                        resolvedChildNodes.add(resolvedChildren.next().getResolvedNode());
+                    }
+                    resolvedValuesAndChildren.add(ResolvedInputTreeNode.ResolvedInputTreeValueAndChildren.create(resolvedInputValue, resolvedChildNodes));
+                } else {
+                    log.debug("Input \"{}\" (no children) has resolved value \"{}\".",
+                            thisNode.input().name(),
+                            resolvedInputValue.value());
+                    resolvedValuesAndChildren.add(ResolvedInputTreeNode.ResolvedInputTreeValueAndChildren.create(resolvedInputValue));
+                }
+            }
+
+            thisNode.valuesAndChildren().addAll(resolvedValuesAndChildren);
+            log.debug("Done resolving node for input \"{}\".", preresolvedInputNode.input().name());
+            return thisNode;
+        }
+
+        private List<ResolvedInputValue> resolveValues(final ResolvedInputTreeNode<? extends Input> thisNode,
+                                                       final PreresolvedInputTreeNode<? extends Input> preresolvedInputNode,
+                                                       final @Nullable ResolvedInputValue parentValue,
+                                                       final Map<String, String> resolvedInputValuesByReplacementKey,
+                                                       final boolean loadFiles)
+                throws CommandResolutionException, UnauthorizedException {
             if (thisNode.input() instanceof CommandWrapperExternalInput) {
-                resolvedInputValues = Collections.singletonList(
+                return Collections.singletonList(
                         resolveExternalWrapperInput((CommandWrapperExternalInput)thisNode.input(),
                                 resolvedInputValuesByReplacementKey, loadFiles)
                 );
@@ -1414,48 +1712,164 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 if (parentValue == null) {
                     // This should never happen. We should only call this with null parent values for root nodes, never derived nodes
                     log.error("resolveNode called on derived input \"{}\" with null parent value.", preresolvedInputNode.input().name());
-                    resolvedInputValues = Collections.emptyList();
+                    return Collections.emptyList();
                 } else {
-                    resolvedInputValues = resolveDerivedWrapperInput((CommandWrapperDerivedInput) thisNode.input(),
+                    return resolveDerivedWrapperInput((CommandWrapperDerivedInput) thisNode.input(),
                             parentValue, resolvedInputValuesByReplacementKey);
                 }
             } else {
-                resolvedInputValues = Collections.singletonList(
+                return Collections.singletonList(
                         resolveCommandInput((CommandInput) thisNode.input(),
                                 parentValue != null ? parentValue.value() : null,
                                 resolvedInputValuesByReplacementKey)
                 );
             }
+        }
 
+        /**
+         * Resolve sibling subtrees. With an input resolution pool they are forked onto it, so a wide wrapper takes
+         * about as long as its deepest branch; without one, or when every worker is already busy with other
+         * resolutions, they are resolved one after another on this thread.
+         * Either way, the first failure in sibling order is the one thrown.
+         *
+         * XFT items fill in their children lazily and without synchronization, so subtrees resolved in parallel
+         * must not share them. Before forking, we load the parents' XFT items on this thread, and each forked
+         * subtree gets its own cache to load anything else into.
+         */
+        private void resolveChildren(final List<ChildResolution> childResolutions)
+                throws CommandResolutionException, UnauthorizedException {
+            if (inputResolutionPool == null || childResolutions.size() < 2 ||
+                    (ForkJoinTask.getPool() != inputResolutionPool && isSaturated(inputResolutionPool))) {
+                for (final ChildResolution childResolution : childResolutions) {
+                    childResolution.compute();
+                }
+                for (final ChildResolution childResolution : childResolutions) {
+                    childResolution.rethrowFailure();
+                }
+                return;
+            }
 
-            // Recursively resolve values for child nodes, using each of this node's resolved values
-            final List<ResolvedInputTreeValueAndChildren> resolvedValuesAndChildren = Lists.newArrayList();
-            for (final ResolvedInputValue resolvedInputValue : resolvedInputValues) {
-                if (preresolvedInputNode.children() != null && !preresolvedInputNode.children().isEmpty()) {
-                    final List<ResolvedInputTreeNode<? extends Input>> resolvedChildNodes = Lists.newArrayList();
+            final Set<XnatModelObject> parents = Collections.newSetFromMap(new IdentityHashMap<XnatModelObject, Boolean>());
+            for (final ChildResolution childResolution : childResolutions) {
+                final XnatModelObject parent = childResolution.parentValue.xnatModelObject();
+                if (parent != null) {
+                    parents.add(parent);
+                }
+                childResolution.xnatObjectCache = new XnatObjectCache();
+            }
+            for (final XnatModelObject parent : parents) {
+                loadXftItem(parent);
+            }
 
-                    for (final PreresolvedInputTreeNode<? extends Input> child : preresolvedInputNode.children()) {
-                        log.debug("Resolving input \"{}\" child \"{}\" using value \"{}\".",
-                                thisNode.input().name(),
-                                child.input().name(),
-                                resolvedInputValue.value());
+            if (ForkJoinTask.getPool() == inputResolutionPool) {
+                // Already on the pool, resolving a subtree of a parallel resolution
+                ForkJoinTask.invokeAll(childResolutions);
+            } else {
+                inputResolutionPool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(childResolutions);
+                    }
+                });
+            }
 
-                        final Map<String, String> copyOfResolvedInputValuesByReplacementKey = Maps.newHashMap(resolvedInputValuesByReplacementKey);
-                        copyOfResolvedInputValuesByReplacementKey.put(thisNode.input().replacementKey(), resolvedInputValue.value());
-                        resolvedChildNodes.add(resolveNode(child, resolvedInputValue, copyOfResolvedInputValuesByReplacementKey, loadFiles));
+            for (final ChildResolution childResolution : childResolutions) {
+                childResolution.rethrowFailure();
+            }
+        }
+
+        private boolean isSaturated(final ForkJoinPool pool) {
+            return pool.getQueuedSubmissionCount() > 0 || pool.getActiveThreadCount() >= pool.getParallelism();
+        }
+
+        /**
+         * Load the XFT item behind a model object, which its children would otherwise each load on first use.
+         */
+        private void loadXftItem(final XnatModelObject xnatModelObject) {
+            if (xnatModelObject instanceof Project) {
+                ((Project) xnatModelObject).loadXnatProjectdata(userI);
+            } else if (xnatModelObject instanceof Subject) {
+                ((Subject) xnatModelObject).loadXnatSubjectdataI(userI);
+            } else if (xnatModelObject instanceof Session) {
+                ((Session) xnatModelObject).loadXnatImagesessiondata(userI);
+            } else if (xnatModelObject instanceof Scan) {
+                ((Scan) xnatModelObject).loadXnatImagescandataI(userI);
+            } else if (xnatModelObject instanceof Assessor) {
+                ((Assessor) xnatModelObject).loadXnatImageassessordataI(userI);
+            } else if (xnatModelObject instanceof Resource) {
+                ((Resource) xnatModelObject).loadXnatResourcecatalog(userI);
+            }
+        }
+
+        /**
+         * @return The cache of the subtree being resolved on this thread, or the resolution's cache
+         */
+        private XnatObjectCache xnatObjectCache() {
+            final XnatObjectCache subtreeCache = subtreeXnatObjectCache.get();
+            return subtreeCache == null ? xnatObjectCache : subtreeCache;
+        }
+
+        /**
+         * Resolves one child subtree for one of its parent's values. Checked exceptions can't leave
+         * {@link RecursiveAction#compute()}, so they are held and rethrown by {@link #resolveChildren(List)}.
+         */
+        private class ChildResolution extends RecursiveAction {
+            private final PreresolvedInputTreeNode<? extends Input> child;
+            private final ResolvedInputValue parentValue;
+            private final Map<String, String> resolvedInputValuesByReplacementKey;
+            private final boolean loadFiles;
+
+            // Set when this subtree is forked, so it does not share XFT items with its siblings
+            @Nullable private XnatObjectCache xnatObjectCache;
+
+            private ResolvedInputTreeNode<? extends Input> resolvedNode;
+            private CommandResolutionException commandResolutionException;
+            private UnauthorizedException unauthorizedException;
+
+            private ChildResolution(final PreresolvedInputTreeNode<? extends Input> child,
+                                    final ResolvedInputValue parentValue,
+                                    final Map<String, String> resolvedInputValuesByReplacementKey,
+                                    final boolean loadFiles) {
+                this.child = child;
+                this.parentValue = parentValue;
+                this.resolvedInputValuesByReplacementKey = resolvedInputValuesByReplacementKey;
+                this.loadFiles = loadFiles;
+            }
+
+            @Override
+            protected void compute() {
+                // A worker may run a stolen subtree while it waits for its own, so put back the cache it was using
+                final XnatObjectCache outerCache = subtreeXnatObjectCache.get();
+                if (xnatObjectCache != null) {
+                    subtreeXnatObjectCache.set(xnatObjectCache);
+                }
+                try {
+                    resolvedNode = resolveNode(child, parentValue, resolvedInputValuesByReplacementKey, loadFiles);
+                } catch (CommandResolutionException e) {
+                    commandResolutionException = e;
+                } catch (UnauthorizedException e) {
+                    unauthorizedException = e;
+                } finally {
+                    if (outerCache == null) {
+                        subtreeXnatObjectCache.remove();
+                    } else {
+                        subtreeXnatObjectCache.set(outerCache);
                     }
-                    resolvedValuesAndChildren.add(ResolvedInputTreeNode.ResolvedInputTreeValueAndChildren.create(resolvedInputValue, resolvedChildNodes));
-                } else {
-                    log.debug("Input \"{}\" (no children) has resolved value \"{}\".",
-                            thisNode.input().name(),
-                            resolvedInputValue.value());
-                    resolvedValuesAndChildren.add(ResolvedInputTreeNode.ResolvedInputTreeValueAndChildren.create(resolvedInputValue));
                 }
             }
 
-            thisNode.valuesAndChildren().addAll(resolvedValuesAndChildren);
-            log.debug("Done resolving node for input \"{}\".", preresolvedInputNode.input().name());
-            return thisNode;
+            private void rethrowFailure() throws CommandResolutionException, UnauthorizedException {
+                if (commandResolutionException != null) {
+                    throw commandResolutionException;
+                }
+                if (unauthorizedException != null) {
+                    throw unauthorizedException;
+                }
+            }
+
+            private ResolvedInputTreeNode<? extends Input> getResolvedNode() {
+                return resolvedNode;
+            }
         }
 
         private void findResolvedValues(final ResolvedInputTreeNode<? extends Input> node,
@@ -1666,7 +2080,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                                      final String jsonPathSearch,
                                      final TypeRef<T> typeRef) {
             try {
-                return JsonPath.parse(parentJson).read(jsonPathSearch, typeRef);
+                return parseJson(parentJson).read(searchContexts.jsonPath(jsonPathSearch), typeRef);
             } catch (InvalidPathException | InvalidJsonException | MappingException e) {
                 log.error(String.format("Error searching through json with search string \"%s\".", jsonPathSearch), e);
                 log.debug("json: {}", parentJson);
@@ -1674,6 +2088,32 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
             return null;
         }
 
+        /**
+         * Parse a JSON document, or reuse it if we have already parsed it during this resolution.
+         * Sibling derived inputs all search through the same parent, so we parse the parent once.
+         * The parsed documents are only read, never written.
+         */
+        private DocumentContext parseJson(final String json) {
+            final DocumentContext cached = parsedJsonCache.getIfPresent(json);
+            if (cached != null) {
+                return cached;
+            }
+            final DocumentContext parsed = JsonPath.parse(json);
+            parsedJsonCache.put(json, parsed);
+            return parsed;
+        }
+
+        /**
+         * Resources list their files only when asked, so a parent's JSON has the files of just those resources
+         * that have been resolved as inputs. An input's own JSON always has its files.
+         */
+        private String serializeResolvedModelObject(final XnatModelObject xnatModelObject) throws JsonProcessingException {
+            if (xnatModelObject instanceof Resource) {
+                ((Resource) xnatModelObject).getFiles();
+            }
+            return mapper.writeValueAsString(xnatModelObject);
+        }
+
         @Nonnull
         private String getMatcherFromValue(final String valueMatchProperty, final String value, final boolean multiple) {
             if (StringUtils.isBlank(value)) return "";
@@ -1692,7 +2132,8 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
         }
 
         @Nullable
-        private <T extends XnatModelObject> List<T> matchChildFromParent(final String parentJson,
+        private <T extends XnatModelObject> List<T> matchChildFromParent(final @Nullable XnatModelObject parentXnatObject,
+                                                                         final String parentJson,
                                                                          final String value,
                                                                          final String childKey,
                                                                          final String valueMatchProperty,
@@ -1714,6 +2155,14 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 fullMatcher = "";
             }
 
+            if (parentXnatObject != null) {
+                try {
+                    return matchChildFromParentObject(parentXnatObject, childKey, fullMatcher);
+                } catch (ObjectMatcher.CannotEvaluateException e) {
+                    log.debug("Cannot match children \"{}\" without JSONPath. {}", childKey, e.getMessage());
+                }
+            }
+
             final String jsonPathSearch = String.format(
                     "$.%s[%s]",
                     childKey,
@@ -1725,6 +2174,42 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
             return jsonPathSearch(parentJson, jsonPathSearch, typeRef);
         }
 
+        /**
+         * Filter a parent's children with the matcher by reading the children's properties directly,
+         * rather than serializing the parent and searching through it with JSONPath.
+         *
+         * @throws ObjectMatcher.CannotEvaluateException If the result could differ from JSONPath's for any child
+         */
+        @Nullable
+        @SuppressWarnings("unchecked")
+        private <T extends XnatModelObject> List<T> matchChildFromParentObject(final XnatModelObject parentXnatObject,
+                                                                               final String childKey,
+                                                                               final String fullMatcher)
+                throws ObjectMatcher.CannotEvaluateException {
+            final Object children = propertyReader.read(parentXnatObject, childKey);
+            if (children == null) {
+                return null;
+            }
+            if (!(children instanceof List)) {
+                throw new ObjectMatcher.CannotEvaluateException("Property \"" + childKey + "\" is not a list");
+            }
+
+            final List<T> childList = (List<T>) children;
+            if (StringUtils.isBlank(fullMatcher)) {
+                return Lists.newArrayList(childList);
+            }
+
+            final ObjectMatcher matcher = searchContexts.matcher(fullMatcher);
+            log.info("Attempting to pull value from parent using matcher \"{}\" on \"{}\".", fullMatcher, childKey);
+            final List<T> matches = Lists.newArrayList();
+            for (final T child : childList) {
+                if (child != null && matcher.matches(child, propertyReader)) {
+                    matches.add(child);
+                }
+            }
+            return matches;
+        }
+
         @Nullable
         private <T extends XnatModelObject> T resolveXnatObject(final @Nullable String value,
                                                                 final @Nullable String matcher,
@@ -1800,7 +2285,21 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
             log.debug("Successfully instantiated a {}.", modelName);
 
             T aMatch = null;
+            boolean matchedWithoutJson = false;
             if (StringUtils.isNotBlank(matcher)) {
+                try {
+                    // Most matchers only compare the object's own properties, which we can read directly.
+                    if (searchContexts.matcher(matcher).matches(newModelObject, propertyReader)) {
+                        aMatch = newModelObject;
+                    } else {
+                        log.debug("{} did not match matcher \"{}\".", modelName, matcher);
+                    }
+                    matchedWithoutJson = true;
+                } catch (ObjectMatcher.CannotEvaluateException e) {
+                    log.debug("Cannot apply matcher without JSONPath. {}", e.getMessage());
+                }
+            }
+            if (StringUtils.isNotBlank(matcher) && !matchedWithoutJson) {
                 // To apply the JSONPath matcher, we have to serialize our object to JSON.
                 log.debug("Serializing {} to JSON to apply matcher.", modelName);
                 String newModelObjectJson = null;
@@ -1820,7 +2319,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     );
 
                     log.debug("Using JSONPath matcher \"{}\" to search for matching items.", jsonPathSearch);
-                    doMatch = JsonPath.parse(newModelObjectJson).read(jsonPathSearch, new TypeRef<List<T>>() {});
+                    doMatch = JsonPath.parse(newModelObjectJson).read(searchContexts.jsonPath(jsonPathSearch), new TypeRef<List<T>>() {});
 
                     if (doMatch != null && !doMatch.isEmpty()) {
                         // We found a match!
@@ -1832,7 +2331,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         log.debug("{} did not match matcher \"{}\".", modelName, matcher);
                     }
                 }
-            } else {
+            } else if (StringUtils.isBlank(matcher)) {
                 // We have no matcher, so any object we have is a match
                 aMatch = newModelObject;
             }
@@ -2334,7 +2833,7 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                     if (xnatModelObject instanceof XnatFile) {
                         filePath = ((XnatFile) xnatModelObject).getPath();
                     } else {
-                        rootDirectory = JsonPath.parse(resolvedInputValue.jsonValue()).read("directory", String.class);
+                        rootDirectory = parseJson(resolvedInputValue.jsonValue()).read(searchContexts.jsonPath("$.directory"), String.class);
                     }
                 } else if (inputType.equals(DIRECTORY.getName()) || inputType.equals(FILES.getName())) {
                     // TODO add support for these
@@ -2440,14 +2939,12 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                             catalogService.pullResourceCatalogsToDestination(Users.getAdminUser(),
                                     partiallyResolvedCommandMount.fromUri(), srcPath, localPath);
                         } else {
-                            // CS-54 Copy all files out of the root directory to a build directory.
-                            log.debug("Mount \"{}\" has a root directory and is set to \"writable\". Copying all files " +
-                                    "from the root directory to build directory.", resolvedCommandMountName);
-                            if (srcIsFile) {
-                                Files.copy(Paths.get(srcPath), Paths.get(localPath), StandardCopyOption.REPLACE_EXISTING);
-                            } else {
-                                FileUtils.copyDirectory(new File(srcPath), new File(localPath));
-                            }
+                            // CS-54 Stage all files out of the root directory into a build directory.
+                            log.debug("Mount \"{}\" has a root directory and is set to \"writable\". Staging all files " +
+                                    "from the root directory into build directory.", resolvedCommandMountName);
+                            final MountStager.Strategy strategy = mountStager.stage(Paths.get(srcPath), Paths.get(localPath), containerUser);
+                            log.info("Staged mount \"{}\" from {} into {} by {}.", resolvedCommandMountName, srcPath, localPath, strategy.getName());
+                            resolvedCommandMountBuilder.stagingStrategy(strategy.getName());
                         }
                     } catch (IOException e) {
                         throw new ContainerMountResolutionException("Could not copy archive path " + srcPath +
@@ -2543,20 +3040,8 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                 return template;
             }
 
-            // First find any JSONPath strings in the template
-            String toResolve = resolveJsonpathSubstring(template);
-
-            // Look through the provided map of cached replacement values, and replace any that are found.
-            for (final String replacementKey : valuesMap.keySet()) {
-                final String replacementValue = valuesMap.get(replacementKey);
-                final String copyForLogging = toResolve;
-
-                toResolve = toResolve.replace(replacementKey, replacementValue == null ? "" : replacementValue);
-                if (!toResolve.equals(copyForLogging)) {
-                    // If the replacement operation changed the template, log the replacement
-                    log.debug("{} -> {}", replacementKey, replacementValue);
-                }
-            }
+            // Single pass over the template, replacing any JSONPath substring and replacement keys found in the map
+            final String toResolve = searchContexts.template(template).resolve(valuesMap, jsonpathResolver);
 
             log.debug("Resolved template: \"{}\".", toResolve);
             return toResolve;
@@ -2594,10 +3079,10 @@ public class CommandResolutionServiceImpl implements CommandResolutionService {
                         final List<String> searchResult;
                         if (StringUtils.isNotBlank(useWrapper)) {
                             log.debug("Performing JSONPath search through command wrapper with search string \"{}\".", jsonpathSearchWithoutMarkers);
-                            searchResult = commandWrapperJsonpathSearchContext.read(jsonpathSearchWithoutMarkers);
+                            searchResult = commandWrapperJsonpathSearchContext.read(searchContexts.jsonPath(jsonpathSearchWithoutMarkers));
                         } else {
                             log.debug("Performing JSONPath search through command with search string \"{}\".", jsonpathSearchWithoutMarkers);
-                            searchResult = commandJsonpathSearchContext.read(jsonpathSearchWithoutMarkers);
+                            searchResult = commandJsonpathSearchContext.read(searchContexts.jsonPath(jsonpathSearchWithoutMarkers));
                         }
 
                         if (searchResult != null && !searchResult.isEmpty() && searchResult.get(0) != null) {
@@ -0,0 +1,173 @@
+package org.nrg.containers.services.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import lombok.extern.slf4j.Slf4j;
+import org.nrg.containers.exceptions.CommandResolutionException;
+import org.nrg.containers.model.command.auto.Command;
+import org.nrg.containers.model.command.auto.Command.ConfiguredCommand;
+import org.nrg.containers.utils.CompiledTemplate;
+import org.nrg.containers.utils.ObjectMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the JSONPath search contexts for configured commands and their wrappers, so command resolution doesn't
+ * serialize and parse the same command on every launch. Each entry also holds the command's templates, compiled
+ * against the command's replacement keys the first time they are resolved, and the compiled JSONPath expressions
+ * built from its matchers and derived input properties, and its matchers compiled for {@link ObjectMatcher}.
+ *
+ * Entries are keyed by the configured command itself. Its ID, wrapper ID, and the site or project configuration
+ * applied to it are all part of its value, so a changed command or configuration is a new key and can never be
+ * served a stale context. {@link CommandServiceImpl} invalidates entries when it changes a command, wrapper, or
+ * configuration so that old entries don't wait to age out.
+ *
+ * The contexts are only ever read, so they can be shared between resolutions.
+ */
+@Slf4j
+@Component
+public class CommandSearchContextCache {
+    private static final int MAX_ENTRIES = 500;
+    // Matchers built from input values are compiled too, so bound the paths held for each command
+    private static final int MAX_PATHS_PER_ENTRY = 1000;
+
+    private final ObjectMapper mapper;
+    private final Cache<ConfiguredCommand, SearchContexts> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterAccess(1L, TimeUnit.HOURS)
+            .build();
+
+    @Autowired
+    public CommandSearchContextCache(final ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public SearchContexts get(final ConfiguredCommand configuredCommand) throws CommandResolutionException {
+        final SearchContexts cached = cache.getIfPresent(configuredCommand);
+        if (cached != null) {
+            return cached;
+        }
+
+        final SearchContexts searchContexts = new SearchContexts(
+                serializeToJson(configuredCommand), serializeToJson(configuredCommand.wrapper()),
+                replacementKeys(configuredCommand));
+        // If another resolution got here first, both entries are equivalent. Keep the one already cached.
+        final SearchContexts raced = cache.asMap().putIfAbsent(configuredCommand, searchContexts);
+        return raced == null ? searchContexts : raced;
+    }
+
+    public void invalidateCommand(final long commandId) {
+        final Iterator<ConfiguredCommand> keys = cache.asMap().keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().id() == commandId) {
+                keys.remove();
+            }
+        }
+    }
+
+    public void invalidateWrapper(final long wrapperId) {
+        final Iterator<ConfiguredCommand> keys = cache.asMap().keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().wrapper().id() == wrapperId) {
+                keys.remove();
+            }
+        }
+    }
+
+    private Set<String> replacementKeys(final ConfiguredCommand configuredCommand) {
+        final Set<String> replacementKeys = new HashSet<>();
+        for (final Command.Input input : configuredCommand.inputs()) {
+            replacementKeys.add(input.replacementKey());
+        }
+        for (final Command.Input input : configuredCommand.wrapper().externalInputs()) {
+            replacementKeys.add(input.replacementKey());
+        }
+        for (final Command.Input input : configuredCommand.wrapper().derivedInputs()) {
+            replacementKeys.add(input.replacementKey());
+        }
+        return replacementKeys;
+    }
+
+    private DocumentContext serializeToJson(final Object object) throws CommandResolutionException {
+        // Built here rather than once, so it picks up the defaults CommandServiceImpl sets after this bean is created
+        final Configuration configuration = Configuration.defaultConfiguration().addOptions(Option.ALWAYS_RETURN_LIST);
+        try {
+            return JsonPath.using(configuration).parse(mapper.writeValueAsString(object));
+        } catch (JsonProcessingException e) {
+            throw new CommandResolutionException("Could not serialize command to JSON.", e);
+        }
+    }
+
+    public static class SearchContexts {
+        private final DocumentContext command;
+        private final DocumentContext wrapper;
+        private final Set<String> replacementKeys;
+        private final ConcurrentMap<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+        private final Cache<String, JsonPath> jsonPaths = CacheBuilder.newBuilder()
+                .maximumSize(MAX_PATHS_PER_ENTRY)
+                .build();
+        private final Cache<String, ObjectMatcher> matchers = CacheBuilder.newBuilder()
+                .maximumSize(MAX_PATHS_PER_ENTRY)
+                .build();
+
+        private SearchContexts(final DocumentContext command, final DocumentContext wrapper, final Set<String> replacementKeys) {
+            this.command = command;
+            this.wrapper = wrapper;
+            this.replacementKeys = replacementKeys;
+        }
+
+        public DocumentContext command() {
+            return command;
+        }
+
+        public DocumentContext wrapper() {
+            return wrapper;
+        }
+
+        public CompiledTemplate template(final String template) {
+            final CompiledTemplate cached = templates.get(template);
+            if (cached != null) {
+                return cached;
+            }
+            final CompiledTemplate compiled = CompiledTemplate.compile(template, replacementKeys);
+            final CompiledTemplate raced = templates.putIfAbsent(template, compiled);
+            return raced == null ? compiled : raced;
+        }
+
+        /**
+         * @throws com.jayway.jsonpath.InvalidPathException If the path does not compile
+         */
+        public JsonPath jsonPath(final String path) {
+            final JsonPath cached = jsonPaths.getIfPresent(path);
+            if (cached != null) {
+                return cached;
+            }
+            final JsonPath compiled = JsonPath.compile(path);
+            jsonPaths.put(path, compiled);
+            return compiled;
+        }
+
+        public ObjectMatcher matcher(final String expression) {
+            final ObjectMatcher cached = matchers.getIfPresent(expression);
+            if (cached != null) {
+                return cached;
+            }
+            final ObjectMatcher compiled = ObjectMatcher.compile(expression);
+            matchers.put(expression, compiled);
+            return compiled;
+        }
+    }
+}
@@ -51,6 +51,8 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
 
     private final CommandEntityService commandEntityService;
     private final ContainerConfigService containerConfigService;
+    private CommandSearchContextCache searchContextCache;
+    private LaunchUiCache launchUiCache;
 
     @Autowired
     public CommandServiceImpl(final CommandEntityService commandEntityService,
@@ -59,6 +61,16 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
         this.containerConfigService = containerConfigService;
     }
 
+    @Autowired(required = false)
+    public void setSearchContextCache(final CommandSearchContextCache searchContextCache) {
+        this.searchContextCache = searchContextCache;
+    }
+
+    @Autowired(required = false)
+    public void setLaunchUiCache(final LaunchUiCache launchUiCache) {
+        this.launchUiCache = launchUiCache;
+    }
+
     @Override
     public void afterPropertiesSet() {
         // Set the default JayWay JSONPath configuration
@@ -135,6 +147,7 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
         }
         final CommandEntity updatableEntity = fromPojo(toUpdate);
         commandEntityService.update(updatableEntity);
+        invalidateSearchContextsForCommand(toUpdate.id());
         return toPojo(updatableEntity);
     }
 
@@ -150,6 +163,7 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
         }
 
         commandEntityService.delete(command.id());
+        invalidateSearchContextsForCommand(command.id());
     }
 
     @Override
@@ -235,6 +249,7 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
         final CommandEntity commandEntity = commandEntityService.get(commandId);
         final CommandWrapperEntity template = commandEntityService.getWrapper(toUpdate.id());
         final CommandWrapper updated = toPojo(commandEntityService.update(template.update(toUpdate)));
+        invalidateSearchContextsForWrapper(toUpdate.id());
 
         final List<String> errors = toPojo(commandEntity).validate();
         if (!errors.isEmpty()) {
@@ -247,6 +262,7 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
     @Transactional
     public void deleteWrapper(final long wrapperId) {
         commandEntityService.deleteWrapper(wrapperId);
+        invalidateSearchContextsForWrapper(wrapperId);
     }
 
     @Override
@@ -259,6 +275,7 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
         containerConfigService.configureForSite(
                 CommandConfigurationInternal.create(enabledStatusToSet, commandConfiguration),
                 wrapperId, username, reason);
+        invalidateSearchContextsForWrapper(wrapperId);
     }
 
     @Override
@@ -276,6 +293,7 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
         containerConfigService.configureForProject(
                 CommandConfigurationInternal.create(enabledStatusToSet, commandConfiguration),
                 project, wrapperId, username, reason);
+        invalidateSearchContextsForWrapper(wrapperId);
     }
 
     @Override
@@ -359,21 +377,23 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
     @Override
     public void deleteSiteConfiguration(final long wrapperId, final String username) throws CommandConfigurationException {
         containerConfigService.deleteSiteConfiguration(wrapperId, username);
+        invalidateSearchContextsForWrapper(wrapperId);
     }
 
     @Override
     public void deleteSiteConfiguration(final long commandId, final String wrapperName, final String username) throws CommandConfigurationException, NotFoundException {
-        containerConfigService.deleteSiteConfiguration(getWrapperId(commandId, wrapperName), username);
+        deleteSiteConfiguration(getWrapperId(commandId, wrapperName), username);
     }
 
     @Override
     public void deleteProjectConfiguration(final String project, final long wrapperId, final String username) throws CommandConfigurationException, NotFoundException {
         containerConfigService.deleteProjectConfiguration(project, wrapperId, username);
+        invalidateSearchContextsForWrapper(wrapperId);
     }
 
     @Override
     public void deleteProjectConfiguration(final String project, final long commandId, final String wrapperName, final String username) throws CommandConfigurationException, NotFoundException {
-        containerConfigService.deleteProjectConfiguration(project, getWrapperId(commandId, wrapperName), username);
+        deleteProjectConfiguration(project, getWrapperId(commandId, wrapperName), username);
     }
 
     @Override
@@ -604,6 +624,24 @@ public class CommandServiceImpl implements CommandService, InitializingBean {
     }
 
 
+    private void invalidateSearchContextsForCommand(final long commandId) {
+        if (searchContextCache != null) {
+            searchContextCache.invalidateCommand(commandId);
+        }
+        if (launchUiCache != null) {
+            launchUiCache.invalidateCommand(commandId);
+        }
+    }
+
+    private void invalidateSearchContextsForWrapper(final long wrapperId) {
+        if (searchContextCache != null) {
+            searchContextCache.invalidateWrapper(wrapperId);
+        }
+        if (launchUiCache != null) {
+            launchUiCache.invalidateWrapper(wrapperId);
+        }
+    }
+
     @Nonnull
     private Command toPojo(@Nonnull final CommandEntity commandEntity) {
         return Command.create(commandEntity);
@@ -4,14 +4,21 @@ import static org.nrg.containers.model.command.entity.CommandWrapperOutputEntity
 import static org.nrg.containers.model.command.entity.CommandWrapperOutputEntity.Type.RESOURCE;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,8 +30,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.nrg.action.ClientException;
 import org.nrg.containers.api.ContainerControlApi;
 import org.nrg.containers.exceptions.ContainerException;
-import org.nrg.containers.exceptions.DockerServerException;
-import org.nrg.containers.exceptions.NoDockerServerException;
 import org.nrg.containers.exceptions.UnauthorizedException;
 import org.nrg.containers.jms.requests.ContainerRequest;
 import org.nrg.containers.model.command.entity.CommandType;
@@ -32,10 +37,15 @@ import org.nrg.containers.model.command.entity.CommandWrapperOutputEntity;
 import org.nrg.containers.model.container.auto.Container;
 import org.nrg.containers.model.container.auto.Container.ContainerMount;
 import org.nrg.containers.model.container.auto.Container.ContainerOutput;
+import org.nrg.containers.services.ContainerEntityService;
 import org.nrg.containers.services.ContainerFinalizeService;
+import org.nrg.containers.services.ContainerLogSpooler;
 import org.nrg.containers.services.ContainerService;
 import org.nrg.containers.utils.ContainerUtils;
+import org.nrg.containers.utils.GlobWalker;
+import org.nrg.containers.utils.OutputLinker;
 import org.nrg.mail.services.MailService;
+import org.nrg.xdat.model.XnatAbstractresourceI;
 import org.nrg.xdat.om.XnatExperimentdata;
 import org.nrg.xdat.om.XnatProjectdata;
 import org.nrg.xdat.om.XnatResourcecatalog;
@@ -46,14 +56,14 @@ import org.nrg.xft.XFTItem;
 import org.nrg.xft.event.persist.PersistentWorkflowI;
 import org.nrg.xft.event.persist.PersistentWorkflowUtils;
 import org.nrg.xft.security.UserI;
-import org.nrg.xft.utils.FileUtils;
 import org.nrg.xnat.helpers.uri.URIManager;
 import org.nrg.xnat.helpers.uri.UriParserUtils;
-import org.nrg.xnat.restlet.util.XNATRestConstants;
+import org.nrg.xnat.helpers.uri.archive.ResourceURII;
 import org.nrg.xnat.services.archive.CatalogService;
 import org.nrg.xnat.turbine.utils.ArchivableItem;
 import org.nrg.xnat.utils.WorkflowUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import com.google.common.base.Function;
@@ -71,6 +81,11 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
     private final SiteConfigPreferences siteConfigPreferences;
     private final CatalogService catalogService;
     private final MailService mailService;
+    private ContainerLogSpooler containerLogSpooler;
+    private ExecutorService outputUploadPool;
+    private ContainerEntityService containerEntityService;
+
+    private static final String UPLOAD_FAILED = PersistentWorkflowUtils.FAILED + " (Upload)";
 
     private final Pattern experimentUri = Pattern.compile("^(/archive)?/experiments/([^/]+)$");
 
@@ -85,6 +100,28 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
         this.mailService = mailService;
     }
 
+    @Autowired
+    public void setContainerLogSpooler(final ContainerLogSpooler containerLogSpooler) {
+        this.containerLogSpooler = containerLogSpooler;
+    }
+
+    /**
+     * Outputs that don't depend on each other upload concurrently on this pool. Without it they upload one at a time.
+     */
+    @Autowired(required = false)
+    public void setOutputUploadPool(final @Qualifier("outputUploadPool") ExecutorService outputUploadPool) {
+        this.outputUploadPool = outputUploadPool;
+    }
+
+    /**
+     * Each output's URI is recorded here as soon as it is uploaded, so finalization that is interrupted
+     * doesn't upload it again.
+     */
+    @Autowired(required = false)
+    public void setContainerEntityService(final ContainerEntityService containerEntityService) {
+        this.containerEntityService = containerEntityService;
+    }
+
     @Override
     public Container finalizeContainer(final Container toFinalize, final UserI userI, final boolean isFailed, final List<Container> wrapupContainers) {
         final ContainerFinalizeHelper helper =
@@ -92,6 +129,21 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
         return helper.finalizeContainer();
     }
 
+    @Override
+    public Container collectLogs(final Container toFinalize, final UserI userI) {
+        return new ContainerFinalizeHelper(toFinalize, userI, false, null).collectLogs();
+    }
+
+    @Override
+    public Container ingestOutputs(final Container toFinalize, final UserI userI, final List<Container> wrapupContainers) {
+        return new ContainerFinalizeHelper(toFinalize, userI, false, wrapupContainers).ingestOutputs();
+    }
+
+    @Override
+    public Container updateRecords(final Container toFinalize, final UserI userI, final boolean isFailed) {
+        return new ContainerFinalizeHelper(toFinalize, userI, isFailed, null).updateRecords();
+    }
+
     @Override
     public void sendContainerStatusUpdateEmail(UserI userI,
                                                boolean completionStatus,
@@ -166,7 +218,8 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
         // private String exitCode;
         private boolean isFailed;
 
-        private Map<String, ContainerMount> outputMounts;
+        // Filled before any upload starts and never changed, so upload threads can share it
+        private final Map<String, ContainerMount> outputMounts;
 
         private String prefix;
 
@@ -182,7 +235,11 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
             this.userI = userI;
             this.isFailed = isFailed;
 
-            outputMounts = Maps.newHashMap();
+            final Map<String, ContainerMount> mountsByName = Maps.newHashMap();
+            for (final ContainerMount mountOut : toFinalize.mounts()) {
+                mountsByName.put(mountOut.name(), mountOut);
+            }
+            outputMounts = Collections.unmodifiableMap(mountsByName);
 
             prefix = "Container " + toFinalize.databaseId() + ": ";
 
@@ -196,27 +253,54 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
             }
 
             // Pre-populate the map of wrapper input and output values with the inputs.
-            // Output URI values will be added as we create them here.
-            wrapperInputAndOutputValues = new HashMap<>(toFinalize.getWrapperInputs());
+            // Output URI values will be added as we create them here, possibly from several upload threads.
+            wrapperInputAndOutputValues = Collections.synchronizedMap(new HashMap<>(toFinalize.getWrapperInputs()));
         }
 
         private Container finalizeContainer() {
+            toFinalize = collectLogs();
+            if (!isFailed) {
+                toFinalize = ingestOutputs();
+            }
+            return updateRecords();
+        }
+
+        private Container collectLogs() {
+            return toFinalize.toBuilder().logPaths(uploadLogs()).build();
+        }
+
+        private Container ingestOutputs() {
+            final PersistentWorkflowI wrkFlow = getWorkflow();
+            final Integer eventId = wrkFlow == null ? null : wrkFlow.buildEvent().getEventId().intValue();
+
+            final OutputsAndExceptions outputsAndExceptions = uploadOutputs(eventId);
+            final List<Exception> failedRequiredOutputs = outputsAndExceptions.exceptions;
+            final Container.Builder ingestedContainerBuilder = toFinalize.toBuilder()
+                    .outputs(outputsAndExceptions.outputs);  // Overwrite any existing outputs
+            if (!failedRequiredOutputs.isEmpty()) {
+                final String details = "Failed to upload required outputs.\n" + Joiner.on("\n").join(Lists.transform(failedRequiredOutputs, new Function<Exception, String>() {
+                    @Override
+                    public String apply(final Exception input) {
+                        return input.getMessage();
+                    }
+                }));
+                // The status is set from this when the records are updated
+                ingestedContainerBuilder.addHistoryItem(Container.ContainerHistory.fromSystem(UPLOAD_FAILED, details));
+            }
+            return ingestedContainerBuilder.build();
+        }
+
+        private Container updateRecords() {
             final Container.Builder finalizedContainerBuilder = toFinalize.toBuilder();
-            List<String> logPaths = uploadLogs();
-            finalizedContainerBuilder.logPaths(logPaths);
-            String workFlowId = toFinalize.workflowId();
-            PersistentWorkflowI wrkFlow = (StringUtils.isNotBlank(workFlowId)) ?
-                    WorkflowUtils.getUniqueWorkflow(userI, workFlowId) : null;
+            PersistentWorkflowI wrkFlow = getWorkflow();
             String xnatLabel = null;
             String xnatId = null;
             String project = null;
             String pipeline_name = null;
-            Integer eventId = null;
             if (wrkFlow != null) {
                 xnatId = wrkFlow.getId();
                 project   = wrkFlow.getExternalid();
                 pipeline_name = wrkFlow.getPipelineName();
-                eventId = wrkFlow.buildEvent().getEventId().intValue();
                 try {
                     XnatExperimentdata exp = XnatExperimentdata.getXnatExperimentdatasById(xnatId, userI, false);
                     xnatLabel = exp != null ? exp.getLabel() : null;
@@ -238,31 +322,16 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
             boolean processingCompleted = !isFailed;
 
             if (processingCompleted) {
-                // Upload outputs if processing completed successfully
-                for (final ContainerMount mountOut : toFinalize.mounts()) {
-                    outputMounts.put(mountOut.name(), mountOut);
-                }
-
-                final OutputsAndExceptions outputsAndExceptions = uploadOutputs(eventId);
-                final List<Exception> failedRequiredOutputs = outputsAndExceptions.exceptions;
                 status = PersistentWorkflowUtils.COMPLETE;
                 Date statusTime = new Date();
-                if (!failedRequiredOutputs.isEmpty()) {
-                    details = "Failed to upload required outputs.\n" + Joiner.on("\n").join(Lists.transform(failedRequiredOutputs, new Function<Exception, String>() {
-                        @Override
-                        public String apply(final Exception input) {
-                            return input.getMessage();
-                        }
-                    }));
-                    final Container.ContainerHistory failedHistoryItem = Container.ContainerHistory.fromSystem(PersistentWorkflowUtils.FAILED + " (Upload)",
-                            details);
-                    status = failedHistoryItem.status();
-                    statusTime = failedHistoryItem.timeRecorded();
-                    finalizedContainerBuilder.addHistoryItem(failedHistoryItem)
-                            .statusTime(failedHistoryItem.timeRecorded());
+                for (final Container.ContainerHistory history : toFinalize.history()) {
+                    if (UPLOAD_FAILED.equals(history.status())) {
+                        status = history.status();
+                        statusTime = history.timeRecorded();
+                        details = history.message();
+                    }
                 }
-                finalizedContainerBuilder.outputs(outputsAndExceptions.outputs)  // Overwrite any existing outputs
-                        .status(status)
+                finalizedContainerBuilder.status(status)
                         .statusTime(statusTime);
             } else {
                 // Check if failure already recorded (perhaps with more detail so we don't want to overwrite)
@@ -296,94 +365,195 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
             if (!processingCompleted || CommandType.DOCKER.getName().equals(toFinalize.subtype())) {
                 // only send emails for the parent container or if processing failed
                 sendContainerStatusUpdateEmail(userI, processingCompleted, pipeline_name,
-                        xnatId, xnatLabel, project, logPaths);
+                        xnatId, xnatLabel, project, toFinalize.logPaths());
             }
 
             return finalizedContainerBuilder.build();
         }
 
+        @Nullable
+        private PersistentWorkflowI getWorkflow() {
+            final String workFlowId = toFinalize.workflowId();
+            return StringUtils.isNotBlank(workFlowId) ? WorkflowUtils.getUniqueWorkflow(userI, workFlowId) : null;
+        }
+
         private List<String> uploadLogs() {
             log.info(prefix + "Getting logs.");
             final List<String> logPaths = Lists.newArrayList();
 
-            final String stdoutLogStr = getStdoutLogStr();
-            final String stderrLogStr = getStderrLogStr();
-
-            if (StringUtils.isNotBlank(stdoutLogStr) || StringUtils.isNotBlank(stderrLogStr)) {
-
-                final String archivePath = siteConfigPreferences.getArchivePath(); // TODO find a place to upload this thing. Root of the archive if sitewide, else under the archive path of the root object
-                if (StringUtils.isNotBlank(archivePath)) {
-                    final String subtype = StringUtils.defaultIfBlank(toFinalize.subtype(), "");
-                    final SimpleDateFormat formatter = new SimpleDateFormat(XNATRestConstants.PREARCHIVE_TIMESTAMP);
-                    final String datestamp = formatter.format(new Date());
-                    final String containerExecPath = FileUtils.AppendRootPath(archivePath, "CONTAINER_EXEC/");
-                    final String destinationPath = containerExecPath + datestamp + "/LOGS/" + subtype;
-                    final File destination = new File(destinationPath);
-                    destination.mkdirs();
-
-                    log.info(prefix + "Saving logs to " + destinationPath);
-
-                    if (StringUtils.isNotBlank(stdoutLogStr)) {
-                        log.debug("Saving stdout");
-                        final File stdoutFile = new File(destination, ContainerService.STDOUT_LOG_NAME);
-                        FileUtils.OutputToFile(stdoutLogStr, stdoutFile.getAbsolutePath());
-                        logPaths.add(stdoutFile.getAbsolutePath());
-                    } else {
-                        log.debug("Stdout was blank");
+            // Most of the log is already on disk. Only the tail has to come from docker.
+            for (final String logName : ContainerService.LOG_NAMES) {
+                final String logPath = containerLogSpooler.finishSpooling(toFinalize, logName);
+                if (logPath != null) {
+                    logPaths.add(logPath);
+                } else {
+                    log.debug(prefix + logName + " was blank");
+                }
+            }
+
+            log.debug("Adding log paths to container");
+            return logPaths;
+        }
+
+        private OutputsAndExceptions uploadOutputs(@Nullable final Integer uploadEventId) {
+            log.info(prefix + "Uploading outputs.");
+
+            final List<ContainerOutput> orderedOutputs = toFinalize.getOrderedOutputs();
+            final ContainerOutput[] uploadedOutputs = new ContainerOutput[orderedOutputs.size()];
+            final Exception[] uploadExceptions = new Exception[orderedOutputs.size()];
+            for (final List<Integer> level : getUploadLevels(orderedOutputs)) {
+                final List<List<Integer>> uploadsByParent = groupByParent(orderedOutputs, level);
+                if (outputUploadPool == null || uploadsByParent.size() < 2) {
+                    for (final int index : level) {
+                        tryUploadOutput(orderedOutputs.get(index), uploadEventId, index, uploadedOutputs, uploadExceptions);
                     }
+                    continue;
+                }
 
-                    if (StringUtils.isNotBlank(stderrLogStr)) {
-                        log.debug("Saving stderr");
-                        final File stderrFile = new File(destination, ContainerService.STDERR_LOG_NAME);
-                        FileUtils.OutputToFile(stderrLogStr, stderrFile.getAbsolutePath());
-                        logPaths.add(stderrFile.getAbsolutePath());
-                    } else {
-                        log.debug("Stderr was blank");
+                // Adding a child saves its parent's item and catalog, so only outputs with different parents upload at once
+                final List<Future<?>> uploads = new ArrayList<>(uploadsByParent.size());
+                for (final List<Integer> sameParent : uploadsByParent) {
+                    uploads.add(outputUploadPool.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            for (final int index : sameParent) {
+                                tryUploadOutput(orderedOutputs.get(index), uploadEventId, index, uploadedOutputs, uploadExceptions);
+                            }
+                            return null;
+                        }
+                    }));
+                }
+                for (int i = 0; i < uploads.size(); i++) {
+                    Throwable failure = null;
+                    try {
+                        uploads.get(i).get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failure = e;
+                    } catch (ExecutionException e) {
+                        failure = e.getCause();
+                    }
+                    if (failure != null) {
+                        for (final int index : uploadsByParent.get(i)) {
+                            if (uploadedOutputs[index] == null) {
+                                recordUploadFailure(orderedOutputs.get(index), failure, index, uploadedOutputs, uploadExceptions);
+                            }
+                        }
                     }
                 }
             }
 
-            log.debug("Adding log paths to container");
-            return logPaths;
+            final List<ContainerOutput> outputs = Lists.newArrayList();
+            final List<Exception> exceptions = Lists.newArrayList();
+            for (int i = 0; i < orderedOutputs.size(); i++) {
+                outputs.add(uploadedOutputs[i]);
+                if (uploadExceptions[i] != null) {
+                    exceptions.add(uploadExceptions[i]);
+                }
+            }
+
+            log.info(prefix + "Done uploading outputs.");
+            return new OutputsAndExceptions(outputs, exceptions);
         }
 
-        private String getStderrLogStr() {
-            try {
-                return containerControlApi.getStderrLog(toFinalize);
-            } catch (DockerServerException | NoDockerServerException e) {
-                log.error(prefix + "Could not get stderr log.", e);
+        /**
+         * Groups the outputs by how deep they are in the "handled-by" tree. Every output in a level is handled
+         * by an input or by an output in an earlier level, so the outputs within a level can upload in any order.
+         *
+         * @param orderedOutputs Outputs with every output after the output that handles it
+         * @return Indices into orderedOutputs, one list per level
+         */
+        private List<List<Integer>> getUploadLevels(final List<ContainerOutput> orderedOutputs) {
+            final Map<String, Integer> levelsByOutputHandler = new HashMap<>();
+            final List<List<Integer>> levels = new ArrayList<>();
+            for (int i = 0; i < orderedOutputs.size(); i++) {
+                final ContainerOutput output = orderedOutputs.get(i);
+                final Integer parentLevel = levelsByOutputHandler.get(output.handledBy());
+                final int level = parentLevel == null ? 0 : parentLevel + 1;
+                levelsByOutputHandler.put(output.fromOutputHandler(), level);
+                while (levels.size() <= level) {
+                    levels.add(new ArrayList<Integer>());
+                }
+                levels.get(level).add(i);
             }
-            return null;
+            return levels;
         }
 
-        private String getStdoutLogStr() {
+        /**
+         * Groups the outputs in a level by the item they will be uploaded to, in their order within the level.
+         * Every output's parent is an input or an output in an earlier level, so its URI is already known.
+         */
+        private List<List<Integer>> groupByParent(final List<ContainerOutput> orderedOutputs, final List<Integer> level) {
+            final Map<String, List<Integer>> byParent = new LinkedHashMap<>();
+            for (final int index : level) {
+                final String handledBy = orderedOutputs.get(index).handledBy();
+                final String parentUri = wrapperInputAndOutputValues.get(handledBy);
+                final String parent = parentUri == null ? handledBy : StringUtils.removeStart(parentUri, "/archive");
+                List<Integer> sameParent = byParent.get(parent);
+                if (sameParent == null) {
+                    sameParent = new ArrayList<>();
+                    byParent.put(parent, sameParent);
+                }
+                sameParent.add(index);
+            }
+            return new ArrayList<>(byParent.values());
+        }
+
+        private void tryUploadOutput(final ContainerOutput nonUploadedOutput,
+                                     @Nullable final Integer uploadEventId,
+                                     final int index,
+                                     final ContainerOutput[] uploadedOutputs,
+                                     final Exception[] uploadExceptions) {
+            final String alreadyCreated = nonUploadedOutput.created();
+            if (StringUtils.isNotBlank(alreadyCreated)) {
+                log.info("{}Output \"{}\" was already uploaded to {}.", prefix, nonUploadedOutput.name(), alreadyCreated);
+                wrapperInputAndOutputValues.put(nonUploadedOutput.fromOutputHandler(), alreadyCreated);
+                uploadedOutputs[index] = nonUploadedOutput;
+                return;
+            }
+
             try {
-                return containerControlApi.getStdoutLog(toFinalize);
-            } catch (DockerServerException | NoDockerServerException e) {
-                log.error(prefix + "Could not get stdout log.", e);
+                uploadedOutputs[index] = uploadOutput(nonUploadedOutput, uploadEventId);
+                recordOutputCreated(uploadedOutputs[index]);
+            } catch (UnauthorizedException | ContainerException | RuntimeException e) {
+                recordUploadFailure(nonUploadedOutput, e, index, uploadedOutputs, uploadExceptions);
             }
-            return null;
         }
 
-        private OutputsAndExceptions uploadOutputs(@Nullable Integer uploadEventId) {
-            log.info(prefix + "Uploading outputs.");
+        private void recordOutputCreated(final ContainerOutput uploadedOutput) {
+            final String created = uploadedOutput.created();
+            if (containerEntityService == null || StringUtils.isBlank(created)) {
+                return;
+            }
+            try {
+                containerEntityService.recordOutputCreated(uploadedOutput.databaseId(), created);
+            } catch (RuntimeException e) {
+                log.warn("{}Could not record that output \"{}\" was uploaded to {}.", prefix, uploadedOutput.name(), created, e);
+            }
+        }
 
-            final List<ContainerOutput> outputs = Lists.newArrayList();
-            final List<Exception> exceptions = Lists.newArrayList();
-            for (final ContainerOutput nonUploadedOuput: toFinalize.getOrderedOutputs()) {
-                try {
-                    outputs.add(uploadOutput(nonUploadedOuput, uploadEventId));
-                } catch (UnauthorizedException | ContainerException | RuntimeException e) {
-                    log.error("Cannot upload files for command output " + nonUploadedOuput.name(), e);
-                    if (nonUploadedOuput.required()) {
-                        exceptions.add(e);
-                    }
-                    outputs.add(nonUploadedOuput);
-                }
+        private void recordOutputUploading(final ContainerOutput output, final String resourceUri) {
+            if (containerEntityService == null) {
+                return;
             }
+            try {
+                containerEntityService.recordOutputUploading(output.databaseId(), resourceUri);
+            } catch (RuntimeException e) {
+                log.warn("{}Could not record that output \"{}\" is being uploaded to {}.", prefix, output.name(), resourceUri, e);
+            }
+        }
 
-            log.info(prefix + "Done uploading outputs.");
-            return new OutputsAndExceptions(outputs, exceptions);
+        private void recordUploadFailure(final ContainerOutput nonUploadedOutput,
+                                         final Throwable cause,
+                                         final int index,
+                                         final ContainerOutput[] uploadedOutputs,
+                                         final Exception[] uploadExceptions) {
+            log.error("Cannot upload files for command output " + nonUploadedOutput.name(), cause);
+            if (nonUploadedOutput.required()) {
+                uploadExceptions[index] = cause instanceof Exception ? (Exception) cause :
+                        new ContainerException(prefix + "Could not upload output \"" + nonUploadedOutput.name() + "\".", cause);
+            }
+            uploadedOutputs[index] = nonUploadedOutput;
         }
 
         private ContainerOutput uploadOutput(final ContainerOutput output, @Nullable Integer uploadEventId)
@@ -433,10 +603,24 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
                     FilenameUtils.concat(mountXnatHostPath, relativeFilePath);
             final String globMatcher = output.glob() != null ? output.glob() : "";
 
-            final List<File> toUpload = new ArrayList<>(matchGlob(filePath, globMatcher));
+            final List<File> toUpload;
+            try {
+                toUpload = GlobWalker.match(filePath, globMatcher);
+            } catch (IOException e) {
+                throw new ContainerException(String.format(prefix + "Could not search \"%s\" for output \"%s\" files.", filePath, output.name()), e);
+            }
             if (toUpload.size() == 0) {
-                // The glob matched nothing. But we could still upload the root path
-                toUpload.add(new File(filePath));
+                if (StringUtils.isBlank(globMatcher)) {
+                    // The directory is empty or isn't there. But we could still upload the root path
+                    toUpload.add(new File(filePath));
+                } else if (output.required()) {
+                    throw new ContainerException(String.format(prefix + "No files in \"%s\" match glob \"%s\" for output \"%s\".",
+                            filePath, globMatcher, output.name()));
+                } else {
+                    log.info("{}No files in \"{}\" match glob \"{}\". Skipping optional output \"{}\".",
+                            prefix, filePath, globMatcher, output.name());
+                    return output;
+                }
             }
 
             final String label = StringUtils.isNotBlank(output.label()) ? output.label() : output.name();
@@ -452,34 +636,56 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
             String createdUri = null;
             final String type = output.type();
             if (type.equals(RESOURCE.getName())) {
-                if (log.isDebugEnabled()) {
-                    final String template = prefix + "Inserting file resource.\n\tuser: {}\n\tparentUri: {}\n\tlabel: {}\n\ttoUpload: {}";
-                    log.debug(template, userI.getLogin(), parentUri, label, toUpload);
-                }
-
+                // insertResources puts each file directly in the resource by name, so matches in subdirectories are
+                // first laid out at their paths under the root, or same-named files in two subdirectories would collide
+                final Path nestedStaging = StringUtils.isNotBlank(globMatcher) && GlobWalker.hasNestedMatches(filePath, toUpload) ?
+                        stageNestedMatches(output, mountXnatHostPath, filePath, toUpload) : null;
                 try {
-                    final URIManager.DataURIA uri = UriParserUtils.parseURI(parentUri);
-                    if (!Permissions.canEdit(userI, ((URIManager.ArchiveItemURI) uri).getSecurityItem())) {
-                        final String message = String.format(prefix + "User does not have permission to add resources to item with URI %s.", parentUri);
+                    final List<File> resourceFiles = nestedStaging == null ? toUpload : listStaged(nestedStaging);
+                    if (log.isDebugEnabled()) {
+                        final String template = prefix + "Inserting file resource.\n\tuser: {}\n\tparentUri: {}\n\tlabel: {}\n\ttoUpload: {}";
+                        log.debug(template, userI.getLogin(), parentUri, label, resourceFiles);
+                    }
+
+                    try {
+                        final URIManager.DataURIA uri = UriParserUtils.parseURI(parentUri);
+                        final ArchivableItem parentItem = ((URIManager.ArchiveItemURI) uri).getSecurityItem();
+                        if (!Permissions.canEdit(userI, parentItem)) {
+                            final String message = String.format(prefix + "User does not have permission to add resources to item with URI %s.", parentUri);
+                            log.error(message);
+                            throw new UnauthorizedException(message);
+                        }
+
+                        final String rootArchivePath = getRootArchivePath(parentItem);
+                        final String resourceUri = parentUri + "/resources/" + label;
+                        createdUri = finishInterruptedUpload(output, resourceUri, rootArchivePath, resourceFiles);
+                        if (createdUri == null) {
+                            // Mark the upload as started, in case we go down before its created URI is recorded
+                            recordOutputUploading(output, resourceUri);
+                        }
+                        if (createdUri == null && rootArchivePath != null && OutputLinker.canLink(resourceFiles, Paths.get(rootArchivePath))) {
+                            createdUri = insertResourcesByLinking(parentUri, rootArchivePath, resourceFiles, uploadEventId,
+                                    label, output.format());
+                        }
+                        if (createdUri == null) {
+                            final XnatResourcecatalog resourcecatalog = catalogService.insertResources(userI, parentUri,
+                                    resourceFiles, uploadEventId, true, true,
+                                    label, null, output.format(), null);
+                            createdUri = getCreatedResourceUri(parentUri, resourcecatalog);
+                        }
+                    } catch (ClientException e) {
+                        final String message = String.format(prefix + ": " + e.getMessage(), parentUri);
                         log.error(message);
                         throw new UnauthorizedException(message);
+                    } catch (Exception e) {
+                        final String message = prefix + "Could not upload files to resource.";
+                        log.error(message);
+                        throw new ContainerException(message, e);
                     }
-
-                    final XnatResourcecatalog resourcecatalog = catalogService.insertResources(userI, parentUri,
-                            toUpload, uploadEventId, true, true,
-                            label, null, output.format(), null);
-                    createdUri = UriParserUtils.getArchiveUri(resourcecatalog);
-                    if (StringUtils.isBlank(createdUri)) {
-                        createdUri = parentUri + "/resources/" + resourcecatalog.getLabel();
+                } finally {
+                    if (nestedStaging != null) {
+                        OutputLinker.deleteStagingDirectory(nestedStaging);
                     }
-                } catch (ClientException e) {
-                    final String message = String.format(prefix + ": " + e.getMessage(), parentUri);
-                    log.error(message);
-                    throw new UnauthorizedException(message);
-                } catch (Exception e) {
-                    final String message = prefix + "Could not upload files to resource.";
-                    log.error(message);
-                    throw new ContainerException(message, e);
                 }
                 //Insert Resources does a refresh catalog action.
                 //try {
@@ -539,16 +745,163 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
             // they put in that property is going to be the output handler name.
             wrapperInputAndOutputValues.put(output.fromOutputHandler(), createdUri);
             
-            return output.toBuilder().created(createdUri).build();
+            return output.toBuilder().created(createdUri).uploading(null).build();
         }
 
-        private ContainerMount getMount(final String mountName) throws ContainerException {
+        /**
+         * Links the output files into a staging directory in the archive. Once they are all there, creates an empty
+         * resource, moves the files into its directory, and has the catalog service read them into the catalog,
+         * checksums and all. Nothing is copied unless it can't be linked, or the move into the created resource fails.
+         *
+         * @return The URI of the created resource, or null if the files could not be staged and should be copied instead
+         */
+        @Nullable
+        private String insertResourcesByLinking(final String parentUri,
+                                                final String rootArchivePath,
+                                                final List<File> toUpload,
+                                                @Nullable final Integer uploadEventId,
+                                                final String label,
+                                                final String format) throws Exception {
+            final Path stagingDirectory;
+            final int copied;
+            try {
+                stagingDirectory = OutputLinker.createStagingDirectory(Paths.get(rootArchivePath));
+            } catch (IOException e) {
+                log.info("{}Could not create a staging directory in {}. Output files will be copied.", prefix, rootArchivePath, e);
+                return null;
+            }
+            try {
+                try {
+                    copied = OutputLinker.linkInto(toUpload, stagingDirectory);
+                } catch (IOException e) {
+                    log.info("{}Could not link output files into {}. Output files will be copied.", prefix, stagingDirectory, e);
+                    return null;
+                }
+
+                final XnatResourcecatalog resourcecatalog = catalogService.insertResources(userI, parentUri,
+                        Collections.<File>emptyList(), uploadEventId, true, true,
+                        label, null, format, null);
+                final String createdUri = getCreatedResourceUri(parentUri, resourcecatalog);
 
-            if(outputMounts == null || outputMounts.isEmpty()){
-                for (final ContainerMount mountOut : toFinalize.mounts()) {
-                    outputMounts.put(mountOut.name(), mountOut);
+                final File resourceDirectory = resourcecatalog.getCatalogFile(rootArchivePath).getParentFile();
+                try {
+                    OutputLinker.moveInto(stagingDirectory, resourceDirectory.toPath());
+                    if (copied > 0) {
+                        log.info("{}Copied {} files into {} that could not be linked.", prefix, copied, resourceDirectory);
+                    }
+                    catalogService.refreshResourceCatalog(userI, createdUri);
+                } catch (Exception e) {
+                    // The resource exists now, so fill it rather than leave it empty or partly filled for a retry
+                    // to create a second resource with the same label
+                    log.warn("{}Could not move linked output files into {}. Copying them instead.", prefix, resourceDirectory, e);
+                    OutputLinker.copyInto(toUpload, resourceDirectory.toPath());
+                    catalogService.refreshResourceCatalog(userI, createdUri);
+                }
+                return createdUri;
+            } finally {
+                OutputLinker.deleteStagingDirectory(stagingDirectory);
+            }
+        }
+
+        /**
+         * Finishes an upload of the output to this resource that was interrupted after it created the resource but
+         * before the created URI was recorded. The resource may be partly filled, so all the output files are copied
+         * into it again, replacing what's there, and its catalog is refreshed.
+         *
+         * @return The URI of the resource, or null if there is no interrupted upload to finish
+         */
+        @Nullable
+        private String finishInterruptedUpload(final ContainerOutput output,
+                                               final String resourceUri,
+                                               @Nullable final String rootArchivePath,
+                                               final List<File> resourceFiles) throws Exception {
+            if (!resourceUri.equals(output.uploading())) {
+                return null;
+            }
+            final XnatResourcecatalog resourcecatalog = getResourceCatalog(resourceUri);
+            if (resourcecatalog == null) {
+                log.info("{}An earlier upload of output \"{}\" stopped before creating {}. Uploading it again.",
+                        prefix, output.name(), resourceUri);
+                return null;
+            }
+
+            log.info("{}Finishing an earlier, interrupted upload of output \"{}\" to {}.", prefix, output.name(), resourceUri);
+            final File resourceDirectory = resourcecatalog.getCatalogFile(rootArchivePath).getParentFile();
+            OutputLinker.copyInto(resourceFiles, resourceDirectory.toPath());
+            catalogService.refreshResourceCatalog(userI, resourceUri);
+            return resourceUri;
+        }
+
+        @Nullable
+        private XnatResourcecatalog getResourceCatalog(final String resourceUri) {
+            try {
+                final URIManager.DataURIA uri = UriParserUtils.parseURI(resourceUri);
+                if (uri instanceof ResourceURII) {
+                    final XnatAbstractresourceI resource = ((ResourceURII) uri).getXnatResource();
+                    if (resource instanceof XnatResourcecatalog) {
+                        return (XnatResourcecatalog) resource;
+                    }
+                }
+            } catch (MalformedURLException e) {
+                log.debug("{}Could not parse resource URI {}.", prefix, resourceUri, e);
+            }
+            return null;
+        }
+
+        /**
+         * Links or copies the matches into a staging directory next to the output's mount, at their paths relative
+         * to the output's root, so they can be uploaded with the subdirectories they were found in.
+         */
+        private Path stageNestedMatches(final ContainerOutput output,
+                                        final String mountXnatHostPath,
+                                        final String filePath,
+                                        final List<File> toUpload) throws ContainerException {
+            // Not inside the mount, where another output's glob over the same files could find the staged copies
+            final Path mountParent = Paths.get(mountXnatHostPath).getParent();
+            Path stagingDirectory = null;
+            try {
+                stagingDirectory = mountParent == null ? Files.createTempDirectory(".container-output-") :
+                        OutputLinker.createStagingDirectory(mountParent);
+                final int copied = OutputLinker.linkInto(toUpload, Paths.get(filePath), stagingDirectory);
+                log.debug("{}Staged {} matches for output \"{}\" in {}, {} of them by copying.",
+                        prefix, toUpload.size(), output.name(), stagingDirectory, copied);
+                return stagingDirectory;
+            } catch (IOException e) {
+                if (stagingDirectory != null) {
+                    OutputLinker.deleteStagingDirectory(stagingDirectory);
                 }
+                throw new ContainerException(String.format(prefix + "Could not stage the files in \"%s\" for output \"%s\".",
+                        filePath, output.name()), e);
+            }
+        }
+
+        private List<File> listStaged(final Path stagingDirectory) throws ContainerException {
+            final File[] staged = stagingDirectory.toFile().listFiles();
+            if (staged == null) {
+                throw new ContainerException(prefix + "Could not list staged output files in " + stagingDirectory);
             }
+            final List<File> resourceFiles = Lists.newArrayList(staged);
+            Collections.sort(resourceFiles);
+            return resourceFiles;
+        }
+
+        private String getCreatedResourceUri(final String parentUri, final XnatResourcecatalog resourcecatalog) {
+            final String createdUri = UriParserUtils.getArchiveUri(resourcecatalog);
+            return StringUtils.isBlank(createdUri) ? parentUri + "/resources/" + resourcecatalog.getLabel() : createdUri;
+        }
+
+        @Nullable
+        private String getRootArchivePath(final ArchivableItem parentItem) {
+            try {
+                final XnatProjectdata project = XnatProjectdata.getXnatProjectdatasById(parentItem.getProject(), userI, false);
+                return project == null ? null : project.getRootArchivePath();
+            } catch (Exception e) {
+                log.debug("{}Could not find the archive path of the project of {}. Output files will be copied.", prefix, parentItem, e);
+                return null;
+            }
+        }
+
+        private ContainerMount getMount(final String mountName) throws ContainerException {
             ContainerMount containerMount = outputMounts.get(mountName);
             if(containerMount != null){
                 return containerMount;
@@ -581,12 +934,6 @@ public class ContainerFinalizeServiceImpl implements ContainerFinalizeService {
         private Container getWrapupContainer(final String parentSourceObjectName) {
             return wrapupContainerMap.get(parentSourceObjectName);
         }
-
-        private List<File> matchGlob(final String rootPath, final String glob) {
-            final File rootDir = new File(rootPath);
-            final File[] files = rootDir.listFiles();
-            return files == null ? Lists.<File>newArrayList() : Arrays.asList(files);
-        }
     }
 
     private static class OutputsAndExceptions {
@@ -0,0 +1,371 @@
+package org.nrg.containers.services.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.spotify.docker.client.DockerClient.LogsParam;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.nrg.containers.api.ContainerControlApi;
+import org.nrg.containers.exceptions.DockerServerException;
+import org.nrg.containers.exceptions.NoDockerServerException;
+import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.ContainerSummary;
+import org.nrg.containers.services.ContainerEntityService;
+import org.nrg.containers.services.ContainerLogSpooler;
+import org.nrg.containers.services.ContainerService;
+import org.nrg.xdat.preferences.SiteConfigPreferences;
+import org.nrg.xft.schema.XFTManager;
+import org.nrg.xft.utils.FileUtils;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * While a container runs, its stdout and stderr are copied every few seconds to
+ * CONTAINER_EXEC/{container or service id}/LOGS/{subtype}/ in the archive.
+ *
+ * Each poll asks docker only for the log since the last line we copied. We read the log with timestamps and keep
+ * the timestamp of the last line we wrote, and how many lines had that timestamp, in a cursor file next to the
+ * spool file. Docker's "since" only has one-second granularity, so the cursor is also used to drop the lines we
+ * already have. Because the cursor is on disk, {@link #finishSpooling(Container, String)} appends only the tail
+ * on whichever node finalizes the container, and a restart picks up where the last poll stopped.
+ *
+ * Appends to a log are serialized by a lock on the spool file across nodes, and by an in-JVM lock within this one,
+ * since a file lock can't be taken twice by one JVM. Once a log is being finished, it isn't polled again.
+ */
+@Slf4j
+@Service
+public class ContainerLogSpoolerImpl implements ContainerLogSpooler, DisposableBean {
+    private static final int POLL_THREADS = 4;
+    private static final int APPEND_LOCK_STRIPES = 64;
+    private static final int BUFFER_SIZE = 8192;
+    private static final String CURSOR_SUFFIX = ".cursor";
+
+    private final ContainerControlApi containerControlApi;
+    private final ContainerEntityService containerEntityService;
+    private final SiteConfigPreferences siteConfigPreferences;
+    private final XnatAppInfo xnatAppInfo;
+
+    // Polls that have been submitted and may not have finished, by container and log
+    private final ConcurrentMap<String, Future<?>> polls = new ConcurrentHashMap<>();
+    // Held while appending to a log, by container and log
+    private final Striped<Lock> appendLocks = Striped.lock(APPEND_LOCK_STRIPES);
+    // Logs that have been finished, or are being finished, and must not be polled again
+    private final Cache<String, Boolean> finishing = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.DAYS)
+            .build();
+    private final ExecutorService executor = Executors.newFixedThreadPool(POLL_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("container-log-spooler-%d").setDaemon(true).build());
+
+    @Autowired
+    public ContainerLogSpoolerImpl(final ContainerControlApi containerControlApi,
+                                   final ContainerEntityService containerEntityService,
+                                   final SiteConfigPreferences siteConfigPreferences,
+                                   final XnatAppInfo xnatAppInfo) {
+        this.containerControlApi = containerControlApi;
+        this.containerEntityService = containerEntityService;
+        this.siteConfigPreferences = siteConfigPreferences;
+        this.xnatAppInfo = xnatAppInfo;
+    }
+
+    @Override
+    public void spoolRunningContainers() {
+        // Only one node polls. Any node can finish spooling, since the cursor is kept with the log.
+        if (!xnatAppInfo.isPrimaryNode() || !XFTManager.isInitialized()) {
+            return;
+        }
+
+        final Iterator<Future<?>> pollIterator = polls.values().iterator();
+        while (pollIterator.hasNext()) {
+            if (pollIterator.next().isDone()) {
+                pollIterator.remove();
+            }
+        }
+
+        for (final ContainerSummary summary : containerEntityService.retrieveActiveSummaries()) {
+            if (StringUtils.isBlank(summary.containerOrServiceId())) {
+                continue;
+            }
+            for (final String logName : ContainerService.LOG_NAMES) {
+                startPoll(summary, logName);
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    public Path getSpoolFile(final Container container, final String logName) {
+        final Path spoolFile = spoolFile(ContainerSummary.create(container), logName);
+        return spoolFile != null && Files.isRegularFile(spoolFile) ? spoolFile : null;
+    }
+
+    @Override
+    @Nullable
+    public String finishSpooling(final Container container, final String logName) {
+        final ContainerSummary summary = ContainerSummary.create(container);
+        final String containerOrServiceId = summary.containerOrServiceId();
+        if (StringUtils.isBlank(containerOrServiceId)) {
+            return null;
+        }
+        final String key = key(containerOrServiceId, logName);
+        // A poll that hasn't started appending will see this and stop. One that has holds the append lock until it's done.
+        finishing.put(key, Boolean.TRUE);
+        polls.remove(key);
+
+        final Path spoolFile = spoolFile(summary, logName);
+        if (spoolFile == null) {
+            log.error("Cannot save {} for container {}. No archive path is set.", logName, containerOrServiceId);
+            return null;
+        }
+
+        final Lock appendLock = appendLocks.get(key);
+        appendLock.lock();
+        try {
+            // Whatever the container wrote after the last poll
+            appendFromDocker(summary, logName, spoolFile);
+        } catch (NoDockerServerException | DockerServerException | IOException | RuntimeException e) {
+            log.error("Could not get {} for container {} from docker. Keeping what we have already spooled.",
+                    logName, containerOrServiceId, e);
+        } finally {
+            appendLock.unlock();
+        }
+
+        try {
+            if (Files.isRegularFile(spoolFile) && Files.size(spoolFile) > 0) {
+                return spoolFile.toString();
+            }
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            log.error("Could not check spooled {} for container {}.", logName, containerOrServiceId, e);
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        polls.clear();
+    }
+
+    private void startPoll(final ContainerSummary container, final String logName) {
+        final String key = key(container.containerOrServiceId(), logName);
+        if (polls.containsKey(key) || finishing.getIfPresent(key) != null) {
+            // Still copying from the last time around, or the container is done and its log is being finished
+            return;
+        }
+        final Path spoolFile = spoolFile(container, logName);
+        if (spoolFile == null) {
+            return;
+        }
+
+        polls.put(key, executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final Lock appendLock = appendLocks.get(key);
+                appendLock.lock();
+                try {
+                    if (finishing.getIfPresent(key) == null) {
+                        appendFromDocker(container, logName, spoolFile);
+                    }
+                } catch (Exception e) {
+                    log.debug("Could not spool {} for container {}. Will try again.", logName, container.containerOrServiceId(), e);
+                } finally {
+                    appendLock.unlock();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Read the docker log from the last second we have, drop the lines we already wrote, and append the rest.
+     * The spool file is locked so a poll and a finish, possibly on different nodes, never append the same lines.
+     * Callers hold the log's append lock, so this JVM never asks for the file lock twice.
+     */
+    private void appendFromDocker(final ContainerSummary container, final String logName, final Path spoolFile)
+            throws NoDockerServerException, DockerServerException, IOException {
+        Files.createDirectories(spoolFile.getParent());
+        final Path cursorFile = spoolFile.resolveSibling("." + spoolFile.getFileName() + CURSOR_SUFFIX);
+
+        try (final FileChannel spool = FileChannel.open(spoolFile,
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             final FileLock ignored = spool.lock()) {
+            final LogCursor cursor = LogCursor.read(cursorFile);
+            final LogsParam[] params = cursor.last == null ?
+                    new LogsParam[] {LogsParam.timestamps()} :
+                    new LogsParam[] {LogsParam.timestamps(), LogsParam.since((int) cursor.last.getEpochSecond())};
+
+            try (final InputStream logStream = ContainerService.STDERR_LOG_NAME.equals(logName) ?
+                    containerControlApi.getStderrLogStream(container, params) :
+                    containerControlApi.getStdoutLogStream(container, params)) {
+                copyNewLines(logStream, spool, cursor);
+            } finally {
+                // Everything up to the cursor is in the spool file, even if we stopped partway
+                cursor.write(cursorFile);
+            }
+        }
+    }
+
+    /**
+     * Read the log a buffer at a time and write out each whole line in it. A line that runs past the end
+     * of a read is carried over to the next one.
+     */
+    private void copyNewLines(final InputStream logStream, final FileChannel spool, final LogCursor cursor)
+            throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        int read;
+        while ((read = logStream.read(buffer)) != -1) {
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+                final int lineEnd = i + 1;
+                if (partialLine.size() == 0) {
+                    copyIfNew(buffer, lineStart, lineEnd, spool, cursor);
+                } else {
+                    partialLine.write(buffer, lineStart, lineEnd - lineStart);
+                    final byte[] line = partialLine.toByteArray();
+                    copyIfNew(line, 0, line.length, spool, cursor);
+                    partialLine.reset();
+                }
+                lineStart = lineEnd;
+            }
+            if (lineStart < read) {
+                partialLine.write(buffer, lineStart, read - lineStart);
+            }
+        }
+        if (partialLine.size() > 0) {
+            final byte[] line = partialLine.toByteArray();
+            copyIfNew(line, 0, line.length, spool, cursor);
+        }
+    }
+
+    /**
+     * Each line docker sends starts with its timestamp and a space. We write the rest of the line.
+     *
+     * @param start The index of the first byte of the line in {@code bytes}
+     * @param end   The index after the last byte of the line, including its newline
+     */
+    private void copyIfNew(final byte[] bytes, final int start, final int end,
+                           final FileChannel spool, final LogCursor cursor) throws IOException {
+        int space = start;
+        while (space < end && bytes[space] != ' ') {
+            space++;
+        }
+        final Instant time;
+        try {
+            time = Instant.parse(new String(bytes, start, space - start, StandardCharsets.US_ASCII));
+        } catch (DateTimeParseException e) {
+            log.debug("Docker log line has no timestamp. Skipping it.");
+            return;
+        }
+        if (!cursor.advance(time)) {
+            return;
+        }
+        final int contentStart = Math.min(space + 1, end);
+        final ByteBuffer toWrite = ByteBuffer.wrap(bytes, contentStart, end - contentStart);
+        while (toWrite.hasRemaining()) {
+            spool.write(toWrite);
+        }
+    }
+
+    @Nullable
+    private Path spoolFile(final ContainerSummary container, final String logName) {
+        final String archivePath = siteConfigPreferences.getArchivePath();
+        final String containerOrServiceId = container.containerOrServiceId();
+        if (StringUtils.isBlank(archivePath) || StringUtils.isBlank(containerOrServiceId)) {
+            return null;
+        }
+        final String containerExecPath = FileUtils.AppendRootPath(archivePath, "CONTAINER_EXEC/");
+        return Paths.get(containerExecPath, containerOrServiceId, "LOGS",
+                StringUtils.defaultIfBlank(container.subtype(), ""), logName);
+    }
+
+    private static String key(final String containerOrServiceId, final String logName) {
+        return containerOrServiceId + "/" + logName;
+    }
+
+    /**
+     * The timestamp of the last line in the spool file, and how many lines we have written with that timestamp.
+     */
+    private static class LogCursor {
+        private Instant last;
+        private int linesAtLast;
+        // Lines at the last timestamp we have seen in this read
+        private int seenAtLast = 0;
+
+        @Nonnull
+        private static LogCursor read(final Path cursorFile) {
+            final LogCursor cursor = new LogCursor();
+            if (!Files.isRegularFile(cursorFile)) {
+                return cursor;
+            }
+            try {
+                final List<String> lines = Files.readAllLines(cursorFile, StandardCharsets.UTF_8);
+                final String[] parts = lines.isEmpty() ? new String[0] : lines.get(0).trim().split(" ");
+                if (parts.length == 2) {
+                    cursor.last = Instant.parse(parts[0]);
+                    cursor.linesAtLast = Integer.parseInt(parts[1]);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not read log cursor {}. Reading the log from the start.", cursorFile, e);
+            }
+            return cursor;
+        }
+
+        /**
+         * @return true if a line with this timestamp is not yet in the spool file
+         */
+        private boolean advance(final Instant time) {
+            if (last == null || time.isAfter(last)) {
+                last = time;
+                linesAtLast = 1;
+                seenAtLast = 1;
+                return true;
+            }
+            if (time.equals(last)) {
+                seenAtLast++;
+                if (seenAtLast > linesAtLast) {
+                    linesAtLast = seenAtLast;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void write(final Path cursorFile) throws IOException {
+            if (last != null) {
+                Files.write(cursorFile, (last + " " + linesAtLast + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
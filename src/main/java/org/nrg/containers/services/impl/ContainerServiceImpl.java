@@ -12,8 +12,15 @@ import static org.nrg.containers.model.command.entity.CommandWrapperInputType.SE
 import static org.nrg.containers.model.command.entity.CommandWrapperInputType.SUBJECT;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,9 +34,13 @@ import org.nrg.action.ClientException;
 import org.nrg.containers.api.ContainerControlApi;
 import org.nrg.containers.events.model.ContainerEvent;
 import org.nrg.containers.events.model.DockerContainerEvent;
+import org.nrg.containers.events.model.DockerSwarmEvent;
 import org.nrg.containers.events.model.ServiceTaskEvent;
 import org.nrg.containers.exceptions.*;
+import org.nrg.containers.jms.requests.ContainerCleanupRequest;
 import org.nrg.containers.jms.requests.ContainerFinalizingRequest;
+import org.nrg.containers.jms.requests.ContainerIngestingRequest;
+import org.nrg.containers.jms.requests.ContainerRecordingRequest;
 import org.nrg.containers.jms.requests.ContainerRequest;
 import org.nrg.containers.jms.requests.ContainerStagingRequest;
 import org.nrg.containers.jms.utils.QueueUtils;
@@ -41,8 +52,12 @@ import org.nrg.containers.model.command.auto.ResolvedInputTreeNode;
 import org.nrg.containers.model.command.auto.ResolvedInputValue;
 import org.nrg.containers.model.command.entity.CommandWrapperInputType;
 import org.nrg.containers.model.configuration.PluginVersionCheck;
+import org.nrg.containers.model.container.FinalizationStage;
 import org.nrg.containers.model.container.auto.Container;
 import org.nrg.containers.model.container.auto.Container.ContainerHistory;
+import org.nrg.containers.model.container.auto.ContainerFilter;
+import org.nrg.containers.model.container.auto.ContainerLogChunk;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.containers.model.container.auto.ServiceTask;
 import org.nrg.containers.model.container.entity.ContainerEntity;
 import org.nrg.containers.model.container.entity.ContainerEntityHistory;
@@ -50,6 +65,7 @@ import org.nrg.containers.model.xnat.Scan;
 import org.nrg.containers.model.xnat.XnatModelObject;
 import org.nrg.containers.services.*;
 import org.nrg.containers.utils.ContainerUtils;
+import org.nrg.containers.utils.LogFileReader;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.xdat.XDAT;
 import org.nrg.xdat.entities.AliasToken;
@@ -76,10 +92,14 @@ import org.nrg.xnat.utils.WorkflowUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -87,6 +107,18 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class ContainerServiceImpl implements ContainerService {
     private static final String MIN_XNAT_VERSION_REQUIRED = "1.7.5";
+    private static final int BULK_RESOLUTION_PLAN_EXPIRY_MINUTES = 30;
+    private static final int BULK_RESOLUTION_PLAN_CACHE_SIZE = 100;
+    // A node renews the claims on the finalization stages it is running every FINALIZATION_CLAIM_RENEWAL_MILLIS.
+    // A claim that hasn't been renewed in FINALIZATION_CLAIM_LEASE_MILLIS died with the node that was running it.
+    public static final long FINALIZATION_CLAIM_RENEWAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    static final long FINALIZATION_CLAIM_LEASE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // A stage that fails is retried once its claim looks stale, until it has failed this many times
+    static final int MAX_FINALIZATION_STAGE_FAILURES = 5;
+    // Claims are owned by "<host>@<JVM start time>", so a restarted node can tell which claims its earlier run left
+    static final long JVM_START_TIME = ManagementFactory.getRuntimeMXBean().getStartTime();
+    static final String FINALIZATION_CLAIM_NODE = localHostName() + "@";
+    static final String FINALIZATION_CLAIM_OWNER = FINALIZATION_CLAIM_NODE + JVM_START_TIME;
     public static final String WAITING = "Waiting";
     public static final String FINALIZING = "Finalizing";
     public static final String CREATED = "Created";
@@ -103,6 +135,13 @@ public class ContainerServiceImpl implements ContainerService {
     private final ContainerFinalizeService containerFinalizeService;
     private final XnatAppInfo xnatAppInfo;
     private final CatalogService catalogService;
+    private ContainerLogSpooler containerLogSpooler;
+
+    // Bulk launches are staged within seconds to minutes, so a plan that hasn't been used in a while is done with
+    private final Cache<String, CommandResolutionService.BulkResolutionPlan> bulkResolutionPlans = CacheBuilder.newBuilder()
+            .expireAfterAccess(BULK_RESOLUTION_PLAN_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .maximumSize(BULK_RESOLUTION_PLAN_CACHE_SIZE)
+            .build();
 
     @Autowired
     public ContainerServiceImpl(final ContainerControlApi containerControlApi,
@@ -125,6 +164,11 @@ public class ContainerServiceImpl implements ContainerService {
         this.catalogService = catalogService;
     }
 
+    @Autowired(required = false)
+    public void setContainerLogSpooler(final ContainerLogSpooler containerLogSpooler) {
+        this.containerLogSpooler = containerLogSpooler;
+    }
+
     @Override
     public PluginVersionCheck checkXnatVersion(){
         String xnatVersion = getXnatVersion();
@@ -255,6 +299,21 @@ public class ContainerServiceImpl implements ContainerService {
         return toPojo(containerEntityService.getAll(nonfinalized));
     }
 
+    @Override
+    public List<Container> getAll(final ContainerFilter filter, final Long after, final Integer limit) {
+        return toPojo(containerEntityService.getPage(filter, after, limit));
+    }
+
+    @Override
+    public void streamAll(final ContainerFilter filter, final ContainerCallback callback) throws IOException {
+        containerEntityService.scroll(filter, new ContainerEntityService.ContainerEntityCallback() {
+            @Override
+            public void process(final ContainerEntity containerEntity) throws IOException {
+                callback.process(toPojo(containerEntity));
+            }
+        });
+    }
+
     @Override
     @Nonnull
     public List<Container> retrieveServices() {
@@ -267,6 +326,11 @@ public class ContainerServiceImpl implements ContainerService {
         return toPojo(containerEntityService.retrieveNonfinalizedServices());
     }
 
+    @Override
+    public List<ContainerSummary> retrieveNonfinalizedServiceSummaries() {
+        return containerEntityService.retrieveNonfinalizedServiceSummaries();
+    }
+
     @Nullable
     private List<WrkWorkflowdata> getContainerWorkflowsByStatus(String status, UserI user) {
         final CriteriaCollection cc = new CriteriaCollection("AND");
@@ -342,44 +406,91 @@ public class ContainerServiceImpl implements ContainerService {
     }
 
     @Override
-    public void resetFinalizingStatusToWaitingOrFailed() {
-    	List<ContainerEntity> finalizingContainerEntities = containerEntityService.retrieveContainersInFinalizingState();
-    	if (finalizingContainerEntities == null || finalizingContainerEntities.size() == 0) {
-    		log.info("Appears that no containers are in orphaned {} state", FINALIZING);
-    		return;
-    	}
-        List<Container> finalizingContainers  = toPojo(finalizingContainerEntities);
-        //Now update the finalizing state to Waiting or Failed
-        for (final Container s : finalizingContainers) {
-            Container containerOrService = retrieve(s.databaseId());
-            if (containerOrService == null) {
+    public void resumeInterruptedFinalization() {
+        // The stages this node was running when it went down will never finish, so don't wait out their leases
+        final int released = containerEntityService.releaseFinalizationClaimsOfEarlierRuns(FINALIZATION_CLAIM_NODE,
+                FINALIZATION_CLAIM_OWNER, new Date(JVM_START_TIME));
+        if (released > 0) {
+            log.info("Released {} finalization claims left by an earlier run of this node", released);
+        }
+        resumeFinalization(false);
+    }
+
+    @Override
+    public void resumeStalledFinalization() {
+        resumeFinalization(true);
+    }
+
+    @Override
+    public void renewFinalizationClaims() {
+        final int renewed = containerEntityService.renewFinalizationClaims(FINALIZATION_CLAIM_OWNER, new Date());
+        if (renewed > 0) {
+            log.debug("Renewed the claims on {} running finalization stages", renewed);
+        }
+    }
+
+    /**
+     * Queue the next stage of finalization for containers that are finalizing but aren't running a stage.
+     * Containers with an unexpired claim are running a stage somewhere, or failed one recently, and are left alone.
+     * A failed stage keeps the time it failed as its claim time, so it is retried here once that is stale. The stage
+     * claim keeps a re-queued stage from running twice if its original message is still in a queue.
+     *
+     * @param onlyStalled Only resume containers whose claim has expired. Unclaimed containers may just be waiting
+     *                    in a queue, so they are only resumed after a restart, when the queues may have been lost.
+     */
+    private void resumeFinalization(final boolean onlyStalled) {
+        final List<ContainerEntity> finalizingContainerEntities = containerEntityService.retrieveContainersInFinalizingState();
+        if (finalizingContainerEntities == null || finalizingContainerEntities.isEmpty()) {
+            log.debug("Appears that no containers are in orphaned {} state", FINALIZING);
+            return;
+        }
+        final Date staleBefore = new Date(System.currentTimeMillis() - FINALIZATION_CLAIM_LEASE_MILLIS);
+        for (final Container finalizing : toPojo(finalizingContainerEntities)) {
+            final Date claimTime = finalizing.finalizationClaimTime();
+            if (claimTime == null ? onlyStalled : !claimTime.before(staleBefore)) {
                 continue;
             }
-            log.info("Found container {} workflow {} in possibly abandoned {} state",
-                    containerOrService.containerOrServiceId(), containerOrService.workflowId(), FINALIZING);
-            final String userLogin = containerOrService.userId();
+
+            final FinalizationStage finished = FinalizationStage.fromName(finalizing.finalizationStage());
+            final FinalizationStage resumeAt = finished == null ? FinalizationStage.COLLECT_LOGS : finished.next();
+            if (resumeAt == null) {
+                continue;
+            }
+            final String userLogin = finalizing.userId();
             try {
                 final UserI userI = Users.getUser(userLogin);
-                Date now = new Date();
-                Date lastStatusTime = containerOrService.statusTime();
-                Long diffHours = lastStatusTime == null ? null :
-                        (now.getTime() - lastStatusTime.getTime()) / (60 * 60 * 1000) % 24;
-                if (diffHours != null && diffHours < 72) {
-                    addContainerHistoryItem(containerOrService, ContainerHistory.fromSystem(WAITING,
-                            "Reset status from Finalizing to Waiting." ), userI);
-                    log.info("Updated container {} to {} state", containerOrService, WAITING);
+                log.info("Resuming finalization of container {} workflow {} at stage \"{}\"",
+                        finalizing.containerOrServiceId(), finalizing.workflowId(), resumeAt.getName());
+                // Uploaded outputs are skipped, so this picks up where finalization stopped
+                final String status = getLastStatusBeforeFinalizing(finalizing);
+                final boolean isSuccessfulStatus = isSuccessfulStatus(finalizing, status);
+                if (resumeAt == FinalizationStage.COLLECT_LOGS) {
+                    queueFinalize(finalizing.exitCode(), isSuccessfulStatus, finalizing, userI);
                 } else {
-                    addContainerHistoryItem(containerOrService, ContainerHistory.fromSystem(PersistentWorkflowUtils.FAILED +
-                            " ("+FINALIZING+")", FINALIZING + " for more than 72 Hours"), userI);
-                    log.info("Updated container {} to {} state", containerOrService, PersistentWorkflowUtils.FAILED);
-                    PersistentWorkflowI wrk = getContainerWorkflow(userI, containerOrService);
-                    containerFinalizeService.sendContainerStatusUpdateEmail(userI, false,
-                            wrk.getPipelineName(), wrk.getId(), null, wrk.getExternalid(), null);
+                    queueFinalizationStage(resumeAt, finalizing, userI, finalizing.exitCode(), isSuccessfulStatus);
                 }
             } catch (UserNotFoundException | UserInitException e) {
-                log.error("Could not update container status. Could not get user details for user {}", userLogin, e);
+                log.error("Could not resume finalization. Could not get user details for user {}", userLogin, e);
+            } catch (ContainerException | NoDockerServerException | DockerServerException | RuntimeException e) {
+                log.error("Could not resume finalization of container {}", finalizing.databaseId(), e);
+            }
+        }
+    }
+
+    /**
+     * @return The status the container had before it was queued for finalization, or null if there isn't one
+     */
+    @Nullable
+    private String getLastStatusBeforeFinalizing(final Container container) {
+        final List<ContainerHistory> history = Ordering.natural().reverse().sortedCopy(container.history());
+        for (final ContainerHistory historyItem : history) {
+            final String status = historyItem.status();
+            if (status != null && !status.equals(FINALIZING) &&
+                    !status.startsWith(ContainerRequest.inQueueStatusPrefix)) {
+                return status;
             }
         }
+        return null;
     }
 
     @Override
@@ -417,6 +528,20 @@ public class ContainerServiceImpl implements ContainerService {
                                                       final Map<String, String> inputValues,
                                                       final UserI userI,
                                                       @Nullable PersistentWorkflowI workflow) {
+        queueResolveCommandAndLaunchContainer(project, wrapperId, commandId, wrapperName, inputValues, userI,
+                workflow, null, null);
+    }
+
+    @Override
+    public void queueResolveCommandAndLaunchContainer(@Nullable String project,
+                                                      final long wrapperId,
+                                                      final long commandId,
+                                                      @Nullable final String wrapperName,
+                                                      final Map<String, String> inputValues,
+                                                      final UserI userI,
+                                                      @Nullable PersistentWorkflowI workflow,
+                                                      @Nullable final String bulkLaunchId,
+                                                      @Nullable final String rootElement) {
 
         // Workflow shouldn't be null unless container launched without a root element
         // (I think the only way to do so would be through the REST API)
@@ -431,7 +556,7 @@ public class ContainerServiceImpl implements ContainerService {
         }
 
         ContainerStagingRequest request = new ContainerStagingRequest(project, wrapperId, commandId, wrapperName,
-                inputValues, userI.getLogin(), workflowid);
+                inputValues, userI.getLogin(), workflowid, bulkLaunchId, rootElement);
 
         String count = "[not computed]";
         if (log.isTraceEnabled()) {
@@ -465,6 +590,20 @@ public class ContainerServiceImpl implements ContainerService {
                                                         final Map<String, String> inputValues,
                                                         final UserI userI,
                                                         @Nullable final String workflowid) {
+        consumeResolveCommandAndLaunchContainer(project, wrapperId, commandId, wrapperName, inputValues, userI,
+                workflowid, null, null);
+    }
+
+    @Override
+    public void consumeResolveCommandAndLaunchContainer(@Nullable final String project,
+                                                        final long wrapperId,
+                                                        final long commandId,
+                                                        @Nullable final String wrapperName,
+                                                        final Map<String, String> inputValues,
+                                                        final UserI userI,
+                                                        @Nullable final String workflowid,
+                                                        @Nullable final String bulkLaunchId,
+                                                        @Nullable final String rootElement) {
 
         log.trace("consumeResolveCommandAndLaunchContainer wfid {}", workflowid);
 
@@ -474,11 +613,23 @@ public class ContainerServiceImpl implements ContainerService {
         }
 
         try {
-            log.trace("Configuring command for wfid {}", workflowid);
-            ConfiguredCommand configuredCommand = commandService.getAndConfigure(project, commandId, wrapperName, wrapperId);
+            final ConfiguredCommand configuredCommand;
+            ResolvedCommand resolvedCommand;
+            if (StringUtils.isNotBlank(bulkLaunchId) && StringUtils.isNotBlank(rootElement)) {
+                log.trace("Getting bulk launch {} resolution plan for wfid {}", bulkLaunchId, workflowid);
+                final CommandResolutionService.BulkResolutionPlan plan = getBulkResolutionPlan(bulkLaunchId,
+                        project, wrapperId, commandId, wrapperName, rootElement, inputValues, userI);
+                configuredCommand = plan.configuredCommand();
+
+                log.trace("Resolving command for wfid {}", workflowid);
+                resolvedCommand = commandResolutionService.resolve(plan, inputValues, userI);
+            } else {
+                log.trace("Configuring command for wfid {}", workflowid);
+                configuredCommand = commandService.getAndConfigure(project, commandId, wrapperName, wrapperId);
 
-            log.trace("Resolving command for wfid {}", workflowid);
-            ResolvedCommand resolvedCommand = commandResolutionService.resolve(configuredCommand, inputValues, userI);
+                log.trace("Resolving command for wfid {}", workflowid);
+                resolvedCommand = commandResolutionService.resolve(configuredCommand, inputValues, userI);
+            }
             if (StringUtils.isNotBlank(project)) {
                 resolvedCommand = resolvedCommand.toBuilder().project(project).build();
             }
@@ -504,6 +655,33 @@ public class ContainerServiceImpl implements ContainerService {
         }
     }
 
+    /**
+     * Targets of a bulk launch are staged one message at a time, possibly by several consumers at once.
+     * The first to arrive makes the plan; if two race, one plan is kept and the other is thrown away.
+     */
+    private CommandResolutionService.BulkResolutionPlan getBulkResolutionPlan(final String bulkLaunchId,
+                                                                               @Nullable final String project,
+                                                                               final long wrapperId,
+                                                                               final long commandId,
+                                                                               @Nullable final String wrapperName,
+                                                                               final String rootElement,
+                                                                               final Map<String, String> inputValues,
+                                                                               final UserI userI)
+            throws NotFoundException, CommandResolutionException {
+        // Input trees in the plan were resolved with this user's permissions, so don't share them with anyone else
+        final String key = bulkLaunchId + ":" + userI.getLogin();
+        final CommandResolutionService.BulkResolutionPlan cached = bulkResolutionPlans.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final ConfiguredCommand configuredCommand = commandService.getAndConfigure(project, commandId, wrapperName, wrapperId);
+        final CommandResolutionService.BulkResolutionPlan plan =
+                commandResolutionService.planBulkResolution(configuredCommand, rootElement, inputValues, userI);
+        final CommandResolutionService.BulkResolutionPlan raced = bulkResolutionPlans.asMap().putIfAbsent(key, plan);
+        return raced == null ? plan : raced;
+    }
+
     @Override
     @Nonnull
     public Container launchResolvedCommand(final ResolvedCommand resolvedCommand,
@@ -813,6 +991,43 @@ public class ContainerServiceImpl implements ContainerService {
         log.debug("Done processing service task event: {}", event);
     }
 
+    @Override
+    public void processEvent(final DockerSwarmEvent event) {
+        log.debug("Processing docker swarm event: {}", event);
+        if (event.isNodeDown()) {
+            // Tasks on a lost node will never report an exit status, so restart their services now
+            // rather than waiting for the poller to notice the node error.
+            for (final Container service : retrieveNonfinalizedServices()) {
+                if (!StringUtils.equals(event.actorId(), service.nodeId()) ||
+                        isWaiting(service) || isFinalizing(service)) {
+                    continue;
+                }
+                log.info("Node {} is down. Restarting service {}.", event.actorId(), service.serviceId());
+                try {
+                    containerControlApi.throwRestartEventForService(service);
+                } catch (ContainerException e) {
+                    log.error("Could not restart service {} after node {} went down.", service.serviceId(), event.actorId(), e);
+                }
+            }
+        } else if (event.isServiceEvent() && !"remove".equals(event.action()) && StringUtils.isNotBlank(event.actorId())) {
+            // Removed services are noticed (and restarted if need be) by the poller
+            final Container service = retrieve(event.actorId());
+            if (service == null || !service.isSwarmService() || isWaiting(service) || isFinalizing(service)) {
+                log.debug("Nothing to do for docker swarm event {}.", event);
+                return;
+            }
+            try {
+                containerControlApi.throwTaskEventForService(service);
+            } catch (ServiceNotFoundException e) {
+                log.debug("Service {} not found while processing docker swarm event.", service.serviceId());
+            } catch (NoDockerServerException | DockerServerException e) {
+                log.error("Could not get task for service {}.", service.serviceId(), e);
+            }
+        }
+
+        log.debug("Done processing docker swarm event: {}", event);
+    }
+
     private void doRestart(Container service, UserI userI)
             throws DockerServerException, NoDockerServerException, ContainerException {
 
@@ -930,10 +1145,17 @@ public class ContainerServiceImpl implements ContainerService {
     private void recoverFromQueueingFailureFinalizing(Exception e,
                                                       final Container containerOrService,
                                                       final UserI userI) {
+        failFinalization(containerOrService, Container.ContainerHistory
+                .fromSystem(PersistentWorkflowUtils.FAILED + " (JMS)", e.getMessage()), userI);
+    }
 
+    /**
+     * Give up on finalizing a container: record the failure, clean up, and email the user.
+     */
+    private void failFinalization(final Container containerOrService,
+                                  final ContainerHistory failedHistoryItem,
+                                  final UserI userI) {
         try {
-            final Container.ContainerHistory failedHistoryItem = Container.ContainerHistory
-                    .fromSystem(PersistentWorkflowUtils.FAILED + " (JMS)", e.getMessage());
             addContainerHistoryItem(containerOrService, failedHistoryItem, userI);
             cleanupContainers(containerOrService);
         } catch (DockerServerException | NoDockerServerException ex) {
@@ -1017,12 +1239,14 @@ public class ContainerServiceImpl implements ContainerService {
     @Override
     public void finalize(final Container container, final UserI userI)
             throws ContainerException, DockerServerException, NoDockerServerException {
-        String status = container.lastHistoryStatus();
-        boolean isSuccessfulStatus = status == null || status.equals(FINALIZING) ||
+        finalize(container, userI, container.exitCode(), isSuccessfulStatus(container, container.lastHistoryStatus()));
+    }
+
+    private boolean isSuccessfulStatus(final Container container, @Nullable final String status) {
+        return status == null || status.equals(FINALIZING) ||
                 (container.isSwarmService() ?
                     ServiceTask.isSuccessfulStatus(status) :
                     DockerContainerEvent.isSuccessfulStatus(status));
-        finalize(container, userI, container.exitCode(), isSuccessfulStatus);
     }
 
     @Override
@@ -1082,12 +1306,144 @@ public class ContainerServiceImpl implements ContainerService {
         final String containerOrServiceId = notFinalized.containerOrServiceId();
         log.info("Finalizing Container {}, {} id {}.", databaseId, containerOrService, containerOrServiceId);
 
-        final Container finalized = containerFinalizeService.finalizeContainer(notFinalized, userI,
-                failed, wrapupContainers);
+        runFinalizationStage(FinalizationStage.COLLECT_LOGS, notFinalized, userI, exitCode, isSuccessfulStatus);
+    }
+
+    @Override
+    public void consumeFinalizationStage(final FinalizationStage stage,
+                                         final String exitCodeString,
+                                         final boolean isSuccessfulStatus,
+                                         final Container containerOrService,
+                                         final UserI userI)
+            throws NoDockerServerException, ContainerException, DockerServerException {
+        try {
+            runFinalizationStage(stage, containerOrService, userI, exitCodeString, isSuccessfulStatus);
+        } catch (Exception e) {
+            log.error("Finalization stage {} failed on containerOrService {}", stage.getName(), containerOrService, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Run a stage of finalization, record on the container that it is done, and queue the next stage.
+     * The stage is claimed first. If the claim fails, the container has already finished this stage or another
+     * node is running it, so the stage is skipped.
+     */
+    private void runFinalizationStage(final FinalizationStage stage,
+                                      final Container container,
+                                      final UserI userI,
+                                      final String exitCode,
+                                      final boolean isSuccessfulStatus)
+            throws ContainerException, NoDockerServerException, DockerServerException {
+        final long databaseId = container.databaseId();
+        final FinalizationStage previous = stage.previous();
+        final Date claimTime = new Date();
+        final Date staleBefore = new Date(claimTime.getTime() - FINALIZATION_CLAIM_LEASE_MILLIS);
+        if (!containerEntityService.claimFinalizationStage(databaseId, previous == null ? null : previous.getName(),
+                FINALIZATION_CLAIM_OWNER, claimTime, staleBefore)) {
+            log.debug("Container {} has already finished finalization stage \"{}\" or is running it elsewhere. Skipping it.",
+                    databaseId, stage.getName());
+            return;
+        }
+
+        log.debug("Running finalization stage \"{}\" for container {}.", stage.getName(), databaseId);
+        // Saving the container doesn't touch the claim, which renewFinalizationClaims keeps alive until it's released
+        final Container claimed = container.toBuilder().finalizationClaimTime(claimTime).build();
+        final boolean failed = exitCodeIsFailed(exitCode) || !isSuccessfulStatus;
+        final Container checkpointed;
+        try {
+            final Container staged;
+            switch (stage) {
+                case COLLECT_LOGS:
+                    staged = containerFinalizeService.collectLogs(claimed, userI);
+                    break;
+                case INGEST_OUTPUTS:
+                    staged = failed ? claimed : containerFinalizeService.ingestOutputs(claimed, userI,
+                            retrieveWrapupContainersForParent(databaseId));
+                    break;
+                case UPDATE_RECORDS:
+                    staged = containerFinalizeService.updateRecords(claimed, userI, failed);
+                    break;
+                case CLEANUP:
+                    if (claimed.parent() == null) {
+                        // Setup and wrapup containers are cleaned up along with their parent
+                        cleanupContainers(claimed);
+                    }
+                    staged = claimed;
+                    break;
+                default:
+                    throw new ContainerFinalizationException(claimed, "Unknown finalization stage " + stage);
+            }
+
+            // Save the finished stage before releasing the claim, so no one else can claim the stage in between
+            checkpointed = staged.toBuilder().finalizationStage(stage.getName()).finalizationClaimTime(null).build();
+            containerEntityService.update(fromPojo(checkpointed));
+        } catch (ContainerException | NoDockerServerException | DockerServerException | RuntimeException e) {
+            // The claim time stays as the time of the failure, so resumeStalledFinalization retries the stage
+            // once that looks stale
+            final int failures = containerEntityService.recordFinalizationStageFailure(databaseId,
+                    FINALIZATION_CLAIM_OWNER, new Date());
+            if (failures < MAX_FINALIZATION_STAGE_FAILURES) {
+                throw e;
+            }
+            log.error("Finalization stage \"{}\" for container {} has failed {} times. Giving up.",
+                    stage.getName(), databaseId, failures, e);
+            failFinalization(container, ContainerHistory.fromSystem(PersistentWorkflowUtils.FAILED + " (" + FINALIZING + ")",
+                    "Finalization stage \"" + stage.getName() + "\" failed " + failures + " times: " + e.getMessage()), userI);
+            return;
+        }
+        containerEntityService.releaseFinalizationClaim(databaseId, FINALIZATION_CLAIM_OWNER);
+
+        if (stage == FinalizationStage.UPDATE_RECORDS) {
+            log.debug("Done saving information about outputs for container {}.", databaseId);
+            checkParentOfFinalizedContainer(checkpointed, userI);
+        }
+
+        final FinalizationStage next = stage.next();
+        if (next != null) {
+            queueFinalizationStage(next, checkpointed, userI, exitCode, isSuccessfulStatus);
+        }
+    }
+
+    @VisibleForTesting
+    void queueFinalizationStage(final FinalizationStage stage,
+                                        final Container container,
+                                        final UserI userI,
+                                        final String exitCode,
+                                        final boolean isSuccessfulStatus)
+            throws ContainerException, NoDockerServerException, DockerServerException {
+        final String id = container.containerOrServiceId();
+        final ContainerFinalizingRequest request;
+        switch (stage) {
+            case INGEST_OUTPUTS:
+                request = new ContainerIngestingRequest(exitCode, isSuccessfulStatus, id, userI.getLogin());
+                break;
+            case UPDATE_RECORDS:
+                request = new ContainerRecordingRequest(exitCode, isSuccessfulStatus, id, userI.getLogin());
+                break;
+            case CLEANUP:
+                request = new ContainerCleanupRequest(exitCode, isSuccessfulStatus, id, userI.getLogin());
+                break;
+            default:
+                // The first stage runs from the finalizing queue, so it is never queued on its own
+                runFinalizationStage(stage, container, userI, exitCode, isSuccessfulStatus);
+                return;
+        }
 
-        log.debug("Done uploading files for container {}. Now saving information about outputs.", finalized);
+        try {
+            XDAT.sendJmsRequest(request);
+        } catch (Exception e) {
+            log.error("Unable to queue finalization stage \"{}\" for container {}. Running it now.",
+                    stage.getName(), container.databaseId(), e);
+            runFinalizationStage(stage, container, userI, exitCode, isSuccessfulStatus);
+        }
+    }
 
-        containerEntityService.update(fromPojo(finalized));
+    private void checkParentOfFinalizedContainer(final Container finalized, final UserI userI)
+            throws ContainerException, NoDockerServerException, DockerServerException {
+        final long databaseId = finalized.databaseId();
+        final String containerOrService = finalized.isSwarmService() ? "service" : "container";
+        final String containerOrServiceId = finalized.containerOrServiceId();
 
         // Now check if this container *is* a setup or wrapup container.
         // If so, we need to re-check the parent.
@@ -1095,9 +1451,8 @@ public class ContainerServiceImpl implements ContainerService {
         // If this is a wrapup container, parent can (maybe) be finalized.
         final Container parent = finalized.parent();
         if (parent == null) {
-            // Nothing left to do. This container is done.
+            // Nothing left to do but clean up, which is the next stage.
             log.debug("Done finalizing container {}, {} id {}.", databaseId, containerOrService, containerOrServiceId);
-            cleanupContainers(finalized);
             return;
         }
         final long parentDatabaseId = parent.databaseId();
@@ -1350,23 +1705,11 @@ public class ContainerServiceImpl implements ContainerService {
             try {
                 DockerClient.LogsParam sincePrm = since != null ? DockerClient.LogsParam.since(since) : null;
                 DockerClient.LogsParam timestampPrm =  DockerClient.LogsParam.timestamps(withTimestamps);
-                // If log path is blank, that means we have not yet saved the logs from docker. Go fetch them now.
+                // If log path is blank, that means we have not yet saved the logs from docker. Stream them from docker now.
                 if (ContainerService.STDOUT_LOG_NAME.contains(logFileName)) {
-                    if (container.isSwarmService()) {
-                        return new ByteArrayInputStream(containerControlApi.getServiceStdoutLog(container.serviceId(),
-                                timestampPrm, sincePrm).getBytes());
-                    } else {
-                        return new ByteArrayInputStream(containerControlApi.getContainerStdoutLog(container.containerId(),
-                                timestampPrm, sincePrm).getBytes());
-                    }
+                    return containerControlApi.getStdoutLogStream(ContainerSummary.create(container), timestampPrm, sincePrm);
                 } else if (ContainerService.STDERR_LOG_NAME.contains(logFileName)) {
-                    if (container.isSwarmService()) {
-                        return new ByteArrayInputStream(containerControlApi.getServiceStderrLog(container.serviceId(),
-                                timestampPrm, sincePrm).getBytes());
-                    } else {
-                        return new ByteArrayInputStream(containerControlApi.getContainerStderrLog(container.containerId(),
-                                timestampPrm, sincePrm).getBytes());
-                    }
+                    return containerControlApi.getStderrLogStream(ContainerSummary.create(container), timestampPrm, sincePrm);
                 } else {
                     return null;
                 }
@@ -1385,6 +1728,33 @@ public class ContainerServiceImpl implements ContainerService {
         return null;
     }
 
+    @Override
+    @Nullable
+    public ContainerLogChunk getLogChunk(final Container container, final String logFileName,
+                                         final long offset, final long maxLength) throws IOException {
+        final String logName;
+        if (ContainerService.STDOUT_LOG_NAME.contains(logFileName)) {
+            logName = ContainerService.STDOUT_LOG_NAME;
+        } else if (ContainerService.STDERR_LOG_NAME.contains(logFileName)) {
+            logName = ContainerService.STDERR_LOG_NAME;
+        } else {
+            return null;
+        }
+
+        final String logPath = container.getLogPath(logName);
+        if (StringUtils.isNotBlank(logPath)) {
+            final Path logFile = Paths.get(logPath);
+            if (!Files.isRegularFile(logFile)) {
+                log.error("Container {} log file {} not found. Path: {}", container.databaseId(), logName, logPath);
+                return null;
+            }
+            return LogFileReader.read(logFile, offset, maxLength, false);
+        }
+
+        final Path spoolFile = containerLogSpooler == null ? null : containerLogSpooler.getSpoolFile(container, logName);
+        return spoolFile == null ? null : LogFileReader.read(spoolFile, offset, maxLength, true);
+    }
+
     private PersistentWorkflowI getContainerWorkflow(UserI userI, final Container container) {
         String workFlowId = container.workflowId();
         return WorkflowUtils.getUniqueWorkflow(userI, workFlowId);
@@ -1712,6 +2082,16 @@ public class ContainerServiceImpl implements ContainerService {
         return ContainerEntityHistory.fromPojo(containerHistory);
     }
 
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            // "pid@host", which at least names the host
+            final String jvmName = ManagementFactory.getRuntimeMXBean().getName();
+            return jvmName.substring(jvmName.indexOf('@') + 1);
+        }
+    }
+
     private boolean exitCodeIsFailed(final String exitCode) {
         // Assume that everything is fine unless the exit code is explicitly != 0.
         // So exitCode="0", ="", =null all count as not failed.
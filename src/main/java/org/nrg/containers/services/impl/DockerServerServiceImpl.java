@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Date;
 import java.util.List;
 
 @Service
@@ -55,6 +56,13 @@ public class DockerServerServiceImpl implements DockerServerService {
         dockerServerEntityService.update(fromPojo(dockerServer));
     }
 
+    @Override
+    public void updateEventCheckTime(final DockerServer dockerServer, final Date lastEventCheckTime) {
+        if (lastEventCheckTime != null) {
+            dockerServerEntityService.updateLastEventCheckTime(dockerServer.id(), lastEventCheckTime);
+        }
+    }
+
     @Nullable
     public DockerServer toPojo(final DockerServerEntity dockerServerEntity) {
         return dockerServerEntity == null ? null : DockerServer.create(dockerServerEntity);
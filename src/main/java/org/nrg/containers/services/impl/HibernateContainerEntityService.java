@@ -5,6 +5,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.nrg.containers.daos.ContainerEntityRepository;
 import org.nrg.containers.events.model.ContainerEvent;
 import org.nrg.containers.model.command.entity.CommandType;
+import org.nrg.containers.model.container.auto.ContainerFilter;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.containers.model.container.entity.ContainerEntity;
 import org.nrg.containers.model.container.entity.ContainerEntityHistory;
 import org.nrg.containers.services.ContainerEntityService;
@@ -17,6 +19,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 
 @Slf4j
@@ -91,6 +95,17 @@ public class HibernateContainerEntityService
         return (nonfinalized == null || !nonfinalized) ? getAll() : getDao().getAllNonfinalized();
     }
 
+    @Override
+    @Nonnull
+    public List<ContainerEntity> getPage(final ContainerFilter filter, final Long after, final Integer limit) {
+        return getDao().getPage(filter, after, limit);
+    }
+
+    @Override
+    public void scroll(final ContainerFilter filter, final ContainerEntityCallback callback) throws IOException {
+        getDao().scroll(filter, callback);
+    }
+
   
     @Override
     @Nonnull
@@ -104,6 +119,18 @@ public class HibernateContainerEntityService
         return getDao().retrieveNonfinalizedServices();
     }
 
+    @Override
+    @Nonnull
+    public List<ContainerSummary> retrieveNonfinalizedServiceSummaries() {
+        return getDao().retrieveNonfinalizedServiceSummaries();
+    }
+
+    @Override
+    @Nonnull
+    public List<ContainerSummary> retrieveActiveSummaries() {
+        return getDao().retrieveActiveSummaries();
+    }
+
     @Override
     @Nonnull
     public List<ContainerEntity> retrieveContainersInFinalizingState() {
@@ -126,6 +153,11 @@ public class HibernateContainerEntityService
     public int howManyContainersAreWaiting() {
         return getDao().howManyContainersAreWaiting();
     }
+
+    @Override
+    public int backfillStatusCategories() {
+        return getDao().backfillStatusCategories();
+    }
     
     @Override
     @Nonnull
@@ -139,6 +171,47 @@ public class HibernateContainerEntityService
         return getDao().retrieveContainersForParentWithSubtype(parentId, CommandType.DOCKER_WRAPUP.getName());
     }
 
+    @Override
+    public boolean recordOutputUploading(final long outputDatabaseId, final String uploading) {
+        return getDao().recordOutputUploading(outputDatabaseId, uploading) > 0;
+    }
+
+    @Override
+    public boolean recordOutputCreated(final long outputDatabaseId, final String created) {
+        return getDao().recordOutputCreated(outputDatabaseId, created) > 0;
+    }
+
+    @Override
+    public boolean claimFinalizationStage(final long containerDatabaseId,
+                                          final @Nullable String finishedStage,
+                                          final String owner,
+                                          final Date claimTime,
+                                          final Date staleBefore) {
+        return getDao().claimFinalizationStage(containerDatabaseId, finishedStage, owner, claimTime, staleBefore) > 0;
+    }
+
+    @Override
+    public int renewFinalizationClaims(final String owner, final Date claimTime) {
+        return getDao().renewFinalizationClaims(owner, claimTime);
+    }
+
+    @Override
+    public void releaseFinalizationClaim(final long containerDatabaseId, final String owner) {
+        getDao().releaseFinalizationClaim(containerDatabaseId, owner);
+    }
+
+    @Override
+    public int recordFinalizationStageFailure(final long containerDatabaseId, final String owner, final Date failureTime) {
+        return getDao().recordFinalizationStageFailure(containerDatabaseId, owner, failureTime);
+    }
+
+    @Override
+    public int releaseFinalizationClaimsOfEarlierRuns(final String ownerPrefix,
+                                                      final String owner,
+                                                      final Date renewedBefore) {
+        return getDao().releaseFinalizationClaimsOfEarlierRuns(ownerPrefix, owner, renewedBefore);
+    }
+
     @Override
     @Nullable
     public ContainerEntity addContainerEventToHistory(final ContainerEvent containerEvent, final UserI userI) {
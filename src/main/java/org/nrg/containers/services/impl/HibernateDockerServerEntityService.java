@@ -7,6 +7,8 @@ import org.nrg.framework.orm.hibernate.AbstractHibernateEntityService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
+
 @Service
 @Transactional
 public class HibernateDockerServerEntityService
@@ -16,4 +18,9 @@ public class HibernateDockerServerEntityService
     public DockerServerEntity getServer() {
         return getDao().getUniqueEnabledServer();
     }
+
+    @Override
+    public void updateLastEventCheckTime(final long serverId, final Date lastEventCheckTime) {
+        getDao().updateLastEventCheckTime(serverId, lastEventCheckTime);
+    }
 }
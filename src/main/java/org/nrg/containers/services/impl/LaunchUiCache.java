@@ -0,0 +1,179 @@
+package org.nrg.containers.services.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.nrg.containers.model.command.auto.LaunchUi;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServerSwarmConstraint;
+import org.nrg.xft.ItemI;
+import org.nrg.xft.security.UserI;
+import org.nrg.xnat.helpers.uri.URIManager;
+import org.nrg.xnat.helpers.uri.UriParserUtils;
+import org.nrg.xnat.turbine.utils.ArchivableItem;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds launch UIs, so that opening the launch dialog again for the same object doesn't pre-resolve the command again.
+ *
+ * A UI is keyed by the user, the project, the wrapper, the request's input values, and the container server's id
+ * and swarm constraints. Any input value that is an archive URI also puts the last-modified time of its object in
+ * the key, so a UI is not served after its object is edited. Files added to a resource without touching its parent
+ * object are not noticed that way, so entries are only kept for a few minutes. {@link CommandServiceImpl} invalidates
+ * entries when it changes a command, wrapper, or configuration.
+ *
+ * The cache is local to this JVM, and so is that invalidation. When several XNAT nodes share a database, a change
+ * made through one node is seen by the others' launch dialogs only once their entries expire.
+ */
+@Slf4j
+@Component
+public class LaunchUiCache {
+    private static final int MAX_ENTRIES = 500;
+    private static final long EXPIRE_AFTER_WRITE_MINUTES = 5L;
+
+    private final Cache<Key, LaunchUi> cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    @Nullable
+    public LaunchUi get(final Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(final Key key, final LaunchUi launchUi) {
+        cache.put(key, launchUi);
+    }
+
+    public void invalidateCommand(final long commandId) {
+        final Iterator<LaunchUi> launchUis = cache.asMap().values().iterator();
+        while (launchUis.hasNext()) {
+            final Long launchUiCommandId = launchUis.next().meta().commandId();
+            if (launchUiCommandId != null && launchUiCommandId == commandId) {
+                launchUis.remove();
+            }
+        }
+    }
+
+    public void invalidateWrapper(final long wrapperId) {
+        final Iterator<LaunchUi> launchUis = cache.asMap().values().iterator();
+        while (launchUis.hasNext()) {
+            final Long launchUiWrapperId = launchUis.next().meta().wrapperId();
+            if (launchUiWrapperId != null && launchUiWrapperId == wrapperId) {
+                launchUis.remove();
+            }
+        }
+    }
+
+    public static Key key(final UserI userI,
+                          @Nullable final String project,
+                          final long commandId,
+                          @Nullable final String wrapperName,
+                          final long wrapperId,
+                          final Map<String, String> inputValues,
+                          final boolean bulkLaunch,
+                          final DockerServer server) {
+        final ImmutableMap.Builder<String, Date> lastModified = ImmutableMap.builder();
+        for (final Map.Entry<String, String> inputValue : inputValues.entrySet()) {
+            final Date inputLastModified = lastModified(inputValue.getValue());
+            if (inputLastModified != null) {
+                lastModified.put(inputValue.getKey(), inputLastModified);
+            }
+        }
+        return new Key(userI.getLogin(), project, commandId, wrapperName, wrapperId,
+                Collections.unmodifiableMap(new HashMap<>(inputValues)), bulkLaunch, lastModified.build(),
+                server.id(), server.swarmConstraints());
+    }
+
+    @Nullable
+    private static Date lastModified(@Nullable final String value) {
+        if (StringUtils.isBlank(value) || !value.startsWith("/")) {
+            return null;
+        }
+        try {
+            final URIManager.DataURIA uri = UriParserUtils.parseURI(value.startsWith("/archive") ? value : "/archive" + value);
+            if (!(uri instanceof URIManager.ArchiveItemURI)) {
+                return null;
+            }
+            final ArchivableItem item = ((URIManager.ArchiveItemURI) uri).getSecurityItem();
+            if (!(item instanceof ItemI)) {
+                return null;
+            }
+            return ((ItemI) item).getItem().getMeta().getDateProperty("last_modified");
+        } catch (Exception e) {
+            log.debug("Could not read last-modified time for \"{}\". Its launch UI will be cached by age alone.", value, e);
+            return null;
+        }
+    }
+
+    public static final class Key {
+        private final String username;
+        private final String project;
+        private final long commandId;
+        private final String wrapperName;
+        private final long wrapperId;
+        private final Map<String, String> inputValues;
+        private final boolean bulkLaunch;
+        private final Map<String, Date> lastModified;
+        // Not the whole server: its last event check time changes every few seconds
+        private final long serverId;
+        private final List<DockerServerSwarmConstraint> swarmConstraints;
+
+        private Key(final String username,
+                    final String project,
+                    final long commandId,
+                    final String wrapperName,
+                    final long wrapperId,
+                    final Map<String, String> inputValues,
+                    final boolean bulkLaunch,
+                    final Map<String, Date> lastModified,
+                    final long serverId,
+                    final List<DockerServerSwarmConstraint> swarmConstraints) {
+            this.username = username;
+            this.project = project;
+            this.commandId = commandId;
+            this.wrapperName = wrapperName;
+            this.wrapperId = wrapperId;
+            this.inputValues = inputValues;
+            this.bulkLaunch = bulkLaunch;
+            this.lastModified = lastModified;
+            this.serverId = serverId;
+            this.swarmConstraints = swarmConstraints;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key that = (Key) o;
+            return commandId == that.commandId &&
+                    wrapperId == that.wrapperId &&
+                    bulkLaunch == that.bulkLaunch &&
+                    serverId == that.serverId &&
+                    Objects.equals(username, that.username) &&
+                    Objects.equals(project, that.project) &&
+                    Objects.equals(wrapperName, that.wrapperName) &&
+                    Objects.equals(inputValues, that.inputValues) &&
+                    Objects.equals(lastModified, that.lastModified) &&
+                    Objects.equals(swarmConstraints, that.swarmConstraints);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, project, commandId, wrapperName, wrapperId, inputValues, bulkLaunch, lastModified,
+                    serverId, swarmConstraints);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.nrg.containers.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.nrg.containers.exceptions.CommandResolutionException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A command template string split ahead of time into literal text, replacement keys (e.g. #INPUT_NAME#),
+ * and a ^jsonpath^ substring, so that resolving it is a single pass into one {@link StringBuilder}
+ * rather than a {@link String#replace} over the whole template for every key.
+ *
+ * Where keys could overlap, the longest key starting at a position wins.
+ */
+public class CompiledTemplate {
+    private static final Pattern JSONPATH_SUBSTRING = Pattern.compile("\\^(wrapper:)?(.+)\\^");
+    private static final Comparator<String> LONGEST_FIRST = new Comparator<String>() {
+        @Override
+        public int compare(final String first, final String second) {
+            return Integer.compare(second.length(), first.length());
+        }
+    };
+
+    private final String template;
+    private final ImmutableSet<String> replacementKeys;
+    private final ImmutableList<Segment> segments;
+
+    /**
+     * Resolves a ^jsonpath^ substring. Returns the substring unchanged if the search found nothing.
+     */
+    public interface JsonpathResolver {
+        String resolve(String jsonpathSubstring) throws CommandResolutionException;
+    }
+
+    private CompiledTemplate(final String template,
+                             final ImmutableSet<String> replacementKeys,
+                             final ImmutableList<Segment> segments) {
+        this.template = template;
+        this.replacementKeys = replacementKeys;
+        this.segments = segments;
+    }
+
+    /**
+     * @param replacementKeys Every key that may be replaced in this template
+     */
+    public static CompiledTemplate compile(final String template, final Collection<String> replacementKeys) {
+        final List<String> keysLongestFirst = new ArrayList<>(replacementKeys);
+        keysLongestFirst.removeAll(Collections.singleton(""));
+        Collections.sort(keysLongestFirst, LONGEST_FIRST);
+
+        final ImmutableList.Builder<Segment> segments = ImmutableList.builder();
+        final Matcher jsonpathMatcher = JSONPATH_SUBSTRING.matcher(template);
+        if (jsonpathMatcher.find()) {
+            tokenize(template.substring(0, jsonpathMatcher.start()), keysLongestFirst, segments);
+            final ImmutableList.Builder<Segment> unresolved = ImmutableList.builder();
+            tokenize(jsonpathMatcher.group(0), keysLongestFirst, unresolved);
+            segments.add(Segment.jsonpath(jsonpathMatcher.group(0), unresolved.build()));
+            tokenize(template.substring(jsonpathMatcher.end()), keysLongestFirst, segments);
+        } else {
+            tokenize(template, keysLongestFirst, segments);
+        }
+        return new CompiledTemplate(template, ImmutableSet.copyOf(replacementKeys), segments.build());
+    }
+
+    public String template() {
+        return template;
+    }
+
+    /**
+     * @param valuesMap Values by replacement key. Keys that are not in the map are left in place.
+     */
+    public String resolve(final Map<String, String> valuesMap, final JsonpathResolver jsonpathResolver)
+            throws CommandResolutionException {
+        if (!replacementKeys.containsAll(valuesMap.keySet())) {
+            // Not compiled for these keys. Fall back to replacing them one at a time.
+            String resolved = jsonpathResolver.resolve(template);
+            for (final Map.Entry<String, String> replacement : valuesMap.entrySet()) {
+                resolved = resolved.replace(replacement.getKey(), replacement.getValue() == null ? "" : replacement.getValue());
+            }
+            return resolved;
+        }
+
+        final StringBuilder resolved = new StringBuilder(template.length());
+        for (final Segment segment : segments) {
+            if (segment.kind == Kind.JSONPATH) {
+                final String jsonpathValue = jsonpathResolver.resolve(segment.text);
+                if (jsonpathValue.equals(segment.text)) {
+                    appendAll(segment.unresolved, valuesMap, resolved);
+                } else {
+                    resolved.append(jsonpathValue);
+                }
+            } else {
+                append(segment, valuesMap, resolved);
+            }
+        }
+        return resolved.toString();
+    }
+
+    private static void appendAll(final List<Segment> segments, final Map<String, String> valuesMap, final StringBuilder resolved) {
+        for (final Segment segment : segments) {
+            append(segment, valuesMap, resolved);
+        }
+    }
+
+    private static void append(final Segment segment, final Map<String, String> valuesMap, final StringBuilder resolved) {
+        if (segment.kind == Kind.KEY && valuesMap.containsKey(segment.text)) {
+            final String value = valuesMap.get(segment.text);
+            resolved.append(value == null ? "" : value);
+        } else {
+            resolved.append(segment.text);
+        }
+    }
+
+    private static void tokenize(final String text, final List<String> keysLongestFirst, final ImmutableList.Builder<Segment> segments) {
+        int literalStart = 0;
+        int position = 0;
+        while (position < text.length()) {
+            final String key = keyAt(text, position, keysLongestFirst);
+            if (key == null) {
+                position++;
+                continue;
+            }
+            if (position > literalStart) {
+                segments.add(Segment.literal(text.substring(literalStart, position)));
+            }
+            segments.add(Segment.key(key));
+            position += key.length();
+            literalStart = position;
+        }
+        if (literalStart < text.length()) {
+            segments.add(Segment.literal(text.substring(literalStart)));
+        }
+    }
+
+    private static String keyAt(final String text, final int position, final List<String> keysLongestFirst) {
+        for (final String key : keysLongestFirst) {
+            if (text.startsWith(key, position)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private enum Kind {
+        LITERAL, KEY, JSONPATH
+    }
+
+    private static class Segment {
+        private final Kind kind;
+        private final String text;
+        private final ImmutableList<Segment> unresolved;
+
+        private Segment(final Kind kind, final String text, final ImmutableList<Segment> unresolved) {
+            this.kind = kind;
+            this.text = text;
+            this.unresolved = unresolved;
+        }
+
+        private static Segment literal(final String text) {
+            return new Segment(Kind.LITERAL, text, ImmutableList.<Segment>of());
+        }
+
+        private static Segment key(final String key) {
+            return new Segment(Kind.KEY, key, ImmutableList.<Segment>of());
+        }
+
+        /**
+         * @param unresolved The segments to use in place of the jsonpath substring if the search finds nothing
+         */
+        private static Segment jsonpath(final String text, final ImmutableList<Segment> unresolved) {
+            return new Segment(Kind.JSONPATH, text, unresolved);
+        }
+    }
+}
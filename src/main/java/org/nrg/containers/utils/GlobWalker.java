@@ -0,0 +1,99 @@
+package org.nrg.containers.utils;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the files under an output's root directory that match its glob.
+ *
+ * The glob uses {@link java.nio.file.FileSystem#getPathMatcher(String)} syntax and is matched against each path
+ * relative to the root, so {@code *.nii} only matches files directly in the root and {@code **}{@code /*.nii}
+ * matches them in any subdirectory. A matching directory is returned whole and not searched further.
+ *
+ * Matches are returned as a flat list. When some of them are in subdirectories (see {@link #hasNestedMatches}),
+ * they have to be uploaded at their paths relative to the root, or files with the same name in different
+ * subdirectories would replace one another.
+ */
+@Slf4j
+public class GlobWalker {
+    /**
+     * @param rootPath A directory
+     * @param glob     The glob to match, or blank for everything directly in the directory
+     * @return A new list of the matching files and directories, or an empty list if the root is not a directory
+     */
+    public static List<File> match(final String rootPath, @Nullable final String glob) throws IOException {
+        final Path root = Paths.get(rootPath);
+        if (!Files.isDirectory(root)) {
+            return Lists.newArrayList();
+        }
+
+        if (StringUtils.isBlank(glob)) {
+            final File[] files = root.toFile().listFiles();
+            if (files == null) {
+                return Lists.newArrayList();
+            }
+            final List<File> children = Lists.newArrayList(files);
+            Collections.sort(children);
+            return children;
+        }
+
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        final List<File> matched = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                if (!dir.equals(root) && matcher.matches(root.relativize(dir))) {
+                    matched.add(dir.toFile());
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (matcher.matches(root.relativize(file))) {
+                    matched.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                log.warn("Could not read {} while matching glob \"{}\".", file, glob, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return matched;
+    }
+
+    /**
+     * @param rootPath The directory the matches were found in
+     * @param matches  Files and directories returned by {@link #match(String, String)}
+     * @return Whether any of the matches is below a subdirectory of the root rather than directly in it
+     */
+    public static boolean hasNestedMatches(final String rootPath, final List<File> matches) {
+        final Path root = Paths.get(rootPath);
+        for (final File match : matches) {
+            if (!root.equals(match.toPath().getParent())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
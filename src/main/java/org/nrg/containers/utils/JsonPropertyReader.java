@@ -0,0 +1,76 @@
+package org.nrg.containers.utils;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+import java.lang.reflect.AccessibleObject;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads an object's properties by the names they have when the object is serialized to JSON,
+ * without serializing it. The accessors for each class are looked up once.
+ */
+public class JsonPropertyReader {
+    private final ObjectMapper mapper;
+    private final ConcurrentMap<Class<?>, Map<String, AnnotatedMember>> accessorsByClass = new ConcurrentHashMap<>();
+
+    public JsonPropertyReader(final ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @throws ObjectMatcher.CannotEvaluateException If the object has no serialized property with this name,
+     *                                               or it could not be read
+     */
+    public Object read(final Object target, final String jsonName) throws ObjectMatcher.CannotEvaluateException {
+        final AnnotatedMember accessor = accessors(target.getClass()).get(jsonName);
+        if (accessor == null) {
+            throw new ObjectMatcher.CannotEvaluateException("No property \"" + jsonName + "\" on " + target.getClass().getSimpleName());
+        }
+        try {
+            return accessor.getValue(target);
+        } catch (RuntimeException e) {
+            throw new ObjectMatcher.CannotEvaluateException("Could not read property \"" + jsonName + "\"");
+        }
+    }
+
+    private Map<String, AnnotatedMember> accessors(final Class<?> type) {
+        final Map<String, AnnotatedMember> cached = accessorsByClass.get(type);
+        if (cached != null) {
+            return cached;
+        }
+
+        final BeanDescription description = mapper.getSerializationConfig().introspect(mapper.constructType(type));
+        final Map<String, AnnotatedMember> accessors = new HashMap<>();
+        for (final BeanPropertyDefinition property : description.findProperties()) {
+            final AnnotatedMember accessor = property.getAccessor();
+            if (accessor != null) {
+                makeAccessible(accessor);
+                accessors.put(property.getName(), accessor);
+            }
+        }
+        final Map<String, AnnotatedMember> unmodifiable = Collections.unmodifiableMap(accessors);
+        accessorsByClass.putIfAbsent(type, unmodifiable);
+        return unmodifiable;
+    }
+
+    /**
+     * Jackson serializes private fields and non-public getters annotated with @JsonProperty,
+     * so we have to be able to read them too.
+     */
+    private static void makeAccessible(final AnnotatedMember accessor) {
+        if (accessor.getMember() instanceof AccessibleObject) {
+            try {
+                ((AccessibleObject) accessor.getMember()).setAccessible(true);
+            } catch (SecurityException ignored) {
+                // We'll fail to read it, and the caller will fall back to JSONPath
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.nrg.containers.utils;
+
+import org.nrg.containers.model.container.auto.ContainerLogChunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads container log files from a byte offset with positioned reads, so each poll costs only the bytes it returns.
+ * Reads go into a buffer that each thread keeps between calls, rather than a new buffer or mapping per poll.
+ */
+public final class LogFileReader {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    // A thread keeps its buffer up to this size. Bigger reads get a buffer of their own.
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<>();
+
+    private LogFileReader() {}
+
+    /**
+     * Read at most maxLength bytes starting at offset.
+     *
+     * If the log may still grow, the chunk ends on a line break so a client never sees half a line. If the
+     * chunk ends in the middle of the file it is cut back to a whole UTF-8 character.
+     *
+     * @param growing True if the file is still being written, e.g. it is spooled from a running container
+     */
+    public static ContainerLogChunk read(final Path file, final long offset, final long maxLength, final boolean growing)
+            throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long start = Math.min(Math.max(offset, 0L), size);
+            final int length = (int) Math.min(Math.min(maxLength, Integer.MAX_VALUE), size - start);
+
+            final ByteBuffer bytes = readFully(channel, start, buffer(length));
+
+            final boolean reachedEnd = start + bytes.limit() == size;
+            final int usable;
+            if (reachedEnd && !growing) {
+                usable = bytes.limit();
+            } else {
+                usable = usableLength(bytes, reachedEnd);
+            }
+            bytes.limit(usable);
+
+            final long nextOffset = start + usable;
+            return ContainerLogChunk.create(StandardCharsets.UTF_8.decode(bytes).toString(),
+                    start, nextOffset, size, !growing && nextOffset == size);
+        }
+    }
+
+    /**
+     * @return A cleared buffer with room for exactly length bytes
+     */
+    private static ByteBuffer buffer(final int length) {
+        if (length > MAX_REUSED_BUFFER_SIZE) {
+            return ByteBuffer.allocate(length);
+        }
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer == null || buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, INITIAL_BUFFER_SIZE));
+            BUFFERS.set(buffer);
+        }
+        buffer.clear();
+        buffer.limit(length);
+        return buffer;
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long start, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @param reachedEnd True if the bytes run to the current end of a file that is still growing
+     * @return The number of bytes up to and including the last line break. If there is none and more of the line
+     *         is still to come, zero. Otherwise the number of bytes up to the last whole UTF-8 character.
+     */
+    private static int usableLength(final ByteBuffer bytes, final boolean reachedEnd) {
+        final int limit = bytes.limit();
+        for (int i = limit - 1; i >= 0; i--) {
+            if (bytes.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        if (reachedEnd) {
+            return 0;
+        }
+
+        // One line is longer than the chunk. Don't split a character.
+        int lead = limit - 1;
+        while (lead >= 0 && (bytes.get(lead) & 0xC0) == 0x80) {
+            lead--;
+        }
+        if (lead < 0) {
+            return limit;
+        }
+        final int leadByte = bytes.get(lead) & 0xFF;
+        final int charLength = leadByte >= 0xF0 ? 4 : leadByte >= 0xE0 ? 3 : leadByte >= 0xC0 ? 2 : 1;
+        return limit - lead < charLength ? lead : limit;
+    }
+}
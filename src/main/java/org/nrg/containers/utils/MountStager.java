@@ -0,0 +1,221 @@
+package org.nrg.containers.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Stages archive files into a build directory for a writable mount, without copying them when it doesn't have to.
+ *
+ * <ol>
+ *     <li>Reflink: clone the files with {@code cp --reflink=always}. The clones share blocks with the archive until
+ *     the container writes to them. Only some filesystems (e.g. btrfs, XFS) support it, and only within one
+ *     filesystem. A pair of filesystems that says it can't clone is not tried again; any other failure, such as a
+ *     file we can't read or a full disk, only falls back for that mount.</li>
+ *     <li>Hard links: link the files into the build directory. A link is the archive file itself, so this is
+ *     only done when the container runs as a known, unprivileged user. Any file that user could write in place
+ *     is copied instead; the container can still replace a linked file, which breaks the link and leaves the
+ *     archive alone.</li>
+ *     <li>Copy: copy everything, as before.</li>
+ * </ol>
+ */
+@Slf4j
+public class MountStager {
+    public enum Strategy {
+        REFLINK,
+        HARDLINK,
+        COPY;
+
+        public String getName() {
+            return name().toLowerCase();
+        }
+    }
+
+    // What cp says when the filesystems can't clone (EOPNOTSUPP, EXDEV), or when this cp has no --reflink=always
+    private static final Pattern REFLINK_UNSUPPORTED = Pattern.compile(
+            "not supported|invalid cross-device link|unrecognized option|invalid argument 'always'",
+            Pattern.CASE_INSENSITIVE);
+
+    private enum ReflinkResult {
+        CLONED,
+        UNSUPPORTED,
+        FAILED
+    }
+
+    private final boolean tryReflink;
+    private final ConcurrentMap<List<FileStore>, Boolean> reflinkUnsupported = new ConcurrentHashMap<>();
+
+    public MountStager() {
+        this(true);
+    }
+
+    public MountStager(final boolean tryReflink) {
+        this.tryReflink = tryReflink;
+    }
+
+    /**
+     * @param source        An archive file or directory
+     * @param destination   For a directory, the existing build directory to fill; for a file, the path of the copy
+     * @param containerUser The user the container runs as, in docker's "uid[:gid]" form, or null for the image's user
+     * @return How the files were staged
+     */
+    public Strategy stage(final Path source, final Path destination, @Nullable final String containerUser) throws IOException {
+        final List<FileStore> fileStores = Arrays.asList(Files.getFileStore(source), Files.getFileStore(destination.getParent()));
+        if (tryReflink && !reflinkUnsupported.containsKey(fileStores)) {
+            final ReflinkResult result = reflink(source, destination);
+            if (result == ReflinkResult.CLONED) {
+                return Strategy.REFLINK;
+            }
+            if (result == ReflinkResult.UNSUPPORTED) {
+                reflinkUnsupported.put(fileStores, Boolean.TRUE);
+            }
+            clean(source, destination);
+        }
+
+        final Integer containerUid = unprivilegedUid(containerUser);
+        if (containerUid != null && fileStores.get(0).equals(fileStores.get(1))) {
+            hardlink(source, destination, containerUid);
+            return Strategy.HARDLINK;
+        }
+
+        copy(source, destination);
+        return Strategy.COPY;
+    }
+
+    private ReflinkResult reflink(final Path source, final Path destination) {
+        final List<String> command = new ArrayList<>(Arrays.asList("cp", "--reflink=always", "--preserve=mode,timestamps"));
+        if (Files.isDirectory(source)) {
+            command.add("-R");
+            command.add("-L");
+            command.add(source.toString() + "/.");
+        } else {
+            command.add(source.toString());
+        }
+        command.add(destination.toString());
+
+        try {
+            final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            final String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+            if (process.waitFor() != 0) {
+                log.debug("Could not clone {} into {}: {}", source, destination, output.trim());
+                return reflinkUnsupported(output) ? ReflinkResult.UNSUPPORTED : ReflinkResult.FAILED;
+            }
+            return ReflinkResult.CLONED;
+        } catch (IOException e) {
+            // No cp to run
+            log.debug("Could not clone {} into {}.", source, destination, e);
+            return ReflinkResult.UNSUPPORTED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ReflinkResult.FAILED;
+        }
+    }
+
+    /**
+     * @return Whether cp's output says the filesystems can't clone, rather than that something went wrong with a file
+     */
+    static boolean reflinkUnsupported(final String cpOutput) {
+        return REFLINK_UNSUPPORTED.matcher(cpOutput).find();
+    }
+
+    private void hardlink(final Path source, final Path destination, final int containerUid) throws IOException {
+        // Follow links into directories, the way the reflink and copy strategies do
+        Files.walkFileTree(source, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(destination.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                final Path target = destination.resolve(source.relativize(file).toString());
+                if (attrs.isSymbolicLink()) {
+                    // Only a broken link is visited as a link when following links
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+                } else if (Files.isSymbolicLink(file) || containerCanWrite(file, containerUid)) {
+                    // A linked file may be on another filesystem, so copy its contents rather than link to it
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    try {
+                        Files.createLink(target, file);
+                    } catch (IOException e) {
+                        // A linked directory may be on another filesystem
+                        log.debug("Could not link {} to {}. Copying it.", target, file, e);
+                        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void copy(final Path source, final Path destination) throws IOException {
+        if (Files.isDirectory(source)) {
+            FileUtils.copyDirectory(source.toFile(), destination.toFile());
+        } else {
+            Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void clean(final Path source, final Path destination) throws IOException {
+        if (Files.isDirectory(source)) {
+            FileUtils.cleanDirectory(destination.toFile());
+        } else {
+            Files.deleteIfExists(destination);
+        }
+    }
+
+    private boolean containerCanWrite(final Path file, final int containerUid) {
+        try {
+            final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            if (permissions.contains(PosixFilePermission.OTHERS_WRITE) || permissions.contains(PosixFilePermission.GROUP_WRITE)) {
+                return true;
+            }
+            return ((Integer) Files.getAttribute(file, "unix:uid")) == containerUid;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            // We can't tell, so don't risk it
+            return true;
+        }
+    }
+
+    /**
+     * @return The numeric uid from a docker "uid[:gid]" user, or null if it is blank, a name, or root
+     */
+    @Nullable
+    static Integer unprivilegedUid(@Nullable final String containerUser) {
+        final String uid = StringUtils.substringBefore(StringUtils.trimToEmpty(containerUser), ":");
+        if (!StringUtils.isNumeric(uid) || uid.isEmpty()) {
+            return null;
+        }
+        try {
+            final int parsed = Integer.parseInt(uid);
+            return parsed == 0 ? null : parsed;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
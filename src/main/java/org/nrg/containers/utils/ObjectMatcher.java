@@ -0,0 +1,484 @@
+package org.nrg.containers.utils;
+
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates a JSONPath filter expression, the part inside [?( )], directly against an object's properties.
+ * This lets us apply a wrapper input's matcher to an XNAT model object without serializing it to JSON.
+ *
+ * Supported:
+ * <ul>
+ *     <li>Properties of the current object: {@code @.name} or {@code @['name']}</li>
+ *     <li>String, number, boolean and null literals, lists of literals, and /regex/flags</li>
+ *     <li>{@code ==}, {@code !=}, {@code =~}, {@code in}, {@code nin}</li>
+ *     <li>{@code &&}, {@code ||}, {@code !}, parentheses, and bare {@code @.name} existence checks</li>
+ * </ul>
+ *
+ * Anything else, including nested property paths, fails to compile. Anything we can't be sure would evaluate the
+ * same way as JSONPath, such as comparing a string to a number or reading a null property, throws
+ * {@link CannotEvaluateException} when evaluated. In both cases callers should fall back to JSONPath.
+ */
+public class ObjectMatcher {
+    private final String expression;
+    private final Node root;
+
+    private ObjectMatcher(final String expression, final Node root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * @return A matcher. Check {@link #isSupported()} before evaluating it.
+     */
+    public static ObjectMatcher compile(final String expression) {
+        Node root;
+        try {
+            final Parser parser = new Parser(expression);
+            root = parser.parseOr();
+            parser.skipWhitespace();
+            if (!parser.atEnd()) {
+                root = null;
+            }
+        } catch (UnsupportedExpressionException e) {
+            root = null;
+        }
+        return new ObjectMatcher(expression, root);
+    }
+
+    public String expression() {
+        return expression;
+    }
+
+    public boolean isSupported() {
+        return root != null;
+    }
+
+    public boolean matches(final Object target, final JsonPropertyReader propertyReader) throws CannotEvaluateException {
+        if (root == null) {
+            throw new CannotEvaluateException("Unsupported matcher expression: " + expression);
+        }
+        return root.test(target, propertyReader);
+    }
+
+    /**
+     * This matcher can't be evaluated against this object without JSONPath.
+     */
+    public static class CannotEvaluateException extends Exception {
+        public CannotEvaluateException(final String message) {
+            super(message);
+        }
+    }
+
+    private static class UnsupportedExpressionException extends Exception {}
+
+    private interface Node {
+        boolean test(Object target, JsonPropertyReader propertyReader) throws CannotEvaluateException;
+    }
+
+    private interface Operand {
+        Object value(Object target, JsonPropertyReader propertyReader) throws CannotEvaluateException;
+    }
+
+    private static class Property implements Operand, Node {
+        private final String name;
+
+        private Property(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object value(final Object target, final JsonPropertyReader propertyReader) throws CannotEvaluateException {
+            final Object value = propertyReader.read(target, name);
+            if (value == null) {
+                // We can't tell whether JSONPath would have seen a null or no property at all
+                throw new CannotEvaluateException("Property \"" + name + "\" is null");
+            }
+            if (!(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+                throw new CannotEvaluateException("Property \"" + name + "\" is not a simple value");
+            }
+            return value;
+        }
+
+        @Override
+        public boolean test(final Object target, final JsonPropertyReader propertyReader) throws CannotEvaluateException {
+            // Existence check
+            return value(target, propertyReader) != null;
+        }
+    }
+
+    private static class Literal implements Operand {
+        private final Object value;
+
+        private Literal(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object value(final Object target, final JsonPropertyReader propertyReader) {
+            return value;
+        }
+    }
+
+    private static class Not implements Node {
+        private final Node node;
+
+        private Not(final Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean test(final Object target, final JsonPropertyReader propertyReader) throws CannotEvaluateException {
+            return !node.test(target, propertyReader);
+        }
+    }
+
+    private static class And implements Node {
+        private final List<Node> nodes;
+
+        private And(final List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean test(final Object target, final JsonPropertyReader propertyReader) throws CannotEvaluateException {
+            for (final Node node : nodes) {
+                if (!node.test(target, propertyReader)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Or implements Node {
+        private final List<Node> nodes;
+
+        private Or(final List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean test(final Object target, final JsonPropertyReader propertyReader) throws CannotEvaluateException {
+            for (final Node node : nodes) {
+                if (node.test(target, propertyReader)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Comparison implements Node {
+        private final Operand left;
+        private final String operator;
+        private final Operand right;
+
+        private Comparison(final Operand left, final String operator, final Operand right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(final Object target, final JsonPropertyReader propertyReader) throws CannotEvaluateException {
+            final Object leftValue = left.value(target, propertyReader);
+            final Object rightValue = right.value(target, propertyReader);
+            switch (operator) {
+                case "==":
+                    return valuesEqual(leftValue, rightValue);
+                case "!=":
+                    return !valuesEqual(leftValue, rightValue);
+                case "=~":
+                    return regexMatches(leftValue, rightValue);
+                case "in":
+                    return contains(rightValue, leftValue);
+                case "nin":
+                    return !contains(rightValue, leftValue);
+                default:
+                    throw new CannotEvaluateException("Unsupported operator " + operator);
+            }
+        }
+
+        private static boolean valuesEqual(final Object left, final Object right) throws CannotEvaluateException {
+            if (left == null || right == null) {
+                return left == right;
+            }
+            if (left instanceof Number && right instanceof Number) {
+                return new BigDecimal(left.toString()).compareTo(new BigDecimal(right.toString())) == 0;
+            }
+            if (left instanceof String && right instanceof String || left instanceof Boolean && right instanceof Boolean) {
+                return left.equals(right);
+            }
+            throw new CannotEvaluateException("Cannot compare " + left + " with " + right);
+        }
+
+        private static boolean regexMatches(final Object left, final Object right) throws CannotEvaluateException {
+            if (left instanceof String && right instanceof Pattern) {
+                return ((Pattern) right).matcher((String) left).matches();
+            }
+            throw new CannotEvaluateException("Cannot match " + left + " against " + right);
+        }
+
+        private static boolean contains(final Object list, final Object value) throws CannotEvaluateException {
+            if (!(list instanceof List)) {
+                throw new CannotEvaluateException("Cannot look for " + value + " in " + list);
+            }
+            for (final Object item : (List<?>) list) {
+                if (valuesEqual(value, item)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Parser {
+        private final String expression;
+        private int position = 0;
+
+        private Parser(final String expression) {
+            this.expression = expression;
+        }
+
+        private Node parseOr() throws UnsupportedExpressionException {
+            final ImmutableList.Builder<Node> nodes = ImmutableList.builder();
+            nodes.add(parseAnd());
+            while (consume("||")) {
+                nodes.add(parseAnd());
+            }
+            final List<Node> built = nodes.build();
+            return built.size() == 1 ? built.get(0) : new Or(built);
+        }
+
+        private Node parseAnd() throws UnsupportedExpressionException {
+            final ImmutableList.Builder<Node> nodes = ImmutableList.builder();
+            nodes.add(parseUnary());
+            while (consume("&&")) {
+                nodes.add(parseUnary());
+            }
+            final List<Node> built = nodes.build();
+            return built.size() == 1 ? built.get(0) : new And(built);
+        }
+
+        private Node parseUnary() throws UnsupportedExpressionException {
+            skipWhitespace();
+            if (peek('!') && !expression.startsWith("!=", position)) {
+                position++;
+                return new Not(parseUnary());
+            }
+            if (consume("(")) {
+                final Node inner = parseOr();
+                if (!consume(")")) {
+                    throw new UnsupportedExpressionException();
+                }
+                return inner;
+            }
+
+            final Operand left = parseOperand();
+            final String operator = parseOperator();
+            if (operator == null) {
+                if (left instanceof Property) {
+                    return (Property) left;
+                }
+                throw new UnsupportedExpressionException();
+            }
+            return new Comparison(left, operator, parseOperand());
+        }
+
+        private String parseOperator() {
+            skipWhitespace();
+            for (final String operator : new String[] {"==", "!=", "=~"}) {
+                if (consume(operator)) {
+                    return operator;
+                }
+            }
+            for (final String operator : new String[] {"nin", "in"}) {
+                if (expression.startsWith(operator, position) &&
+                        position + operator.length() < expression.length() &&
+                        !Character.isLetterOrDigit(expression.charAt(position + operator.length()))) {
+                    position += operator.length();
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        private Operand parseOperand() throws UnsupportedExpressionException {
+            skipWhitespace();
+            if (atEnd()) {
+                throw new UnsupportedExpressionException();
+            }
+            final char c = expression.charAt(position);
+            if (c == '@') {
+                return parseProperty();
+            } else if (c == '\'' || c == '"') {
+                return new Literal(parseString());
+            } else if (c == '/') {
+                return new Literal(parseRegex());
+            } else if (c == '[') {
+                return new Literal(parseList());
+            } else {
+                return new Literal(parseKeywordOrNumber());
+            }
+        }
+
+        private Property parseProperty() throws UnsupportedExpressionException {
+            position++; // @
+            final String name;
+            if (consume(".")) {
+                final int start = position;
+                while (!atEnd() && isNameCharacter(expression.charAt(position))) {
+                    position++;
+                }
+                name = expression.substring(start, position);
+            } else if (consume("[")) {
+                skipWhitespace();
+                name = parseString();
+                if (!consume("]")) {
+                    throw new UnsupportedExpressionException();
+                }
+            } else {
+                throw new UnsupportedExpressionException();
+            }
+            if (name.isEmpty() || peek('.') || peek('[')) {
+                // Nested paths are left to JSONPath
+                throw new UnsupportedExpressionException();
+            }
+            return new Property(name);
+        }
+
+        private String parseString() throws UnsupportedExpressionException {
+            if (atEnd()) {
+                throw new UnsupportedExpressionException();
+            }
+            final char quote = expression.charAt(position++);
+            if (quote != '\'' && quote != '"') {
+                throw new UnsupportedExpressionException();
+            }
+            final StringBuilder value = new StringBuilder();
+            while (!atEnd()) {
+                final char c = expression.charAt(position++);
+                if (c == quote) {
+                    return value.toString();
+                }
+                if (c == '\\') {
+                    // Escape sequences beyond an escaped quote or backslash are left to JSONPath
+                    if (atEnd() || (expression.charAt(position) != quote && expression.charAt(position) != '\\')) {
+                        throw new UnsupportedExpressionException();
+                    }
+                    value.append(expression.charAt(position++));
+                } else {
+                    value.append(c);
+                }
+            }
+            throw new UnsupportedExpressionException();
+        }
+
+        private Pattern parseRegex() throws UnsupportedExpressionException {
+            position++; // opening /
+            final int start = position;
+            while (!atEnd() && !(expression.charAt(position) == '/' && expression.charAt(position - 1) != '\\')) {
+                position++;
+            }
+            if (atEnd()) {
+                throw new UnsupportedExpressionException();
+            }
+            final String regex = expression.substring(start, position++);
+            int flags = 0;
+            while (!atEnd() && Character.isLetter(expression.charAt(position))) {
+                switch (expression.charAt(position++)) {
+                    case 'd': flags |= Pattern.UNIX_LINES; break;
+                    case 'i': flags |= Pattern.CASE_INSENSITIVE; break;
+                    case 'x': flags |= Pattern.COMMENTS; break;
+                    case 'm': flags |= Pattern.MULTILINE; break;
+                    case 's': flags |= Pattern.DOTALL; break;
+                    case 'u': flags |= Pattern.UNICODE_CASE; break;
+                    default: throw new UnsupportedExpressionException();
+                }
+            }
+            try {
+                return Pattern.compile(regex, flags);
+            } catch (RuntimeException e) {
+                throw new UnsupportedExpressionException();
+            }
+        }
+
+        private List<Object> parseList() throws UnsupportedExpressionException {
+            position++; // [
+            final ImmutableList.Builder<Object> items = ImmutableList.builder();
+            skipWhitespace();
+            if (consume("]")) {
+                return items.build();
+            }
+            do {
+                skipWhitespace();
+                if (peek('\'') || peek('"')) {
+                    items.add(parseString());
+                } else {
+                    final Object item = parseKeywordOrNumber();
+                    if (item == null) {
+                        // Nulls in lists are left to JSONPath
+                        throw new UnsupportedExpressionException();
+                    }
+                    items.add(item);
+                }
+            } while (consume(","));
+            if (!consume("]")) {
+                throw new UnsupportedExpressionException();
+            }
+            return items.build();
+        }
+
+        private Object parseKeywordOrNumber() throws UnsupportedExpressionException {
+            for (final String keyword : new String[] {"true", "false", "null"}) {
+                if (expression.startsWith(keyword, position)) {
+                    position += keyword.length();
+                    return keyword.equals("null") ? null : Boolean.valueOf(keyword);
+                }
+            }
+            final int start = position;
+            if (peek('-')) {
+                position++;
+            }
+            while (!atEnd() && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+                position++;
+            }
+            try {
+                return new BigDecimal(expression.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw new UnsupportedExpressionException();
+            }
+        }
+
+        private boolean consume(final String token) {
+            skipWhitespace();
+            if (expression.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean peek(final char c) {
+            return !atEnd() && expression.charAt(position) == c;
+        }
+
+        private void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean atEnd() {
+            return position >= expression.length();
+        }
+
+        private static boolean isNameCharacter(final char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+        }
+    }
+}
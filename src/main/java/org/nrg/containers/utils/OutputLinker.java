@@ -0,0 +1,236 @@
+package org.nrg.containers.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Puts output files into a resource directory by hard-linking them rather than copying them, when the build
+ * directory and the archive are on the same filesystem. A link is made in one step whatever the size of the file,
+ * and the build directory is left as it was, so other outputs can still read the same files.
+ *
+ * Files are laid out the way {@link org.nrg.xnat.services.archive.CatalogService#insertResources} lays them out:
+ * a file goes directly into the resource directory, and a directory goes in whole, under its own name.
+ *
+ * The files are first linked into a staging directory next to the archive, and are only moved into the resource
+ * directory once all of them are in place. A failure while linking leaves nothing in the archive.
+ * If the move fails, the caller copies the files with {@link #copyInto(List, Path)} instead.
+ *
+ * A link shares its file with the build directory, so only files owned by the archive's owner that no one else can
+ * write are linked. Anything else is copied, which gives the archive its own file with the archive's owner.
+ * Once linked, the shared file has group and other write permission taken away again, in case they were granted
+ * between the check and the link. The owner, the archive's owner, can still replace or update it.
+ * Linux's {@code fs.protected_hardlinks} setting also refuses links to files the linking user doesn't own, so with
+ * it on, outputs written by a container running as another user are copied as before.
+ */
+@Slf4j
+public class OutputLinker {
+    /**
+     * @return Whether all the files are on the same filesystem as the archive directory
+     */
+    public static boolean canLink(final List<File> toUpload, final Path archiveDirectory) {
+        if (toUpload.isEmpty()) {
+            return false;
+        }
+        try {
+            final FileStore archiveStore = Files.getFileStore(archiveDirectory);
+            for (final File file : toUpload) {
+                if (!archiveStore.equals(Files.getFileStore(file.toPath()))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            log.debug("Could not compare the filesystems of {} and {}.", toUpload, archiveDirectory, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return A new, empty directory on the same filesystem as the archive directory, to link files into
+     */
+    public static Path createStagingDirectory(final Path archiveDirectory) throws IOException {
+        return Files.createTempDirectory(archiveDirectory, ".container-output-");
+    }
+
+    /**
+     * Links the files into a directory. A file that can't be linked (for instance, because it is on another
+     * filesystem after all, or it isn't safe to share) is copied instead.
+     *
+     * @return The number of files that had to be copied
+     */
+    public static int linkInto(final List<File> toUpload, final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        int copied = 0;
+        for (final File file : toUpload) {
+            final Path source = file.toPath();
+            copied += linkOrCopy(source, directory.resolve(source.getFileName().toString()));
+        }
+        return copied;
+    }
+
+    /**
+     * Links the files into a directory at their paths relative to a root directory they are all under, rather than
+     * by name alone, so files with the same name in different subdirectories of the root stay apart.
+     * Files are linked or copied as by {@link #linkInto(List, Path)}.
+     *
+     * @return The number of files that had to be copied
+     */
+    public static int linkInto(final List<File> toUpload, final Path root, final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        int copied = 0;
+        for (final File file : toUpload) {
+            final Path source = file.toPath();
+            final Path destination = directory.resolve(root.relativize(source).toString());
+            Files.createDirectories(destination.getParent());
+            copied += linkOrCopy(source, destination);
+        }
+        return copied;
+    }
+
+    /**
+     * Moves everything in the staging directory into the resource directory. Both are on the same filesystem,
+     * so each move is a rename.
+     */
+    public static void moveInto(final Path stagingDirectory, final Path resourceDirectory) throws IOException {
+        Files.createDirectories(resourceDirectory);
+        try (final DirectoryStream<Path> staged = Files.newDirectoryStream(stagingDirectory)) {
+            for (final Path source : staged) {
+                final Path destination = resourceDirectory.resolve(source.getFileName().toString());
+                if (Files.isDirectory(destination)) {
+                    FileUtils.deleteDirectory(destination.toFile());
+                }
+                Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Copies the files into a directory, replacing whatever is there under the same names. For when linked files
+     * could not be moved into a resource that has already been created.
+     */
+    public static void copyInto(final List<File> toUpload, final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (final File file : toUpload) {
+            final File destination = directory.resolve(file.getName()).toFile();
+            // Delete rather than overwrite, so a file linked here before the failure isn't written through
+            FileUtils.deleteQuietly(destination);
+            if (file.isDirectory()) {
+                FileUtils.copyDirectory(file, destination);
+            } else {
+                FileUtils.copyFile(file, destination);
+            }
+        }
+    }
+
+    /**
+     * Removes a staging directory and whatever is left in it. Failures are only logged.
+     */
+    public static void deleteStagingDirectory(final Path stagingDirectory) {
+        try {
+            FileUtils.deleteDirectory(stagingDirectory.toFile());
+        } catch (IOException e) {
+            log.warn("Could not delete staging directory {}.", stagingDirectory, e);
+        }
+    }
+
+    private static int linkOrCopy(final Path source, final Path destination) throws IOException {
+        if (Files.isDirectory(source)) {
+            return linkDirectory(source, destination);
+        }
+        return link(source, destination) ? 0 : 1;
+    }
+
+    private static int linkDirectory(final Path source, final Path destination) throws IOException {
+        final int[] copied = {0};
+        // Follow links into directories, the way the copy into a resource does
+        Files.walkFileTree(source, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(destination.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                final Path target = destination.resolve(source.relativize(file).toString());
+                if (attrs.isSymbolicLink()) {
+                    // Only a broken link is visited as a link when following links
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+                    copied[0]++;
+                } else if (!link(file, target)) {
+                    copied[0]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return copied[0];
+    }
+
+    /**
+     * @return true if the file was linked, false if it was copied
+     */
+    private static boolean link(final Path source, final Path destination) throws IOException {
+        Files.deleteIfExists(destination);
+        if (!Files.isSymbolicLink(source) && safeToShare(source, destination.getParent())) {
+            try {
+                Files.createLink(destination, source);
+                removeSharedWritePermissions(destination);
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                // Among other reasons, fs.protected_hardlinks refuses links to files owned by another user
+                log.debug("Could not link {} to {}. Copying it instead.", destination, source, e);
+                // Don't leave a link behind that could still be written through the build directory
+                Files.deleteIfExists(destination);
+            }
+        }
+        // Not COPY_ATTRIBUTES, so the copy gets the archive's owner and default mode
+        Files.copy(source, destination);
+        Files.setLastModifiedTime(destination, Files.getLastModifiedTime(source));
+        return false;
+    }
+
+    /**
+     * Takes group and other write permission away from a linked file, which is the same file in the build directory.
+     * {@link #safeToShare} has already checked that they are off, so this only undoes a change made since.
+     */
+    private static void removeSharedWritePermissions(final Path file) throws IOException {
+        final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+        if (!permissions.removeAll(EnumSet.of(PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE))) {
+            return;
+        }
+        Files.setPosixFilePermissions(file, permissions);
+    }
+
+    /**
+     * @return Whether the file is owned by the owner of the directory it would be linked into, and no one else can write it
+     */
+    private static boolean safeToShare(final Path file, final Path directory) {
+        try {
+            if (!Files.getOwner(file).equals(Files.getOwner(directory))) {
+                return false;
+            }
+            final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (IOException | UnsupportedOperationException e) {
+            // We can't tell, so don't risk it
+            return false;
+        }
+    }
+}
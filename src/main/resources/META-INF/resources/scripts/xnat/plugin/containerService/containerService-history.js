@@ -455,7 +455,7 @@ XNAT.plugin.containerService = getObject(XNAT.plugin.containerService || {});
         var fullWait;
         var refreshPrm = {};
         if (refreshLogSince) refreshPrm.since = refreshLogSince;
-        if (bytesRead) refreshPrm.bytesRead = bytesRead;
+        if (bytesRead || bytesRead === 0) refreshPrm.bytesRead = bytesRead;
         if (loadAll) {
             fullWait = XNAT.ui.dialog.static.wait('Fetching log, please wait.');
             refreshPrm.loadAll = loadAll;
@@ -501,7 +501,9 @@ XNAT.plugin.containerService = getObject(XNAT.plugin.containerService || {});
 
             if (dataJson.timestamp !== -1) {
                 // Container is still running, check for more!
-                refreshLog(containerId, logFile, dataJson.timestamp, false, false, startTime);
+                // If the log is being spooled to disk, pick up from the byte offset we reached.
+                var liveBytesRead = dataJson.bytesRead >= 0 ? dataJson.bytesRead : false;
+                refreshLog(containerId, logFile, dataJson.timestamp, liveBytesRead, false, startTime);
             }
         }
 
@@ -548,10 +550,10 @@ XNAT.plugin.containerService = getObject(XNAT.plugin.containerService || {});
             url: rootUrl('/xapi/containers/' + containerId + '/logSince/' + logFile),
             data: refreshPrm,
             beforeSend: function () {
-                if (firstRun || bytesRead) $waitElement.appendTo(historyTable.logModal.content$);
+                if (firstRun || (bytesRead && !refreshLogSince)) $waitElement.appendTo(historyTable.logModal.content$);
             },
             success: function (dataJson) {
-                if (firstRun || bytesRead) $waitElement.remove();
+                if (firstRun || (bytesRead && !refreshLogSince)) $waitElement.remove();
                 if (fullWait) {
                     fullWait.close();
                 }
@@ -569,11 +571,12 @@ XNAT.plugin.containerService = getObject(XNAT.plugin.containerService || {});
                         historyTable.logModal.title$.text(historyTable.logModal.title$.text() + ' (from file)');
                     } else if (refreshLogSince) {
                         // We were live logging, but we swapped to reading a file, notify user since we're starting back from the top
+                        // (unless we were reading the spooled log, in which case the file picks up where we left off)
                         XNAT.ui.dialog.alert('Processing competed');
                         historyTable.logModal.title$.text(
                             historyTable.logModal.title$.text().replace('(live)', '(from file)')
                         );
-                        emptyFirst = true;
+                        emptyFirst = bytesRead === false || bytesRead === undefined;
                     }
                     addFileContent(dataJson, emptyFirst);
                 } else {
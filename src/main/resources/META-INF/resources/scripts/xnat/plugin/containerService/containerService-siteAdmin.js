@@ -235,6 +235,20 @@ XNAT.plugin.containerService = getObject(XNAT.plugin.containerService || {});
                             onText: 'ON',
                             offText: 'OFF',
                             value: 'true'
+                        }),
+                        spawn('p.divider', '<strong>Connection Settings (Optional)</strong><br> Use these settings to tune the connections XNAT keeps open to the Docker server. Leave blank to use the Docker client defaults.'),
+                        XNAT.ui.panel.input.text({
+                            name: 'connection-pool-size',
+                            label: 'Connection Pool Size',
+                            description: 'Maximum number of simultaneous connections to the Docker server'
+                        }),
+                        XNAT.ui.panel.input.text({
+                            name: 'connect-timeout-millis',
+                            label: 'Connect Timeout (ms)'
+                        }),
+                        XNAT.ui.panel.input.text({
+                            name: 'read-timeout-millis',
+                            label: 'Read Timeout (ms)'
                         })
                     ])
                 );
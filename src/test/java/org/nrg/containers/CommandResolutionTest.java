@@ -21,9 +21,11 @@ import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.nrg.config.services.ConfigService;
+import org.nrg.containers.config.ContainersConfig;
 import org.nrg.containers.config.IntegrationTestConfig;
 import org.nrg.containers.exceptions.CommandResolutionException;
 import org.nrg.containers.exceptions.IllegalInputException;
+import org.nrg.containers.jms.preferences.QueuePrefsBean;
 import org.nrg.containers.model.command.auto.Command;
 import org.nrg.containers.model.command.auto.Command.CommandInput;
 import org.nrg.containers.model.command.auto.Command.CommandWrapper;
@@ -43,6 +45,7 @@ import org.nrg.containers.services.CommandResolutionService;
 import org.nrg.containers.services.CommandService;
 import org.nrg.containers.services.ContainerConfigService;
 import org.nrg.containers.services.DockerService;
+import org.nrg.containers.services.impl.CommandResolutionServiceImpl;
 import org.nrg.framework.constants.Scope;
 import org.nrg.xdat.preferences.SiteConfigPreferences;
 import org.nrg.xdat.security.user.XnatUserProvider;
@@ -58,6 +61,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -65,6 +69,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -286,6 +291,71 @@ public class CommandResolutionTest {
                 runtimeValues, expectedWrapperInputValues, expectedCommandInputValues);
     }
 
+    @Test
+    public void testSessionScanResourceOnInputResolutionPool() throws Exception {
+        final String inputPath = resourceDir + "/testSessionScanResource/session.json";
+        final String dicomDir = folder.newFolder("DICOM").getAbsolutePath();
+        final Session session = mapper.readValue(new File(inputPath), Session.class);
+        session.getScans().get(0).getResources().get(0).setDirectory(dicomDir);
+        final Map<String, String> runtimeValues = Maps.newHashMap();
+        runtimeValues.put("session", mapper.writeValueAsString(session));
+        final CommandWrapper commandWrapper = xnatCommandWrappers.get("session-scan-resource");
+
+        final ResolvedCommand resolvedInline = commandResolutionService.resolve(
+                commandService.getAndConfigure(commandWrapper.id()), runtimeValues, mockUser);
+
+        // Wire the pool the way the plugin does, sized from the staging queue's concurrency
+        final QueuePrefsBean mockQueuePrefsBean = Mockito.mock(QueuePrefsBean.class);
+        when(mockQueuePrefsBean.getConcurrencyMaxStagingQueue()).thenReturn(6);
+        final ForkJoinPool inputResolutionPool = new ContainersConfig().inputResolutionPool(mockQueuePrefsBean);
+        assertThat(inputResolutionPool.getParallelism(), is(6));
+
+        final CommandResolutionServiceImpl commandResolutionServiceImpl = (CommandResolutionServiceImpl) commandResolutionService;
+        commandResolutionServiceImpl.setInputResolutionPool(inputResolutionPool);
+        try {
+            final ResolvedCommand resolvedOnPool = commandResolutionService.resolve(
+                    commandService.getAndConfigure(commandWrapper.id()), runtimeValues, mockUser);
+            assertThat(resolvedOnPool.wrapperInputValues(), is(resolvedInline.wrapperInputValues()));
+            assertThat(resolvedOnPool.commandInputValues(), is(resolvedInline.commandInputValues()));
+            assertThat(resolvedOnPool.commandLine(), is(resolvedInline.commandLine()));
+        } finally {
+            commandResolutionServiceImpl.setInputResolutionPool(null);
+            inputResolutionPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRepeatedResolutionOnASingleWorkerPool() throws Exception {
+        final String inputPath = resourceDir + "/testSessionScanResource/session.json";
+        final String dicomDir = folder.newFolder("DICOM").getAbsolutePath();
+        final Session session = mapper.readValue(new File(inputPath), Session.class);
+        session.getScans().get(0).getResources().get(0).setDirectory(dicomDir);
+        final Map<String, String> runtimeValues = Maps.newHashMap();
+        runtimeValues.put("session", mapper.writeValueAsString(session));
+        final CommandWrapper commandWrapper = xnatCommandWrappers.get("session-scan-resource");
+
+        final ResolvedCommand resolvedInline = commandResolutionService.resolve(
+                commandService.getAndConfigure(commandWrapper.id()), runtimeValues, mockUser);
+
+        // One worker, so sibling subtrees only make progress in parallel if the pool compensates for
+        // the worker blocking while it resolves a node. The scan's sibling inputs all read the same scan.
+        final ForkJoinPool inputResolutionPool = new ForkJoinPool(1);
+        final CommandResolutionServiceImpl commandResolutionServiceImpl = (CommandResolutionServiceImpl) commandResolutionService;
+        commandResolutionServiceImpl.setInputResolutionPool(inputResolutionPool);
+        try {
+            for (int i = 0; i < 20; i++) {
+                final ResolvedCommand resolvedOnPool = commandResolutionService.resolve(
+                        commandService.getAndConfigure(commandWrapper.id()), runtimeValues, mockUser);
+                assertThat(resolvedOnPool.wrapperInputValues(), is(resolvedInline.wrapperInputValues()));
+                assertThat(resolvedOnPool.commandInputValues(), is(resolvedInline.commandInputValues()));
+                assertThat(resolvedOnPool.commandLine(), is(resolvedInline.commandLine()));
+            }
+        } finally {
+            commandResolutionServiceImpl.setInputResolutionPool(null);
+            inputResolutionPool.shutdown();
+        }
+    }
+
     @Test
     public void testResourceFile() throws Exception {
         final String commandWrapperName = "scan-resource-file";
@@ -954,4 +1024,73 @@ public class CommandResolutionTest {
                 is(true));
 
     }
+
+    private CommandWrapper createBulkWrapper() throws Exception {
+        // Trees are resolved in order: "before" comes ahead of the root input "target", "after" doesn't
+        // use any value from "target"'s tree, and "dependent" has a matcher that does
+        final Command command = commandService.create(Command.builder()
+                .name("bulk-command")
+                .image("whatever")
+                .commandLine("echo")
+                .addCommandWrapper(CommandWrapper.builder()
+                        .name("bulk-wrapper")
+                        .addExternalInput(CommandWrapperExternalInput.builder().name("before").type("string").build())
+                        .addExternalInput(CommandWrapperExternalInput.builder().name("target").type("string").build())
+                        .addExternalInput(CommandWrapperExternalInput.builder().name("after").type("string").build())
+                        .addExternalInput(CommandWrapperExternalInput.builder().name("dependent").type("string")
+                                .matcher("'#target#' != ''").build())
+                        .build())
+                .build());
+        return command.xnatCommandWrappers().get(0);
+    }
+
+    private Map<String, String> bulkInputValues(final String target, final String before) {
+        final Map<String, String> inputValues = Maps.newHashMap();
+        inputValues.put("before", before);
+        inputValues.put("target", target);
+        inputValues.put("after", "a");
+        inputValues.put("dependent", "d");
+        return inputValues;
+    }
+
+    private Map<String, ResolvedInputTreeNode<? extends Command.Input>> inputTreesByName(final ResolvedCommand resolvedCommand) {
+        final Map<String, ResolvedInputTreeNode<? extends Command.Input>> trees = Maps.newHashMap();
+        for (final ResolvedInputTreeNode<? extends Command.Input> tree : resolvedCommand.resolvedInputTrees()) {
+            trees.put(tree.input().name(), tree);
+        }
+        return trees;
+    }
+
+    @Test
+    public void testBulkPlanSharesIndependentInputTrees() throws Exception {
+        final CommandWrapper wrapper = createBulkWrapper();
+        final CommandResolutionService.BulkResolutionPlan plan = commandResolutionService.planBulkResolution(
+                commandService.getAndConfigure(wrapper.id()), "target", bulkInputValues("t1", "b"), mockUser);
+
+        final Map<String, ResolvedInputTreeNode<? extends Command.Input>> first =
+                inputTreesByName(commandResolutionService.resolve(plan, bulkInputValues("t1", "b"), mockUser));
+        final Map<String, ResolvedInputTreeNode<? extends Command.Input>> second =
+                inputTreesByName(commandResolutionService.resolve(plan, bulkInputValues("t2", "b"), mockUser));
+
+        assertThat(second.get("before"), sameInstance(first.get("before")));
+        assertThat(second.get("after"), sameInstance(first.get("after")));
+        assertThat(second.get("target"), not(sameInstance(first.get("target"))));
+        assertThat(second.get("dependent"), not(sameInstance(first.get("dependent"))));
+    }
+
+    @Test
+    public void testBulkPlanIsNotSharedWhenOtherInputValuesDiffer() throws Exception {
+        final CommandWrapper wrapper = createBulkWrapper();
+        final CommandResolutionService.BulkResolutionPlan plan = commandResolutionService.planBulkResolution(
+                commandService.getAndConfigure(wrapper.id()), "target", bulkInputValues("t1", "b"), mockUser);
+
+        final Map<String, ResolvedInputTreeNode<? extends Command.Input>> first =
+                inputTreesByName(commandResolutionService.resolve(plan, bulkInputValues("t1", "b"), mockUser));
+        final ResolvedCommand otherResolvedCommand = commandResolutionService.resolve(plan, bulkInputValues("t2", "other"), mockUser);
+        final Map<String, ResolvedInputTreeNode<? extends Command.Input>> other = inputTreesByName(otherResolvedCommand);
+
+        assertThat(other.get("before"), not(sameInstance(first.get("before"))));
+        assertThat(other.get("after"), not(sameInstance(first.get("after"))));
+        assertThat(otherResolvedCommand.rawInputValues().get("before"), is("other"));
+    }
 }
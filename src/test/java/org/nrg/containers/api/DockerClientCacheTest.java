@@ -0,0 +1,135 @@
+package org.nrg.containers.api;
+
+import com.google.common.base.Ticker;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.messages.RegistryAuth;
+import org.junit.After;
+import org.junit.Test;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class DockerClientCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final DockerClientCache cache = new DockerClientCache(new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    });
+
+    @After
+    public void cleanup() {
+        cache.close();
+    }
+
+    private DockerClient client(final DockerServer server) throws Exception {
+        try (final DockerClientCache.Lease lease = cache.get(server)) {
+            return lease.client();
+        }
+    }
+
+    @Test
+    public void testClientIsShared() throws Exception {
+        final DockerServer server = DockerServer.create("test", "unix:///var/run/docker.sock");
+        final DockerClient first = client(server);
+        final DockerClient second = client(server);
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    public void testEventCheckTimeDoesNotRebuildClient() throws Exception {
+        final DockerServer server = DockerServer.create("test", "unix:///var/run/docker.sock");
+        final DockerClient first = client(server);
+        final DockerClient second = client(server.updateEventCheckTime(new Date(0)));
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    public void testStreamingClientIsSeparate() throws Exception {
+        final DockerServer server = DockerServer.create("test", "unix:///var/run/docker.sock");
+        try (final DockerClientCache.Lease streaming = cache.getStreaming(server);
+             final DockerClientCache.Lease again = cache.getStreaming(server.updateEventCheckTime(new Date(0)))) {
+            assertThat(streaming.client(), not(sameInstance(client(server))));
+            assertThat(again.client(), sameInstance(streaming.client()));
+        }
+    }
+
+    @Test
+    public void testConnectionSettingsRebuildClient() throws Exception {
+        final DockerServer server = DockerServer.create("test", "unix:///var/run/docker.sock");
+        final DockerClient first = client(server);
+
+        final DockerServer resized = server.toBuilder().connectionPoolSize(200).build();
+        final DockerClient second = client(resized);
+        assertThat(second, not(sameInstance(first)));
+        assertThat(client(resized), sameInstance(second));
+
+        final DockerServer moved = resized.toBuilder().host("unix:///tmp/docker.sock").build();
+        assertThat(client(moved), not(sameInstance(second)));
+    }
+
+    @Test
+    public void testUnusedRegistryClientExpires() throws Exception {
+        final DockerServer server = DockerServer.create("test", "unix:///var/run/docker.sock");
+        final RegistryAuth auth = RegistryAuth.builder().username("user").password("password").build();
+
+        final DockerClient first;
+        try (final DockerClientCache.Lease lease = cache.get(server, auth)) {
+            first = lease.client();
+            assertThat(first, not(sameInstance(client(server))));
+        }
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(DockerClientCache.REGISTRY_CLIENT_EXPIRE_AFTER_ACCESS_MINUTES - 1));
+        final DockerClient second;
+        try (final DockerClientCache.Lease lease = cache.get(server, auth)) {
+            second = lease.client();
+        }
+        assertThat(second, sameInstance(first));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(DockerClientCache.REGISTRY_CLIENT_EXPIRE_AFTER_ACCESS_MINUTES + 1));
+        try (final DockerClientCache.Lease lease = cache.get(server, auth)) {
+            assertThat(lease.client(), not(sameInstance(first)));
+        }
+    }
+
+    @Test
+    public void testRetiredClientClosesWhenLastLeaseIsReleased() throws Exception {
+        final DockerClient client = mock(DockerClient.class);
+        final DockerClientCache.SharedClient shared = new DockerClientCache.SharedClient(client);
+
+        final DockerClientCache.Lease first = shared.lease();
+        final DockerClientCache.Lease second = shared.lease();
+        shared.retire();
+        assertThat(shared.lease(), nullValue());
+
+        first.close();
+        first.close();
+        verify(client, never()).close();
+
+        second.close();
+        verify(client).close();
+    }
+
+    @Test
+    public void testUnleasedClientClosesWhenRetired() throws Exception {
+        final DockerClient client = mock(DockerClient.class);
+        final DockerClientCache.SharedClient shared = new DockerClientCache.SharedClient(client);
+
+        shared.lease().close();
+        verify(client, never()).close();
+
+        shared.retire();
+        verify(client).close();
+    }
+}
@@ -0,0 +1,51 @@
+package org.nrg.containers.api;
+
+import com.spotify.docker.client.LogStream;
+import com.spotify.docker.client.messages.LogMessage;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LogStreamInputStreamTest {
+
+    @Test
+    public void testReadsFramesInOrder() throws Exception {
+        final LogStream logStream = mock(LogStream.class);
+        when(logStream.hasNext()).thenReturn(true, true, true, false);
+        when(logStream.next()).thenReturn(
+                frame("first line\n"),
+                frame(""),
+                frame("second line\n"));
+
+        try (final InputStream inputStream = new LogStreamInputStream(logStream)) {
+            assertThat(IOUtils.toString(inputStream, StandardCharsets.UTF_8), is("first line\nsecond line\n"));
+        }
+        verify(logStream).close();
+    }
+
+    @Test
+    public void testSingleByteReads() throws Exception {
+        final LogStream logStream = mock(LogStream.class);
+        when(logStream.hasNext()).thenReturn(true, false);
+        when(logStream.next()).thenReturn(frame("ab"));
+
+        try (final InputStream inputStream = new LogStreamInputStream(logStream)) {
+            assertThat(inputStream.read(), is((int) 'a'));
+            assertThat(inputStream.read(), is((int) 'b'));
+            assertThat(inputStream.read(), is(-1));
+        }
+    }
+
+    private LogMessage frame(final String content) {
+        return new LogMessage(LogMessage.Stream.STDOUT, ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
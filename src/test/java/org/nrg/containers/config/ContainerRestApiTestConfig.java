@@ -1,5 +1,6 @@
 package org.nrg.containers.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.mockito.Mockito;
 import org.nrg.containers.api.ContainerControlApi;
 import org.nrg.containers.rest.ContainerRestApi;
@@ -31,9 +32,10 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 public class ContainerRestApiTestConfig extends WebSecurityConfigurerAdapter {
     @Bean
     public ContainerRestApi containerRestApi(final ContainerService containerService,
+                                             final ObjectMapper objectMapper,
                                              final UserManagementServiceI userManagementServiceI,
                                              final RoleHolder roleHolder) {
-        return new ContainerRestApi(containerService, userManagementServiceI, roleHolder);
+        return new ContainerRestApi(containerService, objectMapper, userManagementServiceI, roleHolder);
     }
 
     @Bean
@@ -138,6 +138,14 @@ public class IntegrationTestConfig {
         return new ContainerFinalizeServiceImpl(containerControlApi, siteConfigPreferences, catalogService, mailService);
     }
 
+    @Bean
+    public ContainerLogSpooler containerLogSpooler(final ContainerControlApi containerControlApi,
+                                                   final ContainerEntityService containerEntityService,
+                                                   final SiteConfigPreferences siteConfigPreferences,
+                                                   @Qualifier("mockXnatAppInfo") final XnatAppInfo mockXnatAppInfo) {
+        return new ContainerLogSpoolerImpl(containerControlApi, containerEntityService, siteConfigPreferences, mockXnatAppInfo);
+    }
+
     @Bean
     public ContainerService containerService(final ContainerControlApi containerControlApi,
                                              final ContainerEntityService containerEntityService,
@@ -10,6 +10,7 @@ import org.nrg.containers.jms.listeners.ContainerFinalizingRequestListener;
 import org.nrg.containers.jms.listeners.ContainerStagingRequestListener;
 import org.nrg.containers.jms.requests.ContainerFinalizingRequest;
 import org.nrg.containers.jms.requests.ContainerStagingRequest;
+import org.nrg.containers.jms.utils.QueueMetrics;
 import org.nrg.containers.services.ContainerService;
 import org.nrg.mail.services.MailService;
 import org.nrg.xdat.preferences.SiteConfigPreferences;
@@ -58,6 +59,21 @@ public class JmsConfig {
         return new ActiveMQQueue(containerFinalizingRequest);
     }
 
+    @Bean(name = "containerIngestingRequest")
+    public Destination containerIngestingRequest(@Value("containerIngestingRequest") String containerIngestingRequest) throws JMSException {
+        return new ActiveMQQueue(containerIngestingRequest);
+    }
+
+    @Bean(name = "containerRecordingRequest")
+    public Destination containerRecordingRequest(@Value("containerRecordingRequest") String containerRecordingRequest) throws JMSException {
+        return new ActiveMQQueue(containerRecordingRequest);
+    }
+
+    @Bean(name = "containerCleanupRequest")
+    public Destination containerCleanupRequest(@Value("containerCleanupRequest") String containerCleanupRequest) throws JMSException {
+        return new ActiveMQQueue(containerCleanupRequest);
+    }
+
     private DefaultJmsListenerContainerFactory defaultFactory(ConnectionFactory connectionFactory,
                                                               final SiteConfigPreferences siteConfigPreferences,
                                                               final MailService mailService) {
@@ -81,12 +97,38 @@ public class JmsConfig {
         return defaultFactory(connectionFactory, siteConfigPreferences, mockMailService);
     }
 
+    @Bean(name = "ingestingQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory ingestingQueueListenerFactory(final SiteConfigPreferences siteConfigPreferences,
+                                                                            final MailService mockMailService,
+                                                                            final ConnectionFactory connectionFactory) {
+        return defaultFactory(connectionFactory, siteConfigPreferences, mockMailService);
+    }
+
+    @Bean(name = "recordingQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory recordingQueueListenerFactory(final SiteConfigPreferences siteConfigPreferences,
+                                                                            final MailService mockMailService,
+                                                                            final ConnectionFactory connectionFactory) {
+        return defaultFactory(connectionFactory, siteConfigPreferences, mockMailService);
+    }
+
+    @Bean(name = "cleanupQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory cleanupQueueListenerFactory(final SiteConfigPreferences siteConfigPreferences,
+                                                                          final MailService mockMailService,
+                                                                          final ConnectionFactory connectionFactory) {
+        return defaultFactory(connectionFactory, siteConfigPreferences, mockMailService);
+    }
+
 
     @Bean
     public JmsTemplate jmsTemplate(ConnectionFactory connectionFactory){
         return new JmsTemplate(connectionFactory);
     }
 
+    @Bean
+    public QueueMetrics queueMetrics(final JmsTemplate jmsTemplate) {
+        return new QueueMetrics(jmsTemplate);
+    }
+
     @Bean
     public ConnectionFactory connectionFactory() {
         ActiveMQConnectionFactory mq = new ActiveMQConnectionFactory("vm://localhost?broker.persistent=false");
@@ -6,8 +6,12 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.nrg.containers.jms.listeners.ContainerFinalizingRequestListener;
 import org.nrg.containers.jms.listeners.ContainerStagingRequestListener;
+import org.nrg.containers.jms.requests.ContainerCleanupRequest;
 import org.nrg.containers.jms.requests.ContainerFinalizingRequest;
+import org.nrg.containers.jms.requests.ContainerIngestingRequest;
+import org.nrg.containers.jms.requests.ContainerRecordingRequest;
 import org.nrg.containers.jms.requests.ContainerStagingRequest;
+import org.nrg.containers.jms.utils.QueueMetrics;
 import org.nrg.containers.services.ContainerService;
 import org.nrg.xdat.security.services.UserManagementServiceI;
 import org.springframework.beans.factory.annotation.Value;
@@ -47,11 +51,29 @@ public class MockJmsConfig {
         return new ActiveMQQueue(containerFinalizingRequest);
     }
 
+    @Bean(name = "containerIngestingRequest")
+    public Destination containerIngestingRequest(@Value("containerIngestingRequest") String containerIngestingRequest) throws JMSException {
+        return new ActiveMQQueue(containerIngestingRequest);
+    }
+
+    @Bean(name = "containerRecordingRequest")
+    public Destination containerRecordingRequest(@Value("containerRecordingRequest") String containerRecordingRequest) throws JMSException {
+        return new ActiveMQQueue(containerRecordingRequest);
+    }
+
+    @Bean(name = "containerCleanupRequest")
+    public Destination containerCleanupRequest(@Value("containerCleanupRequest") String containerCleanupRequest) throws JMSException {
+        return new ActiveMQQueue(containerCleanupRequest);
+    }
+
     @Bean
     public JmsTemplate mockJmsTemplate(Destination containerStagingRequest,
                                        final ContainerStagingRequestListener containerStagingRequestListener,
                                        Destination containerFinalizingRequest,
-                                       final ContainerFinalizingRequestListener containerFinalizingRequestListener) {
+                                       final ContainerFinalizingRequestListener containerFinalizingRequestListener,
+                                       Destination containerIngestingRequest,
+                                       Destination containerRecordingRequest,
+                                       Destination containerCleanupRequest) {
         JmsTemplate mockJmsTemplate = Mockito.mock(JmsTemplate.class);
         doAnswer(
                 new Answer() {
@@ -83,10 +105,63 @@ public class MockJmsConfig {
                 }
         ).when(mockJmsTemplate).convertAndSend(eq(containerFinalizingRequest), any(ContainerFinalizingRequest.class));
 
+        doAnswer(
+                new Answer() {
+                    public Object answer(InvocationOnMock invocation) {
+                        Object[] args = invocation.getArguments();
+                        ContainerIngestingRequest request = (ContainerIngestingRequest) args[1];
+                        try {
+                            containerFinalizingRequestListener.onIngestingRequest(request);
+                        } catch (Exception e) {
+                            return false;
+                        }
+                        return true;
+                    }
+                }
+        ).when(mockJmsTemplate).convertAndSend(eq(containerIngestingRequest), any(ContainerIngestingRequest.class));
+
+        doAnswer(
+                new Answer() {
+                    public Object answer(InvocationOnMock invocation) {
+                        Object[] args = invocation.getArguments();
+                        ContainerRecordingRequest request = (ContainerRecordingRequest) args[1];
+                        try {
+                            containerFinalizingRequestListener.onRecordingRequest(request);
+                        } catch (Exception e) {
+                            return false;
+                        }
+                        return true;
+                    }
+                }
+        ).when(mockJmsTemplate).convertAndSend(eq(containerRecordingRequest), any(ContainerRecordingRequest.class));
+
+        doAnswer(
+                new Answer() {
+                    public Object answer(InvocationOnMock invocation) {
+                        Object[] args = invocation.getArguments();
+                        ContainerCleanupRequest request = (ContainerCleanupRequest) args[1];
+                        try {
+                            containerFinalizingRequestListener.onCleanupRequest(request);
+                        } catch (Exception e) {
+                            return false;
+                        }
+                        return true;
+                    }
+                }
+        ).when(mockJmsTemplate).convertAndSend(eq(containerCleanupRequest), any(ContainerCleanupRequest.class));
+
         // Mock counts
         doReturn(0).when(mockJmsTemplate).browse(eq("containerStagingRequest"), (BrowserCallback<Integer>) any(BrowserCallback.class));
         doReturn(0).when(mockJmsTemplate).browse(eq("containerFinalizingRequest"), (BrowserCallback<Integer>) any(BrowserCallback.class));
+        doReturn(0).when(mockJmsTemplate).browse(eq("containerIngestingRequest"), (BrowserCallback<Integer>) any(BrowserCallback.class));
+        doReturn(0).when(mockJmsTemplate).browse(eq("containerRecordingRequest"), (BrowserCallback<Integer>) any(BrowserCallback.class));
+        doReturn(0).when(mockJmsTemplate).browse(eq("containerCleanupRequest"), (BrowserCallback<Integer>) any(BrowserCallback.class));
 
         return mockJmsTemplate;
     }
+
+    @Bean
+    public QueueMetrics queueMetrics(final JmsTemplate mockJmsTemplate) {
+        return new QueueMetrics(mockJmsTemplate);
+    }
 }
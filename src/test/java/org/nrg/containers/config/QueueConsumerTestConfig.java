@@ -126,6 +126,14 @@ public class QueueConsumerTestConfig {
         return new ContainerFinalizeServiceImpl(containerControlApi, siteConfigPreferences, catalogService,mailService);
     }
 
+    @Bean
+    public ContainerLogSpooler containerLogSpooler(final ContainerControlApi containerControlApi,
+                                                   final ContainerEntityService mockContainerEntityService,
+                                                   final SiteConfigPreferences siteConfigPreferences,
+                                                   @Qualifier("mockXnatAppInfo") final XnatAppInfo mockXnatAppInfo) {
+        return new ContainerLogSpoolerImpl(containerControlApi, mockContainerEntityService, siteConfigPreferences, mockXnatAppInfo);
+    }
+
     @Bean
     public ContainerService containerService(final DockerControlApi mockDockerControlApi,
                                              final ContainerEntityService mockContainerEntityService,
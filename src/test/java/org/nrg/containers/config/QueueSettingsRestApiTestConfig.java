@@ -4,6 +4,7 @@ import org.mockito.Mockito;
 import org.nrg.containers.jms.preferences.QueuePrefsBean;
 import org.nrg.containers.model.xnat.FakePrefsService;
 import org.nrg.containers.jms.rest.QueueSettingsRestApi;
+import org.nrg.containers.jms.utils.QueueMetrics;
 import org.nrg.containers.rest.QueueSettingsRestApiTest;
 import org.nrg.framework.services.ContextService;
 import org.nrg.prefs.services.NrgPreferenceService;
@@ -32,16 +33,26 @@ import javax.jms.ConnectionFactory;
 public class QueueSettingsRestApiTestConfig extends WebSecurityConfigurerAdapter {
     @Bean
     public QueueSettingsRestApi queueSettingsRestApi(QueuePrefsBean queuePrefsBean,
+                                                     final QueueMetrics mockQueueMetrics,
                                                      final UserManagementServiceI mockUserManagementServiceI,
                                                      final RoleHolder roleHolder) {
-        return new QueueSettingsRestApi(queuePrefsBean, mockUserManagementServiceI, roleHolder);
+        return new QueueSettingsRestApi(queuePrefsBean, mockQueueMetrics, mockUserManagementServiceI, roleHolder);
+    }
+
+    @Bean
+    public QueueMetrics mockQueueMetrics() {
+        return Mockito.mock(QueueMetrics.class);
     }
 
     @Bean
     public QueuePrefsBean queuePrefsBean(final NrgPreferenceService fakePrefsService,
                                          final DefaultJmsListenerContainerFactory finalizingQueueListenerFactory,
-                                         final DefaultJmsListenerContainerFactory stagingQueueListenerFactory) {
-        return new QueuePrefsBean(fakePrefsService, finalizingQueueListenerFactory, stagingQueueListenerFactory);
+                                         final DefaultJmsListenerContainerFactory stagingQueueListenerFactory,
+                                         final DefaultJmsListenerContainerFactory ingestingQueueListenerFactory,
+                                         final DefaultJmsListenerContainerFactory recordingQueueListenerFactory,
+                                         final DefaultJmsListenerContainerFactory cleanupQueueListenerFactory) {
+        return new QueuePrefsBean(fakePrefsService, finalizingQueueListenerFactory, stagingQueueListenerFactory,
+                ingestingQueueListenerFactory, recordingQueueListenerFactory, cleanupQueueListenerFactory);
     }
 
     @Bean
@@ -51,10 +62,19 @@ public class QueueSettingsRestApiTestConfig extends WebSecurityConfigurerAdapter
     }
 
     private DefaultJmsListenerContainerFactory defaultMockFactory() {
+        return mockFactory(ContainersConfig.QUEUE_MIN_CONCURRENCY_DFLT, ContainersConfig.QUEUE_MAX_CONCURRENCY_DFLT);
+    }
+
+    private DefaultJmsListenerContainerFactory finalizationStageMockFactory() {
+        return mockFactory(ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT,
+                ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT);
+    }
+
+    private DefaultJmsListenerContainerFactory mockFactory(final String minConcurrency, final String maxConcurrency) {
         DefaultJmsListenerContainerFactory factory = Mockito.spy(new DefaultJmsListenerContainerFactory());
         ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
         factory.setConnectionFactory(connectionFactory);
-        factory.setConcurrency(ContainersConfig.QUEUE_MIN_CONCURRENCY_DFLT + "-" + ContainersConfig.QUEUE_MAX_CONCURRENCY_DFLT);
+        factory.setConcurrency(minConcurrency + "-" + maxConcurrency);
         return factory;
     }
 
@@ -70,6 +90,24 @@ public class QueueSettingsRestApiTestConfig extends WebSecurityConfigurerAdapter
         return defaultMockFactory();
     }
 
+    @Bean
+    @Qualifier("ingestingQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory ingestingQueueListenerFactory() {
+        return finalizationStageMockFactory();
+    }
+
+    @Bean
+    @Qualifier("recordingQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory recordingQueueListenerFactory() {
+        return finalizationStageMockFactory();
+    }
+
+    @Bean
+    @Qualifier("cleanupQueueListenerFactory")
+    public DefaultJmsListenerContainerFactory cleanupQueueListenerFactory() {
+        return finalizationStageMockFactory();
+    }
+
     @Bean
     public AliasTokenService aliasTokenService() {
         return Mockito.mock(AliasTokenService.class);
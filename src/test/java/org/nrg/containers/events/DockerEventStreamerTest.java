@@ -0,0 +1,137 @@
+package org.nrg.containers.events;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.nrg.containers.api.ContainerControlApi;
+import org.nrg.containers.api.ContainerControlApi.EventStreamListener;
+import org.nrg.containers.events.model.DockerContainerEvent;
+import org.nrg.containers.exceptions.DockerServerException;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
+import org.nrg.containers.services.DockerServerService;
+import org.nrg.xft.schema.XFTManager;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(XFTManager.class)
+@PowerMockIgnore({"org.apache.*", "java.*", "javax.*", "org.w3c.*", "com.sun.*"})
+public class DockerEventStreamerTest {
+    private static final long START_MILLIS = 1000L;
+    private static final int EVENT_COUNT = 100;
+
+    private ContainerControlApi controlApi;
+    private DockerServerService dockerServerService;
+    private XnatAppInfo xnatAppInfo;
+    private DockerServer server;
+    private DockerEventStreamer streamer;
+
+    @Before
+    public void setup() throws Exception {
+        mockStatic(XFTManager.class);
+        when(XFTManager.isInitialized()).thenReturn(true);
+
+        controlApi = mock(ContainerControlApi.class);
+        dockerServerService = mock(DockerServerService.class);
+        xnatAppInfo = mock(XnatAppInfo.class);
+
+        server = DockerServer.create("test", "unix:///var/run/docker.sock")
+                .updateEventCheckTime(new Date(START_MILLIS));
+        when(dockerServerService.retrieveServer()).thenReturn(server);
+        // Stream through one connection, then stop
+        when(xnatAppInfo.isPrimaryNode()).thenReturn(true, false);
+
+        streamer = new DockerEventStreamer(controlApi, dockerServerService, xnatAppInfo);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCheckpointsOnceForABurstOfEvents() throws Exception {
+        final long startNano = TimeUnit.MILLISECONDS.toNanos(START_MILLIS);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                final EventStreamListener<DockerContainerEvent> listener =
+                        (EventStreamListener<DockerContainerEvent>) invocation.getArguments()[1];
+                for (int i = 1; i <= EVENT_COUNT; i++) {
+                    final long timeNano = startNano + TimeUnit.MILLISECONDS.toNanos(i);
+                    listener.onEvent(DockerContainerEvent.create("die", "container" + i,
+                            new Date(TimeUnit.NANOSECONDS.toMillis(timeNano)), timeNano,
+                            Collections.<String, String>emptyMap()));
+                }
+                return null;
+            }
+        }).when(controlApi).throwContainerEventsAsStream(anyLong(), any(EventStreamListener.class));
+
+        Whitebox.invokeMethod(streamer, "stream");
+
+        verify(controlApi).throwContainerEventsAsStream(eq(startNano), any(EventStreamListener.class));
+        // The whole burst is checkpointed once, when the stream stops, at the time of the last event
+        verify(dockerServerService, times(1)).updateEventCheckTime(any(DockerServer.class), any(Date.class));
+        verify(dockerServerService).updateEventCheckTime(server, new Date(START_MILLIS + EVENT_COUNT));
+    }
+
+    @Test(timeout = 10000)
+    @SuppressWarnings("unchecked")
+    public void testDestroyClosesOpenStreamAndStopsThread() throws Exception {
+        when(xnatAppInfo.isPrimaryNode()).thenReturn(true);
+        final CountDownLatch opened = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Exception {
+                final EventStreamListener<DockerContainerEvent> listener =
+                        (EventStreamListener<DockerContainerEvent>) invocation.getArguments()[1];
+                listener.onOpen(new Closeable() {
+                    @Override
+                    public void close() {
+                        closed.countDown();
+                    }
+                });
+                opened.countDown();
+                // Like a blocking read on an idle stream, this only returns once the stream is closed
+                while (!closed.await(100, TimeUnit.MILLISECONDS)) {
+                    Thread.interrupted();
+                }
+                throw new DockerServerException("Stream closed");
+            }
+        }).when(controlApi).throwContainerEventsAsStream(anyLong(), any(EventStreamListener.class));
+
+        streamer.run();
+        opened.await();
+        assertThat(streamer.isStreaming(), is(true));
+
+        streamer.destroy();
+
+        assertThat(closed.getCount(), is(0L));
+        assertThat(streamer.isStreaming(), is(false));
+        verify(controlApi, times(1)).throwContainerEventsAsStream(anyLong(), any(EventStreamListener.class));
+
+        // Once stopped, the watchdog does not start the stream again
+        streamer.run();
+        assertThat(streamer.isStreaming(), is(false));
+    }
+}
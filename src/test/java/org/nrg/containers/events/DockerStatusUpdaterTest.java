@@ -0,0 +1,143 @@
+package org.nrg.containers.events;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nrg.containers.api.ContainerControlApi;
+import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.ContainerSummary;
+import org.nrg.containers.model.container.auto.ServiceTask;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
+import org.nrg.containers.services.ContainerService;
+import org.nrg.containers.services.DockerServerService;
+import org.nrg.xdat.security.helpers.Users;
+import org.nrg.xft.schema.XFTManager;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({XFTManager.class, Users.class})
+@PowerMockIgnore({"org.apache.*", "java.*", "javax.*", "org.w3c.*", "com.sun.*"})
+public class DockerStatusUpdaterTest {
+    private static final String SERVICE_ID = "service";
+    private static final String TASK_ID = "task";
+    private static final String CONTAINER_ID = "container";
+
+    private ContainerControlApi controlApi;
+    private DockerServer server;
+    private Container service;
+    private DockerStatusUpdater updater;
+
+    @Before
+    public void setup() throws Exception {
+        mockStatic(XFTManager.class);
+        when(XFTManager.isInitialized()).thenReturn(true);
+        mockStatic(Users.class);
+
+        controlApi = mock(ContainerControlApi.class);
+        final DockerServerService dockerServerService = mock(DockerServerService.class);
+        final ContainerService containerService = mock(ContainerService.class);
+        final XnatAppInfo xnatAppInfo = mock(XnatAppInfo.class);
+
+        server = DockerServer.create(0L, "test", "unix:///var/run/docker.sock", null, true,
+                null, null, null, null, true, null);
+        when(xnatAppInfo.isPrimaryNode()).thenReturn(true);
+        when(dockerServerService.getServer()).thenReturn(server);
+        when(controlApi.canConnect()).thenReturn(true);
+
+        service = mock(Container.class);
+        when(service.databaseId()).thenReturn(1L);
+        when(service.serviceId()).thenReturn(SERVICE_ID);
+        when(service.taskId()).thenReturn(TASK_ID);
+        final ContainerSummary summary = ContainerSummary.builder()
+                .databaseId(1L)
+                .swarm(true)
+                .serviceId(SERVICE_ID)
+                .taskId(TASK_ID)
+                .status("running")
+                .build();
+        when(containerService.retrieveNonfinalizedServiceSummaries()).thenReturn(Collections.singletonList(summary));
+        when(containerService.get(1L)).thenReturn(service);
+
+        updater = new DockerStatusUpdater(controlApi, dockerServerService, containerService, xnatAppInfo);
+    }
+
+    private ServiceTask task(final String status, final Long exitCode) {
+        return ServiceTask.builder()
+                .serviceId(SERVICE_ID)
+                .taskId(TASK_ID)
+                .containerId(CONTAINER_ID)
+                .status(status)
+                .swarmNodeError(false)
+                .statusTime(new Date(0L))
+                .exitCode(exitCode)
+                .build();
+    }
+
+    private void listTasks(final ServiceTask task) throws Exception {
+        when(controlApi.getTasksForServices(eq(server), anyCollectionOf(ContainerSummary.class)))
+                .thenReturn(Collections.singletonMap(SERVICE_ID, task));
+    }
+
+    @Test
+    public void testNewTaskIsInspectedAndThrown() throws Exception {
+        final ServiceTask listed = task("complete", null);
+        final ServiceTask inspected = task("complete", 0L);
+        listTasks(listed);
+        when(controlApi.withExitCode(server, listed)).thenReturn(inspected);
+
+        updater.run();
+
+        verify(controlApi).withExitCode(server, listed);
+        verify(controlApi).throwTaskEvent(inspected, service);
+    }
+
+    @Test
+    public void testUnchangedTaskIsNotInspected() throws Exception {
+        final ServiceTask listed = task("running", null);
+        listTasks(listed);
+        when(controlApi.withExitCode(server, listed)).thenReturn(listed);
+
+        updater.run();
+        updater.run();
+
+        verify(controlApi, times(1)).withExitCode(any(DockerServer.class), any(ServiceTask.class));
+        verify(controlApi, times(1)).throwTaskEvent(any(ServiceTask.class), any(Container.class));
+    }
+
+    @Test
+    public void testChangedTaskIsInspectedAgain() throws Exception {
+        final ServiceTask running = task("running", null);
+        final ServiceTask complete = task("complete", null);
+        final ServiceTask completeWithExitCode = task("complete", 0L);
+        when(controlApi.withExitCode(server, running)).thenReturn(running);
+        when(controlApi.withExitCode(server, complete)).thenReturn(completeWithExitCode);
+
+        listTasks(running);
+        updater.run();
+        listTasks(complete);
+        updater.run();
+        updater.run();
+
+        verify(controlApi, times(1)).withExitCode(server, running);
+        verify(controlApi, times(1)).withExitCode(server, complete);
+        verify(controlApi).throwTaskEvent(running, service);
+        verify(controlApi, times(1)).throwTaskEvent(completeWithExitCode, service);
+        verify(controlApi, never()).throwTaskEventForService(any(DockerServer.class), any(Container.class));
+    }
+}
@@ -0,0 +1,135 @@
+package org.nrg.containers.jms.utils;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.plugin.StatisticsBrokerPlugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nrg.containers.jms.requests.ContainerStagingRequest;
+import org.powermock.reflect.Whitebox;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class QueueMetricsTest {
+    private static final String QUEUE = ContainerStagingRequest.destination;
+
+    private BrokerService otherBroker;
+    private BrokerService broker;
+    private JmsTemplate jmsTemplate;
+    private QueueMetrics queueMetrics;
+
+    @Before
+    public void setup() throws Exception {
+        // Another broker in the same JVM, registered first, that the JMS template does not connect to
+        otherBroker = new BrokerService();
+        otherBroker.setBrokerName("queueMetricsTestOther");
+        otherBroker.setPersistent(false);
+        otherBroker.setUseJmx(false);
+        otherBroker.start();
+        otherBroker.waitUntilStarted();
+        new JmsTemplate(new ActiveMQConnectionFactory("vm://queueMetricsTestOther?create=false")).convertAndSend(QUEUE, "other");
+
+        broker = new BrokerService();
+        broker.setBrokerName("queueMetricsTest");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setPlugins(new BrokerPlugin[]{new StatisticsBrokerPlugin()});
+        broker.start();
+        broker.waitUntilStarted();
+
+        jmsTemplate = new JmsTemplate(new ActiveMQConnectionFactory("vm://queueMetricsTest?create=false"));
+        jmsTemplate.setReceiveTimeout(1000);
+        queueMetrics = new QueueMetrics(jmsTemplate);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+        otherBroker.stop();
+        otherBroker.waitUntilStopped();
+    }
+
+    private void sendAndReceive(final int sent, final int received) {
+        for (int i = 0; i < sent; i++) {
+            jmsTemplate.convertAndSend(QUEUE, "message " + i);
+        }
+        for (int i = 0; i < received; i++) {
+            jmsTemplate.receive(QUEUE);
+        }
+    }
+
+    @Test
+    public void testReadFromBroker() throws Exception {
+        sendAndReceive(5, 2);
+
+        final QueueStatistics statistics = queueMetrics.readFromBroker(QUEUE);
+        assertThat(statistics, is(QueueStatistics.create(QUEUE, 3L, 5L, 2L, 0L, QueueStatistics.SOURCE_BROKER)));
+        assertThat(queueMetrics.count(QUEUE), is(3));
+    }
+
+    @Test
+    public void testFindLocalBroker() throws Exception {
+        assertThat(queueMetrics.findLocalBroker(), is(broker));
+        assertThat(new QueueMetrics(new JmsTemplate(new CachingConnectionFactory(
+                new ActiveMQConnectionFactory("vm://queueMetricsTestOther?create=false")))).findLocalBroker(), is(otherBroker));
+        assertThat(new QueueMetrics(new JmsTemplate(
+                new ActiveMQConnectionFactory("tcp://broker.example.org:61616"))).findLocalBroker(), is(nullValue()));
+    }
+
+    @Test
+    public void testReadFromStatisticsPlugin() throws Exception {
+        sendAndReceive(5, 2);
+
+        final QueueStatistics statistics = queueMetrics.readFromStatisticsPlugin(QUEUE);
+        assertThat(statistics, is(notNullValue()));
+        assertThat(statistics.size(), is(3L));
+        assertThat(statistics.enqueueCount(), is(5L));
+        assertThat(statistics.dequeueCount(), is(2L));
+        assertThat(statistics.source(), is(QueueStatistics.SOURCE_STATISTICS_PLUGIN));
+    }
+
+    @Test
+    public void testStatisticsPluginIsRetriedAfterBackoff() throws Exception {
+        sendAndReceive(5, 2);
+
+        // The plugin doesn't answer for a queue that doesn't exist
+        final long beforeFailure = System.currentTimeMillis();
+        assertThat(queueMetrics.readFromStatisticsPlugin("no.such.queue"), is(nullValue()));
+        final long retryAt = (Long) Whitebox.getInternalState(queueMetrics, "statisticsPluginRetryAt");
+        assertThat(retryAt, greaterThan(beforeFailure + QueueMetrics.STATISTICS_PLUGIN_RETRY_MILLIS - 1));
+
+        // Until the backoff passes, the plugin isn't asked
+        assertThat(queueMetrics.readFromStatisticsPlugin(QUEUE), is(nullValue()));
+
+        Whitebox.setInternalState(queueMetrics, "statisticsPluginRetryAt", System.currentTimeMillis() - 1);
+        final QueueStatistics statistics = queueMetrics.readFromStatisticsPlugin(QUEUE);
+        assertThat(statistics, is(notNullValue()));
+        assertThat(statistics.size(), is(3L));
+    }
+
+    @Test
+    public void testBrowse() throws Exception {
+        sendAndReceive(5, 2);
+
+        final QueueStatistics statistics = queueMetrics.browse(QUEUE);
+        assertThat(statistics, is(QueueStatistics.create(QUEUE, 3L, null, null, null, QueueStatistics.SOURCE_BROWSE)));
+    }
+
+    @Test
+    public void testCountIsCached() throws Exception {
+        sendAndReceive(2, 0);
+        assertThat(queueMetrics.count(QUEUE), is(2));
+
+        sendAndReceive(3, 0);
+        assertThat(queueMetrics.count(QUEUE), is(2));
+    }
+}
@@ -13,8 +13,11 @@ import org.nrg.containers.model.command.auto.Command;
 import org.nrg.containers.model.command.auto.ResolvedCommand;
 import org.nrg.containers.model.command.auto.ResolvedInputTreeNode;
 import org.nrg.containers.model.command.auto.ResolvedInputValue;
+import org.nrg.containers.model.container.ContainerStatusCategory;
 import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.ContainerSummary;
 import org.nrg.containers.model.container.entity.ContainerEntity;
+import org.nrg.containers.model.container.entity.ContainerEntityHistory;
 import org.nrg.containers.services.ContainerEntityService;
 import org.nrg.framework.exceptions.NotFoundException;
 import org.nrg.xft.security.UserI;
@@ -28,6 +31,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
@@ -151,6 +157,116 @@ public class ContainerEntityTest {
         assertThat(nonfinalizedServices, hasItem(serviceNonfinalizedCreated));
     }
 
+    @Test
+    @DirtiesContext
+    public void testStatusCategory() throws Exception {
+        final Container.Builder builder = Container.builder()
+                .commandId(10L)
+                .wrapperId(100L)
+                .userId("me")
+                .dockerImage("whale")
+                .commandLine("exit 0")
+                .swarm(true);
+
+        final ContainerEntity waiting = containerEntityService.create(ContainerEntity.fromPojo(
+                builder.databaseId(1L).serviceId("waiting").status("Waiting").build()));
+        final ContainerEntity finalizing = containerEntityService.create(ContainerEntity.fromPojo(
+                builder.databaseId(2L).serviceId("finalizing").status("Finalizing").build()));
+        final ContainerEntity queued = containerEntityService.create(ContainerEntity.fromPojo(
+                builder.databaseId(3L).serviceId("queued").status("_Waiting").build()));
+        final ContainerEntity failed = containerEntityService.create(ContainerEntity.fromPojo(
+                builder.databaseId(4L).serviceId("failed").status("Failed (Rejected)").build()));
+
+        assertThat(waiting.getStatusCategory(), is(ContainerStatusCategory.WAITING));
+        assertThat(finalizing.getStatusCategory(), is(ContainerStatusCategory.FINALIZING));
+        assertThat(queued.getStatusCategory(), is(ContainerStatusCategory.QUEUED));
+        assertThat(failed.getStatusCategory(), is(ContainerStatusCategory.TERMINAL));
+
+        assertThat(containerEntityService.retrieveServicesInWaitingState(), contains(waiting));
+        assertThat(containerEntityService.retrieveContainersInFinalizingState(), contains(finalizing));
+        assertThat(containerEntityService.retrieveNonfinalizedServices(), containsInAnyOrder(waiting, queued));
+
+        // The category follows the status as history is added
+        containerEntityService.addContainerHistoryItem(waiting,
+                ContainerEntityHistory.fromSystem("Finalizing", waiting), Mockito.mock(UserI.class));
+        assertThat(waiting.getStatusCategory(), is(ContainerStatusCategory.FINALIZING));
+        assertThat(containerEntityService.retrieveServicesInWaitingState(), is(empty()));
+        assertThat(containerEntityService.retrieveContainersInFinalizingState(), containsInAnyOrder(waiting, finalizing));
+    }
+
+    @Test
+    @DirtiesContext
+    public void testNonfinalizedServiceSummaries() throws Exception {
+        final Container.Builder builder = Container.builder()
+                .commandId(10L)
+                .wrapperId(100L)
+                .userId("me")
+                .dockerImage("whale")
+                .commandLine("exit 0")
+                .swarm(true)
+                .addEnvironmentVariable("FOO", "bar");
+
+        final ContainerEntity running = containerEntityService.create(ContainerEntity.fromPojo(
+                builder.databaseId(1L).serviceId("running").taskId("task").status("running").build()));
+        containerEntityService.create(ContainerEntity.fromPojo(
+                builder.databaseId(2L).serviceId("complete").status("Complete").build()));
+        final List<ContainerSummary> summaries = containerEntityService.retrieveNonfinalizedServiceSummaries();
+        assertThat(summaries, hasSize(1));
+
+        final ContainerSummary summary = summaries.get(0);
+        assertThat(summary.databaseId(), is(running.getId()));
+        assertThat(summary.serviceId(), is("running"));
+        assertThat(summary.taskId(), is("task"));
+        assertThat(summary.status(), is("running"));
+        assertThat(summary.userId(), is("me"));
+        assertThat(summary.isSwarmService(), is(true));
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRecordOutputCreated() throws Exception {
+        final Container.ContainerOutput output = Container.ContainerOutput.create(0L, "out", "out", "out-handler",
+                "Resource", true, "output", null, null, null, null, null, null, "session", null);
+        final ContainerEntity created = containerEntityService.create(ContainerEntity.fromPojo(Container.builder()
+                .databaseId(0L)
+                .commandId(10L)
+                .wrapperId(100L)
+                .containerId("abc123")
+                .userId("me")
+                .dockerImage("whale")
+                .commandLine("exit 0")
+                .addOutput(output)
+                .build()));
+        final long outputId = created.getOutputs().get(0).getId();
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        TestTransaction.start();
+
+        final String uri = "/archive/experiments/XNAT_E00001/resources/out";
+        assertThat(containerEntityService.recordOutputUploading(outputId, uri), is(true));
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        TestTransaction.start();
+
+        assertThat(containerEntityService.get(created.getId()).getOutputs().get(0).getUploading(), is(uri));
+        assertThat(containerEntityService.recordOutputCreated(outputId, uri), is(true));
+        // The first URI recorded is kept
+        assertThat(containerEntityService.recordOutputCreated(outputId, "/archive/experiments/XNAT_E00001/resources/other"),
+                is(false));
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        TestTransaction.start();
+
+        final ContainerEntity retrieved = containerEntityService.get(created.getId());
+        assertThat(retrieved.getOutputs().get(0).getCreated(), is(uri));
+        assertThat(retrieved.getOutputs().get(0).getUploading(), is(nullValue()));
+        // Once uploaded, an output isn't marked as uploading again
+        assertThat(containerEntityService.recordOutputUploading(outputId, uri), is(false));
+    }
+
     @Test
     public void testGet() throws Exception {
         final long dbId = 1L;
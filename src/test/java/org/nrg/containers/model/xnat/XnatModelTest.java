@@ -12,6 +12,7 @@ import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 import com.jayway.jsonpath.spi.mapper.MappingProvider;
 import org.junit.Before;
 import org.junit.Test;
+import org.nrg.xdat.om.XnatResourcecatalog;
 
 import java.util.List;
 import java.util.Set;
@@ -20,14 +21,23 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 public class XnatModelTest {
     private static final String FILE_JSON = "{\"name\":\"file.txt\", \"type\":\"File\", \"path\":\"/path/to/files/file.txt\", " +
             "\"tags\":[\"squishy\",\"jovial\"], \"format\":\"TEXT\", \"content\":\"TEXT\"}";
     private static final String RESOURCE_JSON = "{\"id\":\"1\", \"type\":\"Resource\", \"label\":\"a_resource\", " +
             "\"directory\":\"/path/to/files\", \"files\":[" + FILE_JSON + "]}";
+    private static final String UNLISTED_RESOURCE_JSON = "{\"id\":\"1\", \"type\":\"Resource\", \"label\":\"a_resource\", " +
+            "\"directory\":\"/path/to/files\"}";
 
     private static final String SESSION_JSON = "{\"id\":\"E1\", \"type\":\"Session\", \"label\":\"a_session\", " +
             "\"xsiType\":\"xnat:fakesessiondata\", \"resources\":[" + RESOURCE_JSON + "]}";
@@ -78,6 +88,55 @@ public class XnatModelTest {
         assertThat(resource.getFiles(), contains(file));
     }
 
+    @Test
+    public void testResourceEqualityIgnoresFiles() throws Exception {
+        final Resource listed = mapper.readValue(RESOURCE_JSON, Resource.class);
+        final Resource unlisted = mapper.readValue(UNLISTED_RESOURCE_JSON, Resource.class);
+        assertThat(unlisted.getFiles(), is(nullValue()));
+        assertThat(listed, is(unlisted));
+        assertThat(listed.hashCode(), is(unlisted.hashCode()));
+    }
+
+    @Test
+    public void testRestoreFileListerKeepsSerializedFiles() throws Exception {
+        final XnatFile file = mapper.readValue(FILE_JSON, XnatFile.class);
+        final XnatObjectCache cache = mock(XnatObjectCache.class);
+        final Resource resource = mapper.readValue(RESOURCE_JSON, Resource.class);
+        resource.setXnatResourcecatalog(mock(XnatResourcecatalog.class));
+
+        resource.restoreFileLister(null, cache);
+        assertThat(resource.getFiles(), contains(file));
+        verifyZeroInteractions(cache);
+    }
+
+    @Test
+    public void testRestoreFileListerListsFromCatalog() throws Exception {
+        final XnatResourcecatalog catalog = mock(XnatResourcecatalog.class);
+        final XnatObjectCache cache = mock(XnatObjectCache.class);
+        when(cache.getCatalog(catalog, null)).thenReturn(null);
+        final Resource resource = mapper.readValue(UNLISTED_RESOURCE_JSON, Resource.class);
+        resource.setXnatResourcecatalog(catalog);
+
+        resource.restoreFileLister(null, cache);
+        try {
+            resource.getFiles();
+            fail("Expected the resource to read its catalog");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), startsWith("Unable to load catalog"));
+        }
+        verify(cache).getCatalog(catalog, null);
+    }
+
+    @Test
+    public void testRestoreFileListerWithoutCatalog() throws Exception {
+        final XnatObjectCache cache = mock(XnatObjectCache.class);
+        final Resource resource = mapper.readValue(UNLISTED_RESOURCE_JSON, Resource.class);
+
+        resource.restoreFileLister(null, cache);
+        assertThat(resource.getFiles(), is(nullValue()));
+        verifyZeroInteractions(cache);
+    }
+
     @Test
     public void testDeserializeSession() throws Exception {
         final Resource resource = mapper.readValue(RESOURCE_JSON, Resource.class);
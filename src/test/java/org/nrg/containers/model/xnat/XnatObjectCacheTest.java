@@ -0,0 +1,41 @@
+package org.nrg.containers.model.xnat;
+
+import org.junit.Test;
+import org.nrg.xdat.bean.CatCatalogBean;
+import org.nrg.xdat.om.XnatResourcecatalog;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class XnatObjectCacheTest {
+    @Test
+    public void testCatalogIsParsedOnce() throws Exception {
+        final CatCatalogBean catalog = new CatCatalogBean();
+        final XnatResourcecatalog resource = mock(XnatResourcecatalog.class);
+        when(resource.getCatalogFile("/archive")).thenReturn(new File("/archive/resource/catalog.xml"));
+        when(resource.getCatalog("/archive")).thenReturn(catalog);
+
+        final XnatObjectCache cache = new XnatObjectCache();
+        assertThat(cache.getCatalog(resource, "/archive"), sameInstance(catalog));
+        assertThat(cache.getCatalog(resource, "/archive"), sameInstance(catalog));
+        verify(resource, times(1)).getCatalog("/archive");
+    }
+
+    @Test
+    public void testUnreadableCatalogIsNotCached() throws Exception {
+        final CatCatalogBean catalog = new CatCatalogBean();
+        final XnatResourcecatalog resource = mock(XnatResourcecatalog.class);
+        when(resource.getCatalogFile("/archive")).thenReturn(new File("/archive/resource/catalog.xml"));
+        when(resource.getCatalog("/archive")).thenReturn(null, catalog);
+
+        final XnatObjectCache cache = new XnatObjectCache();
+        cache.getCatalog(resource, "/archive");
+        assertThat(cache.getCatalog(resource, "/archive"), sameInstance(catalog));
+    }
+}
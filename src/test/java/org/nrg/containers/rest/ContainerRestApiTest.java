@@ -3,6 +3,7 @@ package org.nrg.containers.rest;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -38,15 +39,21 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -264,4 +271,146 @@ public class ContainerRestApiTest {
             assertThat(uniqueStates, contains("Running-in-project"));
         }
     }
+
+    @Test
+    public void testGetPageWithFilter() throws Exception {
+        final String path = "/containers";
+
+        final MockHttpServletRequestBuilder firstPageRequest = get(path)
+                .param("status", "Running")
+                .param("limit", "3")
+                .with(authentication(ADMIN_AUTH))
+                .with(csrf())
+                .with(testSecurityContext());
+
+        final String firstPageResponse =
+                mockMvc.perform(firstPageRequest)
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(JSON))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+
+        final List<Container> firstPage = mapper.readValue(firstPageResponse, new TypeReference<List<Container>>() {});
+        assertThat(firstPage, hasSize(3));
+
+        final MockHttpServletRequestBuilder secondPageRequest = get(path)
+                .param("status", "Running")
+                .param("limit", "3")
+                .param("after", String.valueOf(firstPage.get(2).databaseId()))
+                .with(authentication(ADMIN_AUTH))
+                .with(csrf())
+                .with(testSecurityContext());
+
+        final String secondPageResponse =
+                mockMvc.perform(secondPageRequest)
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(JSON))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+
+        final List<Container> secondPage = mapper.readValue(secondPageResponse, new TypeReference<List<Container>>() {});
+        assertThat(secondPage, hasSize(1));
+
+        final Set<Long> ids = new HashSet<>();
+        for (final Container container : Iterables.concat(firstPage, secondPage)) {
+            assertThat(container.status(), startsWith("Running"));
+            ids.add(container.databaseId());
+        }
+        assertThat(ids, Matchers.<Long>hasSize(4));
+    }
+
+    @Test
+    public void testStreamAll() throws Exception {
+        final MockHttpServletRequestBuilder request = get("/projects/project/containers/stream")
+                .param("nonfinalized", "true")
+                .with(authentication(ADMIN_AUTH))
+                .with(csrf())
+                .with(testSecurityContext());
+
+        final String response =
+                mockMvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+
+        final List<Container> containers = mapper.readValue(response, new TypeReference<List<Container>>() {});
+        assertThat(containers, hasSize(2));
+        for (final Container container : containers) {
+            assertThat(container.project(), is("project"));
+            assertThat(container.status(), is("Running-in-project"));
+        }
+    }
+
+    private String createContainerWithLog(final String log) throws Exception {
+        final File logFile = new File(folder.newFolder(), "stdout.log");
+        Files.write(logFile.toPath(), log.getBytes(StandardCharsets.UTF_8));
+        containerEntityService.create(ContainerEntity.fromPojo(
+                Container.builder()
+                        .containerId("cid-log")
+                        .status("Complete")
+                        .commandLine("")
+                        .dockerImage("")
+                        .userId("admin")
+                        .commandId(1)
+                        .wrapperId(1)
+                        .databaseId(100)
+                        .logPaths(Collections.singletonList(logFile.getAbsolutePath()))
+                        .build()
+        ));
+        return "cid-log";
+    }
+
+    @Test
+    public void testPollLogLoadAllReadsTheWholeFile() throws Exception {
+        // Longer than one chunk, with characters that have to be escaped
+        final StringBuilder log = new StringBuilder();
+        for (int i = 0; log.length() < 3 * 1024 * 1024 / 2; i++) {
+            log.append("line ").append(i).append(" \"quoted\"\tcaf\u00e9\n");
+        }
+        final String containerId = createContainerWithLog(log.toString());
+
+        final MockHttpServletRequestBuilder request = get("/containers/" + containerId + "/logSince/stdout")
+                .param("loadAll", "true")
+                .with(authentication(ADMIN_AUTH))
+                .with(csrf())
+                .with(testSecurityContext());
+
+        final String response =
+                mockMvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+
+        final Map<String, Object> body = mapper.readValue(response, new TypeReference<Map<String, Object>>() {});
+        assertThat((String) body.get("content"), is(log.toString()));
+        assertThat(((Number) body.get("bytesRead")).longValue(), is(-1L));
+        assertThat((Boolean) body.get("fromFile"), is(true));
+    }
+
+    @Test
+    public void testGetLogTailWithOutOfRangeMaxLength() throws Exception {
+        final String containerId = createContainerWithLog("one\ntwo\n");
+
+        for (final String maxLength : new String[] {"-1", String.valueOf(Long.MAX_VALUE)}) {
+            final MockHttpServletRequestBuilder request = get("/containers/" + containerId + "/logTail/stdout")
+                    .param("maxLength", maxLength)
+                    .with(authentication(ADMIN_AUTH))
+                    .with(csrf())
+                    .with(testSecurityContext());
+
+            final String response =
+                    mockMvc.perform(request)
+                            .andExpect(status().isOk())
+                            .andReturn()
+                            .getResponse()
+                            .getContentAsString();
+
+            final Map<String, Object> chunk = mapper.readValue(response, new TypeReference<Map<String, Object>>() {});
+            assertThat((String) chunk.get("content"), is(maxLength.startsWith("-") ? "" : "one\ntwo\n"));
+        }
+    }
 }
@@ -19,6 +19,8 @@ import org.nrg.action.ClientException;
 import org.nrg.containers.config.ContainersConfig;
 import org.nrg.containers.config.QueueSettingsRestApiTestConfig;
 import org.nrg.containers.jms.preferences.QueuePrefsBean;
+import org.nrg.containers.jms.utils.QueueMetrics;
+import org.nrg.containers.jms.utils.QueueStatistics;
 import org.nrg.prefs.services.NrgPreferenceService;
 import org.nrg.xdat.entities.AliasToken;
 import org.nrg.xdat.security.services.RoleServiceI;
@@ -67,11 +69,23 @@ public class QueueSettingsRestApiTest {
     private static final String MAX_FINALIZING = "concurrencyMaxFinalizingQueue";
     private static final String MIN_STAGING = "concurrencyMinStagingQueue";
     private static final String MAX_STAGING = "concurrencyMaxStagingQueue";
+    private static final String MIN_INGESTING = "concurrencyMinIngestingQueue";
+    private static final String MAX_INGESTING = "concurrencyMaxIngestingQueue";
+    private static final String MIN_RECORDING = "concurrencyMinRecordingQueue";
+    private static final String MAX_RECORDING = "concurrencyMaxRecordingQueue";
+    private static final String MIN_CLEANUP = "concurrencyMinCleanupQueue";
+    private static final String MAX_CLEANUP = "concurrencyMaxCleanupQueue";
     public static final Map<String, Object> PREF_MAP = new HashMap<String, Object>() {{
         put(MIN_FINALIZING, Integer.parseInt(ContainersConfig.QUEUE_MIN_CONCURRENCY_DFLT));
         put(MAX_FINALIZING, Integer.parseInt(ContainersConfig.QUEUE_MAX_CONCURRENCY_DFLT));
         put(MIN_STAGING, Integer.parseInt(ContainersConfig.QUEUE_MIN_CONCURRENCY_DFLT));
         put(MAX_STAGING, Integer.parseInt(ContainersConfig.QUEUE_MAX_CONCURRENCY_DFLT));
+        put(MIN_INGESTING, Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT));
+        put(MAX_INGESTING, Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT));
+        put(MIN_RECORDING, Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT));
+        put(MAX_RECORDING, Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT));
+        put(MIN_CLEANUP, Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MIN_CONCURRENCY_DFLT));
+        put(MAX_CLEANUP, Integer.parseInt(ContainersConfig.FINALIZATION_STAGE_QUEUE_MAX_CONCURRENCY_DFLT));
     }};
 
     private final String PATH = "/jms_queues";
@@ -94,6 +108,10 @@ public class QueueSettingsRestApiTest {
     @Autowired private NrgPreferenceService fakePrefsService;
     @Autowired private DefaultJmsListenerContainerFactory finalizingQueueListenerFactory;
     @Autowired private DefaultJmsListenerContainerFactory stagingQueueListenerFactory;
+    @Autowired private DefaultJmsListenerContainerFactory ingestingQueueListenerFactory;
+    @Autowired private DefaultJmsListenerContainerFactory recordingQueueListenerFactory;
+    @Autowired private DefaultJmsListenerContainerFactory cleanupQueueListenerFactory;
+    @Autowired private QueueMetrics mockQueueMetrics;
     @Autowired private ObjectMapper mapper;
 
     @Rule public TemporaryFolder folder = new TemporaryFolder(new File("/tmp"));
@@ -206,8 +224,8 @@ public class QueueSettingsRestApiTest {
             }
         }
 
-        assertThat(queuePrefsBean.getIntegerValue(minParam), is(Integer.parseInt(ContainersConfig.QUEUE_MIN_CONCURRENCY_DFLT)));
-        assertThat(queuePrefsBean.getIntegerValue(maxParam), is(Integer.parseInt(ContainersConfig.QUEUE_MAX_CONCURRENCY_DFLT)));
+        assertThat(queuePrefsBean.getIntegerValue(minParam), is(PREF_MAP.get(minParam)));
+        assertThat(queuePrefsBean.getIntegerValue(maxParam), is(PREF_MAP.get(maxParam)));
         assertThat((String) Whitebox.getInternalState(factory, "concurrency"),
                 is(prevState));
     }
@@ -249,6 +267,20 @@ public class QueueSettingsRestApiTest {
         testInvalidSet(stagingQueueListenerFactory, MIN_STAGING, MAX_STAGING);
     }
 
+    @Test
+    @DirtiesContext
+    public void testValidSetFinalizationStages() throws Exception {
+        testValidSet(ingestingQueueListenerFactory, MIN_INGESTING, MAX_INGESTING);
+        testValidSet(recordingQueueListenerFactory, MIN_RECORDING, MAX_RECORDING);
+        testValidSet(cleanupQueueListenerFactory, MIN_CLEANUP, MAX_CLEANUP);
+    }
+
+    @Test
+    @DirtiesContext
+    public void testInvalidSetIngesting() throws Exception {
+        testInvalidSet(ingestingQueueListenerFactory, MIN_INGESTING, MAX_INGESTING);
+    }
+
     @Test
     public void testGet() throws Exception {
         // beanAsMap will be equal to PREF_MAP, but let's just be specific - we want the GET to return the bean
@@ -272,6 +304,32 @@ public class QueueSettingsRestApiTest {
         checkBeanValue(beanAsMap, response);
     }
 
+    @Test
+    public void testGetStatistics() throws Exception {
+        final List<QueueStatistics> statistics = Arrays.asList(
+                QueueStatistics.create("containerStagingRequest", 50000L, 60000L, 10000L, 4L,
+                        QueueStatistics.SOURCE_BROKER),
+                QueueStatistics.create("containerFinalizingRequest", 2L, null, null, null,
+                        QueueStatistics.SOURCE_BROWSE));
+        when(mockQueueMetrics.getStatistics()).thenReturn(statistics);
+
+        final MockHttpServletRequestBuilder request = get(PATH + "/statistics")
+                .with(authentication(authentication))
+                .with(csrf())
+                .with(testSecurityContext());
+
+        final String response =
+                mockMvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(JSON))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+
+        final List<QueueStatistics> retrieved = mapper.readValue(response, new TypeReference<List<QueueStatistics>>() {});
+        assertThat(retrieved, is(statistics));
+    }
+
     @Test
     @DirtiesContext
     public void testRefresh() throws Exception  {
@@ -0,0 +1,78 @@
+package org.nrg.containers.services.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nrg.containers.config.CommandTestConfig;
+import org.nrg.containers.model.command.auto.Command;
+import org.nrg.containers.model.command.auto.Command.CommandWrapper;
+import org.nrg.containers.model.command.auto.Command.CommandWrapperExternalInput;
+import org.nrg.containers.services.CommandService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@Transactional
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@ContextConfiguration(classes = CommandTestConfig.class)
+public class CommandServiceImplTest {
+    @Autowired private CommandService commandService;
+
+    private CommandSearchContextCache searchContextCache;
+    private LaunchUiCache launchUiCache;
+    private Command created;
+
+    @Before
+    public void setup() throws Exception {
+        searchContextCache = mock(CommandSearchContextCache.class);
+        launchUiCache = mock(LaunchUiCache.class);
+        ((CommandServiceImpl) commandService).setSearchContextCache(searchContextCache);
+        ((CommandServiceImpl) commandService).setLaunchUiCache(launchUiCache);
+
+        final CommandWrapper wrapper = CommandWrapper.builder()
+                .name("wrapper")
+                .description("a wrapper")
+                .addExternalInput(CommandWrapperExternalInput.builder()
+                        .name("session")
+                        .type("Session")
+                        .build())
+                .build();
+        created = commandService.create(Command.builder()
+                .name("command")
+                .description("a command")
+                .image("abc123")
+                .type("docker")
+                .commandLine("cmd")
+                .addCommandWrapper(wrapper)
+                .build());
+    }
+
+    @Test
+    public void testUpdateCommandInvalidatesCaches() throws Exception {
+        commandService.update(created.toBuilder().description("a new description").build());
+
+        verify(searchContextCache).invalidateCommand(created.id());
+        verify(launchUiCache).invalidateCommand(created.id());
+        verify(searchContextCache, never()).invalidateWrapper(anyLong());
+        verify(launchUiCache, never()).invalidateWrapper(anyLong());
+    }
+
+    @Test
+    public void testUpdateWrapperInvalidatesCaches() throws Exception {
+        final CommandWrapper wrapper = created.xnatCommandWrappers().get(0);
+        commandService.updateWrapper(created.id(), wrapper.toBuilder().description("a new description").build());
+
+        verify(searchContextCache).invalidateWrapper(wrapper.id());
+        verify(launchUiCache).invalidateWrapper(wrapper.id());
+        verify(searchContextCache, never()).invalidateCommand(anyLong());
+        verify(launchUiCache, never()).invalidateCommand(anyLong());
+    }
+}
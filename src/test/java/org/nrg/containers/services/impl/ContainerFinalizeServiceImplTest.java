@@ -0,0 +1,312 @@
+package org.nrg.containers.services.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.nrg.containers.api.ContainerControlApi;
+import org.nrg.containers.model.container.ContainerInputType;
+import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.Container.ContainerInput;
+import org.nrg.containers.model.container.auto.Container.ContainerMount;
+import org.nrg.containers.model.container.auto.Container.ContainerOutput;
+import org.nrg.containers.services.ContainerEntityService;
+import org.nrg.mail.services.MailService;
+import org.nrg.xdat.om.XnatProjectdata;
+import org.nrg.xdat.om.XnatResourcecatalog;
+import org.nrg.xdat.preferences.SiteConfigPreferences;
+import org.nrg.xdat.security.helpers.Permissions;
+import org.nrg.xft.XFTItem;
+import org.nrg.xft.security.UserI;
+import org.nrg.xnat.helpers.uri.URIManager;
+import org.nrg.xnat.helpers.uri.UriParserUtils;
+import org.nrg.xnat.helpers.uri.archive.ResourceURII;
+import org.nrg.xnat.helpers.uri.archive.impl.ExptURI;
+import org.nrg.xnat.services.archive.CatalogService;
+import org.nrg.xnat.turbine.utils.ArchivableItem;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({UriParserUtils.class, Permissions.class, XnatProjectdata.class})
+@PowerMockIgnore({"org.apache.*", "java.*", "javax.*", "org.w3c.*", "com.sun.*"})
+public class ContainerFinalizeServiceImplTest {
+    private static final String SESSION_URI = "/experiments/E1";
+    private static final String OTHER_SESSION_URI = "/experiments/E2";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder(new File("/tmp"));
+
+    private UserI user;
+    private CatalogService catalogService;
+    private ExecutorService outputUploadPool;
+    private ContainerFinalizeServiceImpl containerFinalizeService;
+    private Path outputDir;
+
+    // What the mocked catalog service sees, in the order it sees it
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    private final Map<String, XFTItem> createdItems = new ConcurrentHashMap<>();
+    private final Map<XFTItem, String> createdUris = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> activeUploadsByParent = new ConcurrentHashMap<>();
+    private final AtomicInteger maxActiveUploadsToOneParent = new AtomicInteger();
+    private final CountDownLatch parentsStarted = new CountDownLatch(2);
+    private volatile boolean parentsOverlapped = false;
+
+    @Before
+    public void setup() throws Exception {
+        user = mock(UserI.class);
+        when(user.getLogin()).thenReturn("user");
+        catalogService = mock(CatalogService.class);
+        outputDir = folder.newFolder("out").toPath();
+
+        mockStatic(UriParserUtils.class);
+        when(UriParserUtils.getArchiveUri(any(XFTItem.class))).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(final InvocationOnMock invocation) {
+                return createdUris.get(invocation.getArguments()[0]);
+            }
+        });
+        when(catalogService.insertXmlObject(eq(user), any(File.class), anyBoolean(), anyMapOf(String.class, Object.class), any(Integer.class)))
+                .thenAnswer(new Answer<XFTItem>() {
+                    @Override
+                    public XFTItem answer(final InvocationOnMock invocation) throws Exception {
+                        return upload(new String(Files.readAllBytes(((File) invocation.getArguments()[1]).toPath()), StandardCharsets.UTF_8),
+                                ((File) invocation.getArguments()[1]).getName().replace(".xml", ""));
+                    }
+                });
+
+        outputUploadPool = Executors.newFixedThreadPool(4);
+        containerFinalizeService = new ContainerFinalizeServiceImpl(mock(ContainerControlApi.class),
+                mock(SiteConfigPreferences.class), catalogService, mock(MailService.class));
+        containerFinalizeService.setOutputUploadPool(outputUploadPool);
+    }
+
+    @After
+    public void teardown() {
+        outputUploadPool.shutdownNow();
+    }
+
+    /**
+     * Pretend to insert a scan under the parent named in the scan's xml.
+     */
+    private XFTItem upload(final String parentUri, final String name) throws InterruptedException {
+        events.add("start:" + name);
+        AtomicInteger active = activeUploadsByParent.get(parentUri);
+        if (active == null) {
+            activeUploadsByParent.putIfAbsent(parentUri, new AtomicInteger());
+            active = activeUploadsByParent.get(parentUri);
+        }
+        final int nowActive = active.incrementAndGet();
+        if (nowActive > maxActiveUploadsToOneParent.get()) {
+            maxActiveUploadsToOneParent.set(nowActive);
+        }
+
+        if (name.equals("a") || name.equals("c")) {
+            // The first uploads to each session wait for one another, which they can only do if they run at once
+            parentsStarted.countDown();
+            parentsOverlapped = parentsStarted.await(5, TimeUnit.SECONDS);
+        } else {
+            Thread.sleep(50L);
+        }
+
+        active.decrementAndGet();
+        final XFTItem item = createdItems.get(name);
+        createdUris.put(item, parentUri + "/scans/" + name);
+        events.add("end:" + name);
+        return item;
+    }
+
+    private ContainerOutput output(final String name, final String handledBy, final String parentUri) throws Exception {
+        createdItems.put(name, mock(XFTItem.class));
+        final Path path = Files.createDirectories(outputDir.resolve(name));
+        Files.write(path.resolve(name + ".xml"), parentUri.getBytes(StandardCharsets.UTF_8));
+        return ContainerOutput.builder()
+                .databaseId(0L)
+                .name(name)
+                .fromOutputHandler(name)
+                .type("Scan")
+                .required(true)
+                .mount("out")
+                .path(name)
+                .handledBy(handledBy)
+                .build();
+    }
+
+    private Container container(final ContainerOutput... outputs) {
+        return Container.builder()
+                .databaseId(1L)
+                .commandId(1L)
+                .wrapperId(1L)
+                .userId("user")
+                .dockerImage("image")
+                .commandLine("command")
+                .containerId("container")
+                .status("Complete")
+                .mounts(Collections.singletonList(ContainerMount.builder()
+                        .databaseId(0L)
+                        .name("out")
+                        .writable(true)
+                        .xnatHostPath(outputDir.toString())
+                        .containerHostPath(outputDir.toString())
+                        .containerPath("/output")
+                        .build()))
+                .inputs(Arrays.asList(
+                        ContainerInput.create(0L, ContainerInputType.WRAPPER_EXTERNAL, "session", SESSION_URI, false),
+                        ContainerInput.create(0L, ContainerInputType.WRAPPER_EXTERNAL, "other-session", OTHER_SESSION_URI, false)))
+                .outputs(Arrays.asList(outputs))
+                .build();
+    }
+
+    @Test
+    public void testUploadsByLevelAndParent() throws Exception {
+        final Container container = container(
+                output("a", "session", SESSION_URI),
+                output("b", "session", SESSION_URI),
+                output("c", "other-session", OTHER_SESSION_URI),
+                output("d", "a", SESSION_URI + "/scans/a"));
+
+        final Container ingested = containerFinalizeService.ingestOutputs(container, user, null);
+
+        for (final ContainerOutput output : ingested.outputs()) {
+            assertThat(output.name() + " created", output.created() != null, is(true));
+        }
+        assertThat(parentsOverlapped, is(true));
+        assertThat(maxActiveUploadsToOneParent.get(), is(1));
+        assertThat(events.indexOf("end:a"), lessThan(events.indexOf("start:b")));
+        assertThat(events.indexOf("end:a"), lessThan(events.indexOf("start:d")));
+        assertThat(events.indexOf("end:c"), lessThan(events.indexOf("start:d")));
+    }
+
+    @Test
+    public void testAlreadyCreatedOutputsAreNotUploadedAgain() throws Exception {
+        final String createdA = SESSION_URI + "/scans/a";
+        final Container container = container(
+                output("a", "session", SESSION_URI).toBuilder().created(createdA).build(),
+                output("d", "a", createdA));
+
+        final Container ingested = containerFinalizeService.ingestOutputs(container, user, null);
+
+        assertThat(events, contains("start:d", "end:d"));
+        verify(catalogService, times(1)).insertXmlObject(eq(user), any(File.class), anyBoolean(),
+                anyMapOf(String.class, Object.class), any(Integer.class));
+        assertThat(ingested.outputs().get(0).created(), is(createdA));
+        assertThat(ingested.outputs().get(1).created(), is(createdA + "/scans/d"));
+    }
+
+    @Test
+    public void testGlobThatMatchesNothingUploadsNothing() throws Exception {
+        final Container container = container(
+                output("a", "session", SESSION_URI).toBuilder().glob("*.nii").build(),
+                output("b", "session", SESSION_URI).toBuilder().glob("*.nii").required(false).build());
+
+        final Container ingested = containerFinalizeService.ingestOutputs(container, user, null);
+
+        // Neither output's directory is uploaded in place of the files the glob didn't find
+        verify(catalogService, never()).insertXmlObject(eq(user), any(File.class), anyBoolean(),
+                anyMapOf(String.class, Object.class), any(Integer.class));
+        assertThat(ingested.outputs().get(0).created(), is(nullValue()));
+        assertThat(ingested.outputs().get(1).created(), is(nullValue()));
+
+        // Only the required output fails the upload
+        final Container.ContainerHistory failure = ingested.history().get(ingested.history().size() - 1);
+        assertThat(failure.message(), containsString("\"a\""));
+        assertThat(failure.message(), not(containsString("\"b\"")));
+    }
+
+    @Test
+    public void testInterruptedResourceUploadIsFinishedRatherThanRepeated() throws Exception {
+        // As if we went down after the resource was created and partly filled, but before its URI was recorded
+        final String parentUri = "/archive" + SESSION_URI;
+        final String resourceUri = parentUri + "/resources/OUT";
+        Files.createDirectories(outputDir.resolve("res"));
+        Files.write(outputDir.resolve("res").resolve("T1.nii"), "nifti".getBytes(StandardCharsets.UTF_8));
+        final Path archive = folder.newFolder("archive").toPath();
+        final Path resourceDirectory = Files.createDirectories(archive.resolve("E1").resolve("RESOURCES").resolve("OUT"));
+        Files.write(resourceDirectory.resolve("T1.nii"), "nif".getBytes(StandardCharsets.UTF_8));
+
+        final ArchivableItem session = mock(ArchivableItem.class);
+        when(session.getProject()).thenReturn("project");
+        final ExptURI sessionUri = mock(ExptURI.class);
+        when(sessionUri.getSecurityItem()).thenReturn(session);
+        when(UriParserUtils.parseURI(parentUri)).thenReturn(sessionUri);
+        mockStatic(Permissions.class);
+        when(Permissions.canEdit(user, session)).thenReturn(true);
+        final XnatProjectdata project = mock(XnatProjectdata.class);
+        when(project.getRootArchivePath()).thenReturn(archive.toString());
+        mockStatic(XnatProjectdata.class);
+        when(XnatProjectdata.getXnatProjectdatasById("project", user, false)).thenReturn(project);
+
+        final XnatResourcecatalog resourcecatalog = mock(XnatResourcecatalog.class);
+        when(resourcecatalog.getCatalogFile(archive.toString())).thenReturn(resourceDirectory.resolve("OUT_catalog.xml").toFile());
+        final URIManager.DataURIA resourceUriObject = mock(URIManager.DataURIA.class, withSettings().extraInterfaces(ResourceURII.class));
+        when(((ResourceURII) resourceUriObject).getXnatResource()).thenReturn(resourcecatalog);
+        when(UriParserUtils.parseURI(resourceUri)).thenReturn(resourceUriObject);
+
+        final ContainerEntityService containerEntityService = mock(ContainerEntityService.class);
+        containerFinalizeService.setContainerEntityService(containerEntityService);
+
+        final Container container = container(ContainerOutput.builder()
+                .databaseId(5L)
+                .name("res")
+                .fromOutputHandler("res")
+                .type("Resource")
+                .required(true)
+                .mount("out")
+                .path("res")
+                .label("OUT")
+                .uploading(resourceUri)
+                .handledBy("session")
+                .build());
+
+        final Container ingested = containerFinalizeService.ingestOutputs(container, user, null);
+
+        // The existing resource is filled and adopted, and no second resource is inserted
+        verify(catalogService).refreshResourceCatalog(user, resourceUri);
+        verifyNoMoreInteractions(catalogService);
+        assertThat(new String(Files.readAllBytes(resourceDirectory.resolve("T1.nii")), StandardCharsets.UTF_8), is("nifti"));
+        assertThat(ingested.outputs().get(0).created(), is(resourceUri));
+        assertThat(ingested.outputs().get(0).uploading(), is(nullValue()));
+        verify(containerEntityService).recordOutputCreated(5L, resourceUri);
+        verify(containerEntityService, never()).recordOutputUploading(5L, resourceUri);
+    }
+}
@@ -0,0 +1,184 @@
+package org.nrg.containers.services.impl;
+
+import com.spotify.docker.client.DockerClient.LogsParam;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.nrg.containers.api.ContainerControlApi;
+import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.ContainerSummary;
+import org.nrg.containers.services.ContainerEntityService;
+import org.nrg.containers.services.ContainerService;
+import org.nrg.xdat.preferences.SiteConfigPreferences;
+import org.nrg.xft.schema.XFTManager;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(XFTManager.class)
+@PowerMockIgnore({"org.apache.*", "java.*", "javax.*", "org.w3c.*", "com.sun.*"})
+public class ContainerLogSpoolerImplTest {
+    private static final String FIRST_SECOND = "2020-01-01T00:00:01.5Z";
+    private static final String NEXT_SECOND = "2020-01-01T00:00:02.25Z";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private ContainerControlApi controlApi;
+    private ContainerEntityService containerEntityService;
+    private SiteConfigPreferences siteConfigPreferences;
+    private XnatAppInfo xnatAppInfo;
+    private Container container;
+
+    @Before
+    public void setup() throws Exception {
+        mockStatic(XFTManager.class);
+        when(XFTManager.isInitialized()).thenReturn(true);
+
+        controlApi = mock(ContainerControlApi.class);
+        containerEntityService = mock(ContainerEntityService.class);
+        siteConfigPreferences = mock(SiteConfigPreferences.class);
+        xnatAppInfo = mock(XnatAppInfo.class);
+        when(siteConfigPreferences.getArchivePath()).thenReturn(folder.newFolder().getAbsolutePath());
+        when(xnatAppInfo.isPrimaryNode()).thenReturn(true);
+
+        container = Container.builder()
+                .databaseId(1L)
+                .commandId(1L)
+                .wrapperId(1L)
+                .userId("user")
+                .dockerImage("image")
+                .commandLine("command")
+                .containerId("container")
+                .status("running")
+                .build();
+        when(containerEntityService.retrieveActiveSummaries())
+                .thenReturn(Collections.singletonList(ContainerSummary.create(container)));
+        when(controlApi.getStderrLogStream(any(ContainerSummary.class), Matchers.<LogsParam>anyVararg()))
+                .thenReturn(stream(""), stream(""));
+    }
+
+    private InputStream stream(final String log) {
+        return new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ContainerLogSpoolerImpl spooler() {
+        return new ContainerLogSpoolerImpl(controlApi, containerEntityService, siteConfigPreferences, xnatAppInfo);
+    }
+
+    private String read(final String path) throws Exception {
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFinishAppendsOnlyTheTail() throws Exception {
+        // Docker's "since" is in whole seconds, so the second read repeats the first second
+        when(controlApi.getStdoutLogStream(any(ContainerSummary.class), Matchers.<LogsParam>anyVararg())).thenReturn(
+                stream(FIRST_SECOND + " one\n"),
+                stream(FIRST_SECOND + " one\n" + FIRST_SECOND + " two\n" + NEXT_SECOND + " three\n"));
+
+        final ContainerLogSpoolerImpl spooler = spooler();
+        spooler.spoolRunningContainers();
+        final String stdout = spooler.finishSpooling(container, ContainerService.STDOUT_LOG_NAME);
+
+        assertThat(stdout, is(notNullValue()));
+        assertThat(read(stdout), is("one\ntwo\nthree\n"));
+        assertThat(spooler.finishSpooling(container, ContainerService.STDERR_LOG_NAME), is(nullValue()));
+        spooler.destroy();
+    }
+
+    @Test
+    public void testLinesSplitAcrossReads() throws Exception {
+        // Hand the log out a few bytes at a time, the way frames of a log stream come in
+        final byte[] log = (FIRST_SECOND + " one\n" + FIRST_SECOND + " a longer second line\n" + NEXT_SECOND + " no newline")
+                .getBytes(StandardCharsets.UTF_8);
+        when(controlApi.getStdoutLogStream(any(ContainerSummary.class), Matchers.<LogsParam>anyVararg())).thenReturn(
+                new ByteArrayInputStream(log) {
+                    @Override
+                    public synchronized int read(final byte[] bytes, final int offset, final int length) {
+                        return super.read(bytes, offset, Math.min(length, 7));
+                    }
+                });
+
+        final String stdout = spooler().finishSpooling(container, ContainerService.STDOUT_LOG_NAME);
+        assertThat(read(stdout), is("one\na longer second line\nno newline"));
+    }
+
+    @Test
+    public void testAnotherNodeResumesFromTheCursor() throws Exception {
+        when(controlApi.getStdoutLogStream(any(ContainerSummary.class), Matchers.<LogsParam>anyVararg())).thenReturn(
+                stream(FIRST_SECOND + " one\n"),
+                stream(FIRST_SECOND + " one\n" + NEXT_SECOND + " two\n"));
+
+        final String firstRead = spooler().finishSpooling(container, ContainerService.STDOUT_LOG_NAME);
+        assertThat(read(firstRead), is("one\n"));
+
+        final String stdout = spooler().finishSpooling(container, ContainerService.STDOUT_LOG_NAME);
+        assertThat(stdout, is(firstRead));
+        assertThat(read(stdout), is("one\ntwo\n"));
+    }
+
+    @Test
+    public void testFinishWaitsForThePollAndStopsPolling() throws Exception {
+        final CountDownLatch pollStarted = new CountDownLatch(1);
+        when(controlApi.getStdoutLogStream(any(ContainerSummary.class), Matchers.<LogsParam>anyVararg()))
+                .thenAnswer(new Answer<InputStream>() {
+                    @Override
+                    public InputStream answer(final InvocationOnMock invocation) throws Exception {
+                        // A slow read, still going when the container is finished
+                        pollStarted.countDown();
+                        Thread.sleep(500L);
+                        return stream(FIRST_SECOND + " one\n");
+                    }
+                })
+                .thenReturn(stream(FIRST_SECOND + " one\n" + NEXT_SECOND + " two\n"));
+
+        final ContainerLogSpoolerImpl spooler = spooler();
+        spooler.spoolRunningContainers();
+        assertThat(pollStarted.await(5, TimeUnit.SECONDS), is(true));
+        final String stdout = spooler.finishSpooling(container, ContainerService.STDOUT_LOG_NAME);
+
+        assertThat(read(stdout), is("one\ntwo\n"));
+
+        // The container may still be listed as active while it finalizes
+        spooler.spoolRunningContainers();
+        spooler.destroy();
+        verify(controlApi, times(2)).getStdoutLogStream(any(ContainerSummary.class), Matchers.<LogsParam>anyVararg());
+    }
+
+    @Test
+    public void testOnlyThePrimaryNodePolls() throws Exception {
+        when(xnatAppInfo.isPrimaryNode()).thenReturn(false);
+
+        spooler().spoolRunningContainers();
+
+        verify(containerEntityService, never()).retrieveActiveSummaries();
+    }
+}
@@ -0,0 +1,458 @@
+package org.nrg.containers.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.nrg.containers.api.ContainerControlApi;
+import org.nrg.containers.events.model.DockerSwarmEvent;
+import org.nrg.containers.events.model.ServiceTaskEvent;
+import org.nrg.containers.model.command.auto.Command.CommandWrapper;
+import org.nrg.containers.model.command.auto.Command.ConfiguredCommand;
+import org.nrg.containers.model.command.auto.ResolvedCommand;
+import org.nrg.containers.model.container.FinalizationStage;
+import org.nrg.containers.model.container.auto.Container;
+import org.nrg.containers.model.container.auto.Container.ContainerHistory;
+import org.nrg.containers.model.container.auto.ServiceTask;
+import org.nrg.containers.model.container.entity.ContainerEntity;
+import org.nrg.containers.model.container.entity.ContainerEntityHistory;
+import org.nrg.containers.services.CommandResolutionService;
+import org.nrg.containers.services.CommandService;
+import org.nrg.containers.services.ContainerEntityService;
+import org.nrg.containers.services.ContainerFinalizeService;
+import org.nrg.xdat.preferences.SiteConfigPreferences;
+import org.nrg.xdat.security.helpers.Users;
+import org.nrg.xdat.services.AliasTokenService;
+import org.nrg.xft.event.persist.PersistentWorkflowI;
+import org.nrg.xft.security.UserI;
+import org.nrg.xnat.services.XnatAppInfo;
+import org.nrg.xnat.services.archive.CatalogService;
+import org.nrg.xnat.utils.WorkflowUtils;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Users.class, WorkflowUtils.class})
+@PowerMockIgnore({"org.apache.*", "java.*", "javax.*", "org.w3c.*", "com.sun.*"})
+public class ContainerServiceImplTest {
+    private static final String USER = "user";
+    private static final String SERVICE_ID = "service";
+    private static final String TASK_ID = "task";
+    private static final String NODE_ID = "node";
+
+    private ContainerControlApi controlApi;
+    private ContainerEntityService containerEntityService;
+    private CommandResolutionService commandResolutionService;
+    private CommandService commandService;
+    private ContainerFinalizeService containerFinalizeService;
+    private UserI user;
+    private Container service;
+    private ContainerServiceImpl containerService;
+
+    @Before
+    public void setup() throws Exception {
+        controlApi = mock(ContainerControlApi.class);
+        containerEntityService = mock(ContainerEntityService.class);
+        commandResolutionService = mock(CommandResolutionService.class);
+        commandService = mock(CommandService.class);
+        containerFinalizeService = mock(ContainerFinalizeService.class);
+        user = mock(UserI.class);
+        when(user.getLogin()).thenReturn(USER);
+        mockStatic(Users.class);
+        when(Users.getUser(USER)).thenReturn(user);
+
+        service = Container.builder()
+                .databaseId(1L)
+                .commandId(1L)
+                .wrapperId(1L)
+                .userId(USER)
+                .dockerImage("image")
+                .commandLine("command")
+                .swarm(true)
+                .serviceId(SERVICE_ID)
+                .taskId(TASK_ID)
+                .nodeId(NODE_ID)
+                .status("running")
+                .build();
+        when(containerEntityService.retrieve(SERVICE_ID)).thenAnswer(new Answer<ContainerEntity>() {
+            @Override
+            public ContainerEntity answer(final InvocationOnMock invocation) {
+                return ContainerEntity.fromPojo(service);
+            }
+        });
+        when(containerEntityService.retrieve(1L)).thenAnswer(new Answer<ContainerEntity>() {
+            @Override
+            public ContainerEntity answer(final InvocationOnMock invocation) {
+                return ContainerEntity.fromPojo(service);
+            }
+        });
+        when(containerEntityService.addContainerHistoryItem(any(ContainerEntity.class), any(ContainerEntityHistory.class), any(UserI.class)))
+                .thenAnswer(new Answer<ContainerEntityHistory>() {
+                    @Override
+                    public ContainerEntityHistory answer(final InvocationOnMock invocation) {
+                        return (ContainerEntityHistory) invocation.getArguments()[1];
+                    }
+                });
+
+        containerService = spy(new ContainerServiceImpl(controlApi, containerEntityService,
+                commandResolutionService, commandService, mock(AliasTokenService.class),
+                mock(SiteConfigPreferences.class), containerFinalizeService, mock(XnatAppInfo.class),
+                mock(CatalogService.class)));
+        doNothing().when(containerService).queueFinalize(anyString(), anyBoolean(), any(Container.class), any(UserI.class));
+        doNothing().when(containerService).queueFinalizationStage(any(FinalizationStage.class), any(Container.class),
+                any(UserI.class), anyString(), anyBoolean());
+    }
+
+    private ServiceTask task(final String status, final Long exitCode) {
+        return ServiceTask.builder()
+                .serviceId(SERVICE_ID)
+                .taskId(TASK_ID)
+                .nodeId(NODE_ID)
+                .containerId("container")
+                .status(status)
+                .swarmNodeError(false)
+                .statusTime(new Date())
+                .exitCode(exitCode)
+                .build();
+    }
+
+    /**
+     * Answer a task lookup for the service the way the control api does, by throwing a task event.
+     */
+    private void taskLookupReturns(final ServiceTask task) throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                containerService.processEvent(ServiceTaskEvent.create(task, (Container) invocation.getArguments()[0]));
+                return null;
+            }
+        }).when(controlApi).throwTaskEventForService(any(Container.class));
+    }
+
+    private DockerSwarmEvent serviceUpdate() {
+        return DockerSwarmEvent.create(DockerSwarmEvent.TYPE_SERVICE, "update", SERVICE_ID, new Date(), null,
+                ImmutableMap.<String, String>of());
+    }
+
+    @Test
+    public void testServiceEventWithCompletedTaskFinalizes() throws Exception {
+        taskLookupReturns(task("complete", 0L));
+
+        containerService.processEvent(serviceUpdate());
+
+        verify(controlApi).throwTaskEventForService(any(Container.class));
+        verify(containerService).queueFinalize(eq("0"), eq(true), any(Container.class), eq(user));
+    }
+
+    @Test
+    public void testServiceEventWithRunningTaskDoesNotFinalize() throws Exception {
+        taskLookupReturns(task("running", null));
+
+        containerService.processEvent(serviceUpdate());
+
+        verify(controlApi).throwTaskEventForService(any(Container.class));
+        verify(containerService, never()).queueFinalize(anyString(), anyBoolean(), any(Container.class), any(UserI.class));
+    }
+
+    @Test
+    public void testServiceEventForFinalizingServiceIsIgnored() throws Exception {
+        service = service.toBuilder().status(ContainerServiceImpl.FINALIZING).build();
+
+        containerService.processEvent(serviceUpdate());
+
+        verify(controlApi, never()).throwTaskEventForService(any(Container.class));
+    }
+
+    @Test
+    public void testNodeDownRestartsServicesOnThatNode() throws Exception {
+        when(containerEntityService.retrieveNonfinalizedServices())
+                .thenReturn(Collections.singletonList(ContainerEntity.fromPojo(service)));
+
+        containerService.processEvent(DockerSwarmEvent.create(DockerSwarmEvent.TYPE_NODE, "update", NODE_ID, new Date(), null,
+                ImmutableMap.of("state.new", "down")));
+
+        verify(controlApi).throwRestartEventForService(any(Container.class));
+    }
+
+    /**
+     * Stage one target of a bulk launch whose root element is the session input.
+     */
+    private void stageBulkTarget(final String bulkLaunchId, final String session, final UserI userI) {
+        containerService.consumeResolveCommandAndLaunchContainer(null, 1L, 1L, null,
+                ImmutableMap.of("session", session, "flag", "on"), userI, null, bulkLaunchId, "session");
+    }
+
+    private CommandResolutionService.BulkResolutionPlan bulkPlan() throws Exception {
+        final ConfiguredCommand configuredCommand = mock(ConfiguredCommand.class);
+        when(configuredCommand.wrapper()).thenReturn(mock(CommandWrapper.class));
+        when(commandService.getAndConfigure(null, 1L, null, 1L)).thenReturn(configuredCommand);
+
+        final CommandResolutionService.BulkResolutionPlan plan = mock(CommandResolutionService.BulkResolutionPlan.class);
+        when(plan.configuredCommand()).thenReturn(configuredCommand);
+        when(commandResolutionService.planBulkResolution(eq(configuredCommand), eq("session"), anyMapOf(String.class, String.class), any(UserI.class)))
+                .thenReturn(plan);
+        when(commandResolutionService.resolve(eq(plan), anyMapOf(String.class, String.class), any(UserI.class)))
+                .thenReturn(mock(ResolvedCommand.class));
+        doReturn(service).when(containerService).launchResolvedCommand(any(ResolvedCommand.class), any(UserI.class), any(PersistentWorkflowI.class));
+        return plan;
+    }
+
+    @Test
+    public void testBulkLaunchTargetsShareOnePlan() throws Exception {
+        final CommandResolutionService.BulkResolutionPlan plan = bulkPlan();
+
+        stageBulkTarget("launch", "/experiments/E1", user);
+        stageBulkTarget("launch", "/experiments/E2", user);
+
+        verify(commandService, times(1)).getAndConfigure(null, 1L, null, 1L);
+        verify(commandResolutionService, times(1)).planBulkResolution(any(ConfiguredCommand.class), eq("session"),
+                anyMapOf(String.class, String.class), eq(user));
+        verify(commandResolutionService).resolve(plan, ImmutableMap.of("session", "/experiments/E1", "flag", "on"), user);
+        verify(commandResolutionService).resolve(plan, ImmutableMap.of("session", "/experiments/E2", "flag", "on"), user);
+        verify(containerService, times(2)).launchResolvedCommand(any(ResolvedCommand.class), eq(user), any(PersistentWorkflowI.class));
+    }
+
+    @Test
+    public void testBulkLaunchPlansAreNotSharedAcrossLaunchesOrUsers() throws Exception {
+        bulkPlan();
+        final UserI otherUser = mock(UserI.class);
+        when(otherUser.getLogin()).thenReturn("other");
+
+        stageBulkTarget("launch", "/experiments/E1", user);
+        stageBulkTarget("another-launch", "/experiments/E1", user);
+        stageBulkTarget("launch", "/experiments/E1", otherUser);
+
+        verify(commandResolutionService, times(2)).planBulkResolution(any(ConfiguredCommand.class), eq("session"),
+                anyMapOf(String.class, String.class), eq(user));
+        verify(commandResolutionService, times(1)).planBulkResolution(any(ConfiguredCommand.class), eq("session"),
+                anyMapOf(String.class, String.class), eq(otherUser));
+    }
+
+    @Test
+    public void testLaunchWithoutBulkIdDoesNotPlan() throws Exception {
+        bulkPlan();
+
+        stageBulkTarget(null, "/experiments/E1", user);
+
+        verify(commandResolutionService, never()).planBulkResolution(any(ConfiguredCommand.class), anyString(),
+                anyMapOf(String.class, String.class), any(UserI.class));
+        verify(commandResolutionService).resolve(any(ConfiguredCommand.class), anyMapOf(String.class, String.class), eq(user));
+    }
+
+    private Container finalizingContainer(final String containerId,
+                                          @Nullable final String finalizationStage,
+                                          @Nullable final Date claimTime) {
+        return Container.builder()
+                .databaseId(2L)
+                .commandId(1L)
+                .wrapperId(1L)
+                .userId(USER)
+                .dockerImage("image")
+                .commandLine("command")
+                .containerId(containerId)
+                .status(ContainerServiceImpl.FINALIZING)
+                .finalizationStage(finalizationStage)
+                .finalizationClaimTime(claimTime)
+                .build();
+    }
+
+    private void finalizingContainersAre(final Container... containers) {
+        final List<ContainerEntity> entities = new ArrayList<>();
+        for (final Container container : containers) {
+            entities.add(ContainerEntity.fromPojo(container));
+        }
+        when(containerEntityService.retrieveContainersInFinalizingState()).thenReturn(entities);
+    }
+
+    private Date staleClaimTime() {
+        return new Date(System.currentTimeMillis() - ContainerServiceImpl.FINALIZATION_CLAIM_LEASE_MILLIS - 60000L);
+    }
+
+    private List<String> containerIds(final List<Container> containers) {
+        final List<String> ids = new ArrayList<>();
+        for (final Container container : containers) {
+            ids.add(container.containerId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testResumeInterruptedFinalization() throws Exception {
+        finalizingContainersAre(
+                finalizingContainer("not-started", null, null),
+                finalizingContainer("logs-collected", FinalizationStage.COLLECT_LOGS.getName(), null),
+                finalizingContainer("ingesting", FinalizationStage.COLLECT_LOGS.getName(), new Date()),
+                finalizingContainer("stalled", FinalizationStage.INGEST_OUTPUTS.getName(), staleClaimTime()),
+                finalizingContainer("cleaned-up", FinalizationStage.CLEANUP.getName(), null));
+
+        containerService.resumeInterruptedFinalization();
+
+        verify(containerEntityService).releaseFinalizationClaimsOfEarlierRuns(ContainerServiceImpl.FINALIZATION_CLAIM_NODE,
+                ContainerServiceImpl.FINALIZATION_CLAIM_OWNER, new Date(ContainerServiceImpl.JVM_START_TIME));
+        final ArgumentCaptor<Container> resumedAtStart = ArgumentCaptor.forClass(Container.class);
+        verify(containerService).queueFinalize(anyString(), anyBoolean(), resumedAtStart.capture(), eq(user));
+        assertThat(resumedAtStart.getValue().containerId(), is("not-started"));
+
+        final ArgumentCaptor<FinalizationStage> stages = ArgumentCaptor.forClass(FinalizationStage.class);
+        final ArgumentCaptor<Container> resumed = ArgumentCaptor.forClass(Container.class);
+        verify(containerService, times(2)).queueFinalizationStage(stages.capture(), resumed.capture(), eq(user),
+                anyString(), anyBoolean());
+        assertThat(stages.getAllValues(), contains(FinalizationStage.INGEST_OUTPUTS, FinalizationStage.UPDATE_RECORDS));
+        assertThat(containerIds(resumed.getAllValues()), contains("logs-collected", "stalled"));
+    }
+
+    @Test
+    public void testResumeStalledFinalizationSkipsUnclaimedContainers() throws Exception {
+        finalizingContainersAre(
+                finalizingContainer("not-started", null, null),
+                finalizingContainer("logs-collected", FinalizationStage.COLLECT_LOGS.getName(), null),
+                finalizingContainer("ingesting", FinalizationStage.COLLECT_LOGS.getName(), new Date()),
+                finalizingContainer("stalled", FinalizationStage.INGEST_OUTPUTS.getName(), staleClaimTime()));
+
+        containerService.resumeStalledFinalization();
+
+        verify(containerEntityService, never()).releaseFinalizationClaimsOfEarlierRuns(anyString(), anyString(), any(Date.class));
+        verify(containerService, never()).queueFinalize(anyString(), anyBoolean(), any(Container.class), any(UserI.class));
+        final ArgumentCaptor<Container> resumed = ArgumentCaptor.forClass(Container.class);
+        verify(containerService).queueFinalizationStage(eq(FinalizationStage.UPDATE_RECORDS), resumed.capture(), eq(user),
+                anyString(), anyBoolean());
+        assertThat(resumed.getValue().containerId(), is("stalled"));
+    }
+
+    @Test
+    public void testFinalizationStageIsSkippedWhenItCannotBeClaimed() throws Exception {
+        // The claim mock returns false, as when the stage is done or running elsewhere
+        containerService.consumeFinalizationStage(FinalizationStage.INGEST_OUTPUTS, "0", true,
+                finalizingContainer("ingesting", FinalizationStage.COLLECT_LOGS.getName(), null), user);
+
+        verify(containerEntityService).claimFinalizationStage(eq(2L), eq(FinalizationStage.COLLECT_LOGS.getName()),
+                eq(ContainerServiceImpl.FINALIZATION_CLAIM_OWNER), any(Date.class), any(Date.class));
+        verifyZeroInteractions(containerFinalizeService);
+        verify(containerEntityService, never()).update(any(ContainerEntity.class));
+        verify(containerService, never()).queueFinalizationStage(any(FinalizationStage.class), any(Container.class),
+                any(UserI.class), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void testClaimedFinalizationStageRunsAndQueuesTheNext() throws Exception {
+        when(containerEntityService.claimFinalizationStage(eq(2L), eq(FinalizationStage.COLLECT_LOGS.getName()),
+                eq(ContainerServiceImpl.FINALIZATION_CLAIM_OWNER), any(Date.class), any(Date.class))).thenReturn(true);
+        when(containerFinalizeService.ingestOutputs(any(Container.class), eq(user), anyListOf(Container.class)))
+                .thenAnswer(new Answer<Container>() {
+                    @Override
+                    public Container answer(final InvocationOnMock invocation) {
+                        return (Container) invocation.getArguments()[0];
+                    }
+                });
+
+        containerService.consumeFinalizationStage(FinalizationStage.INGEST_OUTPUTS, "0", true,
+                finalizingContainer("ingesting", FinalizationStage.COLLECT_LOGS.getName(), null), user);
+
+        final ArgumentCaptor<Container> ingested = ArgumentCaptor.forClass(Container.class);
+        verify(containerFinalizeService).ingestOutputs(ingested.capture(), eq(user), anyListOf(Container.class));
+        assertThat(ingested.getValue().finalizationClaimTime(), is(notNullValue()));
+
+        final ArgumentCaptor<ContainerEntity> saved = ArgumentCaptor.forClass(ContainerEntity.class);
+        verify(containerEntityService).update(saved.capture());
+        assertThat(saved.getValue().getFinalizationStage(), is(FinalizationStage.INGEST_OUTPUTS.getName()));
+        assertThat(saved.getValue().getFinalizationClaimTime(), is(nullValue()));
+        final InOrder inOrder = inOrder(containerEntityService);
+        inOrder.verify(containerEntityService).update(any(ContainerEntity.class));
+        inOrder.verify(containerEntityService).releaseFinalizationClaim(2L, ContainerServiceImpl.FINALIZATION_CLAIM_OWNER);
+        verify(containerService).queueFinalizationStage(eq(FinalizationStage.UPDATE_RECORDS), any(Container.class),
+                eq(user), eq("0"), eq(true));
+    }
+
+    @Test
+    public void testFailedFinalizationStageRecordsTheFailure() throws Exception {
+        when(containerEntityService.claimFinalizationStage(eq(2L), eq(FinalizationStage.COLLECT_LOGS.getName()),
+                eq(ContainerServiceImpl.FINALIZATION_CLAIM_OWNER), any(Date.class), any(Date.class))).thenReturn(true);
+        when(containerFinalizeService.ingestOutputs(any(Container.class), eq(user), anyListOf(Container.class)))
+                .thenThrow(new RuntimeException("archive is down"));
+
+        try {
+            containerService.consumeFinalizationStage(FinalizationStage.INGEST_OUTPUTS, "0", true,
+                    finalizingContainer("ingesting", FinalizationStage.COLLECT_LOGS.getName(), null), user);
+            fail("Expected the stage to fail");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), is("archive is down"));
+        }
+
+        verify(containerEntityService).recordFinalizationStageFailure(eq(2L), eq(ContainerServiceImpl.FINALIZATION_CLAIM_OWNER),
+                any(Date.class));
+        verify(containerEntityService, never()).releaseFinalizationClaim(2L, ContainerServiceImpl.FINALIZATION_CLAIM_OWNER);
+        verify(containerEntityService, never()).update(any(ContainerEntity.class));
+        verify(containerEntityService, never()).addContainerHistoryItem(any(ContainerEntity.class),
+                any(ContainerEntityHistory.class), any(UserI.class));
+    }
+
+    @Test
+    public void testFinalizationStageThatKeepsFailingFailsTheContainer() throws Exception {
+        mockStatic(WorkflowUtils.class);
+        when(containerEntityService.claimFinalizationStage(eq(2L), eq(FinalizationStage.COLLECT_LOGS.getName()),
+                eq(ContainerServiceImpl.FINALIZATION_CLAIM_OWNER), any(Date.class), any(Date.class))).thenReturn(true);
+        when(containerFinalizeService.ingestOutputs(any(Container.class), eq(user), anyListOf(Container.class)))
+                .thenThrow(new RuntimeException("archive is down"));
+        when(containerEntityService.recordFinalizationStageFailure(eq(2L), eq(ContainerServiceImpl.FINALIZATION_CLAIM_OWNER),
+                any(Date.class))).thenReturn(ContainerServiceImpl.MAX_FINALIZATION_STAGE_FAILURES);
+
+        // The last failure isn't thrown, so the stage isn't redelivered
+        containerService.consumeFinalizationStage(FinalizationStage.INGEST_OUTPUTS, "0", true,
+                finalizingContainer("ingesting", FinalizationStage.COLLECT_LOGS.getName(), null), user);
+
+        final ArgumentCaptor<ContainerEntityHistory> history = ArgumentCaptor.forClass(ContainerEntityHistory.class);
+        verify(containerEntityService).addContainerHistoryItem(any(ContainerEntity.class), history.capture(), eq(user));
+        assertThat(history.getValue().getStatus(), startsWith("Failed"));
+        assertThat(history.getValue().getMessage(), is("Finalization stage \"" + FinalizationStage.INGEST_OUTPUTS.getName() +
+                "\" failed " + ContainerServiceImpl.MAX_FINALIZATION_STAGE_FAILURES + " times: archive is down"));
+        verify(containerFinalizeService).sendContainerStatusUpdateEmail(eq(user), eq(false), anyString(), anyString(),
+                anyString(), anyString(), anyListOf(String.class));
+        verify(controlApi).removeContainerOrService(any(Container.class));
+        verify(containerService, never()).queueFinalizationStage(any(FinalizationStage.class), any(Container.class),
+                any(UserI.class), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void testRenewFinalizationClaims() throws Exception {
+        containerService.renewFinalizationClaims();
+
+        verify(containerEntityService).renewFinalizationClaims(eq(ContainerServiceImpl.FINALIZATION_CLAIM_OWNER), any(Date.class));
+    }
+}
@@ -0,0 +1,116 @@
+package org.nrg.containers.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.nrg.containers.model.command.auto.LaunchUi;
+import org.nrg.containers.model.command.auto.ResolvedCommand.PartiallyResolvedCommand;
+import org.nrg.containers.model.configuration.CommandConfiguration.CommandInputConfiguration;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServer;
+import org.nrg.containers.model.server.docker.DockerServerBase.DockerServerSwarmConstraint;
+import org.nrg.xft.security.UserI;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LaunchUiCacheTest {
+    private static final long COMMAND_ID = 1L;
+    private static final long WRAPPER_ID = 2L;
+    private static final String PROJECT = "project";
+
+    private final DockerServer server = DockerServer.create("server", "unix:///var/run/docker.sock");
+    private final Map<String, String> inputValues = ImmutableMap.of("name", "value");
+    private UserI user;
+    private LaunchUi launchUi;
+
+    @Before
+    public void setup() {
+        user = mock(UserI.class);
+        when(user.getLogin()).thenReturn("user");
+
+        final PartiallyResolvedCommand partiallyResolvedCommand = PartiallyResolvedCommand.builder()
+                .wrapperId(WRAPPER_ID)
+                .wrapperName("wrapper")
+                .commandId(COMMAND_ID)
+                .commandName("command")
+                .image("image")
+                .build();
+        launchUi = LaunchUi.create(partiallyResolvedCommand,
+                Collections.<String, CommandInputConfiguration>emptyMap(), server, false);
+    }
+
+    @Test
+    public void testSameRequestIsCached() throws Exception {
+        final LaunchUiCache cache = new LaunchUiCache();
+        cache.put(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, server), launchUi);
+
+        assertThat(cache.get(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID,
+                ImmutableMap.of("name", "value"), false, server)), is(sameInstance(launchUi)));
+    }
+
+    @Test
+    public void testOtherUsersAndRequestsAreNotServed() throws Exception {
+        final LaunchUiCache cache = new LaunchUiCache();
+        cache.put(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, server), launchUi);
+
+        final UserI otherUser = mock(UserI.class);
+        when(otherUser.getLogin()).thenReturn("other");
+        assertThat(cache.get(LaunchUiCache.key(otherUser, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, server)),
+                is(nullValue()));
+        assertThat(cache.get(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, true, server)),
+                is(nullValue()));
+        assertThat(cache.get(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID,
+                ImmutableMap.of("name", "other value"), false, server)), is(nullValue()));
+        assertThat(cache.get(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false,
+                server.toBuilder().id(server.id() + 1).build())), is(nullValue()));
+    }
+
+    @Test
+    public void testServerEventCheckTimeDoesNotChangeKey() throws Exception {
+        final LaunchUiCache cache = new LaunchUiCache();
+        cache.put(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, server), launchUi);
+
+        final DockerServer checkedLater = server.toBuilder()
+                .lastEventCheckTime(new Date(server.lastEventCheckTime().getTime() + 10000L))
+                .build();
+        assertThat(cache.get(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, checkedLater)),
+                is(sameInstance(launchUi)));
+    }
+
+    @Test
+    public void testServerSwarmConstraintsChangeKey() throws Exception {
+        final LaunchUiCache cache = new LaunchUiCache();
+        cache.put(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, server), launchUi);
+
+        final DockerServer constrained = server.toBuilder()
+                .swarmConstraints(Collections.singletonList(DockerServerSwarmConstraint.create(1L, true,
+                        "node.role", "==", Collections.singletonList("worker"))))
+                .build();
+        assertThat(cache.get(LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, constrained)),
+                is(nullValue()));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        final LaunchUiCache cache = new LaunchUiCache();
+        final LaunchUiCache.Key key = LaunchUiCache.key(user, PROJECT, 0L, null, WRAPPER_ID, inputValues, false, server);
+
+        cache.put(key, launchUi);
+        cache.invalidateWrapper(WRAPPER_ID + 1);
+        assertThat(cache.get(key), is(sameInstance(launchUi)));
+        cache.invalidateWrapper(WRAPPER_ID);
+        assertThat(cache.get(key), is(nullValue()));
+
+        cache.put(key, launchUi);
+        cache.invalidateCommand(COMMAND_ID);
+        assertThat(cache.get(key), is(nullValue()));
+    }
+}
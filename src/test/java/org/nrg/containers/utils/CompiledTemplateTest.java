@@ -0,0 +1,76 @@
+package org.nrg.containers.utils;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.nrg.containers.exceptions.CommandResolutionException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompiledTemplateTest {
+    private static final CompiledTemplate.JsonpathResolver NO_JSONPATH = new CompiledTemplate.JsonpathResolver() {
+        @Override
+        public String resolve(final String jsonpathSubstring) {
+            return jsonpathSubstring;
+        }
+    };
+
+    @Test
+    public void testReplacesKeys() throws Exception {
+        final CompiledTemplate template = CompiledTemplate.compile("run #IN# --out #OUT# #IN#", Arrays.asList("#IN#", "#OUT#"));
+        assertThat(template.resolve(ImmutableMap.of("#IN#", "/input", "#OUT#", "/output"), NO_JSONPATH),
+                is("run /input --out /output /input"));
+    }
+
+    @Test
+    public void testKeysMissingFromMapAreLeftInPlace() throws Exception {
+        final CompiledTemplate template = CompiledTemplate.compile("#A# #B#", Arrays.asList("#A#", "#B#"));
+        final Map<String, String> values = new HashMap<>();
+        values.put("#A#", null);
+        assertThat(template.resolve(values, NO_JSONPATH), is(" #B#"));
+    }
+
+    @Test
+    public void testLongestKeyWins() throws Exception {
+        final CompiledTemplate template = CompiledTemplate.compile("[PREFIX_NAME]", Arrays.asList("PREFIX", "PREFIX_NAME"));
+        assertThat(template.resolve(ImmutableMap.of("PREFIX", "p", "PREFIX_NAME", "name"), NO_JSONPATH), is("[name]"));
+    }
+
+    @Test
+    public void testJsonpathSubstring() throws Exception {
+        final CompiledTemplate template = CompiledTemplate.compile("#IN# ^wrapper:$.name^", Collections.singletonList("#IN#"));
+        final CompiledTemplate.JsonpathResolver resolver = new CompiledTemplate.JsonpathResolver() {
+            @Override
+            public String resolve(final String jsonpathSubstring) {
+                return jsonpathSubstring.equals("^wrapper:$.name^") ? "wrapper-name" : jsonpathSubstring;
+            }
+        };
+        assertThat(template.resolve(ImmutableMap.of("#IN#", "in"), resolver), is("in wrapper-name"));
+
+        // No result: the substring stays, with its keys replaced
+        final CompiledTemplate unresolved = CompiledTemplate.compile("^$.#IN#^", Collections.singletonList("#IN#"));
+        assertThat(unresolved.resolve(ImmutableMap.of("#IN#", "in"), NO_JSONPATH), is("^$.in^"));
+    }
+
+    @Test
+    public void testFallsBackForKeysItWasNotCompiledWith() throws Exception {
+        final CompiledTemplate template = CompiledTemplate.compile("#A# #B#", Collections.singletonList("#A#"));
+        assertThat(template.resolve(ImmutableMap.of("#A#", "a", "#B#", "b"), NO_JSONPATH), is("a b"));
+    }
+
+    @Test(expected = CommandResolutionException.class)
+    public void testJsonpathErrorsPropagate() throws Exception {
+        CompiledTemplate.compile("^$.inputs[*].name^", Collections.<String>emptyList())
+                .resolve(Collections.<String, String>emptyMap(), new CompiledTemplate.JsonpathResolver() {
+                    @Override
+                    public String resolve(final String jsonpathSubstring) throws CommandResolutionException {
+                        throw new CommandResolutionException("multiple results");
+                    }
+                });
+    }
+}
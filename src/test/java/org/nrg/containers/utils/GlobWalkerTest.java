@@ -0,0 +1,84 @@
+package org.nrg.containers.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GlobWalkerTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder(new File("/tmp"));
+
+    private Path root;
+
+    @Before
+    public void setup() throws Exception {
+        root = folder.newFolder("output").toPath();
+        Files.createFile(root.resolve("report.pdf"));
+        Files.createFile(root.resolve("brain.nii"));
+        Files.createDirectories(root.resolve("sub-01").resolve("anat"));
+        Files.createFile(root.resolve("sub-01").resolve("anat").resolve("T1w.nii"));
+        Files.createFile(root.resolve("sub-01").resolve("anat").resolve("T1w.json"));
+    }
+
+    @Test
+    public void testBlankGlobListsRoot() throws Exception {
+        assertThat(GlobWalker.match(root.toString(), ""), contains(
+                root.resolve("brain.nii").toFile(),
+                root.resolve("report.pdf").toFile(),
+                root.resolve("sub-01").toFile()));
+    }
+
+    @Test
+    public void testGlobMatchesRelativeToRoot() throws Exception {
+        assertThat(GlobWalker.match(root.toString(), "*.nii"), contains(root.resolve("brain.nii").toFile()));
+        assertThat(GlobWalker.match(root.toString(), "**/*.nii"), contains(
+                root.resolve("sub-01").resolve("anat").resolve("T1w.nii").toFile()));
+        assertThat(GlobWalker.match(root.toString(), "{*.nii,**/*.nii}"), containsInAnyOrder(
+                root.resolve("brain.nii").toFile(),
+                root.resolve("sub-01").resolve("anat").resolve("T1w.nii").toFile()));
+    }
+
+    @Test
+    public void testMatchedDirectoryIsReturnedWhole() throws Exception {
+        assertThat(GlobWalker.match(root.toString(), "sub-*"), contains(root.resolve("sub-01").toFile()));
+    }
+
+    @Test
+    public void testSameNamedMatchesKeepTheirSubdirectories() throws Exception {
+        Files.createDirectories(root.resolve("a"));
+        Files.write(root.resolve("a").resolve("T1.nii"), "a".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(root.resolve("b"));
+        Files.write(root.resolve("b").resolve("T1.nii"), "b".getBytes(StandardCharsets.UTF_8));
+
+        final List<File> matches = GlobWalker.match(root.toString(), "{a,b}/*.nii");
+        assertThat(matches, containsInAnyOrder(
+                root.resolve("a").resolve("T1.nii").toFile(),
+                root.resolve("b").resolve("T1.nii").toFile()));
+        assertThat(GlobWalker.hasNestedMatches(root.toString(), matches), is(true));
+        assertThat(GlobWalker.hasNestedMatches(root.toString(), GlobWalker.match(root.toString(), "*")), is(false));
+
+        final Path staging = folder.newFolder("staging").toPath();
+        OutputLinker.linkInto(matches, root, staging);
+        assertThat(new String(Files.readAllBytes(staging.resolve("a").resolve("T1.nii")), StandardCharsets.UTF_8), is("a"));
+        assertThat(new String(Files.readAllBytes(staging.resolve("b").resolve("T1.nii")), StandardCharsets.UTF_8), is("b"));
+        assertThat(Files.exists(staging.resolve("T1.nii")), is(false));
+    }
+
+    @Test
+    public void testMissingRoot() throws Exception {
+        assertThat(GlobWalker.match(root.resolve("missing").toString(), "*"), empty());
+        assertThat(GlobWalker.match(root.resolve("report.pdf").toString(), ""), empty());
+    }
+}
@@ -0,0 +1,92 @@
+package org.nrg.containers.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nrg.containers.model.container.auto.ContainerLogChunk;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LogFileReaderTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadsSavedLogInChunks() throws Exception {
+        final Path log = write("first\nsecond\nthird\n");
+
+        final ContainerLogChunk first = LogFileReader.read(log, 0, 10, false);
+        assertThat(first.content(), is("first\n"));
+        assertThat(first.nextOffset(), is(6L));
+        assertThat(first.complete(), is(false));
+
+        final ContainerLogChunk rest = LogFileReader.read(log, first.nextOffset(), 100, false);
+        assertThat(rest.content(), is("second\nthird\n"));
+        assertThat(rest.offset(), is(6L));
+        assertThat(rest.nextOffset(), is(19L));
+        assertThat(rest.size(), is(19L));
+        assertThat(rest.complete(), is(true));
+    }
+
+    @Test
+    public void testGrowingLogHoldsBackPartialLine() throws Exception {
+        final Path log = write("done\nhalf a li");
+
+        final ContainerLogChunk chunk = LogFileReader.read(log, 0, 100, true);
+        assertThat(chunk.content(), is("done\n"));
+        assertThat(chunk.nextOffset(), is(5L));
+        assertThat(chunk.complete(), is(false));
+
+        final ContainerLogChunk nothingNew = LogFileReader.read(log, chunk.nextOffset(), 100, true);
+        assertThat(nothingNew.content(), is(""));
+        assertThat(nothingNew.nextOffset(), is(5L));
+
+        Files.write(log, "ne\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertThat(LogFileReader.read(log, chunk.nextOffset(), 100, true).content(), is("half a line\n"));
+    }
+
+    @Test
+    public void testLongLineIsNotSplitInsideACharacter() throws Exception {
+        // e-acute is two bytes in UTF-8, so a four byte chunk would end in the middle of the second one
+        final Path log = write("a\u00e9\u00e9\n");
+
+        final ContainerLogChunk chunk = LogFileReader.read(log, 0, 4, false);
+        assertThat(chunk.content(), is("a\u00e9"));
+        assertThat(chunk.nextOffset(), is(3L));
+        assertThat(LogFileReader.read(log, chunk.nextOffset(), 100, false).content(), is("\u00e9\n"));
+    }
+
+    @Test
+    public void testOffsetPastEnd() throws Exception {
+        final Path log = write("line\n");
+
+        final ContainerLogChunk chunk = LogFileReader.read(log, 100, 100, false);
+        assertThat(chunk.content(), is(""));
+        assertThat(chunk.nextOffset(), is(5L));
+        assertThat(chunk.complete(), is(true));
+    }
+
+    @Test
+    public void testShortReadAfterALongOneHasNoLeftoverBytes() throws Exception {
+        final StringBuilder longLog = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            longLog.append("line ").append(i).append('\n');
+        }
+        final ContainerLogChunk whole = LogFileReader.read(write(longLog.toString()), 0, 16 * 1024 * 1024, false);
+        assertThat(whole.content(), is(longLog.toString()));
+
+        final ContainerLogChunk chunk = LogFileReader.read(write("short\n"), 0, 100, false);
+        assertThat(chunk.content(), is("short\n"));
+    }
+
+    private Path write(final String content) throws Exception {
+        final Path log = folder.newFile().toPath();
+        Files.write(log, content.getBytes(StandardCharsets.UTF_8));
+        return log;
+    }
+}
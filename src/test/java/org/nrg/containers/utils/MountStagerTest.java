@@ -0,0 +1,110 @@
+package org.nrg.containers.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MountStagerTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder(new File("/tmp"));
+
+    private Path archive;
+    private Path build;
+
+    @Before
+    public void setup() throws Exception {
+        archive = folder.newFolder("archive").toPath();
+        Files.createDirectories(archive.resolve("DICOM"));
+        Files.write(archive.resolve("DICOM").resolve("1.dcm"), "dicom".getBytes(StandardCharsets.UTF_8));
+        build = folder.newFolder("build").toPath();
+    }
+
+    @Test
+    public void testCopyWithoutKnownContainerUser() throws Exception {
+        final MountStager.Strategy strategy = new MountStager(false).stage(archive, build, null);
+
+        assertThat(strategy, is(MountStager.Strategy.COPY));
+        final Path staged = build.resolve("DICOM").resolve("1.dcm");
+        assertThat(Files.isSameFile(staged, archive.resolve("DICOM").resolve("1.dcm")), is(false));
+        assertThat(new String(Files.readAllBytes(staged), StandardCharsets.UTF_8), is("dicom"));
+    }
+
+    @Test
+    public void testHardlinkFilesContainerCannotWrite() throws Exception {
+        final Path writable = archive.resolve("writable.txt");
+        Files.write(writable, "shared".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(writable, PosixFilePermissions.fromString("rw-rw-rw-"));
+        Files.setPosixFilePermissions(archive.resolve("DICOM").resolve("1.dcm"), PosixFilePermissions.fromString("rw-r--r--"));
+
+        final MountStager.Strategy strategy = new MountStager(false).stage(archive, build, "54321:54321");
+
+        assertThat(strategy, is(MountStager.Strategy.HARDLINK));
+        assertThat(Files.isSameFile(build.resolve("DICOM").resolve("1.dcm"), archive.resolve("DICOM").resolve("1.dcm")), is(true));
+        assertThat(Files.isSameFile(build.resolve("writable.txt"), writable), is(false));
+    }
+
+    @Test
+    public void testHardlinkFollowsLinkedDirectories() throws Exception {
+        final Path elsewhere = folder.newFolder("elsewhere").toPath();
+        final Path linkedFile = elsewhere.resolve("2.dcm");
+        Files.write(linkedFile, "linked dicom".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(linkedFile, PosixFilePermissions.fromString("rw-r--r--"));
+        Files.createSymbolicLink(archive.resolve("LINKED"), elsewhere);
+        Files.createSymbolicLink(archive.resolve("linked.dcm"), linkedFile);
+
+        final MountStager.Strategy strategy = new MountStager(false).stage(archive, build, "54321:54321");
+
+        assertThat(strategy, is(MountStager.Strategy.HARDLINK));
+        final Path stagedDirectory = build.resolve("LINKED");
+        assertThat(Files.isDirectory(stagedDirectory, LinkOption.NOFOLLOW_LINKS), is(true));
+        assertThat(Files.isSameFile(stagedDirectory.resolve("2.dcm"), linkedFile), is(true));
+
+        final Path stagedFile = build.resolve("linked.dcm");
+        assertThat(Files.isSymbolicLink(stagedFile), is(false));
+        assertThat(Files.isSameFile(stagedFile, linkedFile), is(false));
+        assertThat(new String(Files.readAllBytes(stagedFile), StandardCharsets.UTF_8), is("linked dicom"));
+    }
+
+    @Test
+    public void testStageSingleFile() throws Exception {
+        final Path source = archive.resolve("DICOM").resolve("1.dcm");
+        final Path destination = build.resolve("1.dcm");
+
+        new MountStager(false).stage(source, destination, null);
+
+        assertThat(new String(Files.readAllBytes(destination), StandardCharsets.UTF_8), is("dicom"));
+    }
+
+    @Test
+    public void testReflinkUnsupported() throws Exception {
+        assertThat(MountStager.reflinkUnsupported(
+                "cp: failed to clone '/build/1.dcm' from '/archive/1.dcm': Operation not supported"), is(true));
+        assertThat(MountStager.reflinkUnsupported(
+                "cp: failed to clone '/build/1.dcm' from '/archive/1.dcm': Invalid cross-device link"), is(true));
+        assertThat(MountStager.reflinkUnsupported("cp: unrecognized option '--reflink=always'"), is(true));
+
+        // Problems with one mount don't rule out cloning the next
+        assertThat(MountStager.reflinkUnsupported("cp: cannot open '/archive/1.dcm' for reading: Permission denied"), is(false));
+        assertThat(MountStager.reflinkUnsupported("cp: error writing '/build/1.dcm': No space left on device"), is(false));
+    }
+
+    @Test
+    public void testUnprivilegedUid() throws Exception {
+        assertThat(MountStager.unprivilegedUid("1000:1000"), is(1000));
+        assertThat(MountStager.unprivilegedUid("1000"), is(1000));
+        assertThat(MountStager.unprivilegedUid("0:0"), is(nullValue()));
+        assertThat(MountStager.unprivilegedUid("xnat"), is(nullValue()));
+        assertThat(MountStager.unprivilegedUid(null), is(nullValue()));
+    }
+}
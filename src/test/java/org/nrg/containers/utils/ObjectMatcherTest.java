@@ -0,0 +1,119 @@
+package org.nrg.containers.utils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ObjectMatcherTest {
+    private final JsonPropertyReader propertyReader = new JsonPropertyReader(new ObjectMapper());
+
+    public static class Item {
+        private final String label;
+        private final Integer frames;
+        private final String note;
+
+        Item(final String label, final Integer frames, final String note) {
+            this.label = label;
+            this.frames = frames;
+            this.note = note;
+        }
+
+        @JsonProperty("label")
+        public String getLabel() {
+            return label;
+        }
+
+        @JsonProperty("frame-count")
+        public Integer getFrames() {
+            return frames;
+        }
+
+        public String getNote() {
+            return note;
+        }
+    }
+
+    public static class PrivateItem {
+        @JsonProperty("label") private final String label;
+        private final String type;
+
+        PrivateItem(final String label, final String type) {
+            this.label = label;
+            this.type = type;
+        }
+
+        @JsonProperty("type")
+        String type() {
+            return type;
+        }
+    }
+
+    private final Item item = new Item("T1 MPRAGE", 176, null);
+
+    private boolean matches(final String expression) throws Exception {
+        final ObjectMatcher matcher = ObjectMatcher.compile(expression);
+        assertThat(matcher.isSupported(), is(true));
+        return matcher.matches(item, propertyReader);
+    }
+
+    @Test
+    public void testComparisons() throws Exception {
+        assertThat(matches("@.label == 'T1 MPRAGE'"), is(true));
+        assertThat(matches("@.label != \"T1 MPRAGE\""), is(false));
+        assertThat(matches("@['frame-count'] == 176"), is(true));
+        assertThat(matches("@.frame-count == 176.0"), is(true));
+    }
+
+    @Test
+    public void testRegex() throws Exception {
+        assertThat(matches("@.label =~ /t1.*/i"), is(true));
+        assertThat(matches("@.label =~ /T1/"), is(false));
+    }
+
+    @Test
+    public void testLists() throws Exception {
+        assertThat(matches("@.label in ['T2', 'T1 MPRAGE']"), is(true));
+        assertThat(matches("@.label nin ['T2', 'T1 MPRAGE']"), is(false));
+        assertThat(matches("@.frame-count in [1, 176]"), is(true));
+    }
+
+    @Test
+    public void testLogic() throws Exception {
+        assertThat(matches("@.label == 'T2' || @.frame-count == 176"), is(true));
+        assertThat(matches("@.label == 'T1 MPRAGE' && !(@.frame-count == 176)"), is(false));
+        assertThat(matches("@.label"), is(true));
+    }
+
+    @Test
+    public void testUnsupportedExpressions() throws Exception {
+        assertThat(ObjectMatcher.compile("@.a.b == 'c'").isSupported(), is(false));
+        assertThat(ObjectMatcher.compile("@.frame-count > 3").isSupported(), is(false));
+        assertThat(ObjectMatcher.compile("@.label == 'it's'").isSupported(), is(false));
+    }
+
+    @Test
+    public void testPrivateProperties() throws Exception {
+        final PrivateItem privateItem = new PrivateItem("T1 MPRAGE", "scan");
+        assertThat(ObjectMatcher.compile("@.label == 'T1 MPRAGE'").matches(privateItem, propertyReader), is(true));
+        assertThat(ObjectMatcher.compile("@.type == 'scan'").matches(privateItem, propertyReader), is(true));
+        assertThat(ObjectMatcher.compile("@.type == 'resource'").matches(privateItem, propertyReader), is(false));
+    }
+
+    @Test(expected = ObjectMatcher.CannotEvaluateException.class)
+    public void testNullPropertyCannotBeEvaluated() throws Exception {
+        matches("@.note == 'x'");
+    }
+
+    @Test(expected = ObjectMatcher.CannotEvaluateException.class)
+    public void testUnknownPropertyCannotBeEvaluated() throws Exception {
+        matches("@.type == 'scan'");
+    }
+
+    @Test(expected = ObjectMatcher.CannotEvaluateException.class)
+    public void testMismatchedTypesCannotBeEvaluated() throws Exception {
+        matches("@.frame-count == '176'");
+    }
+}
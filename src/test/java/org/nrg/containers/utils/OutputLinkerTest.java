@@ -0,0 +1,132 @@
+package org.nrg.containers.utils;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OutputLinkerTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder(new File("/tmp"));
+
+    private Path build;
+    private Path archive;
+
+    @Before
+    public void setup() throws Exception {
+        build = folder.newFolder("build").toPath();
+        Files.write(build.resolve("report.pdf"), "report".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(build.resolve("sub-01").resolve("anat"));
+        Files.write(build.resolve("sub-01").resolve("anat").resolve("T1w.nii"), "nifti".getBytes(StandardCharsets.UTF_8));
+        archive = folder.newFolder("archive").toPath();
+    }
+
+    @Test
+    public void testCanLink() throws Exception {
+        assertThat(OutputLinker.canLink(Lists.newArrayList(build.resolve("report.pdf").toFile()), archive), is(true));
+        assertThat(OutputLinker.canLink(Collections.<File>emptyList(), archive), is(false));
+        assertThat(OutputLinker.canLink(Lists.newArrayList(build.resolve("missing").toFile()), archive), is(false));
+    }
+
+    @Test
+    public void testLinkInto() throws Exception {
+        final Path resourceDirectory = archive.resolve("RESOURCES").resolve("OUTPUT");
+        final int copied = OutputLinker.linkInto(Lists.newArrayList(
+                build.resolve("report.pdf").toFile(), build.resolve("sub-01").toFile()), resourceDirectory);
+
+        assertThat(copied, is(0));
+        assertThat(Files.isSameFile(resourceDirectory.resolve("report.pdf"), build.resolve("report.pdf")), is(true));
+        final Path linkedNifti = resourceDirectory.resolve("sub-01").resolve("anat").resolve("T1w.nii");
+        assertThat(Files.isSameFile(linkedNifti, build.resolve("sub-01").resolve("anat").resolve("T1w.nii")), is(true));
+        assertThat(new String(Files.readAllBytes(linkedNifti), StandardCharsets.UTF_8), is("nifti"));
+    }
+
+    @Test
+    public void testLinkedFilesCanStillBeReplacedByTheirOwner() throws Exception {
+        Files.setPosixFilePermissions(build.resolve("report.pdf"), PosixFilePermissions.fromString("rw-r--r--"));
+        final Path resourceDirectory = archive.resolve("OUTPUT");
+        OutputLinker.linkInto(Lists.newArrayList(build.resolve("report.pdf").toFile()), resourceDirectory);
+
+        final Path archived = resourceDirectory.resolve("report.pdf");
+        assertThat(Files.isSameFile(archived, build.resolve("report.pdf")), is(true));
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(archived)), is("rw-r--r--"));
+
+        Files.write(archived, "new report".getBytes(StandardCharsets.UTF_8));
+        assertThat(new String(Files.readAllBytes(archived), StandardCharsets.UTF_8), is("new report"));
+    }
+
+    @Test
+    public void testFilesOthersCanWriteAreCopied() throws Exception {
+        final Path shared = build.resolve("shared.txt");
+        Files.write(shared, "shared".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rw-rw-rw-"));
+
+        final Path resourceDirectory = archive.resolve("OUTPUT");
+        final int copied = OutputLinker.linkInto(Lists.newArrayList(shared.toFile()), resourceDirectory);
+
+        assertThat(copied, is(1));
+        assertThat(Files.isSameFile(resourceDirectory.resolve("shared.txt"), shared), is(false));
+        assertThat(new String(Files.readAllBytes(resourceDirectory.resolve("shared.txt")), StandardCharsets.UTF_8), is("shared"));
+    }
+
+    @Test
+    public void testStageAndMoveInto() throws Exception {
+        final Path staging = OutputLinker.createStagingDirectory(archive);
+        assertThat(staging.getParent(), is(archive));
+
+        OutputLinker.linkInto(Lists.newArrayList(
+                build.resolve("report.pdf").toFile(), build.resolve("sub-01").toFile()), staging);
+        final Path resourceDirectory = archive.resolve("RESOURCES").resolve("OUTPUT");
+        assertThat(Files.exists(resourceDirectory), is(false));
+
+        OutputLinker.moveInto(staging, resourceDirectory);
+        OutputLinker.deleteStagingDirectory(staging);
+
+        assertThat(Files.exists(staging), is(false));
+        assertThat(Files.isSameFile(resourceDirectory.resolve("report.pdf"), build.resolve("report.pdf")), is(true));
+        final Path linkedNifti = resourceDirectory.resolve("sub-01").resolve("anat").resolve("T1w.nii");
+        assertThat(Files.isSameFile(linkedNifti, build.resolve("sub-01").resolve("anat").resolve("T1w.nii")), is(true));
+    }
+
+    @Test
+    public void testCopyIntoReplacesLinkedFiles() throws Exception {
+        // As if the move into the resource failed part way
+        final Path resourceDirectory = archive.resolve("RESOURCES").resolve("OUTPUT");
+        OutputLinker.linkInto(Lists.newArrayList(build.resolve("report.pdf").toFile()), resourceDirectory);
+
+        OutputLinker.copyInto(Lists.newArrayList(
+                build.resolve("report.pdf").toFile(), build.resolve("sub-01").toFile()), resourceDirectory);
+
+        assertThat(Files.isSameFile(resourceDirectory.resolve("report.pdf"), build.resolve("report.pdf")), is(false));
+        assertThat(new String(Files.readAllBytes(resourceDirectory.resolve("report.pdf")), StandardCharsets.UTF_8), is("report"));
+        final Path copiedNifti = resourceDirectory.resolve("sub-01").resolve("anat").resolve("T1w.nii");
+        assertThat(new String(Files.readAllBytes(copiedNifti), StandardCharsets.UTF_8), is("nifti"));
+    }
+
+    @Test
+    public void testLinkIntoFollowsLinkedDirectories() throws Exception {
+        final Path elsewhere = folder.newFolder("elsewhere").toPath();
+        final Path linkedFile = elsewhere.resolve("T2w.nii");
+        Files.write(linkedFile, "linked nifti".getBytes(StandardCharsets.UTF_8));
+        Files.setPosixFilePermissions(linkedFile, PosixFilePermissions.fromString("rw-r--r--"));
+        Files.createSymbolicLink(build.resolve("sub-01").resolve("func"), elsewhere);
+
+        final Path resourceDirectory = archive.resolve("OUTPUT");
+        OutputLinker.linkInto(Lists.newArrayList(build.resolve("sub-01").toFile()), resourceDirectory);
+
+        final Path linkedDirectory = resourceDirectory.resolve("sub-01").resolve("func");
+        assertThat(Files.isDirectory(linkedDirectory, LinkOption.NOFOLLOW_LINKS), is(true));
+        assertThat(Files.isSameFile(linkedDirectory.resolve("T2w.nii"), linkedFile), is(true));
+    }
+}